@@ -20,6 +20,8 @@ package com.tmarsteel.jcli;
 import com.tmarsteel.jcli.filter.Filter;
 import com.tmarsteel.jcli.validation.ValidationException;
 
+import java.util.function.Supplier;
+
 /**
  * Represents any parameter passed to the program besides flags and options.
  * @author tmarsteel
@@ -51,6 +53,11 @@ public class Argument implements Filtered
      */
     protected String description = "";
 
+    /**
+     * Produces {@link #description} when it is first requested; null once it has.
+     */
+    private Supplier<String> descriptionSupplier;
+
     /**
      * Whether this argument is required to be specified
      */
@@ -60,6 +67,11 @@ public class Argument implements Filtered
      * Whether this argument accepts multiple values
      */
     protected boolean variadic = false;
+
+    /**
+     * Whether the values of this (variadic) argument are parsed lazily as they are consumed
+     */
+    protected boolean streaming = false;
     
     /**
      * Constructs a new required argument placed at index <code>index</code> that can be
@@ -184,15 +196,28 @@ public class Argument implements Filtered
     /**
      * Returns a human-readable description of this argument.
      */
-    public String getDescription() {
+    public synchronized String getDescription() {
+        if (descriptionSupplier != null) {
+            description = descriptionSupplier.get();
+            descriptionSupplier = null;
+        }
         return description;
     }
 
     /**
      * Sets a human-readable description of this argument.
      */
-    public void setDescription(String description) {
+    public synchronized void setDescription(String description) {
         this.description = description;
+        this.descriptionSupplier = null;
+    }
+
+    /**
+     * Sets the description of this argument to the one the given supplier returns when it is first requested.
+     */
+    public synchronized void setDescriptionSupplier(Supplier<String> supplier) {
+        this.description = null;
+        this.descriptionSupplier = supplier;
     }
 
     /**
@@ -227,6 +252,24 @@ public class Argument implements Filtered
         this.variadic = variadic;
     }
 
+    /**
+     * Returns whether the values of this argument are parsed lazily, as they are consumed.
+     */
+    public boolean isStreaming()
+    {
+        return streaming;
+    }
+
+    /**
+     * Sets whether the values of this argument are parsed lazily, as they are consumed, instead of all of them
+     * during validation. Only variadic arguments can be streaming; their values are accessed through
+     * {@link com.tmarsteel.jcli.validation.Validator.ValidatedInput#getArgumentStream(String)}.
+     */
+    public void setStreaming(boolean streaming)
+    {
+        this.streaming = streaming;
+    }
+
     /**
      * Returns the filter configured for this argument, if any. Otherwise null.
      */
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits command line input into parameters, one at a time: parameters are separated by whitespace; double quotes
+ * enclose parameters containing whitespace and the escape character of the {@link Environment} takes the following
+ * character literally.
+ * @author Tobias Marstaller
+ */
+class ArgumentTokenizer implements ParameterSource
+{
+    private final Reader source;
+    private final char escapeChar;
+    private final String sourceName;
+
+    private final char[] buffer = new char[8192];
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+
+    private final StringBuilder current = new StringBuilder();
+    private boolean inString = false;
+    private boolean escape = false;
+    private boolean exhausted = false;
+
+    /**
+     * @param source The characters to tokenize.
+     * @param escapeChar The escape character, see {@link Environment#getEscapeChar()}.
+     * @param sourceName Name of the source to refer to in error messages; null for inline input.
+     */
+    ArgumentTokenizer(Reader source, char escapeChar, String sourceName)
+    {
+        this.source = source;
+        this.escapeChar = escapeChar;
+        this.sourceName = sourceName;
+    }
+
+    @Override
+    public String next()
+        throws ParseException
+    {
+        if (exhausted)
+        {
+            return null;
+        }
+
+        int c;
+        while ((c = read()) != -1)
+        {
+            if (escape)
+            {
+                escape = false;
+                current.append((char) c);
+            }
+            else if ((c == ' ' || c == '\t' || c == '\n' || c == '\r') && !inString)
+            {
+                if (current.length() > 0)
+                {
+                    return take();
+                }
+            }
+            else if (c == '"')
+            {
+                inString = !inString;
+                if (current.length() > 0)
+                {
+                    return take();
+                }
+            }
+            else if (c == escapeChar)
+            {
+                escape = true;
+            }
+            else
+            {
+                current.append((char) c);
+            }
+        }
+
+        exhausted = true;
+
+        if (inString)
+        {
+            throw new ParseException(sourceName == null? "Unclosed quoted argument"
+                : "Unclosed quoted argument in " + sourceName);
+        }
+
+        return current.length() > 0? take() : null;
+    }
+
+    private String take()
+    {
+        String token = current.toString();
+        current.setLength(0);
+        return token;
+    }
+
+    private int read()
+        throws ParseException
+    {
+        if (bufferPos == bufferLimit)
+        {
+            try
+            {
+                bufferLimit = source.read(buffer, 0, buffer.length);
+            }
+            catch (IOException ex)
+            {
+                throw new ParseException("Failed to read " + sourceName + ": " + ex.getMessage(), ex);
+            }
+
+            bufferPos = 0;
+            if (bufferLimit <= 0)
+            {
+                bufferLimit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[bufferPos++];
+    }
+}
@@ -18,6 +18,8 @@
 package com.tmarsteel.jcli;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Represents a CLI environment.
@@ -32,6 +34,15 @@ public class Environment
     protected String optionMarker;
     protected char escapeChar;
 
+    /**
+     * The default value for {@link #getMaxResponseFileDepth()}.
+     */
+    public static final int DEFAULT_MAX_RESPONSE_FILE_DEPTH = 8;
+
+    protected String responseFileMarker = null;
+    protected int maxResponseFileDepth = DEFAULT_MAX_RESPONSE_FILE_DEPTH;
+    protected Charset responseFileCharset = StandardCharsets.UTF_8;
+
     public Environment(char escapeChar, String flagMarker, String optionMarker)
     {
         this.escapeChar = escapeChar;
@@ -98,6 +109,70 @@ public class Environment
         this.escapeChar = escapeChar;
     }
     
+    /**
+     * Returns the prefix that marks a parameter as a reference to a response file, e.g. <code>@</code>. Null
+     * if response files are disabled, which is the default.
+     */
+    public String getResponseFileMarker()
+    {
+        return responseFileMarker;
+    }
+
+    /**
+     * Sets the prefix that marks a parameter as a reference to a response file, e.g. <code>@</code> for
+     * <code>@args.txt</code>. Such parameters are replaced by the parameters contained in the file, which is
+     * split up just like a command line string (see {@link Input#add(Environment, String)}). Response files may
+     * refer to further response files, up to {@link #getMaxResponseFileDepth()} levels deep. A parameter starting
+     * with the marker twice is taken literally, with one marker removed.
+     * @param responseFileMarker The prefix; null to disable response files.
+     * @throws IllegalArgumentException If <code>responseFileMarker</code> is empty.
+     */
+    public void setResponseFileMarker(String responseFileMarker)
+    {
+        if (responseFileMarker != null && responseFileMarker.isEmpty())
+        {
+            throw new IllegalArgumentException("The response file marker must not be empty");
+        }
+        this.responseFileMarker = responseFileMarker;
+    }
+
+    /**
+     * Returns how deep response files may be nested. Defaults to {@link #DEFAULT_MAX_RESPONSE_FILE_DEPTH}.
+     */
+    public int getMaxResponseFileDepth()
+    {
+        return maxResponseFileDepth;
+    }
+
+    /**
+     * Sets how deep response files may be nested; 1 allows response files but no references within them.
+     * @throws IllegalArgumentException If <code>maxResponseFileDepth</code> is less than 1.
+     */
+    public void setMaxResponseFileDepth(int maxResponseFileDepth)
+    {
+        if (maxResponseFileDepth < 1)
+        {
+            throw new IllegalArgumentException("The response file depth must be positive");
+        }
+        this.maxResponseFileDepth = maxResponseFileDepth;
+    }
+
+    /**
+     * Returns the charset response files are read in. Defaults to UTF-8.
+     */
+    public Charset getResponseFileCharset()
+    {
+        return responseFileCharset;
+    }
+
+    /**
+     * Sets the charset response files are read in.
+     */
+    public void setResponseFileCharset(Charset responseFileCharset)
+    {
+        this.responseFileCharset = responseFileCharset;
+    }
+    
     /**
      * Returns the environment this application is running in. This is one of the
      * classes constants <code>WINDOWS</code> or <code>UNIX</code>.
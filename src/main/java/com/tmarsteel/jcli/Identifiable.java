@@ -20,6 +20,7 @@ package com.tmarsteel.jcli;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Superclass for flags and options that handles aliasing.
@@ -30,6 +31,11 @@ public abstract class Identifiable
     private List<String> names;
     private String description;
 
+    /**
+     * Produces {@link #description} when it is first requested; null once it has.
+     */
+    private Supplier<String> descriptionSupplier;
+
     /**
      * Creates new identifiable; the first element in <code>names</code> becomes
      * the primary identifier (see {@link #getPrimaryIdentifier()}.
@@ -106,17 +112,34 @@ public abstract class Identifiable
      * Sets a string for this {@link Identifiable}.
      * @param desc A description for this {@link Identifiable}
      */
-    public void setDescription(String desc)
+    public synchronized void setDescription(String desc)
     {
         this.description = desc;
+        this.descriptionSupplier = null;
+    }
+
+    /**
+     * Sets the description of this {@link Identifiable} to the one the given supplier returns when it is first
+     * requested.
+     * @param supplier Supplies the description for this {@link Identifiable}
+     */
+    public synchronized void setDescriptionSupplier(Supplier<String> supplier)
+    {
+        this.description = null;
+        this.descriptionSupplier = supplier;
     }
 
     /**
      * Returns a string representing this {@link Identifiable}.
      * @return A string representing this {@link Identifiable}.
      */
-    public String getDescription()
+    public synchronized String getDescription()
     {
+        if (descriptionSupplier != null)
+        {
+            description = descriptionSupplier.get();
+            descriptionSupplier = null;
+        }
         return this.description;
     }
 }
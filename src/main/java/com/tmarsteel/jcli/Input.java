@@ -19,6 +19,7 @@ package com.tmarsteel.jcli;
 
 import com.tmarsteel.jcli.validation.Validator;
 
+import java.io.StringReader;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -167,82 +168,68 @@ public class Input
     
     /**
      * Adds the flags and options contained in <code>paramStr</code> to this input; tells flags and options apart
-     * according to <code>env</code>.
+     * according to <code>env</code>. Expands response files if enabled in <code>env</code>
+     * (see {@link Environment#setResponseFileMarker(String)}).
      * @param env The environment settings to follow when parsing <code>args</code>
      * @param paramStr A string containing the input parameters, e.g.
      *  <code>"-v --input foo.txt"</code>
      * @throws IllegalArgumentException If there is an odd parameter.
-     * @throws ParseException If a quoted parameter has no ending <code>"</code>.
+     * @throws ParseException If a quoted parameter has no ending <code>"</code> or a response file cannot be read.
      */
     public void add(Environment env, String paramStr)
         throws ParseException
     {  
-        List<String> params = new ArrayList<>();
-        
-        boolean inString = false;
-        boolean escape = false;
-        String curStr = "";
-        final char[] argline = paramStr.toCharArray();
-        for (char c : argline)
-        {
-            if (escape)
-            {
-                escape = false;
-                curStr += c;
-            }
-            else
-            {
-                if ((c == ' ' || c == '\t' || c == '\n') && !inString)
-                {
-                    if (!curStr.isEmpty())
-                    {
-                        params.add(curStr);
-                        curStr = "";
-                    }
-                }
-                else if (c == '"')
-                {
-                    if (!curStr.isEmpty())
-                    {
-                        params.add(curStr);
-                        curStr = "";
-                    }
-                    inString = !inString;
-                }
-                else if (c == env.getEscapeChar())
-                {
-                    escape = true;
-                }
-                else
-                {
-                    curStr += c;
-                }
-            }
-        }
-        
-        if (inString)
-        {
-            throw new ParseException("Unclosed quoted argument");
-        }
-        
-        if (!curStr.isEmpty())
-        {
-            params.add(curStr);
-        }
-        
-        add(env, params.toArray(new String[params.size()]));
+        add(env, new ArgumentTokenizer(new StringReader(paramStr), env.getEscapeChar(), null));
     }
     
     /**
      * Adds the flags and options contained in <code>args</code> to this input; tells flags and options apart
-     * according to <code>env</code>.
+     * according to <code>env</code>. Expands response files if enabled in <code>env</code>
+     * (see {@link Environment#setResponseFileMarker(String)}).
      * @param env The environment settings to follow when parsing <code>args</code>
      * @param args The input parameters to parse.
      * @throws IllegalArgumentException If there is an odd parameter.
+     * @throws ParseException If a response file cannot be read.
      */
     public void add(Environment env, String[] args)
         throws ParseException
     {
+        add(env, args, 0, args.length);
+    }
+
+    /**
+     * Like {@link #add(Environment, String[])} but adds only the <code>length</code> parameters starting at
+     * <code>offset</code>, without copying them.
+     * @throws IndexOutOfBoundsException If the range exceeds <code>args</code>.
+     */
+    public void add(Environment env, String[] args, int offset, int length)
+        throws ParseException
+    {
+        if (offset < 0 || length < 0 || offset + length > args.length)
+        {
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " exceeds " + args.length + " parameters");
+        }
+
+        final int end = offset + length;
+        add(env, new ParameterSource() {
+            private int i = offset;
+
+            @Override
+            public String next()
+            {
+                return i < end? args[i++] : null;
+            }
+        });
+    }
+
+    private void add(Environment env, ParameterSource params)
+        throws ParseException
+    {
+        if (env.getResponseFileMarker() != null)
+        {
+            params = new ResponseFileExpander(params, env);
+        }
+
         // if the recognition chars for flags are longer than for options, check
         // for options first
         final boolean flagsOverOptions =
@@ -251,57 +238,66 @@ public class Input
             !env.getFlagMarker().equals(env.getOptionMarker());
         boolean argumentsStarted = false;
         
-        for (int i = 0;i < args.length;i++)
+        try
         {
-            final byte type = getType(flagsOptionsDistinguishable,
-                intent, args[i], env, flagsOverOptions);
-
-            // the first parameter that is only a colon serves as a workaround for #1
-            if (args[i].equals(":") && !argumentsStarted) {
-                argumentsStarted = true;
-            }
-            else if (argumentsStarted) {
-                // once an argument has been seen, everything that follows has to be an argument, too
-                arguments.add(args[i]);
-            }
-            else if (type == 1)
-            {
-                addFlag(args[i], env);
-            }
-            else if (type == 2)
+            String param;
+            while ((param = params.next()) != null)
             {
-                // search for the value
-                if (args.length > i + 1)
-                { // there is another parameter
-                    
-                    String optionName = args[i].substring(env.getOptionMarker().length());
-                    
-                    // add the value
-                    if (!options.containsKey(optionName))
-                    {
-                        options.put(optionName, new ArrayList<>());
-                    }
-                    options.get(optionName).add(args[++i]);
+                final byte type = getType(flagsOptionsDistinguishable,
+                    intent, param, env, flagsOverOptions);
+
+                // the first parameter that is only a colon serves as a workaround for #1
+                if (param.equals(":") && !argumentsStarted) {
+                    argumentsStarted = true;
                 }
-                else
-                { // we have reached the end...
-                    // might this be a flag?
-                    if (isFlag(args[i], env))
-                    {
-                        addFlag(args[i], env);
+                else if (argumentsStarted) {
+                    // once an argument has been seen, everything that follows has to be an argument, too
+                    arguments.add(param);
+                }
+                else if (type == 1)
+                {
+                    addFlag(param, env);
+                }
+                else if (type == 2)
+                {
+                    // search for the value
+                    final String value = params.next();
+                    if (value != null)
+                    { // there is another parameter
+
+                        String optionName = param.substring(env.getOptionMarker().length());
+
+                        // add the value
+                        if (!options.containsKey(optionName))
+                        {
+                            options.put(optionName, new ArrayList<>());
+                        }
+                        options.get(optionName).add(value);
                     }
                     else
-                    {
-                        throw new IllegalArgumentException("Missing value for option " + args[i]);
+                    { // we have reached the end...
+                        // might this be a flag?
+                        if (isFlag(param, env))
+                        {
+                            addFlag(param, env);
+                        }
+                        else
+                        {
+                            throw new IllegalArgumentException("Missing value for option " + param);
+                        }
                     }
                 }
+                else
+                {
+                    // Argument
+                    arguments.add(param);
+                    argumentsStarted = true;
+                }
             }
-            else
-            {
-                // Argument
-                arguments.add(args[i]);
-                argumentsStarted = true;
-            }
+        }
+        finally
+        {
+            params.close();
         }
     }
     
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * The working directory and standard input a command line is parsed for, if they are not those of the process; e.g.
+ * those of a client of a {@link com.tmarsteel.jcli.command.daemon.CommandDaemon}. Set per thread with
+ * {@link #setCurrent(InvocationContext)}, it is used by parsing on that thread: relative paths of
+ * {@link com.tmarsteel.jcli.filter.FileFilter}s and response files are resolved against its working directory and
+ * streaming arguments read {@code -} from its standard input.
+ * @author Tobias Marstaller
+ */
+public final class InvocationContext
+{
+    private static final ThreadLocal<InvocationContext> CURRENT = new ThreadLocal<>();
+
+    private final Path workingDirectory;
+    private final InputStream standardInput;
+
+    /**
+     * @param workingDirectory The directory relative paths are relative to; must be absolute.
+     * @param standardInput The stream to read in place of {@link System#in}.
+     * @throws IllegalArgumentException If <code>workingDirectory</code> is not absolute.
+     */
+    public InvocationContext(Path workingDirectory, InputStream standardInput)
+    {
+        if (!workingDirectory.isAbsolute())
+        {
+            throw new IllegalArgumentException("The working directory must be absolute");
+        }
+        this.workingDirectory = workingDirectory;
+        this.standardInput = Objects.requireNonNull(standardInput);
+    }
+
+    /**
+     * Returns the context of the calling thread; null if it parses for the process itself.
+     */
+    public static InvocationContext current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Sets the context of the calling thread. Threads started by it do not inherit the context.
+     * @param context The context; null to parse for the process itself.
+     */
+    public static void setCurrent(InvocationContext context)
+    {
+        if (context == null)
+        {
+            CURRENT.remove();
+        }
+        else
+        {
+            CURRENT.set(context);
+        }
+    }
+
+    public Path getWorkingDirectory()
+    {
+        return workingDirectory;
+    }
+
+    public InputStream getStandardInput()
+    {
+        return standardInput;
+    }
+
+    /**
+     * Returns the given path as a file, relative to the working directory of the current context if there is one.
+     */
+    public static File file(String path)
+    {
+        File file = new File(path);
+        InvocationContext context = current();
+        return context == null || file.isAbsolute()? file : new File(context.workingDirectory.toFile(), path);
+    }
+
+    /**
+     * Returns the given path, resolved against the working directory of the current context if there is one.
+     * @throws InvalidPathException If <code>path</code> is not a valid path.
+     */
+    public static Path path(String path)
+        throws InvalidPathException
+    {
+        InvocationContext context = current();
+        return context == null? Paths.get(path) : context.workingDirectory.resolve(path);
+    }
+
+    /**
+     * Returns the standard input of the current context; {@link System#in} if there is none.
+     */
+    public static InputStream standardInput()
+    {
+        InvocationContext context = current();
+        return context == null? System.in : context.standardInput;
+    }
+}
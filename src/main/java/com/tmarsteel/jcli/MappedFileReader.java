@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through memory mapped windows of at most {@link #WINDOW_SIZE} bytes, decoding it on the fly. Only
+ * one window is mapped at a time, so files larger than the address space of a single mapping can be read, too.
+ * @author Tobias Marstaller
+ */
+class MappedFileReader extends Reader
+{
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+
+    private ByteBuffer window;
+    private long windowStart = 0;
+    private final CharBuffer decoded = CharBuffer.allocate(8192);
+    private boolean endOfInput = false;
+    private boolean flushed = false;
+
+    MappedFileReader(Path file, Charset charset)
+        throws IOException
+    {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.decoder = charset.newDecoder();
+        this.decoded.flip();
+        mapWindow(0);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len)
+        throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        while (!decoded.hasRemaining())
+        {
+            if (flushed)
+            {
+                return -1;
+            }
+            fill();
+        }
+
+        int n = Math.min(len, decoded.remaining());
+        decoded.get(cbuf, off, n);
+        return n;
+    }
+
+    private void fill()
+        throws IOException
+    {
+        decoded.clear();
+        try
+        {
+            if (endOfInput)
+            {
+                CoderResult result = decoder.decode(window, decoded, true);
+                if (result.isError())
+                {
+                    result.throwException();
+                }
+                if (!result.isOverflow())
+                {
+                    result = decoder.flush(decoded);
+                    flushed = !result.isOverflow();
+                }
+                return;
+            }
+
+            CoderResult result = decoder.decode(window, decoded, false);
+            if (result.isError())
+            {
+                result.throwException();
+            }
+            if (result.isUnderflow())
+            {
+                // the window is used up save for an incomplete character, if any; continue right there
+                long next = windowStart + window.position();
+                if (windowStart + window.limit() >= size)
+                {
+                    endOfInput = true;
+                }
+                else
+                {
+                    mapWindow(next);
+                }
+            }
+        }
+        finally
+        {
+            decoded.flip();
+        }
+    }
+
+    private void mapWindow(long start)
+        throws IOException
+    {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli;
+
+/**
+ * A sequence of raw command line parameters that is consumed one parameter at a time.
+ * @author Tobias Marstaller
+ */
+interface ParameterSource
+{
+    /**
+     * Returns the next parameter or null if there are no more.
+     * @throws ParseException If the input is malformed.
+     */
+    String next()
+        throws ParseException;
+
+    /**
+     * Releases resources held by this source, if any.
+     */
+    default void close()
+    {
+    }
+}
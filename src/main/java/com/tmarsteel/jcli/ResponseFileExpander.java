@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Replaces parameters that refer to response files (see {@link Environment#setResponseFileMarker(String)}) with the
+ * parameters contained in the files. The files are memory mapped and tokenized as they are consumed.
+ * @author Tobias Marstaller
+ */
+class ResponseFileExpander implements ParameterSource
+{
+    private final ParameterSource source;
+    private final Environment env;
+    private final String marker;
+
+    /**
+     * The response files currently being read; the innermost on top.
+     */
+    private final Deque<OpenFile> open = new ArrayDeque<>();
+
+    ResponseFileExpander(ParameterSource source, Environment env)
+    {
+        this.source = source;
+        this.env = env;
+        this.marker = env.getResponseFileMarker();
+    }
+
+    @Override
+    public String next()
+        throws ParseException
+    {
+        while (true)
+        {
+            final String param;
+            if (open.isEmpty())
+            {
+                param = source.next();
+            }
+            else
+            {
+                try
+                {
+                    param = open.peek().tokenizer.next();
+                }
+                catch (ParseException ex)
+                {
+                    closeAll();
+                    throw ex;
+                }
+
+                if (param == null)
+                {
+                    close(open.pop());
+                    continue;
+                }
+            }
+
+            if (param == null || !param.startsWith(marker) || param.length() == marker.length())
+            {
+                return param;
+            }
+
+            final String path = param.substring(marker.length());
+            if (path.startsWith(marker))
+            {
+                // doubled marker: literal parameter
+                return path;
+            }
+
+            push(path);
+        }
+    }
+
+    private void push(String path)
+        throws ParseException
+    {
+        if (open.size() >= env.getMaxResponseFileDepth())
+        {
+            closeAll();
+            throw new ParseException("Response files nested deeper than " + env.getMaxResponseFileDepth()
+                + " levels at " + path);
+        }
+
+        try
+        {
+            Path file = InvocationContext.path(path);
+            MappedFileReader reader = new MappedFileReader(file, env.getResponseFileCharset());
+            open.push(new OpenFile(reader, new ArgumentTokenizer(reader, env.getEscapeChar(), path)));
+        }
+        catch (IOException | InvalidPathException ex)
+        {
+            closeAll();
+            throw new ParseException("Failed to read response file " + path + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closeAll();
+    }
+
+    private void closeAll()
+    {
+        while (!open.isEmpty())
+        {
+            close(open.pop());
+        }
+    }
+
+    private static void close(OpenFile file)
+    {
+        try
+        {
+            file.reader.close();
+        }
+        catch (IOException ex)
+        {
+            // read only; nothing is lost
+        }
+    }
+
+    private static class OpenFile
+    {
+        final MappedFileReader reader;
+        final ArgumentTokenizer tokenizer;
+
+        OpenFile(MappedFileReader reader, ArgumentTokenizer tokenizer)
+        {
+            this.reader = reader;
+            this.tokenizer = tokenizer;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a field to hold the value of an {@link com.tmarsteel.jcli.Argument}. The filter of the argument follows
+ * from the type of the field and its constraint annotations ({@link Range}, {@link DecimalRange}, {@link OneOf},
+ * {@link Matches}). A field of type {@link java.util.List} makes the argument variadic. If the argument is not given,
+ * the field keeps its value.
+ * @author Tobias Marstaller
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface CLIArgument
+{
+    /**
+     * The index of the argument.
+     */
+    int index();
+
+    /**
+     * The identifier of the argument. Defaults to the name of the field.
+     */
+    String name() default "";
+
+    /**
+     * Whether the argument must be given.
+     */
+    boolean required() default true;
+}
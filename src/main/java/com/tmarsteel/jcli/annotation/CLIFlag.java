@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a {@code boolean} field to hold whether a {@link com.tmarsteel.jcli.Flag} is set. The parser for the
+ * class is generated by {@link com.tmarsteel.jcli.annotation.processing.ParserProcessor}.
+ * @author Tobias Marstaller
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface CLIFlag
+{
+    /**
+     * The names of the flag; the first one is the primary identifier. Defaults to the name of the field.
+     */
+    String[] value() default {};
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a field to hold the value of an {@link com.tmarsteel.jcli.Option}. The filter of the option follows from
+ * the type of the field and its constraint annotations ({@link Range}, {@link DecimalRange}, {@link OneOf},
+ * {@link Matches}). A field of type {@link java.util.List} holds all values of an option that may be given multiple
+ * times. If the option is not given, the field keeps its value.
+ * @author Tobias Marstaller
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface CLIOption
+{
+    /**
+     * The names of the option; the first one is the primary identifier. Defaults to the name of the field.
+     */
+    String[] value() default {};
+
+    /**
+     * Whether the option must be given.
+     */
+    boolean required() default false;
+}
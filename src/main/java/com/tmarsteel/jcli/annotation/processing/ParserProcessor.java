@@ -0,0 +1,615 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.annotation.processing;
+
+import com.tmarsteel.jcli.annotation.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a parser for each class with fields annotated with {@link CLIFlag}, {@link CLIOption} or
+ * {@link CLIArgument}. For a class {@code Settings} the parser is {@code SettingsParser} in the same package, with
+ * <ul>
+ *     <li>{@code configure(Validator)}, which adds the flags, options and arguments declared by the class</li>
+ *     <li>{@code newValidator()}, which returns a validator configured so</li>
+ *     <li>{@code bind(ValidatedInput, Settings)}, which stores the parsed values in the fields of a
+ *         {@code Settings} directly</li>
+ *     <li>{@code parse(String[])}, if {@code Settings} has a no-arg constructor</li>
+ * </ul>
+ * The generated code uses neither reflection nor a configuration file. Annotated fields must not be private, static
+ * or final.
+ * <br>
+ * Register this processor with {@code javac -processor} or put it on the annotation processor path; it is listed
+ * in {@code META-INF/services}.
+ * @author Tobias Marstaller
+ */
+@SupportedAnnotationTypes({
+    "com.tmarsteel.jcli.annotation.CLIFlag",
+    "com.tmarsteel.jcli.annotation.CLIOption",
+    "com.tmarsteel.jcli.annotation.CLIArgument"
+})
+public class ParserProcessor extends AbstractProcessor
+{
+    private static final String PARSER_SUFFIX = "Parser";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        Map<TypeElement, List<VariableElement>> fieldsByClass = new LinkedHashMap<>();
+        for (Class<? extends java.lang.annotation.Annotation> annotation :
+            Arrays.asList(CLIFlag.class, CLIOption.class, CLIArgument.class))
+        {
+            for (VariableElement field : ElementFilter.fieldsIn(roundEnv.getElementsAnnotatedWith(annotation)))
+            {
+                TypeElement declaringClass = (TypeElement) field.getEnclosingElement();
+                List<VariableElement> fields = fieldsByClass.computeIfAbsent(declaringClass, k -> new ArrayList<>());
+                if (!fields.contains(field))
+                {
+                    fields.add(field);
+                }
+            }
+        }
+
+        for (Map.Entry<TypeElement, List<VariableElement>> entry : fieldsByClass.entrySet())
+        {
+            try
+            {
+                generateParser(entry.getKey(), entry.getValue());
+            }
+            catch (InvalidDeclarationException ex)
+            {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, ex.getMessage(), ex.element);
+            }
+            catch (IOException ex)
+            {
+                processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR, "Could not write parser: " + ex.getMessage(), entry.getKey());
+            }
+        }
+
+        return true;
+    }
+
+    private void generateParser(TypeElement type, List<VariableElement> fields)
+        throws InvalidDeclarationException, IOException
+    {
+        // the fields in source order
+        List<VariableElement> ordered = new ArrayList<>(ElementFilter.fieldsIn(type.getEnclosedElements()));
+        ordered.retainAll(fields);
+
+        List<String> configure = new ArrayList<>();
+        List<String> bind = new ArrayList<>();
+        int n = 0;
+        for (VariableElement field : ordered)
+        {
+            checkAccessible(field);
+            String fieldName = field.getSimpleName().toString();
+            CLIFlag flag = field.getAnnotation(CLIFlag.class);
+            CLIOption option = field.getAnnotation(CLIOption.class);
+            CLIArgument argument = field.getAnnotation(CLIArgument.class);
+            if ((flag != null? 1 : 0) + (option != null? 1 : 0) + (argument != null? 1 : 0) > 1)
+            {
+                throw new InvalidDeclarationException(field, "A field can only be one of flag, option and argument");
+            }
+
+            if (flag != null)
+            {
+                if (field.asType().getKind() != TypeKind.BOOLEAN && !isClass(field.asType(), "java.lang.Boolean"))
+                {
+                    throw new InvalidDeclarationException(field, "Flags must be boolean");
+                }
+                String[] names = names(flag.value(), fieldName);
+                configure.add("validator.add(new com.tmarsteel.jcli.Flag(" + literals(names) + "));");
+                bind.add("target." + fieldName + " = input.isFlagSet(" + literal(names[0]) + ");");
+                continue;
+            }
+
+            String var = "element" + n++;
+            TypeMirror elementType = listElementType(field);
+            boolean multiple = elementType != null;
+            if (!multiple)
+            {
+                elementType = field.asType();
+            }
+            ValueType valueType = valueType(field, elementType);
+
+            String identifier;
+            if (option != null)
+            {
+                String[] names = names(option.value(), fieldName);
+                identifier = names[0];
+                configure.add("com.tmarsteel.jcli.Option " + var + " = new com.tmarsteel.jcli.Option("
+                    + valueType.filter + ", null, " + literals(names) + ");");
+                configure.add(var + ".setRequired(" + option.required() + ");");
+                configure.add(var + ".setAllowsMultipleValues(" + multiple + ");");
+                bind.add("values = input.getOptionValues(" + literal(identifier) + ");");
+            }
+            else
+            {
+                identifier = argument.name().isEmpty()? fieldName : argument.name();
+                configure.add("com.tmarsteel.jcli.Argument " + var + " = new com.tmarsteel.jcli.Argument("
+                    + literal(identifier) + ", " + argument.index() + ", " + valueType.filter + ");");
+                configure.add(var + ".setRequired(" + argument.required() + ");");
+                configure.add(var + ".setVariadic(" + multiple + ");");
+                bind.add("values = input.getArgumentValues(" + literal(identifier) + ");");
+            }
+            configure.add("validator.add(" + var + ");");
+
+            bind.add("if (!values.isEmpty())");
+            bind.add("{");
+            if (multiple)
+            {
+                bind.add("    java.util.List<" + valueType.boxedName + "> list = new java.util.ArrayList<>(values.size());");
+                bind.add("    for (Object value : values)");
+                bind.add("    {");
+                bind.add("        list.add(" + valueType.conversion("value") + ");");
+                bind.add("    }");
+                bind.add("    target." + fieldName + " = list;");
+            }
+            else
+            {
+                bind.add("    target." + fieldName + " = " + valueType.conversion("values.get(0)") + ";");
+            }
+            bind.add("}");
+        }
+
+        writeParser(type, configure, bind);
+    }
+
+    private void writeParser(TypeElement type, List<String> configure, List<String> bind)
+        throws IOException
+    {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String parserName = binaryNameWithin(type).replace('.', '_') + PARSER_SUFFIX;
+
+        Writer out = processingEnv.getFiler().createSourceFile(
+            packageName.isEmpty()? parserName : packageName + "." + parserName, type).openWriter();
+        try (PrintWriter w = new PrintWriter(out))
+        {
+            if (!packageName.isEmpty())
+            {
+                w.println("package " + packageName + ";");
+                w.println();
+            }
+            w.println("/**");
+            w.println(" * Parses command line input into {@link " + typeName + "}s.");
+            w.println(" * Generated by " + ParserProcessor.class.getName() + "; do not edit.");
+            w.println(" */");
+            String generated = generatedAnnotation();
+            if (generated != null)
+            {
+                w.println("@" + generated + "(\"" + ParserProcessor.class.getName() + "\")");
+            }
+            w.println("public final class " + parserName);
+            w.println("{");
+            w.println("    private " + parserName + "() {}");
+            w.println();
+            w.println("    /**");
+            w.println("     * Adds the flags, options and arguments declared by {@link " + typeName + "} to the given validator.");
+            w.println("     */");
+            w.println("    public static void configure(com.tmarsteel.jcli.validation.Validator validator)");
+            w.println("    {");
+            for (String line : configure)
+            {
+                w.println("        " + line);
+            }
+            w.println("    }");
+            w.println();
+            w.println("    /**");
+            w.println("     * Returns a validator for the default environment, configured with {@link #configure}.");
+            w.println("     */");
+            w.println("    public static com.tmarsteel.jcli.validation.Validator newValidator()");
+            w.println("    {");
+            w.println("        com.tmarsteel.jcli.validation.Validator validator = new com.tmarsteel.jcli.validation.Validator();");
+            w.println("        configure(validator);");
+            w.println("        return validator;");
+            w.println("    }");
+            w.println();
+            w.println("    /**");
+            w.println("     * Stores the values in {@code input} in the fields of {@code target}; fields whose option or argument");
+            w.println("     * was not given keep their value.");
+            w.println("     */");
+            w.println("    public static void bind(com.tmarsteel.jcli.validation.Validator.ValidatedInput input, "
+                + typeName + " target)");
+            w.println("    {");
+            w.println("        java.util.List<Object> values;");
+            for (String line : bind)
+            {
+                w.println("        " + line);
+            }
+            w.println("    }");
+            if (hasNoArgConstructor(type))
+            {
+                w.println();
+                w.println("    /**");
+                w.println("     * Parses and validates the given input into a new {@link " + typeName + "}.");
+                w.println("     */");
+                w.println("    public static " + typeName + " parse(String[] args)");
+                w.println("        throws com.tmarsteel.jcli.ParseException, com.tmarsteel.jcli.validation.ValidationException");
+                w.println("    {");
+                w.println("        " + typeName + " target = new " + typeName + "();");
+                w.println("        bind(newValidator().parse(args), target);");
+                w.println("        return target;");
+                w.println("    }");
+            }
+            w.println("}");
+        }
+    }
+
+    /**
+     * Describes how values of a Java type are parsed and converted.
+     */
+    private static final class ValueType
+    {
+        /**
+         * Source of the filter expression; {@code "null"} for none.
+         */
+        final String filter;
+
+        /**
+         * Source of the type the filter returns.
+         */
+        final String filterResultType;
+
+        /**
+         * Name of the method of {@link Number} unboxing the filter result; null to only cast it.
+         */
+        final String unboxing;
+
+        /**
+         * The name of the type, boxed if primitive.
+         */
+        final String boxedName;
+
+        ValueType(String filter, String filterResultType, String unboxing, String boxedName)
+        {
+            this.filter = filter;
+            this.filterResultType = filterResultType;
+            this.unboxing = unboxing;
+            this.boxedName = boxedName;
+        }
+
+        String conversion(String value)
+        {
+            String cast = "((" + filterResultType + ") " + value + ")";
+            return unboxing == null? cast : cast + "." + unboxing + "()";
+        }
+    }
+
+    private ValueType valueType(VariableElement field, TypeMirror type)
+        throws InvalidDeclarationException
+    {
+        Range range = field.getAnnotation(Range.class);
+        DecimalRange decimalRange = field.getAnnotation(DecimalRange.class);
+        OneOf oneOf = field.getAnnotation(OneOf.class);
+        Matches matches = field.getAnnotation(Matches.class);
+
+        TypeMirror unboxed = unbox(type);
+        TypeKind kind = unboxed == null? type.getKind() : unboxed.getKind();
+        String boxedName = unboxed == null? type.toString() : type.getKind().isPrimitive()?
+            processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString()
+            : type.toString();
+
+        switch (kind)
+        {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                rejectConstraints(field, decimalRange, oneOf, matches);
+                long[] bounds = integralBounds(kind);
+                long min = range == null? bounds[0] : Math.max(range.min(), bounds[0]);
+                long max = range == null? bounds[1] : Math.min(range.max(), bounds[1]);
+                int radix = range == null? 10 : range.radix();
+                return new ValueType(
+                    "new com.tmarsteel.jcli.filter.IntegerFilter(" + min + "L, " + max + "L, " + radix + ")",
+                    "Long", kind.name().toLowerCase(Locale.ROOT) + "Value", boxedName);
+            case FLOAT:
+            case DOUBLE:
+                rejectConstraints(field, range, oneOf, matches);
+                return new ValueType(
+                    decimalRange == null? "new com.tmarsteel.jcli.filter.DecimalFilter()" :
+                        "new com.tmarsteel.jcli.filter.DecimalFilter(" + doubleLiteral(decimalRange.min()) + ", "
+                            + doubleLiteral(decimalRange.max()) + ")",
+                    "Double", kind.name().toLowerCase(Locale.ROOT) + "Value", boxedName);
+            case DECLARED:
+                break;
+            default:
+                throw new InvalidDeclarationException(field, "Unsupported type " + type);
+        }
+
+        if (isClass(type, "java.lang.String"))
+        {
+            rejectConstraints(field, range, decimalRange);
+            if (oneOf != null && matches != null)
+            {
+                throw new InvalidDeclarationException(field, "@OneOf and @Matches cannot be combined");
+            }
+            String filter = "null";
+            if (oneOf != null)
+            {
+                filter = "new com.tmarsteel.jcli.filter.SetFilter(" + oneOf.caseSensitive()
+                    + (oneOf.value().length > 0? ", " + literals(oneOf.value()) : "") + ")";
+            }
+            else if (matches != null)
+            {
+                filter = "new com.tmarsteel.jcli.filter.RegexFilter(" + literal(matches.value()) + ")";
+            }
+            return new ValueType(filter, "String", null, boxedName);
+        }
+        if (isClass(type, "java.math.BigInteger"))
+        {
+            rejectConstraints(field, decimalRange, oneOf, matches);
+            String filter = "new com.tmarsteel.jcli.filter.BigIntegerFilter()";
+            if (range != null)
+            {
+                // a bound left at its default means unbounded; BigIntegers are not limited to the range of long
+                filter = "new com.tmarsteel.jcli.filter.BigIntegerFilter("
+                    + (range.min() == Long.MIN_VALUE? "null" : "java.math.BigInteger.valueOf(" + range.min() + "L)") + ", "
+                    + (range.max() == Long.MAX_VALUE? "null" : "java.math.BigInteger.valueOf(" + range.max() + "L)") + ", "
+                    + range.radix() + ")";
+            }
+            return new ValueType(filter, "java.math.BigInteger", null, boxedName);
+        }
+        if (isClass(type, "java.math.BigDecimal"))
+        {
+            rejectConstraints(field, range, oneOf, matches);
+            String filter = "new com.tmarsteel.jcli.filter.BigDecimalFilter()";
+            if (decimalRange != null)
+            {
+                // a bound left at its default means unbounded; BigDecimals are not limited to the range of double
+                filter = "new com.tmarsteel.jcli.filter.BigDecimalFilter("
+                    + (decimalRange.min() == -Double.MAX_VALUE? "null"
+                        : "java.math.BigDecimal.valueOf(" + doubleLiteral(decimalRange.min()) + ")") + ", "
+                    + (decimalRange.max() == Double.MAX_VALUE? "null"
+                        : "java.math.BigDecimal.valueOf(" + doubleLiteral(decimalRange.max()) + ")") + ")";
+            }
+            return new ValueType(filter, "java.math.BigDecimal", null, boxedName);
+        }
+
+        Element typeElement = ((DeclaredType) type).asElement();
+        if (typeElement.getKind() == ElementKind.ENUM)
+        {
+            rejectConstraints(field, range, decimalRange, oneOf, matches);
+            String enumName = ((TypeElement) typeElement).getQualifiedName().toString();
+            return new ValueType("new com.tmarsteel.jcli.filter.EnumFilter<>(" + enumName + ".class)",
+                enumName, null, boxedName);
+        }
+
+        throw new InvalidDeclarationException(field, "Unsupported type " + type);
+    }
+
+    private static long[] integralBounds(TypeKind kind)
+    {
+        switch (kind)
+        {
+            case BYTE:  return new long[]{ Byte.MIN_VALUE, Byte.MAX_VALUE };
+            case SHORT: return new long[]{ Short.MIN_VALUE, Short.MAX_VALUE };
+            case INT:   return new long[]{ Integer.MIN_VALUE, Integer.MAX_VALUE };
+            default:    return new long[]{ Long.MIN_VALUE, Long.MAX_VALUE };
+        }
+    }
+
+    private static void rejectConstraints(VariableElement field, Object... constraints)
+        throws InvalidDeclarationException
+    {
+        for (Object constraint : constraints)
+        {
+            if (constraint != null)
+            {
+                throw new InvalidDeclarationException(field,
+                    "@" + ((java.lang.annotation.Annotation) constraint).annotationType().getSimpleName()
+                        + " does not apply to fields of type " + field.asType());
+            }
+        }
+    }
+
+    /**
+     * Returns the primitive type of the given box type, the given type if it is primitive, or null.
+     */
+    private TypeMirror unbox(TypeMirror type)
+    {
+        if (type.getKind().isPrimitive())
+        {
+            return type;
+        }
+        try
+        {
+            return processingEnv.getTypeUtils().unboxedType(type);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the element type if the field is a {@link List}; otherwise null.
+     */
+    private static TypeMirror listElementType(VariableElement field)
+        throws InvalidDeclarationException
+    {
+        TypeMirror type = field.asType();
+        if (!isClass(type, "java.util.List"))
+        {
+            return null;
+        }
+
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+        if (typeArguments.size() != 1 || typeArguments.get(0).getKind() != TypeKind.DECLARED)
+        {
+            throw new InvalidDeclarationException(field, "Lists must declare their element type");
+        }
+        return typeArguments.get(0);
+    }
+
+    private static boolean isClass(TypeMirror type, String qualifiedName)
+    {
+        return type.getKind() == TypeKind.DECLARED
+            && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    private static void checkAccessible(VariableElement field)
+        throws InvalidDeclarationException
+    {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+            || modifiers.contains(Modifier.FINAL))
+        {
+            throw new InvalidDeclarationException(field, "Annotated fields must not be private, static or final");
+        }
+    }
+
+    private static boolean hasNoArgConstructor(TypeElement type)
+    {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)
+            || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)))
+        {
+            return false;
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+        {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the given type relative to its package, e.g. {@code Outer.Inner}.
+     */
+    private static String binaryNameWithin(TypeElement type)
+    {
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement)
+        {
+            return binaryNameWithin((TypeElement) enclosing) + "." + type.getSimpleName();
+        }
+        return type.getSimpleName().toString();
+    }
+
+    private static String[] names(String[] declared, String fieldName)
+    {
+        return declared.length == 0? new String[]{ fieldName } : declared;
+    }
+
+    private static String literals(String[] values)
+    {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0;i < values.length;i++)
+        {
+            if (i > 0)
+            {
+                out.append(", ");
+            }
+            out.append(literal(values[i]));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the name of the {@code @Generated} annotation available to the compilation or null if there is none;
+     * it moved to {@code javax.annotation.processing} in Java 9 and is absent from {@code javax.annotation} there.
+     */
+    private String generatedAnnotation()
+    {
+        for (String name : new String[]{ "javax.annotation.processing.Generated", "javax.annotation.Generated" })
+        {
+            if (processingEnv.getElementUtils().getTypeElement(name) != null)
+            {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static String doubleLiteral(double value)
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+        {
+            return value == Double.POSITIVE_INFINITY? "Double.POSITIVE_INFINITY"
+                : value == Double.NEGATIVE_INFINITY? "Double.NEGATIVE_INFINITY" : "Double.NaN";
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Returns the Java source literal of the given string.
+     */
+    static String literal(String value)
+    {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0;i < value.length();i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '"':  out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < ' ' || c > '~')
+                    {
+                        out.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Thrown for declarations no parser can be generated for.
+     */
+    private static final class InvalidDeclarationException extends Exception
+    {
+        final Element element;
+
+        InvalidDeclarationException(Element element, String message)
+        {
+            super(message);
+            this.element = element;
+        }
+    }
+}
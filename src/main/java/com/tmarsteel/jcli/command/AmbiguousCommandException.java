@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command;
+
+import java.util.List;
+
+/**
+ * Thrown when an abbreviated command name is the prefix of the names of several commands.
+ */
+public class AmbiguousCommandException extends NoSuchCommandException
+{
+    public AmbiguousCommandException(String name, List<String> candidates) {
+        this(name, candidates, null);
+    }
+
+    public AmbiguousCommandException(String name, List<String> candidates, Throwable cause) {
+        super("Command " + name + " is ambiguous; candidates are: " + String.join(", ", candidates), name, candidates,
+            cause);
+    }
+
+    /**
+     * Returns the names the abbreviated name is a prefix of; same as {@link #getSuggestions()}.
+     */
+    public List<String> getCandidates() {
+        return getSuggestions();
+    }
+
+    @Override
+    NoSuchCommandException nestedIn(String parentName) {
+        return new AmbiguousCommandException(parentName + " " + getName(), getSuggestions(), this);
+    }
+}
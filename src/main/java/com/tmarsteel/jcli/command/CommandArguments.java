@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command;
+
+import com.tmarsteel.jcli.Input;
+import com.tmarsteel.jcli.ParseException;
+import com.tmarsteel.jcli.validation.ValidationException;
+import com.tmarsteel.jcli.validation.Validator;
+
+import java.util.Arrays;
+
+/**
+ * The arguments left for a command: a view of the arguments given to the outermost {@link CommandDispatcher}, starting
+ * after the names of the commands dispatched to so far. Nested dispatchers pass views down instead of copying the
+ * arguments; the global options parsed by a dispatcher (see {@link CommandDispatcher#setGlobalOptions(Validator)})
+ * travel along.
+ */
+public final class CommandArguments {
+
+    private final String[] args;
+    private final int offset;
+    private final Validator.ValidatedInput globalOptions;
+
+    /**
+     * @param args The arguments as passed to {@code main(String[])}; not copied.
+     */
+    public CommandArguments(String[] args) {
+        this(args, 0, null);
+    }
+
+    private CommandArguments(String[] args, int offset, Validator.ValidatedInput globalOptions) {
+        this.args = args;
+        this.offset = offset;
+        this.globalOptions = globalOptions;
+    }
+
+    /**
+     * Returns the number of arguments in this view.
+     */
+    public int size() {
+        return args.length - offset;
+    }
+
+    /**
+     * Returns whether this view has no arguments.
+     */
+    public boolean isEmpty() {
+        return offset >= args.length;
+    }
+
+    /**
+     * Returns the argument at the given index of this view.
+     * @throws IndexOutOfBoundsException If {@code index} is not within {@code 0} and {@code size() - 1}.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        }
+
+        return args[offset + index];
+    }
+
+    /**
+     * Returns a view of the arguments after the first {@code n} ones of this view.
+     * @throws IndexOutOfBoundsException If {@code n} is negative or greater than {@link #size()}.
+     */
+    public CommandArguments skip(int n) {
+        if (n < 0 || n > size()) {
+            throw new IndexOutOfBoundsException("Cannot skip " + n + " of " + size() + " arguments");
+        }
+
+        return n == 0? this : new CommandArguments(args, offset + n, globalOptions);
+    }
+
+    /**
+     * Returns the global options parsed by the dispatchers this view was passed through; the ones of the innermost
+     * dispatcher that has global options configured. Null if none has.
+     */
+    public Validator.ValidatedInput getGlobalOptions() {
+        return globalOptions;
+    }
+
+    CommandArguments withGlobalOptions(Validator.ValidatedInput globalOptions) {
+        return new CommandArguments(args, offset, globalOptions);
+    }
+
+    /**
+     * Parses and validates the arguments of this view with the given validator, without copying them first.
+     */
+    public Validator.ValidatedInput parse(Validator validator) throws ParseException, ValidationException {
+        return parse(validator, size());
+    }
+
+    /**
+     * Parses and validates only the first {@code length} arguments of this view.
+     */
+    Validator.ValidatedInput parse(Validator validator, int length) throws ParseException, ValidationException {
+        Input input = new Input(validator);
+        input.add(validator.getEnvironment(), args, offset, length);
+        return validator.parse(input);
+    }
+
+    /**
+     * Returns a copy of the arguments of this view.
+     */
+    public String[] toArray() {
+        return Arrays.copyOfRange(args, offset, args.length);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
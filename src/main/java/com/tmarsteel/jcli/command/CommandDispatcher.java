@@ -18,32 +18,50 @@
 
 package com.tmarsteel.jcli.command;
 
+import com.tmarsteel.jcli.Environment;
 import com.tmarsteel.jcli.ParseException;
 import com.tmarsteel.jcli.validation.ValidationException;
+import com.tmarsteel.jcli.validation.Validator;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
- * Dispatches full {@code String[] args} values to instances of {@link Command}.
+ * Dispatches full {@code String[] args} values to instances of {@link Command}. Nested dispatchers and
+ * {@link ArgumentViewCommand}s get a view of the remaining arguments; other commands get a copy of them.
  */
-public class CommandDispatcher<R> implements Command<R> {
+public class CommandDispatcher<R> implements ArgumentViewCommand<R> {
 
-    private Map<String,Command<R>> commands = new HashMap<>();
+    private final CommandTrie<R> commands = new CommandTrie<>();
 
     /**
-     * Aliased commands
+     * Whether unique prefixes of command names select the command.
      */
-    private Map<String,String> aliases = new HashMap<>();
+    private boolean abbreviationsAllowed = false;
 
-    public void add(String name, Command<R> command) {
-        if (commands.get(name) != null) {
-            throw new IllegalStateException("A command with the name " + name + " has already been added.");
-        }
+    /**
+     * Validates the options given before the command name; null if there are none.
+     */
+    private Validator globalOptions = null;
 
+    /**
+     * @throws IllegalStateException If a command with the given name has already been added.
+     */
+    public void add(String name, Command<R> command) {
         commands.put(name, command);
     }
 
+    /**
+     * Adds a command that is only created when it is dispatched to for the first time, e.g. to load its
+     * configuration only if it is actually run. The created command is reused for all later dispatches; the supplier
+     * is called at most once, also when dispatching concurrently, unless it fails.
+     * @param name The name of the command.
+     * @param commandSupplier Creates the command.
+     */
+    public void add(String name, Supplier<? extends Command<R>> commandSupplier) {
+        add(name, new LazyCommand<>(name, commandSupplier));
+    }
+
     /**
      * Treats the first entry in {@code args} as the command name. Looks up to command with the given name, parses
      * the rest of the arguments (excluding the first entry) and attempts to execute the command.
@@ -52,29 +70,114 @@ public class CommandDispatcher<R> implements Command<R> {
      * @throws Exception Passes every exception that arises during the dispatch and execution
      */
     public R dispatch(String[] args) throws CommandDispatchException, NoSuchCommandException, ParseException, ValidationException, Exception {
-        if (args.length == 0 || args[0] == null) {
-            throw new CommandDispatchException("No command specified.");
-        }
+        return dispatch(new CommandArguments(args));
+    }
 
-        Command<R> command = getCommand(args[0]);
+    /**
+     * Like {@link #dispatch(String[])}. If global options are configured (see {@link #setGlobalOptions(Validator)}),
+     * the flags and options before the command name are parsed with them first and passed on with the view.
+     */
+    public R dispatch(CommandArguments args) throws CommandDispatchException, NoSuchCommandException, ParseException, ValidationException, Exception {
+        if (globalOptions != null) {
+            int count = countGlobalOptions(args);
+            Validator.ValidatedInput parsed = args.parse(globalOptions, count);
+            args = args.skip(count).withGlobalOptions(parsed);
+        }
 
-        String[] newArgs = new String[args.length - 1];
-        if (newArgs.length > 0) {
-            System.arraycopy(args, 1, newArgs, 0, newArgs.length);
+        if (args.isEmpty() || args.get(0) == null) {
+            throw new CommandDispatchException("No command specified.");
         }
 
+        String name = args.get(0);
+        Command<R> command = getCommand(name);
+        CommandArguments rest = args.skip(1);
+
         try {
-            return command.execute(newArgs);
+            if (command instanceof ArgumentViewCommand) {
+                return ((ArgumentViewCommand<R>) command).execute(rest);
+            }
+            return command.execute(rest.toArray());
         }
         catch (NoSuchCommandException ex) {
-            throw new NoSuchCommandException(args[0] + " " + ex.getName(), ex);
+            throw ex.nestedIn(name);
         }
     }
 
+    @Override
     public R execute(String[] args) throws ValidationException, Exception {
         return dispatch(args);
     }
 
+    @Override
+    public R execute(CommandArguments args) throws ValidationException, Exception {
+        return dispatch(args);
+    }
+
+    /**
+     * Returns the validator for the options given before the command name; null if there are none.
+     */
+    public Validator getGlobalOptions() {
+        return globalOptions;
+    }
+
+    /**
+     * Sets the validator for the flags and options given before the command name, e.g. {@code --verbose} in
+     * {@code tool --verbose commit}. They are parsed once, here, and the result is available to the command from
+     * {@link CommandArguments#getGlobalOptions()}; replacing the global options of outer dispatchers, if any.
+     * The global options end at the first argument that is neither a flag nor an option.
+     * @param globalOptions The validator, or null to take the first argument as the command name.
+     */
+    public void setGlobalOptions(Validator globalOptions) {
+        this.globalOptions = globalOptions;
+    }
+
+    /**
+     * Returns the number of arguments at the beginning of the given ones that are global flags and options,
+     * including option values.
+     */
+    private int countGlobalOptions(CommandArguments args) {
+        Environment env = globalOptions.getEnvironment();
+        String flagMarker = env.getFlagMarker();
+        String optionMarker = env.getOptionMarker();
+
+        int count = 0;
+        while (count < args.size()) {
+            String param = args.get(count);
+            if (param == null) {
+                break;
+            }
+
+            // classified like Input does
+            boolean flag;
+            boolean option;
+            if (flagMarker.equals(optionMarker)) {
+                option = param.startsWith(optionMarker)
+                    && globalOptions.knowsOption(param.substring(optionMarker.length()));
+                flag = !option && param.startsWith(flagMarker);
+            }
+            else if (flagMarker.length() > optionMarker.length()) {
+                flag = param.startsWith(flagMarker);
+                option = !flag && param.startsWith(optionMarker);
+            }
+            else {
+                option = param.startsWith(optionMarker);
+                flag = !option && param.startsWith(flagMarker);
+            }
+
+            if (option) {
+                count += 2;
+            }
+            else if (flag) {
+                count++;
+            }
+            else {
+                break;
+            }
+        }
+
+        return Math.min(count, args.size());
+    }
+
     /**
      * Add a command alias
      * @param command The target command; must have been added previously to the call to this method
@@ -83,14 +186,87 @@ public class CommandDispatcher<R> implements Command<R> {
      */
     public void alias(String command, String alias) throws NoSuchCommandException
     {
-        add(alias, getCommand(command));
+        Command<R> target = commands.get(command);
+        if (target == null) {
+            throw new NoSuchCommandException(command, commands.suggest(command));
+        }
+
+        add(alias, target);
+    }
+
+    /**
+     * Returns whether commands can be selected by unique prefixes of their names (or aliases), e.g. {@code co} for
+     * {@code commit} if no other command starts with {@code co}.
+     */
+    public boolean isAbbreviationsAllowed() {
+        return abbreviationsAllowed;
+    }
+
+    /**
+     * Sets whether commands can be selected by unique prefixes of their names (or aliases). Prefixes shared by the
+     * names of different commands are rejected with an {@link AmbiguousCommandException}. Off by default.
+     */
+    public void setAbbreviationsAllowed(boolean abbreviationsAllowed) {
+        this.abbreviationsAllowed = abbreviationsAllowed;
+    }
+
+    /**
+     * Returns the names of the commands that were probably meant by the given unknown name, most likely first: the
+     * names it is a prefix of and names that differ by few characters. These are also reported by the
+     * {@link NoSuchCommandException} thrown by {@link #dispatch(String[])}.
+     */
+    public List<String> getSuggestions(String name) {
+        return commands.suggest(name);
     }
 
     private Command<R> getCommand(String name) throws NoSuchCommandException {
-        if (commands.containsKey(name)) {
-            return commands.get(name);
-        } else {
-            throw new NoSuchCommandException(name);
+        return commands.resolve(name, abbreviationsAllowed);
+    }
+
+    /**
+     * Creates the actual command on first execution, see {@link #add(String, Supplier)}.
+     */
+    private static final class LazyCommand<R> implements ArgumentViewCommand<R> {
+        private final String name;
+        private Supplier<? extends Command<R>> supplier;
+        private volatile Command<R> command;
+
+        LazyCommand(String name, Supplier<? extends Command<R>> supplier) {
+            this.name = name;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public R execute(String[] args) throws ValidationException, Exception {
+            return get().execute(args);
+        }
+
+        @Override
+        public R execute(CommandArguments args) throws ValidationException, Exception {
+            Command<R> command = get();
+            if (command instanceof ArgumentViewCommand) {
+                return ((ArgumentViewCommand<R>) command).execute(args);
+            }
+            return command.execute(args.toArray());
+        }
+
+        private Command<R> get() {
+            Command<R> command = this.command;
+            if (command == null) {
+                synchronized (this) {
+                    command = this.command;
+                    if (command == null) {
+                        command = supplier.get();
+                        if (command == null) {
+                            throw new IllegalStateException("The supplier of command " + name + " returned null");
+                        }
+                        this.command = command;
+                        // not needed anymore; let it be collected along with what it captures
+                        supplier = null;
+                    }
+                }
+            }
+            return command;
         }
     }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Routes command names to commands. Every node of the trie knows whether all names below it lead to the same command,
+ * so a name is resolved in time linear to its length, including unique-prefix abbreviations and the detection of
+ * ambiguous ones. Aliases are names that lead to the same command as another name.
+ */
+final class CommandTrie<R> {
+
+    /**
+     * The maximum number of names returned by {@link #suggest(String)}.
+     */
+    static final int MAX_SUGGESTIONS = 10;
+
+    private final Node<R> root = new Node<>();
+
+    /**
+     * Adds the given name.
+     * @throws IllegalStateException If the name has already been added.
+     */
+    void put(String name, Command<R> command) {
+        Node<R> node = root;
+        for (int i = 0;i < name.length();i++) {
+            node = node.childOrCreate(name.charAt(i));
+        }
+        if (node.command != null) {
+            throw new IllegalStateException("A command with the name " + name + " has already been added.");
+        }
+        node.command = command;
+
+        // record the command as reachable on the path; only now that the name is known to be new
+        node = root;
+        for (int i = 0;i <= name.length();i++) {
+            if (node.unique == null) {
+                node.unique = command;
+            }
+            else if (node.unique != command) {
+                node.ambiguous = true;
+            }
+            if (i < name.length()) {
+                node = node.child(name.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the command added with exactly the given name; null if there is none.
+     */
+    Command<R> get(String name) {
+        Node<R> node = find(name);
+        return node == null? null : node.command;
+    }
+
+    /**
+     * Resolves the given name to a command.
+     * @param name The name to resolve
+     * @param abbreviations Whether to accept prefixes that lead to a single command. The empty name is never
+     *                      taken as a prefix.
+     * @throws AmbiguousCommandException If abbreviations are accepted and the given name is the prefix of names of
+     *                                   different commands.
+     * @throws NoSuchCommandException If the name does not lead to a command.
+     */
+    Command<R> resolve(String name, boolean abbreviations) throws NoSuchCommandException {
+        Node<R> node = find(name);
+        if (node != null) {
+            if (node.command != null) {
+                return node.command;
+            }
+            if (abbreviations && !name.isEmpty()) {
+                if (node.ambiguous) {
+                    throw new AmbiguousCommandException(name, names(node, name));
+                }
+                if (node.unique != null) {
+                    return node.unique;
+                }
+            }
+        }
+
+        throw new NoSuchCommandException(name, suggest(name));
+    }
+
+    /**
+     * Returns the names that are probably meant by the given, unknown one, at most {@link #MAX_SUGGESTIONS}: first
+     * the names it is a prefix of, then those within a small edit distance, closest first.
+     */
+    List<String> suggest(String name) {
+        List<String> suggestions = new ArrayList<>();
+        Node<R> node = find(name);
+        if (node != null) {
+            for (String completion : names(node, name)) {
+                if (!completion.equals(name)) {
+                    suggestions.add(completion);
+                }
+            }
+        }
+
+        // edit distance by walking the trie, computing one row of the distance matrix per node
+        int maxDistance = name.length() <= 4? 1 : 2;
+        int[] firstRow = new int[name.length() + 1];
+        for (int i = 0;i < firstRow.length;i++) {
+            firstRow[i] = i;
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        collectSimilar(root, new StringBuilder(), name, firstRow, maxDistance, candidates);
+        candidates.sort(Comparator.<Candidate>comparingInt(c -> c.distance).thenComparing(c -> c.name));
+        for (Candidate candidate : candidates) {
+            if (!candidate.name.equals(name) && !suggestions.contains(candidate.name)) {
+                suggestions.add(candidate.name);
+            }
+        }
+
+        return suggestions.size() > MAX_SUGGESTIONS? new ArrayList<>(suggestions.subList(0, MAX_SUGGESTIONS)) : suggestions;
+    }
+
+    private Node<R> find(String name) {
+        Node<R> node = root;
+        for (int i = 0;i < name.length() && node != null;i++) {
+            node = node.child(name.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Returns the names at and below the given node in alphabetical order.
+     */
+    private static List<String> names(Node<?> node, String prefix) {
+        List<String> names = new ArrayList<>();
+        collectNames(node, new StringBuilder(prefix), names);
+        return names;
+    }
+
+    private static void collectNames(Node<?> node, StringBuilder path, List<String> target) {
+        if (node.command != null) {
+            target.add(path.toString());
+        }
+        for (int i = 0;i < node.keys.length;i++) {
+            path.append(node.keys[i]);
+            collectNames(node.children[i], path, target);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private static void collectSimilar(Node<?> node, StringBuilder path, String name, int[] previousRow, int maxDistance,
+                                       List<Candidate> target) {
+        for (int i = 0;i < node.keys.length;i++) {
+            char key = node.keys[i];
+            int[] row = new int[previousRow.length];
+            row[0] = previousRow[0] + 1;
+            int rowMin = row[0];
+            for (int j = 1;j < row.length;j++) {
+                int replace = previousRow[j - 1] + (name.charAt(j - 1) == key? 0 : 1);
+                row[j] = Math.min(replace, Math.min(row[j - 1], previousRow[j]) + 1);
+                rowMin = Math.min(rowMin, row[j]);
+            }
+
+            // no name below can get closer than the minimum of this row
+            if (rowMin > maxDistance) {
+                continue;
+            }
+
+            Node<?> child = node.children[i];
+            path.append(key);
+            if (child.command != null && row[row.length - 1] <= maxDistance) {
+                target.add(new Candidate(path.toString(), row[row.length - 1]));
+            }
+            collectSimilar(child, path, name, row, maxDistance, target);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private static final class Candidate {
+        private final String name;
+        private final int distance;
+
+        Candidate(String name, int distance) {
+            this.name = name;
+            this.distance = distance;
+        }
+    }
+
+    private static final class Node<R> {
+        /**
+         * The characters leading to the children, sorted ascending.
+         */
+        private char[] keys = new char[0];
+        private Node<R>[] children = newArray(0);
+
+        /**
+         * The command added with the name ending at this node, if any.
+         */
+        private Command<R> command;
+
+        /**
+         * The command of the names at and below this node if it is the same for all of them.
+         */
+        private Command<R> unique;
+
+        /**
+         * Whether the names at and below this node lead to different commands.
+         */
+        private boolean ambiguous;
+
+        Node<R> child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0? null : children[index];
+        }
+
+        Node<R> childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node<R>[] newChildren = newArray(keys.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, keys.length - insertAt);
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = new Node<>();
+
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <R> Node<R>[] newArray(int length) {
+            return (Node<R>[]) new Node<?>[length];
+        }
+    }
+}
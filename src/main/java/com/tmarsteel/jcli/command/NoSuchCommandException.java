@@ -18,6 +18,9 @@
 
 package com.tmarsteel.jcli.command;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Thrown whenever an unknown command should be accessed.
  */
@@ -26,14 +29,31 @@ public class NoSuchCommandException extends CommandDispatchException
 
     private String invalidName;
 
+    private List<String> suggestions;
+
     public NoSuchCommandException(String name) {
-        this(name, null);
+        this(name, (Throwable) null);
     }
 
     public NoSuchCommandException(String name, Throwable cause) {
-        super("Command " + name + " is not known", cause);
+        this(name, Collections.emptyList(), cause);
+    }
+
+    public NoSuchCommandException(String name, List<String> suggestions) {
+        this(name, suggestions, null);
+    }
+
+    public NoSuchCommandException(String name, List<String> suggestions, Throwable cause) {
+        this("Command " + name + " is not known"
+            + (suggestions.isEmpty()? "" : "; did you mean " + String.join(", ", suggestions) + "?"),
+            name, suggestions, cause);
+    }
+
+    protected NoSuchCommandException(String message, String name, List<String> suggestions, Throwable cause) {
+        super(message, cause);
 
         this.invalidName = name;
+        this.suggestions = Collections.unmodifiableList(suggestions);
     }
 
     /**
@@ -43,4 +63,18 @@ public class NoSuchCommandException extends CommandDispatchException
     public String getName() {
         return invalidName;
     }
+
+    /**
+     * Returns the names of known commands that were possibly meant instead; empty if there are none.
+     */
+    public List<String> getSuggestions() {
+        return suggestions;
+    }
+
+    /**
+     * Returns an equivalent exception for the name of a subcommand of the command {@code parentName}.
+     */
+    NoSuchCommandException nestedIn(String parentName) {
+        return new NoSuchCommandException(parentName + " " + getName(), getSuggestions(), this);
+    }
 }
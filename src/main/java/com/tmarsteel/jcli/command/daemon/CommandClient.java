@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command.daemon;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Forwards invocations to a {@link CommandDaemon} on the same machine and relays its output. Meant to be the main
+ * class of a small launcher, see {@link #main(String[])}.
+ */
+public class CommandClient {
+
+    private final int port;
+    private final String token;
+
+    /**
+     * @param port The port the daemon listens on.
+     * @param token The token of the daemon, see {@link CommandDaemon#getToken()}.
+     */
+    public CommandClient(int port, String token) {
+        this.port = port;
+        this.token = Objects.requireNonNull(token);
+    }
+
+    /**
+     * Creates a client for the daemon that wrote the given file with {@link CommandDaemon#writePortFile(Path)}.
+     * @throws IOException If the file cannot be read or is not a port file.
+     */
+    public static CommandClient fromPortFile(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.size() < 2) {
+            throw new IOException(file + " is not a port file");
+        }
+
+        try {
+            return new CommandClient(Integer.parseInt(lines.get(0).trim()), lines.get(1).trim());
+        }
+        catch (NumberFormatException ex) {
+            throw new IOException(file + " is not a port file", ex);
+        }
+    }
+
+    /**
+     * Runs the given arguments on the daemon and waits until they are done. The input is forwarded on a separate
+     * thread, as far as the command reads it.
+     * @return The exit code of the invocation.
+     * @throws IOException If the daemon cannot be reached or closes the connection early, e.g. because the token
+     *                     is wrong.
+     */
+    public int invoke(String[] args, Path workingDirectory, Map<String, String> environment, InputStream in,
+                      OutputStream out, OutputStream err) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream toDaemon = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream fromDaemon = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            toDaemon.writeInt(Protocol.MAGIC);
+            toDaemon.writeShort(Protocol.VERSION);
+            Protocol.writeString(toDaemon, token);
+            Protocol.writeString(toDaemon, workingDirectory.toAbsolutePath().toString());
+            toDaemon.writeInt(environment.size());
+            for (Map.Entry<String, String> variable : environment.entrySet()) {
+                Protocol.writeString(toDaemon, variable.getKey());
+                Protocol.writeString(toDaemon, variable.getValue());
+            }
+            toDaemon.writeInt(args.length);
+            for (String arg : args) {
+                Protocol.writeString(toDaemon, arg);
+            }
+            toDaemon.flush();
+
+            Thread inputPump = new Thread(() -> pumpInput(in, toDaemon), "jcli-client-input");
+            inputPump.setDaemon(true);
+            inputPump.start();
+
+            byte[] buffer = new byte[8192];
+            while (true) {
+                final byte type;
+                final int length;
+                try {
+                    type = fromDaemon.readByte();
+                    length = Protocol.readLength(fromDaemon);
+                }
+                catch (EOFException ex) {
+                    throw new IOException("The daemon closed the connection", ex);
+                }
+
+                if (type == Protocol.EXIT) {
+                    return fromDaemon.readInt();
+                }
+
+                OutputStream target = type == Protocol.STDERR? err : out;
+                for (int remaining = length;remaining > 0;) {
+                    int n = fromDaemon.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (n < 0) {
+                        throw new IOException("The daemon closed the connection");
+                    }
+                    target.write(buffer, 0, n);
+                    remaining -= n;
+                }
+                target.flush();
+            }
+        }
+    }
+
+    private static void pumpInput(InputStream in, DataOutputStream toDaemon) {
+        byte[] buffer = new byte[8192];
+        try {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                Protocol.writeFrame(toDaemon, Protocol.STDIN, buffer, 0, n);
+            }
+            Protocol.writeFrame(toDaemon, Protocol.STDIN, buffer, 0, 0);
+        }
+        catch (IOException ex) {
+            // the invocation is over or the connection is lost; the reading side reports the latter
+        }
+    }
+
+    /**
+     * Forwards the command line of this process to a daemon. Arguments: the port file of the daemon (see
+     * {@link CommandDaemon#writePortFile(Path)}), then the arguments to forward. Exits with the exit code of the
+     * invocation or 127 if the daemon cannot be reached.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: " + CommandClient.class.getName() + " <port file> [arguments...]");
+            System.exit(1);
+        }
+
+        String[] forwarded = new String[args.length - 1];
+        System.arraycopy(args, 1, forwarded, 0, forwarded.length);
+
+        int exitCode;
+        try {
+            exitCode = fromPortFile(Paths.get(args[0])).invoke(forwarded, Paths.get(System.getProperty("user.dir")),
+                System.getenv(), System.in, System.out, System.err);
+        }
+        catch (IOException ex) {
+            System.err.println("Cannot reach the daemon: " + ex.getMessage());
+            exitCode = 127;
+        }
+        System.exit(exitCode);
+    }
+}
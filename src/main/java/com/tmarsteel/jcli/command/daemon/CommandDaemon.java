@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command.daemon;
+
+import com.tmarsteel.jcli.InvocationContext;
+import com.tmarsteel.jcli.ParseException;
+import com.tmarsteel.jcli.command.ArgumentViewCommand;
+import com.tmarsteel.jcli.command.Command;
+import com.tmarsteel.jcli.command.CommandArguments;
+import com.tmarsteel.jcli.validation.ValidationException;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs a command, usually a {@link com.tmarsteel.jcli.command.CommandDispatcher}, in a long-lived process for
+ * invocations forwarded by {@link CommandClient}s, so that the JVM starts and the validators are configured and
+ * warmed up only once. Invocations run concurrently on the given executor; the command has to be safe for that.
+ * Commands get the working directory, environment and standard streams of the client from
+ * {@link Invocation#current()}; validators parsing on the invocation thread resolve relative paths against that
+ * working directory and read {@code -} from the clients standard input (see {@link InvocationContext}).
+ * <br>
+ * The daemon listens on the loopback interface only and requires clients to present a random token; it is written
+ * along with the port to a file readable only by the current user (see {@link #writePortFile(Path)}).
+ */
+public class CommandDaemon<R> implements Closeable {
+
+    /**
+     * The exit code for invocations that fail with a {@link ValidationException} or {@link ParseException}, e.g.
+     * an unknown command or invalid arguments.
+     */
+    public static final int EXIT_USAGE = 2;
+
+    /**
+     * The exit code for invocations that fail with any other exception.
+     */
+    public static final int EXIT_FAILURE = 1;
+
+    /**
+     * The default of {@link #setHeaderTimeout(int)}.
+     */
+    public static final int DEFAULT_HEADER_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * How long to wait for the client to close the connection after the exit code has been sent.
+     */
+    private static final int DRAIN_TIMEOUT_MILLIS = 5000;
+
+    private final Command<R> command;
+    private final ExecutorService executor;
+    private final String token;
+
+    private ToIntFunction<? super R> exitCodeMapper = result -> result instanceof Integer? (Integer) result : 0;
+
+    private volatile int headerTimeoutMillis = DEFAULT_HEADER_TIMEOUT_MILLIS;
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * @param command The command to run the invocations with.
+     * @param executor The executor to run the invocations on. It should be bounded; invocations beyond its capacity
+     *                 are rejected.
+     */
+    public CommandDaemon(Command<R> command, ExecutorService executor) {
+        this.command = Objects.requireNonNull(command);
+        this.executor = Objects.requireNonNull(executor);
+
+        byte[] random = new byte[24];
+        new SecureRandom().nextBytes(random);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+    }
+
+    /**
+     * Sets how the result of the command is turned into the exit code of the client. By default integer results
+     * are the exit code and all others mean 0.
+     */
+    public void setExitCodeMapper(ToIntFunction<? super R> exitCodeMapper) {
+        this.exitCodeMapper = Objects.requireNonNull(exitCodeMapper);
+    }
+
+    /**
+     * Sets how long a client may take to send the header of an invocation, including the token. Connections that
+     * stay silent longer are closed so that they do not occupy a thread of the executor; once the header has been
+     * read, there is no timeout.
+     * @param millis The timeout in milliseconds; must be positive.
+     */
+    public void setHeaderTimeout(int millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The header timeout must be positive");
+        }
+        this.headerTimeoutMillis = millis;
+    }
+
+    /**
+     * Returns the token clients have to present.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Starts listening on the given port of the loopback interface and accepting invocations on a new thread.
+     * @param port The port; 0 to pick a free one (see {@link #getPort()}).
+     * @throws IllegalStateException If the daemon has already been started.
+     */
+    public synchronized void start(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("The daemon has already been started");
+        }
+
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "jcli-daemon-" + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the daemon listens on.
+     * @throws IllegalStateException If the daemon has not been started.
+     */
+    public int getPort() {
+        ServerSocket serverSocket = this.serverSocket;
+        if (serverSocket == null) {
+            throw new IllegalStateException("The daemon has not been started");
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Writes the port and the token to the given file for {@link CommandClient#fromPortFile(Path)}. On file systems
+     * that support it, only the current user can read the file.
+     */
+    public void writePortFile(Path file) throws IOException {
+        String content = getPort() + "\n" + token + "\n";
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), ".jcli-daemon", ".tmp");
+        try {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            }
+            Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Stops accepting invocations. Running invocations are not interrupted; shut the executor down for that.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    private void accept() {
+        ServerSocket serverSocket = this.serverSocket;
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            }
+            catch (IOException ex) {
+                // closed
+                return;
+            }
+
+            try {
+                executor.execute(() -> handle(socket));
+            }
+            catch (RejectedExecutionException ex) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+            // unauthenticated peers must not be able to hold on to a thread
+            s.setSoTimeout(headerTimeoutMillis);
+            Invocation invocation = readInvocation(in, out);
+            if (invocation == null) {
+                return;
+            }
+            s.setSoTimeout(0);
+
+            int exitCode = run(invocation);
+            invocation.getOut().flush();
+            invocation.getErr().flush();
+
+            byte[] code = new byte[]{ (byte) (exitCode >>> 24), (byte) (exitCode >>> 16), (byte) (exitCode >>> 8), (byte) exitCode };
+            Protocol.writeFrame(out, Protocol.EXIT, code, 0, code.length);
+
+            // closing with unread input would reset the connection, possibly before the client read the exit code;
+            // wait for the client to close it instead
+            s.shutdownOutput();
+            s.setSoTimeout(DRAIN_TIMEOUT_MILLIS);
+            byte[] discard = new byte[8192];
+            while (in.read(discard) >= 0) {
+                // discard input the command did not read
+            }
+        }
+        catch (IOException ex) {
+            // the client went away; nobody left to tell
+        }
+    }
+
+    /**
+     * Reads the header of an invocation; null if the client is not authorized.
+     */
+    private Invocation readInvocation(DataInputStream in, DataOutputStream out) throws IOException {
+        if (in.readInt() != Protocol.MAGIC || in.readUnsignedShort() != Protocol.VERSION) {
+            return null;
+        }
+
+        byte[] presented = Protocol.readString(in).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(presented, token.getBytes(StandardCharsets.UTF_8))) {
+            return null;
+        }
+
+        final Path workingDirectory;
+        try {
+            workingDirectory = Paths.get(Protocol.readString(in));
+        }
+        catch (InvalidPathException ex) {
+            return null;
+        }
+        if (!workingDirectory.isAbsolute()) {
+            return null;
+        }
+        Map<String, String> environment = new HashMap<>();
+        for (int i = Protocol.readLength(in);i > 0;i--) {
+            String name = Protocol.readString(in);
+            environment.put(name, Protocol.readString(in));
+        }
+        List<String> arguments = new ArrayList<>();
+        for (int i = Protocol.readLength(in);i > 0;i--) {
+            arguments.add(Protocol.readString(in));
+        }
+
+        return new Invocation(arguments, workingDirectory, environment, new Protocol.FrameInputStream(in),
+            new PrintStream(new Protocol.FrameOutputStream(out, Protocol.STDOUT), true, "UTF-8"),
+            new PrintStream(new Protocol.FrameOutputStream(out, Protocol.STDERR), true, "UTF-8"));
+    }
+
+    private int run(Invocation invocation) {
+        String[] args = invocation.getArguments().toArray(new String[0]);
+        Invocation.setCurrent(invocation);
+        InvocationContext.setCurrent(new InvocationContext(invocation.getWorkingDirectory(), invocation.getIn()));
+        try {
+            R result = command instanceof ArgumentViewCommand
+                ? ((ArgumentViewCommand<R>) command).execute(new CommandArguments(args))
+                : command.execute(args);
+            return exitCodeMapper.applyAsInt(result);
+        }
+        catch (ValidationException | ParseException ex) {
+            invocation.getErr().println(ex.getMessage());
+            return EXIT_USAGE;
+        }
+        catch (Exception ex) {
+            ex.printStackTrace(invocation.getErr());
+            return EXIT_FAILURE;
+        }
+        finally {
+            InvocationContext.setCurrent(null);
+            Invocation.setCurrent(null);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException ex) {
+            // nothing to do
+        }
+    }
+}
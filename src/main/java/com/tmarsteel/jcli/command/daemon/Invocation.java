@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command.daemon;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A command line forwarded to a {@link CommandDaemon}: the arguments, the working directory, the environment and the
+ * standard streams of the client. Commands run by the daemon must use these instead of {@link System#in},
+ * {@link System#out}, {@link System#getenv()} and the {@code user.dir} property, which belong to the daemon. Parsing
+ * on the invocation thread already does so, through the {@link com.tmarsteel.jcli.InvocationContext}.
+ */
+public final class Invocation {
+
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+
+    private final List<String> arguments;
+    private final Path workingDirectory;
+    private final Map<String, String> environment;
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    Invocation(List<String> arguments, Path workingDirectory, Map<String, String> environment, InputStream in,
+               PrintStream out, PrintStream err) {
+        this.arguments = Collections.unmodifiableList(arguments);
+        this.workingDirectory = workingDirectory;
+        this.environment = Collections.unmodifiableMap(environment);
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Returns the invocation the calling thread runs a command for; null if it does not run one for a
+     * {@link CommandDaemon}. Threads started by the command do not inherit it.
+     */
+    public static Invocation current() {
+        return CURRENT.get();
+    }
+
+    static void setCurrent(Invocation invocation) {
+        if (invocation == null) {
+            CURRENT.remove();
+        }
+        else {
+            CURRENT.set(invocation);
+        }
+    }
+
+    /**
+     * Returns the arguments given to the client.
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns the working directory of the client; relative paths in the arguments are relative to it.
+     */
+    public Path getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    /**
+     * Returns the environment variables of the client.
+     */
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Returns the standard input of the client.
+     */
+    public InputStream getIn() {
+        return in;
+    }
+
+    /**
+     * Returns the standard output of the client.
+     */
+    public PrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Returns the standard error output of the client.
+     */
+    public PrintStream getErr() {
+        return err;
+    }
+}
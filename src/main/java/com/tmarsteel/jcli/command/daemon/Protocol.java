@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The wire format between {@link CommandClient} and {@link CommandDaemon}. The client opens with
+ * <pre>
+ * magic (int), version (unsigned short), token, working directory,
+ * environment: count (int), name and value per variable,
+ * arguments: count (int), the arguments
+ * </pre>
+ * followed by {@link #STDIN} frames and finally an empty one for the end of the input. The daemon answers with
+ * {@link #STDOUT} and {@link #STDERR} frames and ends with an {@link #EXIT} frame. A frame is its type (byte), the
+ * length of its data (int) and the data; the data of an exit frame is the exit code (int). Strings are written as
+ * their length in UTF-8 bytes (int) followed by the bytes. Numbers are big-endian.
+ */
+final class Protocol {
+
+    static final int MAGIC = 0x4A434C44; // "JCLD"
+    static final int VERSION = 1;
+
+    static final byte STDIN  = 0;
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final byte EXIT   = 3;
+
+    /**
+     * Limits the size of the strings and counts in the header so a broken or malicious client cannot make the daemon
+     * allocate arbitrary amounts of memory.
+     */
+    static final int MAX_LENGTH = 1 << 20;
+
+    private Protocol() {}
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[readLength(in)];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Writes a frame; synchronized on {@code out} as several threads write frames to the same stream.
+     */
+    static void writeFrame(DataOutputStream out, byte type, byte[] data, int offset, int length) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(length);
+            out.write(data, offset, length);
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends what is written to it as frames of one type. Frames are sent on {@link #flush()} and when the buffer
+     * is full.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+        private final byte[] buffer = new byte[8192];
+        private int count;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (count > 0) {
+                writeFrame(out, type, buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads the data of the {@link #STDIN} frames on demand; ends at the first empty frame.
+     */
+    static final class FrameInputStream extends InputStream {
+        private final DataInputStream in;
+        private int remaining;
+        private boolean ended;
+
+        FrameInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            if (!nextData()) {
+                return -1;
+            }
+            remaining--;
+            return in.read();
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextData()) {
+                return -1;
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Connection closed within a frame");
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return remaining;
+        }
+
+        /**
+         * Makes sure there is data left in the current frame, reading the next header if needed; returns false
+         * at the end of the input.
+         */
+        private boolean nextData() throws IOException {
+            while (remaining == 0) {
+                if (ended) {
+                    return false;
+                }
+                byte type = in.readByte();
+                if (type != STDIN) {
+                    throw new IOException("Unexpected frame type " + type);
+                }
+                remaining = readLength(in);
+                ended = remaining == 0;
+            }
+            return true;
+        }
+    }
+}
@@ -41,6 +41,11 @@ public class BigDecimalFilter implements Filter
     public Object parse(String value)
         throws ValidationException
     {
+        if (!NumberParsing.isBigDecimal(value, 0, value.length()))
+        {
+            throw new ValidationException("Decimal value required");
+        }
+
         try
         {
             BigDecimal n = new BigDecimal(value);
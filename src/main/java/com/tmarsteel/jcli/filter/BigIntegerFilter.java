@@ -24,7 +24,7 @@ import java.math.BigInteger;
  * Filters input as an integer number.
  * @author tmarsteel
  */
-public class BigIntegerFilter implements Filter
+public class BigIntegerFilter implements CharSequenceFilter
 {
     protected BigInteger minValue = null;
     protected BigInteger maxValue = null;
@@ -54,9 +54,45 @@ public class BigIntegerFilter implements Filter
     public Object parse(String value)
         throws ValidationException
     {
+        return parseBigInteger(value, 0, value.length());
+    }
+
+    @Override
+    public Object parse(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        return parseBigInteger(value, start, end);
+    }
+
+    /**
+     * Parses the given range of characters like {@link #parse(String)}. Values that fit into a {@code long} are
+     * parsed and checked against the bounds without an intermediate {@link BigInteger}.
+     * @throws ValidationException If the range does not contain an integer within the bounds of this filter.
+     */
+    public BigInteger parseBigInteger(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        final long l = NumberParsing.parseLong(value, start, end, radix);
+        switch (l == NumberParsing.NOT_A_LONG? NumberParsing.longStatus(value, start, end, radix) : NumberParsing.OK)
+        {
+            case NumberParsing.OK:
+                if (minValue != null && compare(l, minValue) < 0)
+                {
+                    throw new ValidationException("Value less than minimum");
+                }
+                if (maxValue != null && compare(l, maxValue) > 0)
+                {
+                    throw new ValidationException("Value greater than maximum");
+                }
+                return BigInteger.valueOf(l);
+            case NumberParsing.INVALID:
+                throw new ValidationException("Integer value with radix " + radix + " required");
+        }
+
+        // too large for a long
         try
         {
-            BigInteger n = new BigInteger(value, radix);
+            BigInteger n = new BigInteger(value.subSequence(start, end).toString(), radix);
             if (minValue != null && n.compareTo(minValue) < 0)
             {
                 throw new ValidationException("Value less than minimum");
@@ -73,6 +109,18 @@ public class BigIntegerFilter implements Filter
         }
     }
 
+    /**
+     * Compares a long to a BigInteger without converting the long.
+     */
+    private static int compare(long n, BigInteger bound)
+    {
+        if (bound.bitLength() < 64)
+        {
+            return Long.compare(n, bound.longValue());
+        }
+        return bound.signum() > 0? -1 : 1;
+    }
+
     public int getRadix()
     {
         return radix;
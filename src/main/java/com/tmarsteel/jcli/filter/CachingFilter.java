@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorates another filter and remembers the outcome of recent distinct inputs, both parsed values and
+ * {@link ValidationException}s. Intended for filters that are expensive (e.g. {@link MetaRegexFilter}) and see
+ * the same values over and over again.<br>
+ * The values returned by the delegate are shared between all parses of the same input; the delegate should
+ * therefore return immutable values and must not depend on state other than the input (e.g. the file system or the
+ * working directory of the {@link com.tmarsteel.jcli.InvocationContext}; {@link FileFilter}s cannot be cached).<br>
+ * Instances are safe for concurrent use. Hits do not lock: they look the input up in a {@link ConcurrentHashMap}
+ * and mark it as used. Only misses lock, to insert the outcome and, once the cache is full, evict an input that has
+ * not been used since the clock hand last passed it (the CLOCK approximation of least recently used).
+ */
+public class CachingFilter implements Filter
+{
+    private final Filter delegate;
+    private final int maxSize;
+
+    private final ConcurrentHashMap<String,Outcome> cache;
+
+    /**
+     * The cached inputs in the order the clock hand visits them; guarded by itself, as is {@link #hand}. Every
+     * input in {@link #cache} is in here exactly once.
+     */
+    private final List<String> clock = new ArrayList<>();
+    private int hand = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param delegate The filter whose results to cache.
+     * @param maxSize The maximum number of inputs to remember.
+     * @throws IllegalArgumentException If {@code maxSize} is less than 1.
+     */
+    public CachingFilter(Filter delegate, int maxSize)
+    {
+        Objects.requireNonNull(delegate);
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.cache = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    @Override
+    public Object parse(String value)
+        throws ValidationException
+    {
+        Outcome outcome = cache.get(value);
+
+        if (outcome == null)
+        {
+            misses.increment();
+
+            // parse outside of the lock; concurrent misses on the same value may parse twice
+            try
+            {
+                outcome = new Outcome(delegate.parse(value), null);
+            }
+            catch (ValidationException ex)
+            {
+                outcome = new Outcome(null, ex);
+            }
+
+            insert(value, outcome);
+        }
+        else
+        {
+            hits.increment();
+            if (!outcome.used)
+            {
+                // only written when it changes so that hits on hot inputs do not contend on the cache line
+                outcome.used = true;
+            }
+        }
+
+        if (outcome.failure != null)
+        {
+            throw outcome.failure;
+        }
+        return outcome.value;
+    }
+
+    private void insert(String value, Outcome outcome)
+    {
+        synchronized (clock)
+        {
+            if (cache.containsKey(value))
+            {
+                // inserted by a concurrent miss
+                return;
+            }
+
+            if (clock.size() < maxSize)
+            {
+                clock.add(value);
+            }
+            else
+            {
+                // advance the hand to an input that has not been used since it last passed and replace it
+                while (true)
+                {
+                    Outcome candidate = cache.get(clock.get(hand));
+                    if (!candidate.used)
+                    {
+                        break;
+                    }
+                    candidate.used = false;
+                    hand = (hand + 1) % maxSize;
+                }
+                cache.remove(clock.get(hand));
+                clock.set(hand, value);
+                hand = (hand + 1) % maxSize;
+            }
+            cache.put(value, outcome);
+        }
+    }
+
+    /**
+     * Returns the filter whose results are cached.
+     */
+    public Filter getDelegate()
+    {
+        return delegate;
+    }
+
+    /**
+     * Returns the maximum number of inputs this filter remembers.
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of inputs currently remembered.
+     */
+    public int size()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Returns how many calls to {@link #parse(String)} were answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many calls to {@link #parse(String)} had to be delegated.
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Forgets all remembered inputs. The hit and miss counts are not reset.
+     */
+    public void clear()
+    {
+        synchronized (clock)
+        {
+            cache.clear();
+            clock.clear();
+            hand = 0;
+        }
+    }
+
+    /**
+     * The outcome of parsing a value with the delegate: either a value or a failure.
+     */
+    private static class Outcome
+    {
+        private final Object value;
+        private final ValidationException failure;
+
+        /**
+         * Whether the input was parsed again since the clock hand last passed it.
+         */
+        private volatile boolean used = false;
+
+        private Outcome(Object value, ValidationException failure)
+        {
+            this.value = value;
+            this.failure = failure;
+        }
+    }
+}
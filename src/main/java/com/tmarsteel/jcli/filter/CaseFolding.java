@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+/**
+ * Case folding for case insensitive lookups: two strings fold to the same key exactly if they are
+ * {@link String#equalsIgnoreCase(String) equal ignoring case}.
+ * @author Tobias Marstaller
+ */
+class CaseFolding
+{
+    private CaseFolding() {}
+
+    /**
+     * Returns the case insensitive lookup key of the given string.
+     */
+    static String fold(String value)
+    {
+        final int length = value.length();
+        int i = 0;
+
+        // ASCII fast path: nothing to do for lower case letters, digits and punctuation
+        for (;i < length;i++)
+        {
+            char c = value.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z'))
+            {
+                break;
+            }
+        }
+        if (i == length)
+        {
+            return value;
+        }
+
+        final char[] folded = value.toCharArray();
+        for (;i < length;i++)
+        {
+            char c = folded[i];
+            if (c < 0x80)
+            {
+                if (c >= 'A' && c <= 'Z')
+                {
+                    folded[i] = (char) (c + ('a' - 'A'));
+                }
+            }
+            else
+            {
+                // same per-character comparison as String.equalsIgnoreCase
+                folded[i] = Character.toLowerCase(Character.toUpperCase(c));
+            }
+        }
+        return new String(folded);
+    }
+
+    /**
+     * Returns the case insensitive lookup key of the given range of characters.
+     */
+    static String fold(CharSequence value, int start, int end)
+    {
+        if (value instanceof String && start == 0 && end == value.length())
+        {
+            return fold((String) value);
+        }
+
+        final char[] folded = new char[end - start];
+        for (int i = start;i < end;i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                folded[i - start] = c >= 'A' && c <= 'Z'? (char) (c + ('a' - 'A')) : c;
+            }
+            else
+            {
+                folded[i - start] = Character.toLowerCase(Character.toUpperCase(c));
+            }
+        }
+        return new String(folded);
+    }
+}
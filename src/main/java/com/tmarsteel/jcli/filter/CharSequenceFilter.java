@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+
+/**
+ * A {@link Filter} that can parse a range of a {@link CharSequence} without it being copied into a String first.
+ * {@link FilterPipeline}s hand their preprocessed input to such filters directly.
+ * @author Tobias Marstaller
+ */
+public interface CharSequenceFilter extends Filter
+{
+    /**
+     * Parses the characters of {@code value} from {@code start} (inclusive) to {@code end} (exclusive) like
+     * {@link #parse(String)} would parse them as a String.
+     * @throws ValidationException If the value does not match this filter.
+     */
+    Object parse(CharSequence value, int start, int end)
+        throws ValidationException;
+
+    @Override
+    default Object parse(String value)
+        throws ValidationException
+    {
+        return parse(value, 0, value.length());
+    }
+}
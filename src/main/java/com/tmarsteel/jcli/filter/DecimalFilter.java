@@ -23,7 +23,7 @@ import com.tmarsteel.jcli.validation.ValidationException;
  * Filters input as an integer number.
  * @author tmarsteel
  */
-public class DecimalFilter implements Filter
+public class DecimalFilter implements CharSequenceFilter
 {
     protected double minValue = Long.MIN_VALUE;
     protected double maxValue = Long.MAX_VALUE;
@@ -40,23 +40,39 @@ public class DecimalFilter implements Filter
     public Object parse(String value)
         throws ValidationException
     {
-        try
+        return parseDouble(value, 0, value.length());
+    }
+
+    @Override
+    public Object parse(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        return parseDouble(value, start, end);
+    }
+
+    /**
+     * Parses the given range of characters like {@link #parse(String)} but does not box the result. The value is
+     * bit-identical to that of {@link Double#parseDouble(String)}.
+     * @throws ValidationException If the range does not contain a decimal number within the bounds of this filter.
+     */
+    public double parseDouble(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        final double n = NumberParsing.parseDouble(value, start, end);
+        if (Double.isNaN(n) && !NumberParsing.isNaN(value, start, end))
+        {
+            throw new ValidationException("Decimal value required");
+        }
+
+        if (n < minValue)
         {
-            Double n = Double.parseDouble(value);
-            if (n < minValue)
-            {
-                throw new ValidationException("Value less than minimum (" + Double.toString(minValue) + ')');
-            }
-            if (n > maxValue)
-            {
-                throw new ValidationException("Value greater than maximum (" + Double.toString(maxValue) + ')');
-            }
-            return n;
+            throw new ValidationException("Value less than minimum (" + Double.toString(minValue) + ')');
         }
-        catch (NumberFormatException ex)
+        if (n > maxValue)
         {
-            throw new ValidationException("Decimal value required", ex);
+            throw new ValidationException("Value greater than maximum (" + Double.toString(maxValue) + ')');
         }
+        return n;
     }
 
     public double getMinValue()
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accepts the names of the constants of an enum type, and aliases thereof, and parses them to the enum constants.
+ * Tokens are resolved through a precomputed (case folded) index.
+ * @author Tobias Marstaller
+ */
+public class EnumFilter<E extends Enum<E>> implements CharSequenceFilter
+{
+    protected final Class<E> enumType;
+    protected boolean caseSensitive = false;
+    protected final EnumMap<E,List<String>> aliases;
+
+    /**
+     * Maps the accepted tokens (case folded if not case sensitive) to the constants.
+     */
+    private volatile Map<String,E> index;
+
+    /**
+     * Creates a new case insensitive filter accepting the constants of the given enum type.
+     * @param enumType The enum type whose constants to accept.
+     */
+    public EnumFilter(Class<E> enumType)
+    {
+        this(enumType, false);
+    }
+
+    /**
+     * Creates a new filter accepting the constants of the given enum type.
+     * @param enumType The enum type whose constants to accept.
+     * @param caseSensitive Whether the filter should be case sensitive
+     * @throws IllegalArgumentException If {@code enumType} is not an enum type or the names of its constants are
+     *                                  ambiguous in the given case sensitivity.
+     */
+    public EnumFilter(Class<E> enumType, boolean caseSensitive)
+    {
+        if (!enumType.isEnum())
+        {
+            throw new IllegalArgumentException(enumType.getName() + " is not an enum type");
+        }
+        this.enumType = enumType;
+        this.caseSensitive = caseSensitive;
+        this.aliases = new EnumMap<>(enumType);
+        this.index = buildIndex();
+    }
+
+    @Override
+    public E parse(String value)
+        throws ValidationException
+    {
+        return parse(value, 0, value.length());
+    }
+
+    @Override
+    public E parse(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        E constant = index.get(caseSensitive?
+            (value instanceof String && start == 0 && end == value.length()?
+                (String) value : value.subSequence(start, end).toString()) :
+            CaseFolding.fold(value, start, end));
+        if (constant == null)
+        {
+            throw new ValidationException(value.subSequence(start, end) + " is not a possible value.");
+        }
+        return constant;
+    }
+
+    /**
+     * Parses all of the given values into a set, e.g. the values of a multi-valued option.
+     * @throws ValidationException If any of the values is not accepted.
+     */
+    public EnumSet<E> parseAll(Iterable<String> values)
+        throws ValidationException
+    {
+        EnumSet<E> set = EnumSet.noneOf(enumType);
+        for (String value : values)
+        {
+            set.add(parse(value));
+        }
+        return set;
+    }
+
+    /**
+     * Collects values already parsed by this filter into a set, e.g. the result of
+     * {@link com.tmarsteel.jcli.validation.Validator.ValidatedInput#getOptionValues(String)}.
+     * @throws ClassCastException If any of the values is not a constant of the enum type of this filter.
+     */
+    public EnumSet<E> toSet(Collection<?> parsedValues)
+    {
+        EnumSet<E> set = EnumSet.noneOf(enumType);
+        for (Object value : parsedValues)
+        {
+            set.add(enumType.cast(value));
+        }
+        return set;
+    }
+
+    /**
+     * Makes this filter accept {@code alias} for {@code constant}, in addition to its name.
+     * @throws IllegalArgumentException If {@code alias} already stands for another constant.
+     */
+    public synchronized void addAlias(E constant, String alias)
+    {
+        E existing = index.get(caseSensitive? alias : CaseFolding.fold(alias));
+        if (existing != null && existing != constant)
+        {
+            throw new IllegalArgumentException(alias + " already stands for " + existing.name());
+        }
+        aliases.computeIfAbsent(constant, c -> new ArrayList<>(2)).add(alias);
+        index = buildIndex();
+    }
+
+    /**
+     * Returns the aliases of the given constant, in the order they were added.
+     */
+    public List<String> getAliases(E constant)
+    {
+        List<String> list = aliases.get(constant);
+        return list == null? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the enum type whose constants this filter accepts.
+     */
+    public Class<E> getEnumType()
+    {
+        return enumType;
+    }
+
+    /**
+     * Returns whether this filter is case sensitive.
+     * @return Whether this filter is case sensitive.
+     */
+    public boolean isCaseSensitive()
+    {
+        return caseSensitive;
+    }
+
+    /**
+     * Sets whether this filter is case sensitive.
+     * @param caseSensitive Whether this filter is case sensitive.
+     * @throws IllegalArgumentException If names or aliases would become ambiguous.
+     */
+    public synchronized void setCaseSensitive(boolean caseSensitive)
+    {
+        boolean previous = this.caseSensitive;
+        this.caseSensitive = caseSensitive;
+        try
+        {
+            index = buildIndex();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            this.caseSensitive = previous;
+            throw ex;
+        }
+    }
+
+    private Map<String,E> buildIndex()
+    {
+        E[] constants = enumType.getEnumConstants();
+        Map<String,E> index = new HashMap<>();
+        for (E constant : constants)
+        {
+            put(index, constant.name(), constant);
+            for (String alias : getAliases(constant))
+            {
+                put(index, alias, constant);
+            }
+        }
+        return index;
+    }
+
+    private void put(Map<String,E> index, String token, E constant)
+    {
+        E existing = index.putIfAbsent(caseSensitive? token : CaseFolding.fold(token), constant);
+        if (existing != null && existing != constant)
+        {
+            throw new IllegalArgumentException(token + " is ambiguous between " + existing.name() + " and "
+                + constant.name());
+        }
+    }
+}
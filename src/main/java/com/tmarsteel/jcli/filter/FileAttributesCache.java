@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the {@link FileFilter.FileAttributes} of recently checked files for a limited time so that
+ * {@link FileFilter}s checking the same paths over and over again do not query the file system every time. One
+ * instance is meant to be shared by many filters (see {@link FileFilter#setAttributesCache(FileAttributesCache)}).
+ * <br>
+ * Entries expire after the configured time to live; they can be invalidated explicitly or, for watched directories
+ * (see {@link #watch(Path)}), as soon as the file system reports a change. Instances are safe for concurrent use.
+ */
+public class FileAttributesCache implements Closeable
+{
+    private final long ttlNanos;
+    private final int maxSize;
+
+    /**
+     * Keyed by absolute, normalized path. Least recently used entries first; guarded by itself.
+     */
+    private final Map<Path,Entry> entries;
+
+    private WatchService watchService = null;
+    private Thread watchThread = null;
+
+    /**
+     * @param ttl How long to remember the attributes of a file.
+     * @param unit The unit of {@code ttl}.
+     * @param maxSize The maximum number of files to remember.
+     * @throws IllegalArgumentException If {@code ttl} is negative or {@code maxSize} is less than 1.
+     */
+    public FileAttributesCache(long ttl, TimeUnit unit, int maxSize)
+    {
+        if (ttl < 0)
+        {
+            throw new IllegalArgumentException("The time to live must not be negative");
+        }
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Path,Entry>(Math.min(maxSize, 1024), 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path,Entry> eldest)
+            {
+                return size() > FileAttributesCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the attributes of the given file, from the cache if present and not expired; otherwise they are read
+     * from the file system (see {@link FileFilter.FileAttributes#read(File)}) and remembered.
+     */
+    public FileFilter.FileAttributes get(File file)
+    {
+        final Path key = keyOf(file);
+        if (key == null)
+        {
+            return FileFilter.FileAttributes.read(file);
+        }
+
+        final long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries)
+        {
+            entry = entries.get(key);
+        }
+
+        if (entry == null || now - entry.readAt > ttlNanos)
+        {
+            entry = new Entry(FileFilter.FileAttributes.read(file), now);
+            synchronized (entries)
+            {
+                entries.put(key, entry);
+            }
+            return entry.attributes;
+        }
+
+        return entry.attributes.forFile(file);
+    }
+
+    /**
+     * Forgets the attributes of the given file.
+     */
+    public void invalidate(File file)
+    {
+        final Path key = keyOf(file);
+        if (key != null)
+        {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Forgets the attributes of the given file.
+     */
+    public void invalidate(Path path)
+    {
+        final Path key = path.toAbsolutePath().normalize();
+        synchronized (entries)
+        {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Forgets the attributes of the given directory and of all files directly contained in it.
+     */
+    public void invalidateDirectory(Path directory)
+    {
+        final Path key = directory.toAbsolutePath().normalize();
+        synchronized (entries)
+        {
+            Iterator<Path> it = entries.keySet().iterator();
+            while (it.hasNext())
+            {
+                Path cur = it.next();
+                if (cur.equals(key) || key.equals(cur.getParent()))
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets all remembered attributes.
+     */
+    public void invalidateAll()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of files currently remembered, including expired entries.
+     */
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Watches the given directory for changes using a {@link WatchService}: whenever a file in it is created, deleted
+     * or modified, the attributes of that file are forgotten. The first call starts a daemon thread that processes
+     * the events; it is stopped by {@link #close()}. Changes may be reported with a delay, the time to live still
+     * applies.
+     * @param directory The directory to watch.
+     * @throws IOException If the directory cannot be watched.
+     */
+    public synchronized void watch(Path directory)
+        throws IOException
+    {
+        if (watchService == null)
+        {
+            watchService = directory.getFileSystem().newWatchService();
+            watchThread = new Thread(this::processWatchEvents, "jcli-file-attributes-cache-watcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+
+        directory.toAbsolutePath().normalize().register(
+            watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.ENTRY_MODIFY
+        );
+    }
+
+    /**
+     * Stops watching directories, see {@link #watch(Path)}. The cache remains usable.
+     */
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        if (watchService != null)
+        {
+            watchService.close();
+            watchService = null;
+            watchThread = null;
+        }
+    }
+
+    private void processWatchEvents()
+    {
+        final WatchService service;
+        synchronized (this)
+        {
+            service = watchService;
+        }
+        if (service == null)
+        {
+            return;
+        }
+
+        try
+        {
+            while (true)
+            {
+                WatchKey key = service.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || !(event.context() instanceof Path))
+                    {
+                        invalidateDirectory(directory);
+                    }
+                    else
+                    {
+                        invalidate(directory.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException ex)
+        {
+            // closed, stop watching
+        }
+    }
+
+    /**
+     * Returns the cache key for the given file or null if the file does not denote a valid path.
+     */
+    private static Path keyOf(File file)
+    {
+        try
+        {
+            return file.toPath().toAbsolutePath().normalize();
+        }
+        catch (InvalidPathException ex)
+        {
+            return null;
+        }
+    }
+
+    private static class Entry
+    {
+        private final FileFilter.FileAttributes attributes;
+        private final long readAt;
+
+        private Entry(FileFilter.FileAttributes attributes, long readAt)
+        {
+            this.attributes = attributes;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -17,8 +17,13 @@
  */
 package com.tmarsteel.jcli.filter;
 
+import com.tmarsteel.jcli.InvocationContext;
 import com.tmarsteel.jcli.validation.ValidationException;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Accepts values that to a file or directory meeting the specified requirements.
@@ -39,18 +44,30 @@ public class FileFilter implements java.io.FileFilter, Filter
          */
         public void test(File file)
             throws ValidationException
+        {
+            test(new FileAttributes(file));
+        }
+
+        /**
+         * Checks whether the given file fulfills the requirement and throws
+         * and exception if that is not the case.
+         * @param attributes The attributes of the file to test
+         * @throws ValidationException If the given file does not fulfill
+         */
+        public void test(FileAttributes attributes)
+            throws ValidationException
         {
             switch (this)
             {
                 case MUST_EXIST:
-                    if (!file.exists())
+                    if (!attributes.exists())
                     {
-                        throw new ValidationException("file " + file.getPath() +
+                        throw new ValidationException("file " + attributes.getFile().getPath() +
                             " not found");
                     }
                     break;
                 case MUST_NOT_EXIST:
-                    if (file.exists())
+                    if (attributes.exists())
                     {
                         throw new ValidationException("file must not exist.");
                     }
@@ -101,16 +118,29 @@ public class FileFilter implements java.io.FileFilter, Filter
         public void test(File f)
             throws ValidationException
         {
-            if (readR && !f.canRead())
+            test(new FileAttributes(f));
+        }
+
+        /**
+         * Checks whether the given file fulfills the requirement and throws
+         * and exception if that is not the case. Only the required permissions
+         * are checked.
+         * @param attributes The attributes of the file to test
+         * @throws ValidationException If the given file does not fulfill
+         */
+        public void test(FileAttributes attributes)
+            throws ValidationException
+        {
+            if (readR && !attributes.canRead())
             {
                 throw new ValidationException("not readable");
             }
-            if (writeR && !f.canWrite())
+            if (writeR && !attributes.canWrite())
             {
                 throw new ValidationException("not writeable");
             }
-            // non-existant files will always return false on this
-            if (execR && !f.canExecute() && f.exists())
+            // non-existant files cannot be executed either
+            if (execR && attributes.exists() && !attributes.canExecute())
             {
                 throw new ValidationException("cannot execute / list");
             }
@@ -131,23 +161,35 @@ public class FileFilter implements java.io.FileFilter, Filter
          */
         public void test(File file)
             throws ValidationException
+        {
+            test(new FileAttributes(file));
+        }
+
+        /**
+         * Checks whether the given file fulfills the requirement and throws
+         * and exception if that is not the case.
+         * @param attributes The attributes of the file to test
+         * @throws ValidationException If the given file does not fulfill
+         */
+        public void test(FileAttributes attributes)
+            throws ValidationException
         {
             if (this != IRRELEVANT)
             {
-                if (!file.exists())
+                if (!attributes.exists())
                 {
                     return;
                 }
                 switch (this)
                 {
                     case FILE:
-                        if (!file.isFile())
+                        if (!attributes.isFile())
                         {
                             throw new ValidationException("needs to be a file");
                         }
                         break;
                     case DIRECTORY:
-                        if (!file.isDirectory())
+                        if (!attributes.isDirectory())
                         {
                             throw new ValidationException("needs to be a directory");
                         }
@@ -157,11 +199,144 @@ public class FileFilter implements java.io.FileFilter, Filter
         }
     }
 
+    /**
+     * The existence, type and permissions of a file, as needed to check the requirements of this filter. The
+     * permissions are queried on first use and then remembered.
+     */
+    public static class FileAttributes
+    {
+        private final File file;
+        private final boolean exists;
+        private final boolean isFile;
+        private final boolean isDirectory;
+
+        // null until queried; concurrent queries yield the same result
+        private Boolean canRead;
+        private Boolean canWrite;
+        private Boolean canExecute;
+
+        /**
+         * Queries the attributes from the given file one by one.
+         * @param file The file whose attributes to query.
+         */
+        public FileAttributes(File file)
+        {
+            this(file, file.exists(), file.isFile(), file.isDirectory());
+        }
+
+        public FileAttributes(File file, boolean exists, boolean isFile, boolean isDirectory)
+        {
+            this.file = file;
+            this.exists = exists;
+            this.isFile = isFile;
+            this.isDirectory = isDirectory;
+        }
+
+        /**
+         * Reads the attributes of the given file from the file system with a single query.
+         * @param file The file whose attributes to read.
+         * @return The attributes of the given file; if the file cannot be accessed it is treated as not existent.
+         */
+        public static FileAttributes read(File file)
+        {
+            try
+            {
+                BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return new FileAttributes(file, true, attrs.isRegularFile(), attrs.isDirectory());
+            }
+            catch (IOException | InvalidPathException | SecurityException ex)
+            {
+                return new FileAttributes(file, false, false, false);
+            }
+        }
+
+        /**
+         * Returns the file these attributes belong to.
+         */
+        public File getFile()
+        {
+            return file;
+        }
+
+        public boolean exists()
+        {
+            return exists;
+        }
+
+        public boolean isFile()
+        {
+            return isFile;
+        }
+
+        public boolean isDirectory()
+        {
+            return isDirectory;
+        }
+
+        /**
+         * Returns whether the file exists and can be read by this process.
+         */
+        public boolean canRead()
+        {
+            Boolean can = canRead;
+            if (can == null)
+            {
+                can = canRead = exists && file.canRead();
+            }
+            return can;
+        }
+
+        /**
+         * Returns whether the file exists and can be written by this process.
+         */
+        public boolean canWrite()
+        {
+            Boolean can = canWrite;
+            if (can == null)
+            {
+                can = canWrite = exists && file.canWrite();
+            }
+            return can;
+        }
+
+        /**
+         * Returns whether the file exists and can be executed (or listed, for directories) by this process.
+         */
+        public boolean canExecute()
+        {
+            Boolean can = canExecute;
+            if (can == null)
+            {
+                can = canExecute = exists && file.canExecute();
+            }
+            return can;
+        }
+
+        /**
+         * Returns these attributes for another {@link File} instance denoting the same file; permissions queried
+         * so far are carried over.
+         */
+        FileAttributes forFile(File other)
+        {
+            if (other.equals(file))
+            {
+                return this;
+            }
+
+            FileAttributes copy = new FileAttributes(other, exists, isFile, isDirectory);
+            copy.canRead = canRead;
+            copy.canWrite = canWrite;
+            copy.canExecute = canExecute;
+            return copy;
+        }
+    }
+
     protected java.io.FileFilter filter = null;
     protected EXISTENCE existenceState = EXISTENCE.IRRELEVANT;
     protected PERMISSION permissionState = PERMISSION.IRRELEVANT;
     protected TYPE fileType = TYPE.IRRELEVANT;
     protected String extension = null;
+    protected FileAttributesCache attributesCache = null;
 
     /**
      * Creates a new filter that validates using the given {@link java.io.FileFilter}.
@@ -192,7 +367,7 @@ public class FileFilter implements java.io.FileFilter, Filter
     public Object parse(String value)
         throws ValidationException
     {
-        File f = new File(value);
+        File f = InvocationContext.file(value);
         assertSuffices(f);
         
         return f;
@@ -210,9 +385,15 @@ public class FileFilter implements java.io.FileFilter, Filter
     {
         if (filter == null)
         {
-            existenceState.test(file);
-            fileType.test(file);
-            permissionState.test(file);
+            if (existenceState != EXISTENCE.IRRELEVANT || fileType != TYPE.IRRELEVANT
+                || permissionState != PERMISSION.IRRELEVANT)
+            {
+                // stat the file only once for all requirements
+                FileAttributes attributes = attributesCache == null? FileAttributes.read(file) : attributesCache.get(file);
+                existenceState.test(attributes);
+                fileType.test(attributes);
+                permissionState.test(attributes);
+            }
             if (extension != null)
             {
                 String fName = file.getName();
@@ -235,6 +416,14 @@ public class FileFilter implements java.io.FileFilter, Filter
         }
     }
 
+    /**
+     * Returns the {@link java.io.FileFilter} files must additionally be accepted by or null if there is none.
+     */
+    public java.io.FileFilter getFileFilter()
+    {
+        return filter;
+    }
+
     /**
      * Returns the name extension / suffix this filter requires or null if none is set.
      */
@@ -277,6 +466,23 @@ public class FileFilter implements java.io.FileFilter, Filter
         this.existenceState = EXISTENCEStatus;
     }
 
+    /**
+     * Returns the cache file attributes are looked up in or null if every check queries the file system.
+     */
+    public FileAttributesCache getAttributesCache()
+    {
+        return attributesCache;
+    }
+
+    /**
+     * Sets a cache to look up file attributes in before querying the file system. The same cache can be shared by
+     * many filters. Set to null to always query the file system.
+     */
+    public void setAttributesCache(FileAttributesCache attributesCache)
+    {
+        this.attributesCache = attributesCache;
+    }
+
     public TYPE getFileType()
     {
         return fileType;
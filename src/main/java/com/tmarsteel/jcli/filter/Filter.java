@@ -19,6 +19,8 @@ package com.tmarsteel.jcli.filter;
 
 import com.tmarsteel.jcli.validation.ValidationException;
 
+import java.util.function.Predicate;
+
 /**
  * Represents a filter for option values.
  * @author tmarsteel
@@ -33,4 +35,30 @@ public interface Filter
      */
     public Object parse(String value)
         throws ValidationException;
-}
\ No newline at end of file
+
+    /**
+     * Returns a filter that passes the string representation of the values of this filter on to {@code next}.
+     * See {@link FilterPipeline}.
+     */
+    default FilterPipeline andThen(Filter next)
+    {
+        return FilterPipeline.of(this).andThen(next);
+    }
+
+    /**
+     * Returns a filter that applies {@code function} to the values of this filter. See {@link FilterPipeline}.
+     */
+    default FilterPipeline map(FilterFunction function)
+    {
+        return FilterPipeline.of(this).map(function);
+    }
+
+    /**
+     * Returns a filter that rejects values of this filter not meeting {@code condition} with {@code message}.
+     * See {@link FilterPipeline}.
+     */
+    default FilterPipeline check(Predicate<Object> condition, String message)
+    {
+        return FilterPipeline.of(this).check(condition, message);
+    }
+}
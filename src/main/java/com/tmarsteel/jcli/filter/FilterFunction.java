@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+
+/**
+ * A function from one value to another that may reject its input, for use in {@link FilterPipeline}s.
+ * @author Tobias Marstaller
+ */
+@FunctionalInterface
+public interface FilterFunction
+{
+    /**
+     * @throws ValidationException If the value is not acceptable.
+     */
+    Object apply(Object value)
+        throws ValidationException;
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Filter} composed of stages: text transformations of the raw input, a parsing filter, and functions on the
+ * parsed value. Example:
+ * <pre>
+ * new FilterPipeline().trim().toLowerCase()
+ *     .andThen(new SetFilter("eu-west-1", "us-east-1"))
+ *     .map(FilterPipeline.lookup(regionIds));
+ * </pre>
+ * The text transformations are fused into a single pass: they are applied to a view of the input that the parsing
+ * filter reads from directly if it is a {@link CharSequenceFilter}; otherwise the transformed input is copied into a
+ * String once. Case is mapped per character (see {@link Character#toLowerCase(char)}).
+ * <br>
+ * Pipelines are immutable; every method returns a new pipeline.
+ * @author Tobias Marstaller
+ */
+public final class FilterPipeline implements Filter
+{
+    /**
+     * Transformations of the raw input.
+     */
+    public enum TextTransform
+    {
+        /**
+         * Removes leading and trailing whitespace, like {@link String#trim()}.
+         */
+        TRIM,
+        LOWER_CASE,
+        UPPER_CASE
+    }
+
+    private final TextTransform[] transforms;
+    private final Filter parser;
+    private final FilterFunction[] stages;
+
+    /**
+     * Creates an empty pipeline, which accepts any input as is.
+     */
+    public FilterPipeline()
+    {
+        this(new TextTransform[0], null, new FilterFunction[0]);
+    }
+
+    private FilterPipeline(TextTransform[] transforms, Filter parser, FilterFunction[] stages)
+    {
+        this.transforms = transforms;
+        this.parser = parser;
+        this.stages = stages;
+    }
+
+    /**
+     * Returns the given filter as a pipeline: itself, if it is one already.
+     */
+    public static FilterPipeline of(Filter filter)
+    {
+        return filter instanceof FilterPipeline? (FilterPipeline) filter : new FilterPipeline().andThen(filter);
+    }
+
+    /**
+     * Returns a function that maps values to the values they are associated with in the given table and rejects
+     * values that are not in the table.
+     */
+    public static Lookup lookup(Map<?, ?> table)
+    {
+        return new Lookup(table);
+    }
+
+    public FilterPipeline trim()
+    {
+        return then(TextTransform.TRIM);
+    }
+
+    public FilterPipeline toLowerCase()
+    {
+        return then(TextTransform.LOWER_CASE);
+    }
+
+    public FilterPipeline toUpperCase()
+    {
+        return then(TextTransform.UPPER_CASE);
+    }
+
+    /**
+     * Appends the given transformation of the raw input.
+     * @throws IllegalStateException If the pipeline already has a parsing filter or value stages.
+     */
+    public FilterPipeline then(TextTransform transform)
+    {
+        if (parser != null || stages.length > 0)
+        {
+            throw new IllegalStateException("Text transformations must precede the parsing filter");
+        }
+
+        TextTransform[] newTransforms = Arrays.copyOf(transforms, transforms.length + 1);
+        newTransforms[transforms.length] = transform;
+        return new FilterPipeline(newTransforms, null, stages);
+    }
+
+    /**
+     * Appends the given filter. The first filter of a pipeline parses the transformed input; later filters parse
+     * the string representation of the value so far.
+     */
+    @Override
+    public FilterPipeline andThen(Filter next)
+    {
+        if (parser == null && stages.length == 0)
+        {
+            return new FilterPipeline(transforms, next, stages);
+        }
+
+        return map(new FilterStage(next));
+    }
+
+    /**
+     * Appends the given function on the value so far.
+     */
+    @Override
+    public FilterPipeline map(FilterFunction function)
+    {
+        FilterFunction[] newStages = Arrays.copyOf(stages, stages.length + 1);
+        newStages[stages.length] = function;
+        return new FilterPipeline(transforms, parser, newStages);
+    }
+
+    /**
+     * Appends a check of the value so far: values not meeting {@code condition} are rejected with {@code message}.
+     */
+    @Override
+    public FilterPipeline check(Predicate<Object> condition, String message)
+    {
+        return map(value -> {
+            if (!condition.test(value))
+            {
+                throw new ValidationException(message);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Returns the transformations applied to the raw input, in order.
+     */
+    public List<TextTransform> getTextTransforms()
+    {
+        return Collections.unmodifiableList(Arrays.asList(transforms));
+    }
+
+    /**
+     * Returns the functions applied to the parsed value, in order.
+     */
+    public List<FilterFunction> getValueStages()
+    {
+        return Collections.unmodifiableList(Arrays.asList(stages));
+    }
+
+    /**
+     * Returns the filter that parses the transformed input or null if there is none.
+     */
+    public Filter getParser()
+    {
+        return parser;
+    }
+
+    @Override
+    public Object parse(String value)
+        throws ValidationException
+    {
+        CharSequence text = value;
+        int start = 0;
+        int end = value.length();
+        for (TextTransform transform : transforms)
+        {
+            if (transform == TextTransform.TRIM)
+            {
+                while (start < end && text.charAt(start) <= ' ')
+                {
+                    start++;
+                }
+                while (end > start && text.charAt(end - 1) <= ' ')
+                {
+                    end--;
+                }
+            }
+            else
+            {
+                text = new CaseMappedText(text, transform == TextTransform.UPPER_CASE);
+            }
+        }
+
+        Object result;
+        if (parser instanceof CharSequenceFilter)
+        {
+            result = ((CharSequenceFilter) parser).parse(text, start, end);
+        }
+        else
+        {
+            final String string = text == value && start == 0 && end == value.length()?
+                value : text.subSequence(start, end).toString();
+            result = parser == null? string : parser.parse(string);
+        }
+
+        for (FilterFunction stage : stages)
+        {
+            result = stage.apply(result);
+        }
+        return result;
+    }
+
+    /**
+     * A stage that maps values to the values they are associated with in a table; see {@link #lookup(Map)}.
+     */
+    public static final class Lookup implements FilterFunction
+    {
+        private final Map<?, ?> table;
+
+        private Lookup(Map<?, ?> table)
+        {
+            this.table = new HashMap<>(table);
+        }
+
+        @Override
+        public Object apply(Object value)
+            throws ValidationException
+        {
+            Object mapped = table.get(value);
+            if (mapped == null)
+            {
+                throw new ValidationException(value + " is not a possible value.");
+            }
+            return mapped;
+        }
+
+        /**
+         * Returns the table values are looked up in.
+         */
+        public Map<?, ?> getTable()
+        {
+            return Collections.unmodifiableMap(table);
+        }
+    }
+
+    /**
+     * A stage that parses the string representation of the value so far with a filter; see
+     * {@link #andThen(Filter)}.
+     */
+    public static final class FilterStage implements FilterFunction
+    {
+        private final Filter filter;
+
+        private FilterStage(Filter filter)
+        {
+            this.filter = filter;
+        }
+
+        @Override
+        public Object apply(Object value)
+            throws ValidationException
+        {
+            if (value instanceof CharSequence && filter instanceof CharSequenceFilter)
+            {
+                CharSequence text = (CharSequence) value;
+                return ((CharSequenceFilter) filter).parse(text, 0, text.length());
+            }
+            return filter.parse(String.valueOf(value));
+        }
+
+        public Filter getFilter()
+        {
+            return filter;
+        }
+    }
+
+    /**
+     * A view of a character sequence with the case of each character mapped.
+     */
+    private static final class CaseMappedText implements CharSequence
+    {
+        private final CharSequence text;
+        private final boolean upper;
+
+        CaseMappedText(CharSequence text, boolean upper)
+        {
+            this.text = text;
+            this.upper = upper;
+        }
+
+        @Override
+        public int length()
+        {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index)
+        {
+            char c = text.charAt(index);
+            return upper? Character.toUpperCase(c) : Character.toLowerCase(c);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end)
+        {
+            char[] chars = new char[end - start];
+            for (int i = start;i < end;i++)
+            {
+                chars[i - start] = charAt(i);
+            }
+            return new String(chars);
+        }
+
+        @Override
+        public String toString()
+        {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -23,7 +23,7 @@ import com.tmarsteel.jcli.validation.ValidationException;
  * Filters input as an integer number.
  * @author tmarsteel
  */
-public class IntegerFilter implements Filter
+public class IntegerFilter implements CharSequenceFilter
 {
     protected long minValue = Long.MIN_VALUE;
     protected long maxValue = Long.MAX_VALUE;
@@ -53,23 +53,38 @@ public class IntegerFilter implements Filter
     public Object parse(String value)
         throws ValidationException
     {
-        try
+        return parseLong(value, 0, value.length());
+    }
+
+    @Override
+    public Object parse(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        return parseLong(value, start, end);
+    }
+
+    /**
+     * Parses the given range of characters like {@link #parse(String)} but does not box the result.
+     * @throws ValidationException If the range does not contain an integer within the bounds of this filter.
+     */
+    public long parseLong(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        final long n = NumberParsing.parseLong(value, start, end, radix);
+        if (n == NumberParsing.NOT_A_LONG && NumberParsing.longStatus(value, start, end, radix) != NumberParsing.OK)
+        {
+            throw new ValidationException("Integer value with radix " + radix + " required");
+        }
+
+        if (n < minValue)
         {
-            Long n = Long.parseLong(value, radix);
-            if (n < minValue)
-            {
-                throw new ValidationException("Value less than minimum (" + Long.toString(minValue, radix) + ')');
-            }
-            if (n > maxValue)
-            {
-                throw new ValidationException("Value greater than maximum (" + Long.toString(maxValue, radix) + ')');
-            }
-            return n;
+            throw new ValidationException("Value less than minimum (" + Long.toString(minValue, radix) + ')');
         }
-        catch (NumberFormatException ex)
+        if (n > maxValue)
         {
-            throw new ValidationException("Integer value with radix " + radix + " required", ex);
+            throw new ValidationException("Value greater than maximum (" + Long.toString(maxValue, radix) + ')');
         }
+        return n;
     }
 
     public int getRadix()
@@ -0,0 +1,1067 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A regular expression matched by simulating an automaton (a Pike VM) instead of backtracking: the time to match an
+ * input is linear in its length, times the size of the pattern, whatever pattern and input. In exchange, the
+ * supported syntax is a subset of that of {@link Pattern}:
+ * <ul>
+ *     <li>literals, including the escapes <code>\t \n \r \f \a \e \xhh \\uhhhh</code> and <code>\Q...\E</code></li>
+ *     <li><code>.</code>, character classes such as <code>[^a-z_]</code> and <code>\d \D \w \W \s \S</code></li>
+ *     <li>alternation, capturing, named and non-capturing groups</li>
+ *     <li>greedy and lazy quantifiers: <code>* + ? {n} {n,} {n,m}</code></li>
+ *     <li>the anchors <code>^ $ \A \z \Z \b \B</code></li>
+ * </ul>
+ * Back references, lookaround, possessive quantifiers, Unicode properties and flags are not supported. Matching
+ * follows the semantics of {@link java.util.regex.Matcher#matches()}, including the priorities of alternatives and
+ * quantifiers and thus the text the groups capture (save for repetitions of subpatterns that match the empty
+ * string, where the backtracking engine has special rules).
+ * @author Tobias Marstaller
+ */
+public final class LinearPattern
+{
+    /**
+     * The maximum number of automaton instructions a pattern may compile to.
+     */
+    public static final int MAX_PROGRAM_SIZE = 10000;
+
+    private static final int MAX_REPETITION = 1000;
+
+    // opcodes
+    private static final int CHAR = 0;
+    private static final int ANY = 1;
+    private static final int SPLIT = 2;
+    private static final int JMP = 3;
+    private static final int SAVE = 4;
+    private static final int MATCH = 5;
+    private static final int BEGIN = 6;
+    private static final int END_OR_TERMINATOR = 7;
+    private static final int END = 8;
+    private static final int WORD_BOUNDARY = 9;
+    private static final int NON_WORD_BOUNDARY = 10;
+
+    private final String regex;
+    private final int groupCount;
+    private final Map<String,Integer> namedGroups;
+
+    // the program, one instruction per index
+    private final int[] op;
+    private final int[] x;
+    private final int[] y;
+    private final int[][] ranges;
+    private final boolean[] negated;
+
+    private LinearPattern(String regex, int groupCount, Map<String,Integer> namedGroups, Compiler compiler)
+    {
+        this.regex = regex;
+        this.groupCount = groupCount;
+        this.namedGroups = Collections.unmodifiableMap(namedGroups);
+        this.op = Arrays.copyOf(compiler.op, compiler.size);
+        this.x = Arrays.copyOf(compiler.x, compiler.size);
+        this.y = Arrays.copyOf(compiler.y, compiler.size);
+        this.ranges = Arrays.copyOf(compiler.ranges, compiler.size);
+        this.negated = Arrays.copyOf(compiler.negated, compiler.size);
+    }
+
+    /**
+     * Compiles the given regex.
+     * @throws PatternSyntaxException If the regex is malformed or uses syntax the linear engine does not support.
+     */
+    public static LinearPattern compile(String regex)
+        throws PatternSyntaxException
+    {
+        Parser parser = new Parser(regex);
+        Node root = parser.parse();
+
+        Compiler compiler = new Compiler(regex);
+        compiler.emit(SAVE, 0, 0);
+        compiler.compile(root);
+        compiler.emit(SAVE, 1, 0);
+        compiler.emit(MATCH, 0, 0);
+
+        return new LinearPattern(regex, parser.groupCount, parser.namedGroups, compiler);
+    }
+
+    /**
+     * Compiles the regex of the given pattern.
+     * @throws PatternSyntaxException If the regex uses syntax the linear engine does not support or the pattern has
+     *                                flags.
+     */
+    public static LinearPattern compile(Pattern pattern)
+        throws PatternSyntaxException
+    {
+        if (pattern.flags() != 0)
+        {
+            throw new PatternSyntaxException("Flags are not supported by the linear engine", pattern.pattern(), -1);
+        }
+        return compile(pattern.pattern());
+    }
+
+    /**
+     * Returns the regex this pattern was compiled from.
+     */
+    public String pattern()
+    {
+        return regex;
+    }
+
+    /**
+     * Returns the number of capturing groups.
+     */
+    public int groupCount()
+    {
+        return groupCount;
+    }
+
+    /**
+     * Returns the number of the named group or -1 if there is no such group.
+     */
+    public int groupIndex(String name)
+    {
+        Integer index = namedGroups.get(name);
+        return index == null? -1 : index;
+    }
+
+    /**
+     * Returns whether the entire input matches this pattern.
+     */
+    public boolean matches(CharSequence input)
+    {
+        return match(input, Long.MAX_VALUE) != null;
+    }
+
+    /**
+     * Matches the entire input against this pattern.
+     * @param maxSteps The maximum number of automaton steps to take; bounds the time spent.
+     * @return Null if the input does not match. Otherwise the start and end indexes of the groups: group
+     *         {@code n} at {@code 2n} and {@code 2n + 1}, {@code -1} if the group did not participate in the match.
+     * @throws StepBudgetExceededException If matching takes more than {@code maxSteps} steps.
+     */
+    public int[] match(CharSequence input, long maxSteps)
+        throws StepBudgetExceededException
+    {
+        return new Run(input, maxSteps).run();
+    }
+
+    @Override
+    public String toString()
+    {
+        return regex;
+    }
+
+    /**
+     * Thrown when matching exceeds its step budget.
+     */
+    public static class StepBudgetExceededException extends RuntimeException
+    {
+        StepBudgetExceededException(long maxSteps)
+        {
+            super("Matching took more than " + maxSteps + " steps");
+        }
+    }
+
+    /**
+     * The state of a single match.
+     */
+    private final class Run
+    {
+        private final CharSequence input;
+        private final int length;
+        private final long maxSteps;
+        private long steps = 0;
+
+        // thread lists: program counters and captures, in priority order
+        private int[] currentPcs = new int[op.length];
+        private int[][] currentCaps = new int[op.length][];
+        private int currentCount = 0;
+        private int[] nextPcs = new int[op.length];
+        private int[][] nextCaps = new int[op.length][];
+        private int nextCount = 0;
+
+        // marks the instructions already added to the list being built
+        private final int[] visited = new int[op.length];
+        private int stamp = 0;
+
+        private final int[] stackPcs = new int[op.length * 2 + 2];
+        private final int[][] stackCaps = new int[op.length * 2 + 2][];
+
+        Run(CharSequence input, long maxSteps)
+        {
+            this.input = input;
+            this.length = input.length();
+            this.maxSteps = maxSteps;
+        }
+
+        int[] run()
+        {
+            int[] initialCaps = new int[(groupCount + 1) * 2];
+            Arrays.fill(initialCaps, -1);
+
+            int pos = 0;
+            addThreads(0, initialCaps, pos);
+            swap();
+
+            while (currentCount > 0)
+            {
+                final int cp = pos < length? Character.codePointAt(input, pos) : -1;
+                final int next = cp == -1? pos : pos + Character.charCount(cp);
+
+                for (int i = 0;i < currentCount;i++)
+                {
+                    final int pc = currentPcs[i];
+                    step();
+                    switch (op[pc])
+                    {
+                        case MATCH:
+                            if (pos == length)
+                            {
+                                // highest priority thread to reach the end of the input
+                                return currentCaps[i];
+                            }
+                            break;
+                        case ANY:
+                            if (cp != -1 && !isLineTerminator(cp))
+                            {
+                                addThreads(pc + 1, currentCaps[i], next);
+                            }
+                            break;
+                        case CHAR:
+                            if (cp != -1 && inRanges(ranges[pc], cp) != negated[pc])
+                            {
+                                addThreads(pc + 1, currentCaps[i], next);
+                            }
+                            break;
+                    }
+                }
+
+                if (cp == -1)
+                {
+                    break;
+                }
+
+                swap();
+                pos = next;
+            }
+
+            return null;
+        }
+
+        private void swap()
+        {
+            int[] pcs = currentPcs;
+            int[][] caps = currentCaps;
+            currentPcs = nextPcs;
+            currentCaps = nextCaps;
+            currentCount = nextCount;
+            nextPcs = pcs;
+            nextCaps = caps;
+            nextCount = 0;
+            stamp++;
+        }
+
+        /**
+         * Adds the thread at {@code pc} to the next list, following empty transitions in priority order.
+         */
+        private void addThreads(int pc, int[] caps, int pos)
+        {
+            int sp = 0;
+            stackPcs[sp] = pc;
+            stackCaps[sp++] = caps;
+
+            while (sp > 0)
+            {
+                pc = stackPcs[--sp];
+                caps = stackCaps[sp];
+                stackCaps[sp] = null;
+
+                if (visited[pc] == stamp + 1)
+                {
+                    continue;
+                }
+                visited[pc] = stamp + 1;
+                step();
+
+                switch (op[pc])
+                {
+                    case JMP:
+                        stackPcs[sp] = x[pc];
+                        stackCaps[sp++] = caps;
+                        break;
+                    case SPLIT:
+                        // x has priority, so it goes on top
+                        stackPcs[sp] = y[pc];
+                        stackCaps[sp++] = caps;
+                        stackPcs[sp] = x[pc];
+                        stackCaps[sp++] = caps;
+                        break;
+                    case SAVE:
+                        int[] saved = caps.clone();
+                        saved[x[pc]] = pos;
+                        stackPcs[sp] = pc + 1;
+                        stackCaps[sp++] = saved;
+                        break;
+                    case BEGIN:
+                    case END_OR_TERMINATOR:
+                    case END:
+                    case WORD_BOUNDARY:
+                    case NON_WORD_BOUNDARY:
+                        if (holds(op[pc], pos))
+                        {
+                            stackPcs[sp] = pc + 1;
+                            stackCaps[sp++] = caps;
+                        }
+                        break;
+                    default:
+                        nextPcs[nextCount] = pc;
+                        nextCaps[nextCount++] = caps;
+                }
+            }
+        }
+
+        private boolean holds(int assertion, int pos)
+        {
+            switch (assertion)
+            {
+                case BEGIN:
+                    return pos == 0;
+                case END:
+                    return pos == length;
+                case END_OR_TERMINATOR:
+                    if (pos == length)
+                    {
+                        return true;
+                    }
+                    if (pos == length - 1)
+                    {
+                        return isLineTerminator(input.charAt(pos));
+                    }
+                    return pos == length - 2 && input.charAt(pos) == '\r' && input.charAt(pos + 1) == '\n';
+                default:
+                    boolean before = pos > 0 && isBoundaryWordChar(input.charAt(pos - 1));
+                    boolean after = pos < length && isBoundaryWordChar(input.charAt(pos));
+                    return (before != after) == (assertion == WORD_BOUNDARY);
+            }
+        }
+
+        private void step()
+        {
+            if (++steps > maxSteps)
+            {
+                throw new StepBudgetExceededException(maxSteps);
+            }
+        }
+    }
+
+    private static boolean inRanges(int[] ranges, int cp)
+    {
+        for (int i = 0;i < ranges.length;i += 2)
+        {
+            if (cp < ranges[i])
+            {
+                return false;
+            }
+            if (cp <= ranges[i + 1])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLineTerminator(int c)
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Word characters as {@link Pattern} sees them for <code>\b</code>, which unlike <code>\w</code> is not
+     * restricted to ASCII.
+     */
+    private static boolean isBoundaryWordChar(char c)
+    {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    // -- syntax tree --
+
+    private static abstract class Node {}
+
+    private static final class CharNode extends Node
+    {
+        final int[] ranges;
+        final boolean negated;
+
+        CharNode(int[] ranges, boolean negated)
+        {
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+    }
+
+    private static final class AnyNode extends Node {}
+
+    private static final class AssertNode extends Node
+    {
+        final int op;
+
+        AssertNode(int op)
+        {
+            this.op = op;
+        }
+    }
+
+    private static final class ConcatNode extends Node
+    {
+        final List<Node> children;
+
+        ConcatNode(List<Node> children)
+        {
+            this.children = children;
+        }
+    }
+
+    private static final class AltNode extends Node
+    {
+        final List<Node> children;
+
+        AltNode(List<Node> children)
+        {
+            this.children = children;
+        }
+    }
+
+    private static final class GroupNode extends Node
+    {
+        final Node child;
+        final int index;
+
+        GroupNode(Node child, int index)
+        {
+            this.child = child;
+            this.index = index;
+        }
+    }
+
+    private static final class RepeatNode extends Node
+    {
+        final Node child;
+        final int min;
+        final int max;
+        final boolean greedy;
+
+        RepeatNode(Node child, int min, int max, boolean greedy)
+        {
+            this.child = child;
+            this.min = min;
+            this.max = max;
+            this.greedy = greedy;
+        }
+    }
+
+    // -- parsing --
+
+    private static final int[] DIGIT = { '0', '9' };
+    private static final int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+    private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+
+    private static final class Parser
+    {
+        private final String regex;
+        private int pos = 0;
+        int groupCount = 0;
+        final Map<String,Integer> namedGroups = new HashMap<>();
+
+        Parser(String regex)
+        {
+            this.regex = regex;
+        }
+
+        Node parse()
+        {
+            Node node = parseAlternation();
+            if (pos < regex.length())
+            {
+                throw error("Unmatched closing ')'");
+            }
+            return node;
+        }
+
+        private Node parseAlternation()
+        {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(parseConcatenation());
+            while (pos < regex.length() && regex.charAt(pos) == '|')
+            {
+                pos++;
+                alternatives.add(parseConcatenation());
+            }
+            return alternatives.size() == 1? alternatives.get(0) : new AltNode(alternatives);
+        }
+
+        private Node parseConcatenation()
+        {
+            List<Node> sequence = new ArrayList<>();
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')')
+            {
+                if (regex.startsWith("\\Q", pos))
+                {
+                    int end = regex.indexOf("\\E", pos + 2);
+                    String quoted = regex.substring(pos + 2, end == -1? regex.length() : end);
+                    pos = end == -1? regex.length() : end + 2;
+                    for (int i = 0;i < quoted.length();)
+                    {
+                        int cp = quoted.codePointAt(i);
+                        sequence.add(literal(cp));
+                        i += Character.charCount(cp);
+                    }
+                    continue;
+                }
+
+                Node atom = parseAtom();
+                sequence.add(parseQuantifiers(atom));
+            }
+            return sequence.size() == 1? sequence.get(0) : new ConcatNode(sequence);
+        }
+
+        private Node parseQuantifiers(Node atom)
+        {
+            while (pos < regex.length())
+            {
+                char c = regex.charAt(pos);
+                int min;
+                int max;
+                if (c == '*')
+                {
+                    min = 0;
+                    max = -1;
+                    pos++;
+                }
+                else if (c == '+')
+                {
+                    min = 1;
+                    max = -1;
+                    pos++;
+                }
+                else if (c == '?')
+                {
+                    min = 0;
+                    max = 1;
+                    pos++;
+                }
+                else if (c == '{')
+                {
+                    pos++;
+                    min = parseNumber();
+                    max = min;
+                    if (pos < regex.length() && regex.charAt(pos) == ',')
+                    {
+                        pos++;
+                        max = pos < regex.length() && regex.charAt(pos) == '}'? -1 : parseNumber();
+                    }
+                    if (pos >= regex.length() || regex.charAt(pos) != '}')
+                    {
+                        throw error("Unclosed counted closure");
+                    }
+                    pos++;
+                    if (max != -1 && max < min)
+                    {
+                        throw error("Illegal repetition range");
+                    }
+                }
+                else
+                {
+                    return atom;
+                }
+
+                if (atom instanceof AssertNode)
+                {
+                    throw error("Quantified anchors are not supported by the linear engine");
+                }
+
+                boolean greedy = true;
+                if (pos < regex.length() && regex.charAt(pos) == '?')
+                {
+                    greedy = false;
+                    pos++;
+                }
+                else if (pos < regex.length() && regex.charAt(pos) == '+')
+                {
+                    throw error("Possessive quantifiers are not supported by the linear engine");
+                }
+                atom = new RepeatNode(atom, min, max, greedy);
+            }
+            return atom;
+        }
+
+        private int parseNumber()
+        {
+            int start = pos;
+            while (pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9')
+            {
+                pos++;
+            }
+            if (start == pos)
+            {
+                throw error("Illegal repetition");
+            }
+            if (pos - start > 4 || Integer.parseInt(regex.substring(start, pos)) > MAX_REPETITION)
+            {
+                throw error("Repetitions of more than " + MAX_REPETITION + " are not supported by the linear engine");
+            }
+            return Integer.parseInt(regex.substring(start, pos));
+        }
+
+        private Node parseAtom()
+        {
+            char c = regex.charAt(pos++);
+            switch (c)
+            {
+                case '.':
+                    return new AnyNode();
+                case '^':
+                    return new AssertNode(BEGIN);
+                case '$':
+                    return new AssertNode(END_OR_TERMINATOR);
+                case '[':
+                    return parseClass();
+                case '(':
+                    return parseGroup();
+                case '\\':
+                    return parseEscape(false);
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw error("Dangling meta character '" + c + "'");
+                default:
+                    pos--;
+                    int cp = regex.codePointAt(pos);
+                    pos += Character.charCount(cp);
+                    return literal(cp);
+            }
+        }
+
+        private Node parseGroup()
+        {
+            int index = -1;
+            if (regex.startsWith("?:", pos))
+            {
+                pos += 2;
+            }
+            else if (regex.startsWith("?<", pos) && pos + 2 < regex.length()
+                && Character.isLetter(regex.charAt(pos + 2)))
+            {
+                int end = regex.indexOf('>', pos);
+                if (end == -1)
+                {
+                    throw error("Named capturing group is missing trailing '>'");
+                }
+                String name = regex.substring(pos + 2, end);
+                if (namedGroups.containsKey(name))
+                {
+                    throw error("Named capturing group <" + name + "> is already defined");
+                }
+                pos = end + 1;
+                index = ++groupCount;
+                namedGroups.put(name, index);
+            }
+            else if (pos < regex.length() && regex.charAt(pos) == '?')
+            {
+                throw error("Lookaround, atomic groups and flags are not supported by the linear engine");
+            }
+            else
+            {
+                index = ++groupCount;
+            }
+
+            Node child = parseAlternation();
+            if (pos >= regex.length() || regex.charAt(pos) != ')')
+            {
+                throw error("Unclosed group");
+            }
+            pos++;
+            return new GroupNode(child, index);
+        }
+
+        /**
+         * Parses the escape sequence after a backslash.
+         */
+        private Node parseEscape(boolean inClass)
+        {
+            if (pos >= regex.length())
+            {
+                throw error("Unexpected internal error");
+            }
+            char c = regex.charAt(pos++);
+            switch (c)
+            {
+                case 'd': return new CharNode(DIGIT, false);
+                case 'D': return new CharNode(DIGIT, true);
+                case 'w': return new CharNode(WORD, false);
+                case 'W': return new CharNode(WORD, true);
+                case 's': return new CharNode(SPACE, false);
+                case 'S': return new CharNode(SPACE, true);
+                case 't': return literal('\t');
+                case 'n': return literal('\n');
+                case 'r': return literal('\r');
+                case 'f': return literal('\f');
+                case 'a': return literal('\u0007');
+                case 'e': return literal('\u001B');
+                case 'x': return literal(parseHex(2));
+                case 'u': return literal(parseHex(4));
+            }
+
+            if (!inClass)
+            {
+                switch (c)
+                {
+                    case 'A': return new AssertNode(BEGIN);
+                    case 'z': return new AssertNode(END);
+                    case 'Z': return new AssertNode(END_OR_TERMINATOR);
+                    case 'b': return new AssertNode(WORD_BOUNDARY);
+                    case 'B': return new AssertNode(NON_WORD_BOUNDARY);
+                }
+            }
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+            {
+                pos--;
+                throw error("The escape sequence \\" + c + " is not supported by the linear engine");
+            }
+            return literal(c);
+        }
+
+        private int parseHex(int digits)
+        {
+            if (pos + digits > regex.length())
+            {
+                throw error("Illegal hexadecimal escape sequence");
+            }
+            int value = 0;
+            for (int i = 0;i < digits;i++)
+            {
+                int digit = Character.digit(regex.charAt(pos++), 16);
+                if (digit < 0)
+                {
+                    throw error("Illegal hexadecimal escape sequence");
+                }
+                value = value * 16 + digit;
+            }
+            return value;
+        }
+
+        private Node parseClass()
+        {
+            boolean negate = false;
+            if (pos < regex.length() && regex.charAt(pos) == '^')
+            {
+                negate = true;
+                pos++;
+            }
+
+            List<int[]> items = new ArrayList<>();
+            boolean first = true;
+            while (true)
+            {
+                if (pos >= regex.length())
+                {
+                    throw error("Unclosed character class");
+                }
+                char c = regex.charAt(pos);
+                if (c == ']' && !first)
+                {
+                    pos++;
+                    break;
+                }
+                if (c == '[' || regex.startsWith("&&", pos))
+                {
+                    throw error("Nested classes and intersections are not supported by the linear engine");
+                }
+                first = false;
+
+                int low = classChar(items);
+                if (low == -1)
+                {
+                    continue;
+                }
+
+                if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']')
+                {
+                    pos++;
+                    int high = classChar(items);
+                    if (high == -1)
+                    {
+                        throw error("Illegal character range");
+                    }
+                    if (high < low)
+                    {
+                        throw error("Illegal character range");
+                    }
+                    items.add(new int[]{ low, high });
+                }
+                else
+                {
+                    items.add(new int[]{ low, low });
+                }
+            }
+
+            return new CharNode(normalize(items), negate);
+        }
+
+        /**
+         * Parses a single character of a class. Predefined classes are added to {@code items} right away; -1 is
+         * returned for them.
+         */
+        private int classChar(List<int[]> items)
+        {
+            if (regex.charAt(pos) == '\\')
+            {
+                pos++;
+                Node escaped = parseEscape(true);
+                CharNode node = (CharNode) escaped;
+                int[] r = node.negated? complement(node.ranges) : node.ranges;
+                if (r.length == 2 && r[0] == r[1] && !isPredefined(node))
+                {
+                    return r[0];
+                }
+                for (int i = 0;i < r.length;i += 2)
+                {
+                    items.add(new int[]{ r[i], r[i + 1] });
+                }
+                return -1;
+            }
+
+            int cp = regex.codePointAt(pos);
+            pos += Character.charCount(cp);
+            return cp;
+        }
+
+        private boolean isPredefined(CharNode node)
+        {
+            return node.ranges == DIGIT || node.ranges == WORD || node.ranges == SPACE;
+        }
+
+        private PatternSyntaxException error(String description)
+        {
+            return new PatternSyntaxException(description, regex, pos - 1);
+        }
+    }
+
+    private static CharNode literal(int cp)
+    {
+        return new CharNode(new int[]{ cp, cp }, false);
+    }
+
+    /**
+     * Sorts and merges the given ranges into the flat form used by {@link #inRanges(int[], int)}.
+     */
+    private static int[] normalize(List<int[]> items)
+    {
+        items.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] result = new int[items.size() * 2];
+        int n = 0;
+        for (int[] item : items)
+        {
+            if (n > 0 && item[0] <= result[n - 1] + 1)
+            {
+                result[n - 1] = Math.max(result[n - 1], item[1]);
+            }
+            else
+            {
+                result[n++] = item[0];
+                result[n++] = item[1];
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] complement(int[] ranges)
+    {
+        int[] result = new int[ranges.length + 2];
+        int n = 0;
+        int next = 0;
+        for (int i = 0;i < ranges.length;i += 2)
+        {
+            if (ranges[i] > next)
+            {
+                result[n++] = next;
+                result[n++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_CODE_POINT)
+        {
+            result[n++] = next;
+            result[n++] = Character.MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // -- compilation --
+
+    private static final class Compiler
+    {
+        private final String regex;
+        int[] op = new int[64];
+        int[] x = new int[64];
+        int[] y = new int[64];
+        int[][] ranges = new int[64][];
+        boolean[] negated = new boolean[64];
+        int size = 0;
+
+        Compiler(String regex)
+        {
+            this.regex = regex;
+        }
+
+        int emit(int opcode, int xArg, int yArg)
+        {
+            if (size == MAX_PROGRAM_SIZE)
+            {
+                throw new PatternSyntaxException("The pattern is too large for the linear engine", regex, -1);
+            }
+            if (size == op.length)
+            {
+                int capacity = Math.min(size * 2, MAX_PROGRAM_SIZE);
+                op = Arrays.copyOf(op, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                ranges = Arrays.copyOf(ranges, capacity);
+                negated = Arrays.copyOf(negated, capacity);
+            }
+            op[size] = opcode;
+            x[size] = xArg;
+            y[size] = yArg;
+            return size++;
+        }
+
+        /**
+         * Points the split at {@code at} to {@code taken} and {@code skipped}, preferring {@code taken} if
+         * {@code greedy}.
+         */
+        void split(int at, int taken, int skipped, boolean greedy)
+        {
+            x[at] = greedy? taken : skipped;
+            y[at] = greedy? skipped : taken;
+        }
+
+        void compile(Node node)
+        {
+            if (node instanceof CharNode)
+            {
+                int at = emit(CHAR, 0, 0);
+                ranges[at] = ((CharNode) node).ranges;
+                negated[at] = ((CharNode) node).negated;
+            }
+            else if (node instanceof AnyNode)
+            {
+                emit(ANY, 0, 0);
+            }
+            else if (node instanceof AssertNode)
+            {
+                emit(((AssertNode) node).op, 0, 0);
+            }
+            else if (node instanceof ConcatNode)
+            {
+                for (Node child : ((ConcatNode) node).children)
+                {
+                    compile(child);
+                }
+            }
+            else if (node instanceof AltNode)
+            {
+                List<Node> children = ((AltNode) node).children;
+                int[] jumps = new int[children.size() - 1];
+                for (int i = 0;i < children.size();i++)
+                {
+                    if (i < children.size() - 1)
+                    {
+                        int split = emit(SPLIT, 0, 0);
+                        x[split] = split + 1;
+                        compile(children.get(i));
+                        jumps[i] = emit(JMP, 0, 0);
+                        y[split] = size;
+                    }
+                    else
+                    {
+                        compile(children.get(i));
+                    }
+                }
+                for (int jump : jumps)
+                {
+                    x[jump] = size;
+                }
+            }
+            else if (node instanceof GroupNode)
+            {
+                GroupNode group = (GroupNode) node;
+                if (group.index != -1)
+                {
+                    emit(SAVE, group.index * 2, 0);
+                }
+                compile(group.child);
+                if (group.index != -1)
+                {
+                    emit(SAVE, group.index * 2 + 1, 0);
+                }
+            }
+            else
+            {
+                RepeatNode repeat = (RepeatNode) node;
+                for (int i = 0;i < repeat.min;i++)
+                {
+                    compile(repeat.child);
+                }
+
+                if (repeat.max == -1)
+                {
+                    // L: split body, out; body; jmp L
+                    int loop = emit(SPLIT, 0, 0);
+                    compile(repeat.child);
+                    emit(JMP, loop, 0);
+                    split(loop, loop + 1, size, repeat.greedy);
+                }
+                else
+                {
+                    // nested optionals: (x(x(x)?)?)?
+                    int optionals = repeat.max - repeat.min;
+                    int[] splits = new int[optionals];
+                    for (int i = 0;i < optionals;i++)
+                    {
+                        splits[i] = emit(SPLIT, 0, 0);
+                        compile(repeat.child);
+                    }
+                    for (int at : splits)
+                    {
+                        split(at, at + 1, size, repeat.greedy);
+                    }
+                }
+            }
+        }
+    }
+}
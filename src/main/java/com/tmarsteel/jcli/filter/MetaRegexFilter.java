@@ -23,23 +23,76 @@ import java.util.regex.PatternSyntaxException;
 
 /**
  * Parses the given strings as a regular expression and returns the
- * {@link java.util.regex.Pattern}.
+ * {@link java.util.regex.Pattern}; or, with the {@link RegexEngine#LINEAR linear engine}, the {@link LinearPattern}.
  * @author Tobias Marstaller
  * (<a href="//github.com/tmarsteel">github.com/tmarsteel</a>)
  */
 public class MetaRegexFilter implements Filter
 {
+    protected RegexEngine engine = RegexEngine.BACKTRACKING;
+    protected int maxLength = -1;
+
+    public MetaRegexFilter() {}
+
+    public MetaRegexFilter(RegexEngine engine)
+    {
+        this.engine = engine;
+    }
+
     @Override
     public Object parse(String value)
         throws ValidationException
     {
+        if (maxLength != -1 && value.length() > maxLength)
+        {
+            throw new ValidationException("regex must not be longer than " + maxLength + " characters");
+        }
+
         try
         {
-            return Pattern.compile(value);
+            return engine == RegexEngine.LINEAR? LinearPattern.compile(value) : Pattern.compile(value);
         }
         catch (PatternSyntaxException ex)
         {
             throw new ValidationException(ex.getMessage(), ex);
         }
     }
+
+    /**
+     * Returns the engine the parsed regexes are compiled for.
+     */
+    public RegexEngine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * Sets the engine the parsed regexes are compiled for. With {@link RegexEngine#LINEAR}, user supplied regexes
+     * cannot make matching take more than linear time; {@link #parse(String)} returns {@link LinearPattern}s then.
+     */
+    public void setEngine(RegexEngine engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+     * Returns the maximum length of regexes this filter accepts or -1 if the length is not limited.
+     */
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    /**
+     * Sets the maximum length of regexes this filter accepts.
+     * @param maxLength The maximum length or -1 to not limit the length, which is the default.
+     */
+    public void setMaxLength(int maxLength)
+    {
+        if (maxLength < -1)
+        {
+            throw new IllegalArgumentException("The maximum length must not be negative");
+        }
+        this.maxLength = maxLength;
+    }
 }
@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import java.math.BigInteger;
+
+/**
+ * Number parsing on {@link CharSequence} ranges that reports malformed input through sentinel values rather than
+ * exceptions. Neither the sentinels nor the values are boxed, so parsing does not allocate.
+ * @author Tobias Marstaller
+ */
+class NumberParsing
+{
+    static final int OK = 0;
+    static final int INVALID = 1;
+    static final int OVERFLOW = 2;
+
+    /**
+     * Returned by {@link #parseLong(CharSequence, int, int, int)} for malformed or overflowing input. As it is a
+     * valid {@code long}, too, {@link #longStatus(CharSequence, int, int, int)} tells the cases apart.
+     */
+    static final long NOT_A_LONG = Long.MIN_VALUE;
+
+    private NumberParsing() {}
+
+    /**
+     * Parses the given range as a {@code long}, accepting exactly what {@link Long#parseLong(String, int)} accepts.
+     * Parsing stops at the first overflowing digit; digits after it are not checked.
+     * @return The value or {@link #NOT_A_LONG}.
+     */
+    static long parseLong(CharSequence s, int start, int end, int radix)
+    {
+        return parseLong(s, start, end, radix, false);
+    }
+
+    /**
+     * Parses the given range like {@link #parseLong(CharSequence, int, int, int)} but reports the outcome only.
+     * Meant to be called once that returned {@link #NOT_A_LONG}.
+     * @return {@link #OK}, {@link #INVALID} or {@link #OVERFLOW}.
+     */
+    static int longStatus(CharSequence s, int start, int end, int radix)
+    {
+        return (int) parseLong(s, start, end, radix, true);
+    }
+
+    /**
+     * @param status Whether to return the status code instead of the value or {@link #NOT_A_LONG}.
+     */
+    private static long parseLong(CharSequence s, int start, int end, int radix, boolean status)
+    {
+        if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX || start >= end)
+        {
+            return status? INVALID : NOT_A_LONG;
+        }
+
+        int i = start;
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+
+        char first = s.charAt(i);
+        if (first == '-' || first == '+')
+        {
+            if (first == '-')
+            {
+                negative = true;
+                limit = Long.MIN_VALUE;
+            }
+            if (++i == end)
+            {
+                return status? INVALID : NOT_A_LONG;
+            }
+        }
+
+        // accumulate negatively: the range of negative numbers is the larger one
+        final long multmin = limit / radix;
+        long n = 0;
+        for (;i < end;i++)
+        {
+            int digit = Character.digit(s.charAt(i), radix);
+            if (digit < 0)
+            {
+                return status? INVALID : NOT_A_LONG;
+            }
+            if (n < multmin)
+            {
+                return status? OVERFLOW : NOT_A_LONG;
+            }
+            n *= radix;
+            if (n < limit + digit)
+            {
+                return status? OVERFLOW : NOT_A_LONG;
+            }
+            n -= digit;
+        }
+
+        if (status)
+        {
+            return OK;
+        }
+        return negative? n : -n;
+    }
+
+    /**
+     * Parses the given range as a {@code double}. The result is bit-identical to {@link Double#parseDouble(String)}
+     * and so is the set of accepted inputs. Plain decimal notation is parsed with the Eisel-Lemire algorithm;
+     * anything else (hexadecimal notation, {@code NaN}, {@code Infinity}, surrounding whitespace, type suffixes,
+     * the rare inputs Eisel-Lemire cannot decide) is handed to {@link Double#parseDouble(String)}.
+     * @return The value or {@link Double#NaN} if the range is malformed. {@link #isNaN(CharSequence, int, int)}
+     *         tells that apart from a {@code NaN} literal.
+     */
+    static double parseDouble(CharSequence s, int start, int end)
+    {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+        {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        // significand: the first 19 significant digits fit into an unsigned long
+        long mantissa = 0;
+        int nd = 0;         // significant digits seen
+        int ndMantissa = 0; // significant digits in mantissa
+        int dp = 0;         // position of the decimal point, relative to the first significant digit
+        boolean sawDot = false;
+        boolean sawDigits = false;
+        boolean truncated = false;
+        for (;i < end;i++)
+        {
+            char c = s.charAt(i);
+            if (c == '.')
+            {
+                if (sawDot)
+                {
+                    break;
+                }
+                sawDot = true;
+                dp = nd;
+            }
+            else if (c >= '0' && c <= '9')
+            {
+                sawDigits = true;
+                if (c == '0' && nd == 0)
+                {
+                    dp--;
+                    continue;
+                }
+                nd++;
+                if (ndMantissa < 19)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    ndMantissa++;
+                }
+                else if (c != '0')
+                {
+                    truncated = true;
+                }
+            }
+            else
+            {
+                break;
+            }
+        }
+        if (!sawDot)
+        {
+            dp = nd;
+        }
+
+        boolean wellFormed = sawDigits;
+        if (wellFormed && i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E'))
+        {
+            i++;
+            int expSign = 1;
+            if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+            {
+                expSign = s.charAt(i) == '-'? -1 : 1;
+                i++;
+            }
+            wellFormed = i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9';
+            int e = 0;
+            for (;i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9';i++)
+            {
+                if (e < 10000)
+                {
+                    e = e * 10 + (s.charAt(i) - '0');
+                }
+            }
+            dp += e * expSign;
+        }
+
+        if (!wellFormed || i != end)
+        {
+            return parseDoubleFallback(s, start, end);
+        }
+
+        // well-formed from here on
+
+        if (mantissa == 0)
+        {
+            return negative? -0.0 : 0.0;
+        }
+
+        final int exp10 = dp - ndMantissa;
+        if (!truncated)
+        {
+            final double f = clinger(mantissa, exp10, negative);
+            if (!Double.isNaN(f))
+            {
+                return f;
+            }
+        }
+
+        final long bits = eiselLemire(mantissa, exp10, negative);
+        if (bits != -1 && (!truncated || bits == eiselLemire(mantissa + 1, exp10, negative)))
+        {
+            return Double.longBitsToDouble(bits);
+        }
+
+        // exact, but slow
+        return Double.parseDouble(s.subSequence(start, end).toString());
+    }
+
+    /**
+     * Returns whether {@link Double#parseDouble(String)} parses the given range to {@code NaN}. Meant to be called
+     * once {@link #parseDouble(CharSequence, int, int)} returned {@code NaN}.
+     */
+    static boolean isNaN(CharSequence s, int start, int end)
+    {
+        try
+        {
+            return Double.isNaN(Double.parseDouble(s.subSequence(start, end).toString()));
+        }
+        catch (NumberFormatException ex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether {@link java.math.BigDecimal#BigDecimal(String)} would accept the given range in principle:
+     * a sign, digits with an optional decimal point and an optional exponent. Does not check the exponent range.
+     */
+    static boolean isBigDecimal(CharSequence s, int start, int end)
+    {
+        int i = start;
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+        {
+            i++;
+        }
+
+        boolean sawDigits = false;
+        boolean sawDot = false;
+        for (;i < end;i++)
+        {
+            char c = s.charAt(i);
+            if (c == '.' && !sawDot)
+            {
+                sawDot = true;
+            }
+            else if (Character.isDigit(c))
+            {
+                sawDigits = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if (!sawDigits)
+        {
+            return false;
+        }
+        if (i == end)
+        {
+            return true;
+        }
+        if (s.charAt(i) != 'e' && s.charAt(i) != 'E')
+        {
+            return false;
+        }
+
+        i++;
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+        {
+            i++;
+        }
+        if (i == end)
+        {
+            return false;
+        }
+        for (;i < end;i++)
+        {
+            if (!Character.isDigit(s.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses input outside the plain decimal notation with {@link Double#parseDouble(String)}. Malformed input
+     * consisting only of characters of the plain notation is rejected right away: parseDouble would reject it, too.
+     */
+    private static double parseDoubleFallback(CharSequence s, int start, int end)
+    {
+        boolean plain = true;
+        for (int i = start;i < end && plain;i++)
+        {
+            char c = s.charAt(i);
+            plain = (c >= '0' && c <= '9') || c == '.' || c == '+' || c == '-' || c == 'e' || c == 'E';
+        }
+        if (plain)
+        {
+            return Double.NaN;
+        }
+
+        try
+        {
+            return Double.parseDouble(s.subSequence(start, end).toString());
+        }
+        catch (NumberFormatException ex)
+        {
+            return Double.NaN;
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Clinger's fast path: exact if both the mantissa and the power of ten are exactly representable.
+     * @return The value or {@link Double#NaN} if the fast path does not apply.
+     */
+    private static strictfp double clinger(long mantissa, int exp10, boolean negative)
+    {
+        if (mantissa >>> 53 != 0)
+        {
+            return Double.NaN;
+        }
+
+        double f = negative? -(double) mantissa : (double) mantissa;
+        if (exp10 == 0)
+        {
+            return f;
+        }
+        if (exp10 > 0 && exp10 <= 15 + 22)
+        {
+            if (exp10 > 22)
+            {
+                // the mantissa has trailing zeros to spare
+                f *= POWERS_OF_TEN[exp10 - 22];
+                exp10 = 22;
+            }
+            if (f > 1e15 || f < -1e15)
+            {
+                return Double.NaN;
+            }
+            return f * POWERS_OF_TEN[exp10];
+        }
+        if (exp10 < 0 && exp10 >= -22)
+        {
+            return f / POWERS_OF_TEN[-exp10];
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * The Eisel-Lemire algorithm, after the implementation in Go's strconv package.
+     * @param mantissa Unsigned, not zero.
+     * @return The bits of the correctly rounded double or -1 if the algorithm cannot decide.
+     */
+    private static long eiselLemire(long mantissa, int exp10, boolean negative)
+    {
+        if (exp10 < Pow10Table.MIN_EXP10 || exp10 > Pow10Table.MAX_EXP10)
+        {
+            return -1;
+        }
+
+        // normalization
+        final int clz = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= clz;
+        long retExp2 = (((217706 * exp10) >> 16) + 64 + 1023) - clz;
+
+        // multiplication
+        final int index = exp10 - Pow10Table.MIN_EXP10;
+        long xHi = multiplyHighUnsigned(mantissa, Pow10Table.HI[index]);
+        long xLo = mantissa * Pow10Table.HI[index];
+
+        // wider approximation
+        if ((xHi & 0x1FF) == 0x1FF && Long.compareUnsigned(xLo + mantissa, mantissa) < 0)
+        {
+            long yHi = multiplyHighUnsigned(mantissa, Pow10Table.LO[index]);
+            long yLo = mantissa * Pow10Table.LO[index];
+            long mergedHi = xHi;
+            long mergedLo = xLo + yHi;
+            if (Long.compareUnsigned(mergedLo, xLo) < 0)
+            {
+                mergedHi++;
+            }
+            if ((mergedHi & 0x1FF) == 0x1FF && mergedLo + 1 == 0 && Long.compareUnsigned(yLo + mantissa, mantissa) < 0)
+            {
+                return -1;
+            }
+            xHi = mergedHi;
+            xLo = mergedLo;
+        }
+
+        // shifting to 54 bits
+        final long msb = xHi >>> 63;
+        long retMantissa = xHi >>> (msb + 9);
+        retExp2 -= 1 ^ msb;
+
+        // half-way ambiguity
+        if (xLo == 0 && (xHi & 0x1FF) == 0 && (retMantissa & 3) == 1)
+        {
+            return -1;
+        }
+
+        // from 54 to 53 bits
+        retMantissa += retMantissa & 1;
+        retMantissa >>>= 1;
+        if (retMantissa >>> 53 > 0)
+        {
+            retMantissa >>>= 1;
+            retExp2++;
+        }
+
+        // subnormal, infinite or NaN
+        if (retExp2 <= 0 || retExp2 >= 0x7FF)
+        {
+            return -1;
+        }
+
+        long bits = retExp2 << 52 | retMantissa & 0x000FFFFFFFFFFFFFL;
+        return negative? bits | 0x8000000000000000L : bits;
+    }
+
+    private static long multiplyHighUnsigned(long x, long y)
+    {
+        final long x0 = x & 0xFFFFFFFFL;
+        final long x1 = x >>> 32;
+        final long y0 = y & 0xFFFFFFFFL;
+        final long y1 = y >>> 32;
+
+        final long p00 = x0 * y0;
+        final long p01 = x0 * y1;
+        final long p10 = x1 * y0;
+        final long mid = (p00 >>> 32) + (p01 & 0xFFFFFFFFL) + (p10 & 0xFFFFFFFFL);
+        return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (mid >>> 32);
+    }
+
+    /**
+     * 128-bit approximations, rounded down, of the powers of ten in [{@link #MIN_EXP10}, {@link #MAX_EXP10}],
+     * normalized so that the most significant bit is set. Computed on first use.
+     */
+    private static class Pow10Table
+    {
+        static final int MIN_EXP10 = -348;
+        static final int MAX_EXP10 = 347;
+
+        static final long[] HI = new long[MAX_EXP10 - MIN_EXP10 + 1];
+        static final long[] LO = new long[MAX_EXP10 - MIN_EXP10 + 1];
+
+        static
+        {
+            for (int e = MIN_EXP10;e <= MAX_EXP10;e++)
+            {
+                BigInteger approximation;
+                if (e >= 0)
+                {
+                    BigInteger pow = BigInteger.TEN.pow(e);
+                    int shift = pow.bitLength() - 128;
+                    approximation = shift > 0? pow.shiftRight(shift) : pow.shiftLeft(-shift);
+                }
+                else
+                {
+                    BigInteger pow = BigInteger.TEN.pow(-e);
+                    approximation = BigInteger.ONE.shiftLeft(pow.bitLength() + 127).divide(pow);
+                }
+
+                HI[e - MIN_EXP10] = approximation.shiftRight(64).longValue();
+                LO[e - MIN_EXP10] = approximation.longValue();
+            }
+        }
+    }
+}
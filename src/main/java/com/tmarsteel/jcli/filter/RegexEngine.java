@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+/**
+ * The engines {@link RegexFilter} and {@link MetaRegexFilter} can match regular expressions with.
+ * @author Tobias Marstaller
+ */
+public enum RegexEngine
+{
+    /**
+     * {@link java.util.regex.Pattern}: the full syntax, but matching can take exponential time.
+     */
+    BACKTRACKING,
+
+    /**
+     * {@link LinearPattern}: matching takes linear time, but only a subset of the syntax is supported.
+     */
+    LINEAR
+}
@@ -27,9 +27,29 @@ import java.util.regex.Pattern;
  */
 public class RegexFilter implements Filter
 {
+    /**
+     * The default value for {@link #getMaxSteps()}.
+     */
+    public static final long DEFAULT_MAX_STEPS = 1000000;
+
     protected Pattern pattern;
     protected int returnGroup = 0;
 
+    protected RegexEngine engine = RegexEngine.BACKTRACKING;
+
+    /**
+     * The pattern compiled for the linear engine; null unless {@link #engine} is {@link RegexEngine#LINEAR}.
+     */
+    protected LinearPattern linearPattern = null;
+
+    protected int maxLength = -1;
+    protected long maxSteps = DEFAULT_MAX_STEPS;
+
+    /**
+     * Matchers are reused per thread; replaced when the pattern changes.
+     */
+    private final ThreadLocal<Matcher> matcher = new ThreadLocal<>();
+
     /**
      * Creates a new filter matching against the given pattern.
      * @param pattern The pattern to compile and then match against
@@ -52,10 +72,49 @@ public class RegexFilter implements Filter
     public Object parse(String value)
         throws ValidationException
     {
-        Matcher m = pattern.matcher(value);
+        if (maxLength != -1 && value.length() > maxLength)
+        {
+            throw new ValidationException("value must not be longer than " + maxLength + " characters");
+        }
+
+        final LinearPattern linearPattern = this.linearPattern;
+        if (linearPattern != null)
+        {
+            final int[] groups;
+            try
+            {
+                groups = linearPattern.match(value, maxSteps);
+            }
+            catch (LinearPattern.StepBudgetExceededException ex)
+            {
+                throw new ValidationException("value is too complex to match against regex " + linearPattern.pattern());
+            }
+
+            if (groups == null)
+            {
+                throw new ValidationException("value needs to match regex " + linearPattern.pattern());
+            }
+            int start = groups[returnGroup * 2];
+            return start == -1? null : value.substring(start, groups[returnGroup * 2 + 1]);
+        }
+
+        final Pattern pattern = this.pattern;
+        Matcher m = matcher.get();
+        if (m == null || m.pattern() != pattern)
+        {
+            m = pattern.matcher(value);
+            matcher.set(m);
+        }
+        else
+        {
+            m.reset(value);
+        }
+
         if (m.matches())
         {
-            return m.group(returnGroup);
+            String group = m.group(returnGroup);
+            m.reset("");
+            return group;
         }
         else
         {
@@ -107,9 +166,78 @@ public class RegexFilter implements Filter
         {
             returnGroup = 0;
         }
+
+        if (engine == RegexEngine.LINEAR)
+        {
+            linearPattern = LinearPattern.compile(pattern);
+        }
         
         this.pattern = pattern;
     }
+
+    /**
+     * Returns the engine used to match input.
+     */
+    public RegexEngine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * Sets the engine used to match input. Defaults to {@link RegexEngine#BACKTRACKING}.
+     * @throws java.util.regex.PatternSyntaxException If the pattern is not supported by the given engine; see
+     *                                                {@link LinearPattern}.
+     */
+    public void setEngine(RegexEngine engine)
+    {
+        linearPattern = engine == RegexEngine.LINEAR? LinearPattern.compile(pattern) : null;
+        this.engine = engine;
+    }
+
+    /**
+     * Returns the maximum length of input this filter accepts or -1 if the length is not limited.
+     */
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    /**
+     * Sets the maximum length of input this filter accepts; longer input is rejected without matching it.
+     * @param maxLength The maximum length or -1 to not limit the length, which is the default.
+     */
+    public void setMaxLength(int maxLength)
+    {
+        if (maxLength < -1)
+        {
+            throw new IllegalArgumentException("The maximum length must not be negative");
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the maximum number of steps the {@link RegexEngine#LINEAR linear engine} may take to match one
+     * input.
+     */
+    public long getMaxSteps()
+    {
+        return maxSteps;
+    }
+
+    /**
+     * Sets the maximum number of steps the {@link RegexEngine#LINEAR linear engine} may take to match one input;
+     * input that takes more is rejected. Together with {@link #setMaxLength(int)} this bounds the time a single
+     * {@link #parse(String)} takes. Defaults to {@link #DEFAULT_MAX_STEPS}. Has no effect on the backtracking
+     * engine.
+     */
+    public void setMaxSteps(long maxSteps)
+    {
+        if (maxSteps < 1)
+        {
+            throw new IllegalArgumentException("The maximum number of steps must be positive");
+        }
+        this.maxSteps = maxSteps;
+    }
     
     
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Accepts Strings matching any of a set of regexes. The regexes are compiled into a single alternation, so a value is
+ * matched in one pass; the first regex (in the given order) that matches wins. Parsing yields a {@link Match} that
+ * tells which regex matched.
+ * <br>
+ * Numbered back references (e.g. <code>\1</code>) are not supported because the group numbers shift in the combined
+ * pattern; named groups and named back references work as long as the names are unique across all regexes.
+ * @author Tobias Marstaller
+ */
+public class RegexSetFilter implements Filter
+{
+    protected final List<String> regexes;
+    protected final Pattern combined;
+
+    /**
+     * The group in {@link #combined} that wraps the regex at the same index.
+     */
+    private final int[] groupOffsets;
+
+    private final ThreadLocal<Matcher> matcher;
+
+    /**
+     * Creates a new filter matching against the given regexes.
+     * @param regexes The regexes to match against.
+     * @throws IllegalArgumentException If no regex is given, if a regex uses numbered back references or if the
+     *                                  regexes cannot be combined.
+     * @throws PatternSyntaxException If a regex is malformed.
+     */
+    public RegexSetFilter(String... regexes)
+    {
+        this(Arrays.asList(regexes));
+    }
+
+    /**
+     * Creates a new filter matching against the given regexes.
+     * @param regexes The regexes to match against.
+     * @throws IllegalArgumentException If no regex is given, if a regex uses numbered back references or if the
+     *                                  regexes cannot be combined.
+     * @throws PatternSyntaxException If a regex is malformed.
+     */
+    public RegexSetFilter(Collection<String> regexes)
+    {
+        if (regexes.isEmpty())
+        {
+            throw new IllegalArgumentException("Need to specify at least one regex");
+        }
+
+        this.regexes = Collections.unmodifiableList(new ArrayList<>(regexes));
+        this.groupOffsets = new int[this.regexes.size()];
+
+        StringBuilder alternation = new StringBuilder();
+        int group = 1;
+        for (int i = 0;i < this.regexes.size();i++)
+        {
+            String regex = this.regexes.get(i);
+            int groupCount = Pattern.compile(regex).matcher("").groupCount();
+            if (usesNumberedBackReference(regex))
+            {
+                throw new IllegalArgumentException("Numbered back references are not supported: " + regex);
+            }
+
+            if (i > 0)
+            {
+                alternation.append('|');
+            }
+            alternation.append('(').append(regex).append(')');
+
+            groupOffsets[i] = group;
+            group += groupCount + 1;
+        }
+
+        this.combined = Pattern.compile(alternation.toString());
+        if (combined.matcher("").groupCount() != group - 1)
+        {
+            throw new IllegalArgumentException("The regexes cannot be combined: " + this.regexes);
+        }
+
+        this.matcher = ThreadLocal.withInitial(() -> combined.matcher(""));
+    }
+
+    @Override
+    public Match parse(String value)
+        throws ValidationException
+    {
+        final Matcher m = matcher.get().reset(value);
+        if (!m.matches())
+        {
+            throw new ValidationException("value needs to match one of the regexes " + regexes);
+        }
+
+        final int index = matchedRegex(m);
+
+        final int offset = groupOffsets[index];
+        final int groupCount = (index + 1 < groupOffsets.length? groupOffsets[index + 1] : m.groupCount() + 1) - offset;
+        final int[] bounds = new int[groupCount * 2];
+        for (int i = 0;i < groupCount;i++)
+        {
+            bounds[i * 2] = m.start(offset + i);
+            bounds[i * 2 + 1] = m.end(offset + i);
+        }
+
+        // do not hold on to the input
+        m.reset("");
+
+        return new Match(index, regexes.get(index), value, bounds);
+    }
+
+    /**
+     * Returns the index of the regex that matched: its outer group is the only one that participated.
+     */
+    private int matchedRegex(Matcher m)
+    {
+        for (int i = 0;i < groupOffsets.length;i++)
+        {
+            if (m.start(groupOffsets[i]) != -1)
+            {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No alternative participated in the match");
+    }
+
+    /**
+     * Returns the regexes this filter matches against, in order.
+     */
+    public List<String> getRegexes()
+    {
+        return regexes;
+    }
+
+    /**
+     * Returns the single pattern all regexes are compiled into.
+     */
+    public Pattern getCombinedPattern()
+    {
+        return combined;
+    }
+
+    private static boolean usesNumberedBackReference(String regex)
+    {
+        for (int i = 0;i < regex.length() - 1;i++)
+        {
+            if (regex.charAt(i) != '\\')
+            {
+                continue;
+            }
+
+            char next = regex.charAt(++i);
+            if (next >= '1' && next <= '9')
+            {
+                return true;
+            }
+            if (next == 'Q')
+            {
+                // quoted section: literal up to \E
+                int end = regex.indexOf("\\E", i + 1);
+                if (end == -1)
+                {
+                    return false;
+                }
+                i = end + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The result of {@link RegexSetFilter#parse(String)}.
+     */
+    public static class Match
+    {
+        private final int regexIndex;
+        private final String regex;
+        private final String value;
+        private final int[] bounds;
+
+        Match(int regexIndex, String regex, String value, int[] bounds)
+        {
+            this.regexIndex = regexIndex;
+            this.regex = regex;
+            this.value = value;
+            this.bounds = bounds;
+        }
+
+        /**
+         * Returns the index of the regex that matched, see {@link RegexSetFilter#getRegexes()}.
+         */
+        public int getRegexIndex()
+        {
+            return regexIndex;
+        }
+
+        /**
+         * Returns the regex that matched.
+         */
+        public String getRegex()
+        {
+            return regex;
+        }
+
+        /**
+         * Returns the matched value.
+         */
+        public String getValue()
+        {
+            return value;
+        }
+
+        /**
+         * Returns the number of capturing groups of the regex that matched.
+         */
+        public int groupCount()
+        {
+            return bounds.length / 2 - 1;
+        }
+
+        /**
+         * Returns the given capturing group of the regex that matched, numbered as in that regex on its own; 0 is
+         * the entire value. Returns null if the group did not participate in the match.
+         * @throws IndexOutOfBoundsException If the regex has no such group.
+         */
+        public String group(int group)
+        {
+            if (group < 0 || group > groupCount())
+            {
+                throw new IndexOutOfBoundsException("No group " + group);
+            }
+            int start = bounds[group * 2];
+            return start == -1? null : value.substring(start, bounds[group * 2 + 1]);
+        }
+
+        @Override
+        public String toString()
+        {
+            return value;
+        }
+    }
+}
@@ -19,23 +19,35 @@ package com.tmarsteel.jcli.filter;
 
 import com.tmarsteel.jcli.ParseException;
 import com.tmarsteel.jcli.validation.ValidationException;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Accepts only values from a given set of possible values.
+ * Accepts only values from a given set of possible values. Values are looked up in a hash index of the options that
+ * is rebuilt only when the options change through {@link #options()}.
  * @author tmarsteel
  */
-public class SetFilter implements Filter
+public class SetFilter implements CharSequenceFilter
 {
+    /**
+     * The options, in the order given. Subclasses that change it other than through {@link #options()} have to call
+     * {@link #optionsChanged()} afterwards.
+     */
     protected final Collection<String> options;
     protected boolean caseSensitive = false;
 
+    /**
+     * Lookup index of {@link #options}; null if it has to be rebuilt.
+     */
+    private volatile Index index;
+
     /**
      * Creates a new case insensitive filter treating the given strings as valid.
      * @param options The strings to accept.
@@ -58,7 +70,8 @@ public class SetFilter implements Filter
 
     /**
      * Creates a new case insensitive filter treating the given strings as valid.
-     * @param options The strings to accept.
+     * @param options The strings to accept. They are copied; later changes to the given collection do not affect the
+     *                filter, use {@link #options()} for that.
      */
     public SetFilter(Collection<String> options)
     {
@@ -66,13 +79,14 @@ public class SetFilter implements Filter
         {
             throw new IllegalArgumentException("Need to specify at least one value");
         }
-        this.options = options;
+        this.options = new ArrayList<>(options);
+        this.index = new Index(this.options);
     }
 
     /**
      * Creates a new filter treating the given strings as valid.
      * @param caseSensitive Whether the filter should be case sensitive
-     * @param options The strings to accept.
+     * @param options The strings to accept. They are copied, see {@link #SetFilter(Collection)}.
      */
     public SetFilter(boolean caseSensitive, Collection<String> options)
     {
@@ -84,26 +98,29 @@ public class SetFilter implements Filter
     public Object parse(String value)
         throws ValidationException
     {
-        final Iterator<String> it = options.iterator();
-        while (it.hasNext())
+        return parse(value, 0, value.length());
+    }
+
+    @Override
+    public Object parse(CharSequence value, int start, int end)
+        throws ValidationException
+    {
+        Index index = this.index;
+        if (index == null)
         {
-            final String cur = it.next();
-            if (caseSensitive)
-            {
-                if (cur.equals(value))
-                {
-                    return cur;
-                }
-            }
-            else
-            {
-                if (cur.equalsIgnoreCase(value))
-                {
-                    return cur;
-                }
-            }
+            index = new Index(options);
+            this.index = index;
+        }
+
+        final String option = caseSensitive?
+            index.exact.get(value instanceof String && start == 0 && end == value.length()?
+                value : value.subSequence(start, end).toString()) :
+            index.folded.get(CaseFolding.fold(value, start, end));
+        if (option == null)
+        {
+            throw new ValidationException(value.subSequence(start, end) + " is not a possible value.");
         }
-        throw new ValidationException(value + " is not a possible value.");
+        return option;
     }
 
     /**
@@ -132,6 +149,146 @@ public class SetFilter implements Filter
      */
     public Collection<String> options()
     {
-        return this.options;
+        return options instanceof List? new OptionsListView((List<String>) options) : new OptionsView();
+    }
+
+    /**
+     * Makes the filter pick up changes made to {@link #options} other than through {@link #options()}.
+     */
+    protected void optionsChanged()
+    {
+        index = null;
+    }
+
+    /**
+     * Maps the options and their case folded keys to the option first listed.
+     */
+    private static class Index
+    {
+        final Map<String,String> exact;
+        final Map<String,String> folded;
+
+        Index(Collection<String> options)
+        {
+            exact = new HashMap<>(options.size() * 4 / 3 + 1);
+            folded = new HashMap<>(options.size() * 4 / 3 + 1);
+            for (String option : options)
+            {
+                exact.putIfAbsent(option, option);
+                folded.putIfAbsent(CaseFolding.fold(option), option);
+            }
+        }
+    }
+
+    /**
+     * Write-through view of {@link #options} that invalidates the index on changes.
+     */
+    private class OptionsView extends AbstractCollection<String>
+    {
+        @Override
+        public Iterator<String> iterator()
+        {
+            final Iterator<String> it = options.iterator();
+            return new Iterator<String>() {
+                @Override
+                public boolean hasNext()
+                {
+                    return it.hasNext();
+                }
+
+                @Override
+                public String next()
+                {
+                    return it.next();
+                }
+
+                @Override
+                public void remove()
+                {
+                    it.remove();
+                    index = null;
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return options.size();
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return options.contains(o);
+        }
+
+        @Override
+        public boolean add(String option)
+        {
+            boolean changed = options.add(option);
+            index = null;
+            return changed;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o == this || options.equals(o);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return options.hashCode();
+        }
+    }
+
+    /**
+     * Write-through view of {@link #options} for lists.
+     */
+    private class OptionsListView extends AbstractList<String>
+    {
+        private final List<String> list;
+
+        OptionsListView(List<String> list)
+        {
+            this.list = list;
+        }
+
+        @Override
+        public String get(int i)
+        {
+            return list.get(i);
+        }
+
+        @Override
+        public int size()
+        {
+            return list.size();
+        }
+
+        @Override
+        public String set(int i, String option)
+        {
+            String previous = list.set(i, option);
+            index = null;
+            return previous;
+        }
+
+        @Override
+        public void add(int i, String option)
+        {
+            list.add(i, option);
+            index = null;
+        }
+
+        @Override
+        public String remove(int i)
+        {
+            String removed = list.remove(i);
+            index = null;
+            return removed;
+        }
     }
 }
@@ -291,6 +291,15 @@ public class CLIHelptextFormatter implements FilterAwareHelptextFormatter<String
             return Collections.emptyList();
         }
 
+        // caching does not change the constraints; those of a pipeline are those of its parsing filter
+        while (filter instanceof CachingFilter || filter instanceof FilterPipeline) {
+            filter = filter instanceof CachingFilter?
+                ((CachingFilter) filter).getDelegate() : ((FilterPipeline) filter).getParser();
+            if (filter == null) {
+                return Collections.emptyList();
+            }
+        }
+
         for (Map.Entry<Class<?>, FilterDescriptor> entry : filterDescriptors.entrySet())
         {
             if (entry.getKey().isAssignableFrom(filter.getClass())) {
@@ -29,7 +29,9 @@ public interface FilterAwareHelptextFormatter<R> extends HelptextFormatter<R>
         setFilterDescriptor(BigDecimalFilter.class, FilterDescriptionUtil::describeBigDecimal);
 
         setFilterDescriptor(SetFilter.class,        FilterDescriptionUtil::describeSet);
+        setFilterDescriptor(EnumFilter.class,       FilterDescriptionUtil::describeEnum);
         setFilterDescriptor(RegexFilter.class,      FilterDescriptionUtil::describeRegex);
+        setFilterDescriptor(RegexSetFilter.class,   FilterDescriptionUtil::describeRegexSet);
         setFilterDescriptor(MetaRegexFilter.class,  FilterDescriptionUtil::describeMetaRegex);
         setFilterDescriptor(FileFilter.class,       FilterDescriptionUtil::describeFile);
         setFilterDescriptor(PathFilter.class,       FilterDescriptionUtil::describeFile);
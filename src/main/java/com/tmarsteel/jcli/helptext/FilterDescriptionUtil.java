@@ -156,6 +156,39 @@ abstract class FilterDescriptionUtil
         return list;
     }
 
+    /**
+     * Returns a list of constraint explanations for instances of {@link EnumFilter}.
+     * See {@link FilterDescriptor#describe(Filter)} for the detailed contract of this method.
+     * @throws UnsupportedOperationException If the given filter is not an instance of {@link EnumFilter}
+     */
+    static List<String> describeEnum(Filter oFilter)
+    {
+        if (!(oFilter instanceof EnumFilter))
+        {
+            throw new UnsupportedOperationException("This method supports only objects of type " + EnumFilter.class.getName());
+        }
+
+        return describeEnum((EnumFilter<?>) oFilter);
+    }
+
+    private static <E extends Enum<E>> List<String> describeEnum(EnumFilter<E> filter)
+    {
+        E[] constants = filter.getEnumType().getEnumConstants();
+        ArrayList<String> list = new ArrayList<>(1 + constants.length);
+
+        list.add(
+            "must be one of the following options (case " +
+                (filter.isCaseSensitive()? "" : "in") + "sensitive):"
+        );
+        for (E constant : constants)
+        {
+            List<String> aliases = filter.getAliases(constant);
+            list.add(aliases.isEmpty()? constant.name() : constant.name() + " (" + String.join(", ", aliases) + ")");
+        }
+
+        return list;
+    }
+
     /**
      * Returns a list of constraint explanations for instances of {@link RegexFilter}.
      * See {@link FilterDescriptor#describe(Filter)} for the detailed contract of this method.
@@ -177,6 +210,31 @@ abstract class FilterDescriptionUtil
             list.add("group " + filter.getReturnGroup() + " is relevant");
         }
 
+        if (filter.getMaxLength() != -1) {
+            list.add("must not be longer than " + filter.getMaxLength() + " characters");
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns a list of constraint explanations for instances of {@link RegexSetFilter}.
+     * See {@link FilterDescriptor#describe(Filter)} for the detailed contract of this method.
+     * @throws UnsupportedOperationException If the given filter is not an instance of {@link RegexSetFilter}
+     */
+    static List<String> describeRegexSet(Filter oFilter) {
+        if (!(oFilter instanceof RegexSetFilter))
+        {
+            throw new UnsupportedOperationException("This method supports only objects of type " + RegexSetFilter.class.getName());
+        }
+
+        RegexSetFilter filter = (RegexSetFilter) oFilter;
+
+        ArrayList<String> list = new ArrayList<>(1 + filter.getRegexes().size());
+
+        list.add("must match one of these regular expressions:");
+        list.addAll(filter.getRegexes());
+
         return list;
     }
 
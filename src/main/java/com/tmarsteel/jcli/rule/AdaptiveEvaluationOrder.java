@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.rule;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps track of how often and at which cost the child rules of a {@link CombinedRule} decided the outcome of the
+ * combined rule and derives an evaluation order from that: children that decide often and cheaply are evaluated first.
+ * Safe for concurrent use; the statistics are not exact under contention but they do not need to be.
+ */
+final class AdaptiveEvaluationOrder
+{
+    /**
+     * Default number of child evaluations between two reorderings.
+     */
+    static final int DEFAULT_REORDER_INTERVAL = 256;
+
+    private final int reorderInterval;
+
+    /**
+     * Number of times each child (by declaration index) decided the outcome of the combined rule.
+     */
+    private final AtomicLongArray decisions;
+
+    /**
+     * Accumulated time spent evaluating each child (by declaration index), in nanoseconds.
+     */
+    private final AtomicLongArray nanos;
+
+    private final AtomicLong evaluations = new AtomicLong();
+
+    /**
+     * The current evaluation order: declaration indexes of the children, most promising first.
+     */
+    private volatile int[] order;
+
+    AdaptiveEvaluationOrder(int nChildren, int reorderInterval)
+    {
+        if (reorderInterval < 1)
+        {
+            throw new IllegalArgumentException("The reorder interval must be positive");
+        }
+
+        this.reorderInterval = reorderInterval;
+        this.decisions = new AtomicLongArray(nChildren);
+        this.nanos = new AtomicLongArray(nChildren);
+        this.order = declarationOrder(nChildren);
+    }
+
+    /**
+     * Returns the order in which the children should currently be evaluated. The returned array must not be modified.
+     */
+    int[] order()
+    {
+        return order;
+    }
+
+    /**
+     * Records one evaluation of the child at declaration index {@code child}.
+     * @param child Declaration index of the evaluated child.
+     * @param decided Whether the outcome of the child decided the outcome of the combined rule.
+     * @param elapsedNanos Time it took to evaluate the child.
+     */
+    void record(int child, boolean decided, long elapsedNanos)
+    {
+        if (decided)
+        {
+            decisions.incrementAndGet(child);
+        }
+        nanos.addAndGet(child, Math.max(elapsedNanos, 1));
+
+        if (evaluations.incrementAndGet() % reorderInterval == 0)
+        {
+            reorder();
+        }
+    }
+
+    /**
+     * Sorts the children by decisions per nanosecond, descending; ties keep declaration order. Afterwards, the
+     * statistics are halved so that the order follows changes in the input.
+     */
+    private void reorder()
+    {
+        final int n = decisions.length();
+        final double[] scores = new double[n];
+        final Integer[] sorted = new Integer[n];
+        for (int i = 0;i < n;i++)
+        {
+            scores[i] = (decisions.get(i) + 1D) / (nanos.get(i) + 1D);
+            sorted[i] = i;
+
+            decisions.set(i, decisions.get(i) / 2);
+            nanos.set(i, nanos.get(i) / 2);
+        }
+
+        // Arrays.sort is stable for objects
+        Arrays.sort(sorted, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        int[] newOrder = new int[n];
+        for (int i = 0;i < n;i++)
+        {
+            newOrder[i] = sorted[i];
+        }
+        this.order = newOrder;
+    }
+
+    /**
+     * Returns the identity order {@code 0, 1, ..., n - 1}.
+     */
+    static int[] declarationOrder(int n)
+    {
+        int[] order = new int[n];
+        for (int i = 0;i < n;i++)
+        {
+            order[i] = i;
+        }
+        return order;
+    }
+}
@@ -35,9 +35,23 @@ public class AndRule extends CombinedRule
     public void validate(Validator intent, Validator.ValidatedInput params)
         throws RuleNotMetException
     {
-        for (Rule r:rules)
+        final int[] order = evaluationOrder();
+        for (int i = 0;i < order.length;i++)
         {
-            r.validate(intent, params);
+            RuleNotMetException ex = evaluate(order[i], intent, params, false);
+            if (ex != null)
+            {
+                // report the first failing rule in declaration order
+                for (int index : unevaluatedBefore(order, i))
+                {
+                    RuleNotMetException earlierEx = evaluate(index, intent, params, false);
+                    if (earlierEx != null)
+                    {
+                        throw earlierEx;
+                    }
+                }
+                throw ex;
+            }
         }
     }
     
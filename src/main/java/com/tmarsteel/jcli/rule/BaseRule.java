@@ -30,4 +30,12 @@ public abstract class BaseRule implements Rule
     {
         this.errorMessage = msg;
     }
+
+    /**
+     * Returns the error message set with {@link #setErrorMessage(String)} or null if none is set.
+     */
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
 }
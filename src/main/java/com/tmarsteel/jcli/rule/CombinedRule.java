@@ -17,6 +17,13 @@
  */
 package com.tmarsteel.jcli.rule;
 
+import com.tmarsteel.jcli.validation.RuleNotMetException;
+import com.tmarsteel.jcli.validation.Validator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Combines multiple rules with a logical connection.
  * @author tmarsteel
@@ -24,9 +31,130 @@ package com.tmarsteel.jcli.rule;
 public abstract class CombinedRule extends BaseRule
 {
     protected Rule[] rules;
+
+    /**
+     * Evaluation statistics of the child rules; null unless adaptive evaluation is enabled.
+     */
+    private volatile AdaptiveEvaluationOrder adaptiveOrder = null;
+
+    /**
+     * Cached identity order, used while adaptive evaluation is disabled.
+     */
+    private int[] declarationOrder;
     
     public CombinedRule(Rule... rules)
     {
         this.rules = rules;
     }
+
+    /**
+     * Returns the combined rules, in declaration order.
+     */
+    public List<Rule> getRules()
+    {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    /**
+     * Sets whether this rule reorders the evaluation of its child rules based on how often and how cheaply each of
+     * them decided the outcome of previous validations. This pays off for rules with many children that are
+     * validated often; the outcome and the reported errors do not depend on the evaluation order.
+     * @param adaptive Whether to enable adaptive evaluation. Disabling it discards the collected statistics.
+     */
+    public void setAdaptive(boolean adaptive)
+    {
+        if (adaptive != isAdaptive())
+        {
+            this.adaptiveOrder = adaptive?
+                new AdaptiveEvaluationOrder(rules.length, AdaptiveEvaluationOrder.DEFAULT_REORDER_INTERVAL) : null;
+        }
+    }
+
+    /**
+     * Returns whether this rule reorders the evaluation of its child rules, see {@link #setAdaptive(boolean)}.
+     */
+    public boolean isAdaptive()
+    {
+        return adaptiveOrder != null;
+    }
+
+    /**
+     * Returns the indexes into {@link #rules} in the order the child rules should be evaluated in. The returned array
+     * must not be modified.
+     */
+    protected int[] evaluationOrder()
+    {
+        AdaptiveEvaluationOrder adaptive = this.adaptiveOrder;
+        if (adaptive != null)
+        {
+            return adaptive.order();
+        }
+
+        if (declarationOrder == null || declarationOrder.length != rules.length)
+        {
+            declarationOrder = AdaptiveEvaluationOrder.declarationOrder(rules.length);
+        }
+        return declarationOrder;
+    }
+
+    /**
+     * Validates the child rule at {@code index} and records the outcome if adaptive evaluation is enabled.
+     * @param decidesWhenMet Whether the outcome of this rule is decided when the child is met (e.g. or) rather than
+     *                       when it is not met (e.g. and).
+     * @return null if the child rule is met; the exception it threw otherwise.
+     */
+    protected RuleNotMetException evaluate(int index, Validator intent, Validator.ValidatedInput params,
+        boolean decidesWhenMet)
+    {
+        final AdaptiveEvaluationOrder adaptive = this.adaptiveOrder;
+        final long start = adaptive == null? 0 : System.nanoTime();
+
+        RuleNotMetException result = null;
+        try
+        {
+            rules[index].validate(intent, params);
+        }
+        catch (RuleNotMetException ex)
+        {
+            result = ex;
+        }
+
+        if (adaptive != null)
+        {
+            adaptive.record(index, (result == null) == decidesWhenMet, System.nanoTime() - start);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns, ascending, the indexes of the child rules declared before {@code order[position]} that have not been
+     * evaluated up to and including that position. Rules that report the first deciding child in declaration order
+     * evaluate these to stay independent of the evaluation order; without adaptive evaluation the result is empty.
+     */
+    protected static int[] unevaluatedBefore(int[] order, int position)
+    {
+        final int decidingIndex = order[position];
+        final boolean[] evaluated = new boolean[decidingIndex];
+        int nEvaluated = 0;
+        for (int i = 0;i < position;i++)
+        {
+            if (order[i] < decidingIndex)
+            {
+                evaluated[order[i]] = true;
+                nEvaluated++;
+            }
+        }
+
+        int[] unevaluated = new int[decidingIndex - nEvaluated];
+        int j = 0;
+        for (int i = 0;i < decidingIndex;i++)
+        {
+            if (!evaluated[i])
+            {
+                unevaluated[j++] = i;
+            }
+        }
+        return unevaluated;
+    }
 }
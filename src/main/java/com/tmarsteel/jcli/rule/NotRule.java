@@ -35,20 +35,24 @@ public class NotRule extends CombinedRule
     public void validate(Validator intent, Validator.ValidatedInput params)
         throws RuleNotMetException
     {
-        for (Rule rule : rules)
+        final int[] order = evaluationOrder();
+        for (int i = 0;i < order.length;i++)
         {
-            boolean met = false;
-            try
+            if (evaluate(order[i], intent, params, true) == null)
             {
-                rule.validate(intent, params);
-                met = true;
-            }
-            catch (RuleNotMetException ex) {}
+                // report the first met rule in declaration order
+                int metIndex = order[i];
+                for (int index : unevaluatedBefore(order, i))
+                {
+                    if (evaluate(index, intent, params, true) == null)
+                    {
+                        metIndex = index;
+                        break;
+                    }
+                }
 
-            if (met)
-            {
                 throw new RuleNotMetException(
-                    errorMessage != null? errorMessage : "This rule may not be met: " + rule
+                    errorMessage != null? errorMessage : "This rule may not be met: " + rules[metIndex]
                 );
             }
         }
@@ -22,6 +22,7 @@ import com.tmarsteel.jcli.Option;
 import com.tmarsteel.jcli.validation.RuleNotMetException;
 import com.tmarsteel.jcli.validation.MisconfigurationException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -46,6 +47,14 @@ public class OptionSetRule extends BaseRule
         this.optionNames = optionNames;
     }
 
+    /**
+     * Returns the names of the options/flags/arguments this rule requires.
+     */
+    public String[] getOptionNames()
+    {
+        return Arrays.copyOf(optionNames, optionNames.length);
+    }
+
     @Override
     public void validate(Validator forParser, Validator.ValidatedInput params)
         throws RuleNotMetException
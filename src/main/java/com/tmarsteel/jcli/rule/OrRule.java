@@ -35,17 +35,20 @@ public class OrRule extends CombinedRule
     public void validate(Validator intent, Validator.ValidatedInput params)
         throws RuleNotMetException
     {
+        // the cause is always the exception of the last rule in declaration order
         RuleNotMetException lastEx = null;
-        for (Rule r:rules)
+        int lastIndex = -1;
+        for (int index : evaluationOrder())
         {
-            try
+            RuleNotMetException ex = evaluate(index, intent, params, true);
+            if (ex == null)
             {
-                r.validate(intent, params);
                 return;
             }
-            catch (RuleNotMetException ex)
+            if (index > lastIndex)
             {
                 lastEx = ex;
+                lastIndex = index;
             }
         }
         throw new RuleNotMetException(
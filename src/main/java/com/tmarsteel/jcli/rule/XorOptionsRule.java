@@ -55,6 +55,14 @@ public class XorOptionsRule extends BaseRule
     public XorOptionsRule(String... identifiers) {
         this.options = Arrays.copyOf(identifiers, identifiers.length);
     }
+
+    /**
+     * Returns the primary identifiers of the connected options/flags/arguments.
+     */
+    public String[] getOptionNames()
+    {
+        return Arrays.copyOf(options, options.length);
+    }
     
     @Override
     public void validate(Validator intent, Validator.ValidatedInput params)
@@ -39,32 +39,24 @@ public class XorRule extends CombinedRule
         throws RuleNotMetException
     {
         boolean isSet = false;
-        for (Rule r : rules)
+        for (int index : evaluationOrder())
         {
-            boolean curSet = false;
-            try
-            {
-                r.validate(intent, params);
-                curSet = true;
-            }
-            catch (RuleNotMetException ex) {}
-
-            if (curSet)
+            if (evaluate(index, intent, params, true) == null)
             {
                 if (isSet)
                 {
-                    throw new RuleNotMetException(getErrorMessage());
+                    throw new RuleNotMetException(effectiveErrorMessage());
                 }
                 isSet = true;
             }
         }
         if (!isSet)
         {
-            throw new RuleNotMetException(getErrorMessage());
+            throw new RuleNotMetException(effectiveErrorMessage());
         }
     }
 
-    private String getErrorMessage()
+    private String effectiveErrorMessage()
     {
         return errorMessage == null? toString() : errorMessage;
     }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation;
+
+import com.tmarsteel.jcli.Argument;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The values of a streaming variadic {@link Argument} (see {@link Argument#setStreaming(boolean)}). Values are parsed
+ * with the arguments filter one at a time, as they are consumed; invalid values surface as
+ * {@link UncheckedValidationException}s from the iterator. Nothing but the raw input is kept in memory.
+ * <br>
+ * A raw value of {@code -} stands for the lines read from standard input (empty lines are skipped). Standard input
+ * can be consumed only once; if it is referred to, the values can be iterated only once.
+ */
+public class ArgumentValueStream implements Iterable<Object>
+{
+    /**
+     * The raw value that stands for the lines of standard input.
+     */
+    public static final String STDIN_MARKER = "-";
+
+    private final Argument argument;
+    private final List<String> rawValues;
+    private final InputStream stdin;
+    private final AtomicBoolean stdinConsumed = new AtomicBoolean(false);
+
+    /**
+     * @param argument The argument to parse the values with.
+     * @param rawValues The raw values, as given in the input.
+     * @param stdin The stream to read values from in place of {@link #STDIN_MARKER}.
+     */
+    public ArgumentValueStream(Argument argument, List<String> rawValues, InputStream stdin)
+    {
+        this.argument = argument;
+        this.rawValues = rawValues;
+        this.stdin = stdin;
+    }
+
+    /**
+     * Returns the argument the values belong to.
+     */
+    public Argument getArgument()
+    {
+        return argument;
+    }
+
+    /**
+     * Returns an iterator over the parsed values. If the input contained no value for the argument, its default
+     * value is the only element, if it has one.
+     * @throws IllegalStateException If standard input has already been consumed by a previous iteration.
+     */
+    @Override
+    public Iterator<Object> iterator()
+    {
+        if (rawValues.isEmpty() && argument.getDefaultValue() != null)
+        {
+            return Collections.singletonList(argument.getDefaultValue()).iterator();
+        }
+
+        return new ValueIterator();
+    }
+
+    /**
+     * Returns a sequential stream of the parsed values, see {@link #iterator()}.
+     */
+    public Stream<Object> stream()
+    {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED),
+            false
+        );
+    }
+
+    private Object parse(String rawValue)
+    {
+        try
+        {
+            return argument.parse(rawValue);
+        }
+        catch (ValidationException ex)
+        {
+            throw new UncheckedValidationException(ex);
+        }
+    }
+
+    private class ValueIterator implements Iterator<Object>
+    {
+        private final Iterator<String> rawIt = rawValues.iterator();
+
+        /**
+         * Non-null while reading values from standard input.
+         */
+        private BufferedReader stdinReader = null;
+
+        /**
+         * The next raw value; null if not determined yet.
+         */
+        private String next = null;
+
+        @Override
+        public boolean hasNext()
+        {
+            while (next == null)
+            {
+                if (stdinReader != null)
+                {
+                    String line;
+                    try
+                    {
+                        line = stdinReader.readLine();
+                    }
+                    catch (IOException ex)
+                    {
+                        throw new UncheckedIOException(ex);
+                    }
+
+                    if (line == null)
+                    {
+                        stdinReader = null;
+                    }
+                    else if (!line.isEmpty())
+                    {
+                        next = line;
+                    }
+                }
+                else if (rawIt.hasNext())
+                {
+                    String raw = rawIt.next();
+                    if (raw.equals(STDIN_MARKER))
+                    {
+                        if (!stdinConsumed.compareAndSet(false, true))
+                        {
+                            throw new IllegalStateException("Standard input has already been consumed");
+                        }
+                        stdinReader = new BufferedReader(new InputStreamReader(stdin));
+                    }
+                    else
+                    {
+                        next = raw;
+                    }
+                }
+                else
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public Object next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            String raw = next;
+            next = null;
+            return parse(raw);
+        }
+    }
+}
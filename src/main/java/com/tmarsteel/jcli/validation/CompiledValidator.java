@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation;
+
+import com.tmarsteel.jcli.*;
+import com.tmarsteel.jcli.filter.Filter;
+import com.tmarsteel.jcli.rule.Rule;
+import com.tmarsteel.jcli.validation.Validator.ValidatedInput;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * A parser specialized to one configuration of a {@link Validator}; obtained from {@link Validator#compile()}.
+ * Parses and validates exactly like the validator did when it was compiled.
+ * <br>
+ * The configuration is turned into a single tree of {@link MethodHandle}s, one step per flag, option, argument and
+ * rule, with the value filters bound directly to their concrete classes. This resolves the per-input decisions of
+ * {@link Validator#parse(Input)} (required or not, default value, repeatable or not) once, at compilation; the
+ * handle tree is held in an instance field and is therefore not treated as a constant by the JIT.
+ * <br>
+ * The set of flags, options, arguments and rules as well as the filters of options and arguments are fixed at
+ * compilation; the filters and rules themselves are used as they are.
+ * @author Tobias Marstaller
+ */
+public final class CompiledValidator
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType STEP_TYPE = MethodType.methodType(void.class, Input.class, ValidatedInput.class);
+
+    private static final MethodType PARSE_TYPE = MethodType.methodType(Object.class, String.class);
+
+    /**
+     * The frozen configuration; the intent of inputs and rules.
+     */
+    private final Validator configuration;
+
+    /**
+     * Of type {@link #STEP_TYPE}; performs all the steps of parsing.
+     */
+    private final MethodHandle program;
+
+    CompiledValidator(Validator configuration)
+    {
+        this.configuration = configuration;
+
+        List<MethodHandle> steps = new ArrayList<>();
+        configuration.flags().forEachRemaining(flag ->
+            steps.add(bind("flagStep", flag.getPrimaryIdentifier(), flag))
+        );
+        steps.add(bind("unknownFlagsStep"));
+        configuration.options().forEachRemaining(option ->
+            steps.add(bind("optionStep", option, option.getPrimaryIdentifier(), option.isRequired(),
+                option.allowsMultipleValues(), valueParser(option.getFilter())))
+        );
+        steps.add(bind("unknownOptionsStep", configuration));
+        configuration.arguments().forEachRemaining(arg -> {
+            if (arg.isStreaming())
+            {
+                steps.add(bind("streamingArgumentStep", arg, configuration.getStandardInput()));
+            }
+            else if (arg.isVariadic())
+            {
+                steps.add(bind("variadicArgumentStep", arg, valueParser(arg.getFilter()),
+                    configuration.getVariadicExecutor(), configuration.getParallelVariadicThreshold()));
+            }
+            else
+            {
+                steps.add(bind("argumentStep", arg, valueParser(arg.getFilter())));
+            }
+        });
+        configuration.rules().forEachRemaining(rule ->
+            steps.add(bind("ruleStep", rule, configuration))
+        );
+
+        this.program = sequence(steps, 0, steps.size());
+    }
+
+    /**
+     * Returns the environment this parser expects.
+     */
+    public Environment getEnvironment()
+    {
+        return configuration.getEnvironment();
+    }
+
+    /**
+     * Parses and validates the given input.
+     * @param argline A string containing the input parameters, e.g. <code>"-v --input foo.txt"</code>
+     * @return The parsed and validated input.
+     * @see Validator#parse(String)
+     */
+    public ValidatedInput parse(String argline)
+        throws ParseException, ValidationException
+    {
+        return parse(new Input(configuration, configuration.getEnvironment(), argline));
+    }
+
+    /**
+     * Parses and validates the given input.
+     * @param args The input parameters to parse and validate.
+     * @return The parsed and validated input.
+     * @see Validator#parse(String[])
+     */
+    public ValidatedInput parse(String[] args)
+        throws ParseException, ValidationException
+    {
+        return parse(new Input(configuration, configuration.getEnvironment(), args));
+    }
+
+    /**
+     * Parses the given input.
+     * @param input The input parameters to parse.
+     * @return The parsed input.
+     * @see Validator#parse(Input)
+     */
+    public ValidatedInput parse(Input input)
+        throws ValidationException
+    {
+        ValidatedInput vinput = new ValidatedInput();
+        try
+        {
+            program.invokeExact(input, vinput);
+        }
+        catch (ValidationException | RuntimeException | Error ex)
+        {
+            throw ex;
+        }
+        catch (Throwable ex)
+        {
+            throw new UndeclaredThrowableException(ex);
+        }
+
+        vinput.flagValues = Collections.unmodifiableMap(vinput.flagValues);
+        vinput.optionValues = Collections.unmodifiableMap(vinput.optionValues);
+        vinput.argumentValues = Collections.unmodifiableMap(vinput.argumentValues);
+        vinput.argumentStreams = Collections.unmodifiableMap(vinput.argumentStreams);
+
+        return vinput;
+    }
+
+    /**
+     * Returns a handle of {@link #PARSE_TYPE} that parses values with the given filter, bound to the concrete
+     * class of the filter where that is accessible.
+     */
+    private static MethodHandle valueParser(Filter filter)
+    {
+        if (filter == null)
+        {
+            return MethodHandles.identity(String.class).asType(PARSE_TYPE);
+        }
+
+        Class<?> filterClass = filter.getClass();
+        try
+        {
+            if (Modifier.isPublic(filterClass.getModifiers()))
+            {
+                return MethodHandles.publicLookup().findVirtual(filterClass, "parse", PARSE_TYPE).bindTo(filter);
+            }
+        }
+        catch (NoSuchMethodException | IllegalAccessException ex)
+        {
+            // the method is declared by an inaccessible class; dispatch through the interface
+        }
+
+        try
+        {
+            return MethodHandles.publicLookup().findVirtual(Filter.class, "parse", PARSE_TYPE).bindTo(filter);
+        }
+        catch (NoSuchMethodException | IllegalAccessException ex)
+        {
+            throw new AssertionError(ex);
+        }
+    }
+
+    /**
+     * Returns the step implemented by the static method of the given name with the given leading arguments bound.
+     */
+    private static MethodHandle bind(String stepName, Object... boundArguments)
+    {
+        for (java.lang.reflect.Method method : CompiledValidator.class.getDeclaredMethods())
+        {
+            if (method.getName().equals(stepName))
+            {
+                try
+                {
+                    return MethodHandles.insertArguments(LOOKUP.unreflect(method), 0, boundArguments);
+                }
+                catch (IllegalAccessException ex)
+                {
+                    throw new AssertionError(ex);
+                }
+            }
+        }
+
+        throw new AssertionError("No step " + stepName);
+    }
+
+    /**
+     * Returns a handle performing the given steps in order. The tree is balanced to keep it shallow.
+     */
+    private static MethodHandle sequence(List<MethodHandle> steps, int from, int to)
+    {
+        if (to - from == 0)
+        {
+            return bind("noStep");
+        }
+        if (to - from == 1)
+        {
+            return steps.get(from);
+        }
+
+        int middle = (from + to) >>> 1;
+        // foldArguments invokes the combiner (the first half), then the target (the second half)
+        return MethodHandles.foldArguments(sequence(steps, middle, to), sequence(steps, from, middle));
+    }
+
+    private static Object parseValue(MethodHandle parser, String value)
+        throws ValidationException
+    {
+        try
+        {
+            return (Object) parser.invokeExact(value);
+        }
+        catch (ValidationException | RuntimeException | Error ex)
+        {
+            throw ex;
+        }
+        catch (Throwable ex)
+        {
+            throw new UndeclaredThrowableException(ex);
+        }
+    }
+
+    private static void noStep(Input input, ValidatedInput vinput) {}
+
+    private static void flagStep(String identifier, Flag flag, Input input, ValidatedInput vinput)
+    {
+        vinput.flagValues.put(identifier, input.containsFlag(flag));
+    }
+
+    private static void unknownFlagsStep(Input input, ValidatedInput vinput)
+    {
+        for (String flag : input.flags())
+        {
+            if (!vinput.flagValues.containsKey(flag))
+            {
+                vinput.flagValues.put(flag, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static void optionStep(Option option, String identifier, boolean required, boolean multiple,
+                                   MethodHandle parser, Input input, ValidatedInput vinput)
+        throws ValidationException
+    {
+        final List<String> rawValues = input.getOption(option);
+
+        if (rawValues.isEmpty() && required)
+        {
+            throw new ValidationException("Required option " + identifier + " not set.");
+        }
+        else if (rawValues.size() > 1 && !multiple)
+        {
+            throw new ValidationException("Option " + identifier + " may only be set once, " + rawValues.size() + " values given.");
+        }
+
+        List<Object> values = new ArrayList<>(rawValues.size());
+        for (String value : rawValues)
+        {
+            values.add(parseValue(parser, value));
+        }
+        vinput.optionValues.put(identifier, Collections.unmodifiableList(values));
+    }
+
+    private static void unknownOptionsStep(Validator configuration, Input input, ValidatedInput vinput)
+    {
+        for (Map.Entry<String,List<String>> entry : input.options().entrySet())
+        {
+            if (!configuration.knowsOption(entry.getKey()))
+            {
+                vinput.optionValues.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            }
+        }
+    }
+
+    private static void argumentStep(Argument arg, MethodHandle parser, Input input, ValidatedInput vinput)
+        throws ValidationException
+    {
+        final String value = input.getArgument(arg.getIndex());
+        if (value == null)
+        {
+            missingArgument(arg, vinput);
+        }
+        else
+        {
+            List<Object> values = new ArrayList<>(1);
+            values.add(parseValue(parser, value));
+            vinput.argumentValues.put(arg.getIdentifier(), Collections.unmodifiableList(values));
+        }
+    }
+
+    private static void variadicArgumentStep(Argument arg, MethodHandle parser, Executor executor, int parallelThreshold,
+                                             Input input, ValidatedInput vinput)
+        throws ValidationException
+    {
+        if (input.getArgument(arg.getIndex()) == null)
+        {
+            missingArgument(arg, vinput);
+            return;
+        }
+
+        final List<String> rawValues = input.arguments().subList(arg.getIndex(), input.arguments().size());
+        List<Object> values;
+        if (executor != null && rawValues.size() >= parallelThreshold)
+        {
+            values = ParallelVariadicParser.parse(arg, rawValues, executor);
+        }
+        else
+        {
+            values = new ArrayList<>(rawValues.size());
+            for (String rawValue : rawValues)
+            {
+                values.add(parseValue(parser, rawValue));
+            }
+        }
+        vinput.argumentValues.put(arg.getIdentifier(), Collections.unmodifiableList(values));
+    }
+
+    private static void streamingArgumentStep(Argument arg, InputStream stdin, Input input, ValidatedInput vinput)
+        throws ValidationException
+    {
+        final String value = input.getArgument(arg.getIndex());
+        if (value == null && arg.isRequired())
+        {
+            throw new ValidationException("You must specify at least " + (arg.getIndex() + 1) + " argument(s).");
+        }
+
+        // values are parsed as they are consumed
+        List<String> rawValues = value == null? Collections.emptyList() :
+            input.arguments().subList(arg.getIndex(), input.arguments().size());
+        vinput.argumentStreams.put(arg.getIdentifier(), new ArgumentValueStream(arg, rawValues,
+            stdin == null? InvocationContext.standardInput() : stdin));
+    }
+
+    private static void missingArgument(Argument arg, ValidatedInput vinput)
+        throws ValidationException
+    {
+        if (arg.isRequired())
+        {
+            throw new ValidationException("You must specify at least " + (arg.getIndex() + 1) + " argument(s).");
+        }
+
+        vinput.argumentValues.put(arg.getIdentifier(), arg.getDefaultValue() == null?
+            Collections.emptyList() : Collections.singletonList(arg.getDefaultValue()));
+    }
+
+    private static void ruleStep(Rule rule, Validator configuration, Input input, ValidatedInput vinput)
+        throws RuleNotMetException
+    {
+        rule.validate(configuration, vinput);
+    }
+}
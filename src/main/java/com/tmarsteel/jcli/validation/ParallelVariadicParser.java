@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation;
+
+import com.tmarsteel.jcli.Argument;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses the values of a variadic {@link Argument} in chunks on an {@link Executor}. The calling thread parses the
+ * first chunk itself. The result and the reported failure are the same as when parsing sequentially.
+ */
+final class ParallelVariadicParser
+{
+    /**
+     * Minimum number of values per chunk; smaller chunks cost more in coordination than they save.
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private ParallelVariadicParser() {}
+
+    /**
+     * Parses all of {@code rawValues} with {@code arg}.
+     * @return The parsed values, in the order of {@code rawValues}.
+     * @throws ValidationException The exception thrown for the first value (by position) that fails to parse.
+     */
+    static List<Object> parse(Argument arg, List<String> rawValues, Executor executor)
+        throws ValidationException
+    {
+        final int n = rawValues.size();
+        final int nChunks = Math.max(1, Math.min(n / MIN_CHUNK_SIZE, Runtime.getRuntime().availableProcessors() * 4));
+        final int chunkSize = (n + nChunks - 1) / nChunks;
+
+        final Object[] results = new Object[n];
+        final ValidationException[] failures = new ValidationException[nChunks];
+        // position of the first failing value; chunks stop parsing beyond it
+        final AtomicInteger firstFailure = new AtomicInteger(n);
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[nChunks - 1];
+        for (int c = 1;c < nChunks;c++)
+        {
+            final int chunk = c;
+            futures[c - 1] = CompletableFuture.runAsync(
+                () -> parseChunk(arg, rawValues, chunk, chunkSize, results, failures, firstFailure),
+                executor
+            );
+        }
+
+        parseChunk(arg, rawValues, 0, chunkSize, results, failures, firstFailure);
+
+        try
+        {
+            CompletableFuture.allOf(futures).join();
+        }
+        catch (CompletionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error)
+            {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+
+        final int failedAt = firstFailure.get();
+        if (failedAt < n)
+        {
+            throw failures[failedAt / chunkSize];
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private static void parseChunk(Argument arg, List<String> rawValues, int chunk, int chunkSize, Object[] results,
+        ValidationException[] failures, AtomicInteger firstFailure)
+    {
+        final int to = Math.min(rawValues.size(), (chunk + 1) * chunkSize);
+        for (int i = chunk * chunkSize;i < to && i < firstFailure.get();i++)
+        {
+            try
+            {
+                results[i] = arg.parse(rawValues.get(i));
+            }
+            catch (ValidationException ex)
+            {
+                failures[chunk] = ex;
+                firstFailure.accumulateAndGet(i, Math::min);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation;
+
+/**
+ * Wraps a {@link ValidationException} where checked exceptions cannot be thrown, e.g. while iterating an
+ * {@link ArgumentValueStream}.
+ */
+public class UncheckedValidationException extends RuntimeException
+{
+    public UncheckedValidationException(ValidationException cause)
+    {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Returns the wrapped {@link ValidationException}.
+     */
+    @Override
+    public synchronized ValidationException getCause()
+    {
+        return (ValidationException) super.getCause();
+    }
+}
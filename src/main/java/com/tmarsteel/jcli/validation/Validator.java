@@ -20,9 +20,11 @@ package com.tmarsteel.jcli.validation;
 import com.tmarsteel.jcli.*;
 import com.tmarsteel.jcli.rule.Rule;
 
+import java.io.InputStream;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 /**
  * Parses an argument-array in the given environment
@@ -41,6 +43,27 @@ public class Validator
     private final SortedSet<Argument> arguments = new TreeSet<>((arg1, arg2) -> arg1.getIndex() - arg2.getIndex());
 
     private final boolean flagsOptionsDistinguishable;
+
+    /**
+     * Default for {@link #parallelVariadicThreshold}.
+     */
+    public static final int DEFAULT_PARALLEL_VARIADIC_THRESHOLD = 1024;
+
+    /**
+     * The executor to parse the values of variadic arguments on; null to parse them on the calling thread.
+     */
+    private Executor variadicExecutor = null;
+
+    /**
+     * The minimum number of values of a variadic argument to parse them on {@link #variadicExecutor}.
+     */
+    private int parallelVariadicThreshold = DEFAULT_PARALLEL_VARIADIC_THRESHOLD;
+
+    /**
+     * The stream streaming arguments read values from in place of {@code -}; null for
+     * {@link InvocationContext#standardInput()}.
+     */
+    private InputStream standardInput = null;
     
     /**
      * Constructs a new validator for the systems default environment.
@@ -60,6 +83,21 @@ public class Validator
         this.flagsOptionsDistinguishable = !(env.getFlagMarker().equals(env.getOptionMarker()));
     }
     
+    /**
+     * Copies the configuration of the given validator.
+     */
+    private Validator(Validator source)
+    {
+        this(source.env);
+        this.options.addAll(source.options);
+        this.flags.addAll(source.flags);
+        this.rules.addAll(source.rules);
+        this.arguments.addAll(source.arguments);
+        this.variadicExecutor = source.variadicExecutor;
+        this.parallelVariadicThreshold = source.parallelVariadicThreshold;
+        this.standardInput = source.standardInput;
+    }
+    
     /**
      * Returns the environment this validator expects.
      * @return The environment this validator expects.
@@ -78,6 +116,72 @@ public class Validator
         this.env = env;
     }
     
+    /**
+     * Returns the executor the values of large variadic arguments are parsed on; null if they are parsed
+     * on the calling thread.
+     */
+    public Executor getVariadicExecutor()
+    {
+        return variadicExecutor;
+    }
+
+    /**
+     * Sets an executor to parse the values of variadic arguments on, in parallel, if there are at least
+     * {@link #getParallelVariadicThreshold()} of them. This pays off for filters that are expensive per value, e.g.
+     * {@link com.tmarsteel.jcli.filter.FileFilter}; the filter must be safe for concurrent use. The parsed values keep
+     * their order and if several values are invalid, the error for the first one is reported. The executor should
+     * be bounded; the calling thread takes part in the parsing.
+     * @param executor The executor to use, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}. Set to null
+     *                 to always parse on the calling thread.
+     */
+    public void setVariadicExecutor(Executor executor)
+    {
+        this.variadicExecutor = executor;
+    }
+
+    /**
+     * Returns the minimum number of values of a variadic argument to parse them on the
+     * {@link #getVariadicExecutor() variadic executor}.
+     */
+    public int getParallelVariadicThreshold()
+    {
+        return parallelVariadicThreshold;
+    }
+
+    /**
+     * Sets the minimum number of values of a variadic argument to parse them on the
+     * {@link #getVariadicExecutor() variadic executor}. Defaults to {@link #DEFAULT_PARALLEL_VARIADIC_THRESHOLD}.
+     * @throws IllegalArgumentException If {@code threshold} is less than 1.
+     */
+    public void setParallelVariadicThreshold(int threshold)
+    {
+        if (threshold < 1)
+        {
+            throw new IllegalArgumentException("The threshold must be positive");
+        }
+        this.parallelVariadicThreshold = threshold;
+    }
+    
+    /**
+     * Returns the stream that streaming arguments read values from in place of
+     * {@value ArgumentValueStream#STDIN_MARKER}; null for {@link InvocationContext#standardInput()}.
+     */
+    public InputStream getStandardInput()
+    {
+        return standardInput;
+    }
+
+    /**
+     * Sets the stream that streaming arguments (see {@link Argument#setStreaming(boolean)}) read values from in
+     * place of {@value ArgumentValueStream#STDIN_MARKER}.
+     * @param standardInput The stream to read from; null for the standard input of the
+     *                      {@link InvocationContext} of the parsing thread, {@link System#in} by default.
+     */
+    public void setStandardInput(InputStream standardInput)
+    {
+        this.standardInput = standardInput;
+    }
+    
     /**
      * Returns whether this validator is sensible for the given flag.
      * @param name The name of the flag to check for.
@@ -221,6 +325,12 @@ public class Validator
     public synchronized void add(Argument arg)
         throws MisconfigurationException
     {
+        if (arg.isStreaming() && !arg.isVariadic())
+        {
+            throw new MisconfigurationException("Cannot add argument " + arg.getIdentifier() +
+                ": only variadic arguments can be streaming");
+        }
+
         if (!this.arguments.contains(arg))
         {
             this.arguments.forEach(carg -> {
@@ -248,6 +358,13 @@ public class Validator
         }
     }
 
+    /**
+     * Returns an {@link Iterator} of all the {@link Rule}s checked by this validator.
+     */
+    public Iterator<? extends Rule> rules() {
+        return rules.iterator();
+    }
+
     /**
      * Returns an {@link Iterator} of all the {@link Option}s knonw to this validator.
      * @return An {@link Iterator} of all the {@link Option}s knonw to this validator.
@@ -364,6 +481,24 @@ public class Validator
         for (Argument arg : arguments)
         {
             final String value = input.getArgument(arg.getIndex());
+
+            if (arg.isStreaming())
+            {
+                if (value == null && arg.isRequired())
+                {
+                    throw new ValidationException("You must specify at least "
+                        + (arg.getIndex() + 1) + " argument(s).");
+                }
+
+                // values are parsed as they are consumed
+                List<String> rawValues = value == null? Collections.emptyList() :
+                    input.arguments().subList(arg.getIndex(), input.arguments().size());
+                vinput.argumentStreams.put(arg.getIdentifier(), new ArgumentValueStream(
+                    arg, rawValues, standardInput == null? InvocationContext.standardInput() : standardInput
+                ));
+                continue;
+            }
+
             if (value == null)
             {
                 if (arg.isRequired())
@@ -382,14 +517,12 @@ public class Validator
             }
             else
             {
-                List<Object> values = new ArrayList<>();
+                List<Object> values;
                 // if variadic: consume all from the index to the end of the input
                 if (arg.isVariadic()) {
-                    // stream API not usable because of the ValidationException thrown by Argument#parse
-                    for (int i = arg.getIndex();i < input.arguments().size();i++) {
-                        values.add(arg.parse(input.getArgument(i)));
-                    }
+                    values = parseVariadic(arg, input.arguments().subList(arg.getIndex(), input.arguments().size()));
                 } else {
+                    values = new ArrayList<>(1);
                     values.add(arg.parse(value));
                 }
                 vinput.argumentValues.put(arg.getIdentifier(), Collections.unmodifiableList(values));
@@ -406,10 +539,42 @@ public class Validator
         vinput.flagValues = Collections.unmodifiableMap(vinput.flagValues);
         vinput.optionValues = Collections.unmodifiableMap(vinput.optionValues);
         vinput.argumentValues = Collections.unmodifiableMap(vinput.argumentValues);
+        vinput.argumentStreams = Collections.unmodifiableMap(vinput.argumentStreams);
 
         return vinput;
     }
     
+    /**
+     * Parses the values of the given variadic argument, in parallel if configured so (see
+     * {@link #setVariadicExecutor(Executor)}).
+     */
+    private List<Object> parseVariadic(Argument arg, List<String> rawValues)
+        throws ValidationException
+    {
+        final Executor executor = this.variadicExecutor;
+        if (executor != null && rawValues.size() >= parallelVariadicThreshold)
+        {
+            return ParallelVariadicParser.parse(arg, rawValues, executor);
+        }
+
+        // stream API not usable because of the ValidationException thrown by Argument#parse
+        List<Object> values = new ArrayList<>(rawValues.size());
+        for (String rawValue : rawValues) {
+            values.add(arg.parse(rawValue));
+        }
+        return values;
+    }
+    
+    /**
+     * Compiles the current configuration of this validator into a parser specialized to it. Later changes to this
+     * validator do not affect the returned parser.
+     * @see CompiledValidator
+     */
+    public synchronized CompiledValidator compile()
+    {
+        return new CompiledValidator(new Validator(this));
+    }
+
     /**
      * Resets this validator to the state it was in after being constructed.
      */
@@ -446,6 +611,12 @@ public class Validator
          * default value is in the list.
          */
         protected Map<String,List<Object>> argumentValues = new HashMap<>();
+
+        /**
+         * Values of streaming arguments (see {@link Argument#setStreaming(boolean)}). These arguments are not
+         * contained in {@link #argumentValues}.
+         */
+        protected Map<String,ArgumentValueStream> argumentStreams = new HashMap<>();
         
         /**
          * Returns the value of the given option. If the option has multiple values, the first value is returned.
@@ -541,12 +712,46 @@ public class Validator
             List<Object> values = argumentValues.get(identifier);
 
             if (values == null) {
+                if (argumentStreams.containsKey(identifier)) {
+                    throw new NoSuchElementException("Argument " + identifier + " is streaming, use getArgumentStream");
+                }
                 throw new NoSuchElementException("Unknown argument " + identifier);
             }
 
             return values;
         }
 
+        /**
+         * Returns the lazily parsed values of the given streaming argument (see {@link Argument#setStreaming(boolean)}).
+         * @param identifier The arguments identifier (see {@link Argument#getIdentifier()}) whose values to retrieve.
+         * @return The argument values.
+         * @throws NoSuchElementException If no known streaming argument is identified by {@code identifier}.
+         */
+        public ArgumentValueStream getArgumentStream(String identifier)
+            throws NoSuchElementException
+        {
+            ArgumentValueStream values = argumentStreams.get(identifier);
+
+            if (values == null) {
+                throw new NoSuchElementException("Unknown streaming argument " + identifier);
+            }
+
+            return values;
+        }
+
+        /**
+         * Returns the lazily parsed values of the given streaming argument (see {@link Argument#setStreaming(boolean)}).
+         * @param argument The argument whose values to retrieve.
+         * @return The argument values.
+         * @throws NoSuchElementException If the given argument was not known at the time the input was parsed or is
+         *                                not streaming.
+         */
+        public ArgumentValueStream getArgumentStream(Argument argument)
+            throws NoSuchElementException
+        {
+            return getArgumentStream(argument.getIdentifier());
+        }
+
         /**
          * Returns the value of the given argument. If the argument is variadic, the first value is returned.
          * @param argument The argument whose value to retrieve.
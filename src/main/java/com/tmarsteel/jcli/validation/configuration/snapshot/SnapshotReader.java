@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.snapshot;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.filter.*;
+import com.tmarsteel.jcli.rule.*;
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.Validator;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static com.tmarsteel.jcli.validation.configuration.snapshot.SnapshotTags.*;
+
+/**
+ * Decodes the format written by {@link SnapshotWriter}.
+ */
+final class SnapshotReader
+{
+    private final byte[] data;
+    private final ByteBuffer in;
+
+    SnapshotReader(byte[] data)
+    {
+        this.data = data;
+        this.in = ByteBuffer.wrap(data);
+    }
+
+    void configure(Validator validator)
+        throws MisconfigurationException
+    {
+        in.position(ValidatorSnapshot.HEADER_SIZE);
+
+        for (int i = in.getInt();i > 0;i--)
+        {
+            Flag flag = new Flag(readStrings());
+            setDescription(flag::setDescriptionSupplier, in.getInt());
+            validator.add(flag);
+        }
+
+        for (int i = in.getInt();i > 0;i--)
+        {
+            String[] names = readStrings();
+            boolean required = readBoolean();
+            boolean multiple = readBoolean();
+            Filter filter = readFilter();
+            Option option = new Option(filter, readValue(), names);
+            option.setRequired(required);
+            option.setAllowsMultipleValues(multiple);
+            setDescription(option::setDescriptionSupplier, in.getInt());
+            validator.add(option);
+        }
+
+        for (int i = in.getInt();i > 0;i--)
+        {
+            String identifier = readString();
+            int index = in.getInt();
+            boolean required = readBoolean();
+            boolean variadic = readBoolean();
+            boolean streaming = readBoolean();
+            Filter filter = readFilter();
+            Argument argument = new Argument(identifier, index, readValue(), filter);
+            argument.setRequired(required);
+            argument.setVariadic(variadic);
+            argument.setStreaming(streaming);
+            setDescription(argument::setDescriptionSupplier, in.getInt());
+            validator.add(argument);
+        }
+
+        for (int i = in.getInt();i > 0;i--)
+        {
+            validator.add(readRule());
+        }
+    }
+
+    private void setDescription(Consumer<Supplier<String>> target, int index)
+    {
+        if (index >= 0)
+        {
+            target.accept(() -> description(index));
+        }
+    }
+
+    /**
+     * Decodes the description with the given index from the description table.
+     */
+    private String description(int index)
+    {
+        ByteBuffer table = ByteBuffer.wrap(data);
+        int tableOffset = table.getInt(4 + 2);
+        int offset = table.getInt(tableOffset + 4 + 4 * index);
+        return new String(data, offset + 4, table.getInt(offset), StandardCharsets.UTF_8);
+    }
+
+    private boolean readBoolean()
+    {
+        return in.get() != 0;
+    }
+
+    private String readString()
+    {
+        int length = in.getInt();
+        if (length < 0)
+        {
+            return null;
+        }
+
+        String value = new String(data, in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Like {@link #readString()} but rejects null.
+     */
+    private String readRequiredString()
+        throws MisconfigurationException
+    {
+        String value = readString();
+        if (value == null)
+        {
+            throw new MisconfigurationException("Corrupt validator snapshot: missing string");
+        }
+        return value;
+    }
+
+    private String[] readStrings()
+        throws MisconfigurationException
+    {
+        String[] values = new String[readCount()];
+        for (int i = 0;i < values.length;i++)
+        {
+            values[i] = readString();
+        }
+        return values;
+    }
+
+    /**
+     * Reads the number of elements of an array; every element takes at least one byte of the remaining data.
+     */
+    private int readCount()
+        throws MisconfigurationException
+    {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining())
+        {
+            throw new MisconfigurationException("Corrupt validator snapshot: invalid count " + count);
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readValue()
+        throws MisconfigurationException
+    {
+        byte tag = in.get();
+        switch (tag)
+        {
+            case VALUE_NULL:        return null;
+            case VALUE_STRING:      return readString();
+            case VALUE_LONG:        return in.getLong();
+            case VALUE_INTEGER:     return in.getInt();
+            case VALUE_DOUBLE:      return in.getDouble();
+            case VALUE_BOOLEAN:     return readBoolean();
+            case VALUE_BIG_INTEGER: return new BigInteger(readRequiredString());
+            case VALUE_BIG_DECIMAL: return new BigDecimal(readRequiredString());
+            case VALUE_ENUM:        return enumConstant((Class) enumType(readString()), readString());
+            case VALUE_FILE:        return new File(readString());
+            case VALUE_PATH:        return Paths.get(readString());
+            default:
+                throw new MisconfigurationException("Corrupt validator snapshot: unknown value tag " + tag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Filter readFilter()
+        throws MisconfigurationException
+    {
+        byte tag = in.get();
+        switch (tag)
+        {
+            case FILTER_NONE:
+                return null;
+            case FILTER_INTEGER:
+                return new IntegerFilter(in.getLong(), in.getLong(), in.getInt());
+            case FILTER_DECIMAL:
+                return new DecimalFilter(in.getDouble(), in.getDouble());
+            case FILTER_BIG_INTEGER:
+            {
+                String min = readString();
+                String max = readString();
+                BigIntegerFilter filter = new BigIntegerFilter(in.getInt());
+                filter.setMinValue(min == null? null : new BigInteger(min));
+                filter.setMaxValue(max == null? null : new BigInteger(max));
+                return filter;
+            }
+            case FILTER_BIG_DECIMAL:
+            {
+                String min = readString();
+                String max = readString();
+                return new BigDecimalFilter(min == null? null : new BigDecimal(min), max == null? null : new BigDecimal(max));
+            }
+            case FILTER_SET:
+            {
+                boolean caseSensitive = readBoolean();
+                return new SetFilter(caseSensitive, readStrings());
+            }
+            case FILTER_ENUM:
+                return readEnumFilter((Class) enumType(readString()));
+            case FILTER_REGEX:
+            {
+                String regex = readRequiredString();
+                RegexFilter filter = new RegexFilter(Pattern.compile(regex, in.getInt()));
+                filter.setReturnGroup(in.getInt());
+                filter.setEngine(enumConstant(RegexEngine.class, readString()));
+                filter.setMaxLength(in.getInt());
+                filter.setMaxSteps(in.getLong());
+                return filter;
+            }
+            case FILTER_REGEX_SET:
+                return new RegexSetFilter(readStrings());
+            case FILTER_META_REGEX:
+            {
+                MetaRegexFilter filter = new MetaRegexFilter(enumConstant(RegexEngine.class, readString()));
+                filter.setMaxLength(in.getInt());
+                return filter;
+            }
+            case FILTER_FILE:
+                return readFileFilter();
+            case FILTER_PATH:
+                return new PathFilter(readFileFilter());
+            case FILTER_CACHING:
+            {
+                int maxSize = in.getInt();
+                return new CachingFilter(readFilter(), maxSize);
+            }
+            case FILTER_PIPELINE:
+                return readFilterPipeline();
+            default:
+                throw new MisconfigurationException("Corrupt validator snapshot: unknown filter tag " + tag);
+        }
+    }
+
+    private <E extends Enum<E>> EnumFilter<E> readEnumFilter(Class<E> enumType)
+        throws MisconfigurationException
+    {
+        EnumFilter<E> filter = new EnumFilter<>(enumType, readBoolean());
+        for (int i = in.getInt();i > 0;i--)
+        {
+            E constant = enumConstant(enumType, readString());
+            for (String alias : readStrings())
+            {
+                filter.addAlias(constant, alias);
+            }
+        }
+        return filter;
+    }
+
+    private FileFilter readFileFilter()
+        throws MisconfigurationException
+    {
+        FileFilter filter = new FileFilter();
+        filter.setExistenceState(enumConstant(FileFilter.EXISTENCE.class, readString()));
+        filter.setPermissions(enumConstant(FileFilter.PERMISSION.class, readString()));
+        filter.setFileType(enumConstant(FileFilter.TYPE.class, readString()));
+        String extension = readString();
+        if (extension != null)
+        {
+            filter.setExtension(extension);
+        }
+        return filter;
+    }
+
+    private FilterPipeline readFilterPipeline()
+        throws MisconfigurationException
+    {
+        FilterPipeline pipeline = new FilterPipeline();
+        for (int i = in.getInt();i > 0;i--)
+        {
+            pipeline = pipeline.then(enumConstant(FilterPipeline.TextTransform.class, readString()));
+        }
+
+        Filter parser = readFilter();
+        if (parser != null)
+        {
+            pipeline = pipeline.andThen(parser);
+        }
+
+        for (int i = in.getInt();i > 0;i--)
+        {
+            byte tag = in.get();
+            switch (tag)
+            {
+                case STAGE_LOOKUP:
+                    Map<Object, Object> table = new HashMap<>();
+                    for (int j = in.getInt();j > 0;j--)
+                    {
+                        Object key = readValue();
+                        table.put(key, readValue());
+                    }
+                    pipeline = pipeline.map(FilterPipeline.lookup(table));
+                    break;
+                case STAGE_FILTER:
+                    // the parser or a preceding stage exists, so this becomes a filter stage again
+                    pipeline = pipeline.andThen(readFilter());
+                    break;
+                default:
+                    throw new MisconfigurationException("Corrupt validator snapshot: unknown pipeline stage tag " + tag);
+            }
+        }
+        return pipeline;
+    }
+
+    private Rule readRule()
+        throws MisconfigurationException
+    {
+        byte tag = in.get();
+        switch (tag)
+        {
+            case RULE_ONLY_KNOWN_FLAGS:
+                return Rule.ONLY_KNOWN_FLAGS;
+            case RULE_ONLY_KNOWN_OPTIONS:
+                return Rule.ONLY_KNOWN_OPTIONS;
+            case RULE_AND:
+            case RULE_OR:
+            case RULE_XOR:
+            case RULE_NOT:
+            {
+                String errorMessage = readString();
+                boolean adaptive = readBoolean();
+                Rule[] children = new Rule[readCount()];
+                for (int i = 0;i < children.length;i++)
+                {
+                    children[i] = readRule();
+                }
+                CombinedRule rule = tag == RULE_AND? new AndRule(children) : tag == RULE_OR? new OrRule(children)
+                    : tag == RULE_XOR? new XorRule(children) : new NotRule(children);
+                rule.setErrorMessage(errorMessage);
+                rule.setAdaptive(adaptive);
+                return rule;
+            }
+            case RULE_OPTION_SET:
+            {
+                String errorMessage = readString();
+                OptionSetRule rule = new OptionSetRule(readStrings());
+                rule.setErrorMessage(errorMessage);
+                return rule;
+            }
+            case RULE_XOR_OPTIONS:
+            {
+                String errorMessage = readString();
+                XorOptionsRule rule = new XorOptionsRule(readStrings());
+                rule.setErrorMessage(errorMessage);
+                return rule;
+            }
+            default:
+                throw new MisconfigurationException("Corrupt validator snapshot: unknown rule tag " + tag);
+        }
+    }
+
+    private static Class<?> enumType(String name)
+        throws MisconfigurationException
+    {
+        if (name == null)
+        {
+            throw new MisconfigurationException("Corrupt validator snapshot: missing enum class");
+        }
+
+        final Class<?> type;
+        try
+        {
+            type = Class.forName(name);
+        }
+        catch (ClassNotFoundException ex)
+        {
+            throw new MisconfigurationException("Unknown enum class " + name, ex);
+        }
+
+        if (!type.isEnum())
+        {
+            throw new MisconfigurationException(name + " is not an enum type");
+        }
+        return type;
+    }
+
+    private static <E extends Enum<E>> E enumConstant(Class<E> enumType, String name)
+        throws MisconfigurationException
+    {
+        if (name == null)
+        {
+            throw new MisconfigurationException("Corrupt validator snapshot: missing constant of " + enumType.getName());
+        }
+
+        try
+        {
+            return Enum.valueOf(enumType, name);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new MisconfigurationException("Unknown constant " + name + " of " + enumType.getName(), ex);
+        }
+    }
+}
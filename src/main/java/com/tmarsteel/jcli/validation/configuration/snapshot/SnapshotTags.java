@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.snapshot;
+
+/**
+ * The tags identifying the kind of the encoded values, filters and rules in a {@link ValidatorSnapshot}. Tags must
+ * never be reassigned; changes to the encoding of an existing tag require a new {@link ValidatorSnapshot#VERSION}.
+ */
+final class SnapshotTags
+{
+    private SnapshotTags() {}
+
+    static final byte VALUE_NULL        = 0;
+    static final byte VALUE_STRING      = 1;
+    static final byte VALUE_LONG        = 2;
+    static final byte VALUE_INTEGER     = 3;
+    static final byte VALUE_DOUBLE      = 4;
+    static final byte VALUE_BOOLEAN     = 5;
+    static final byte VALUE_BIG_INTEGER = 6;
+    static final byte VALUE_BIG_DECIMAL = 7;
+    static final byte VALUE_ENUM        = 8;
+    static final byte VALUE_FILE        = 9;
+    static final byte VALUE_PATH        = 10;
+
+    static final byte FILTER_NONE        = 0;
+    static final byte FILTER_INTEGER     = 1;
+    static final byte FILTER_DECIMAL     = 2;
+    static final byte FILTER_BIG_INTEGER = 3;
+    static final byte FILTER_BIG_DECIMAL = 4;
+    static final byte FILTER_SET         = 5;
+    static final byte FILTER_ENUM        = 6;
+    static final byte FILTER_REGEX       = 7;
+    static final byte FILTER_REGEX_SET   = 8;
+    static final byte FILTER_META_REGEX  = 9;
+    static final byte FILTER_FILE        = 10;
+    static final byte FILTER_PATH        = 11;
+    static final byte FILTER_CACHING     = 12;
+    static final byte FILTER_PIPELINE    = 13;
+
+    static final byte STAGE_LOOKUP = 0;
+    static final byte STAGE_FILTER = 1;
+
+    static final byte RULE_ONLY_KNOWN_FLAGS   = 0;
+    static final byte RULE_ONLY_KNOWN_OPTIONS = 1;
+    static final byte RULE_AND                = 2;
+    static final byte RULE_OR                 = 3;
+    static final byte RULE_XOR                = 4;
+    static final byte RULE_NOT                = 5;
+    static final byte RULE_OPTION_SET         = 6;
+    static final byte RULE_XOR_OPTIONS        = 7;
+}
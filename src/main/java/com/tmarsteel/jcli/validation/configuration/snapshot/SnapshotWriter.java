@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.snapshot;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.filter.*;
+import com.tmarsteel.jcli.rule.*;
+import com.tmarsteel.jcli.validation.Validator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.tmarsteel.jcli.validation.configuration.snapshot.SnapshotTags.*;
+
+/**
+ * Encodes a {@link Validator} into the format read by {@link SnapshotReader}:
+ * <pre>
+ * header:       magic (int), version (unsigned short), offset of the description table (int)
+ * flags:        count (int), per flag: names, description
+ * options:      count (int), per option: names, required, multiple, filter, default value, description
+ * arguments:    count (int), per argument: identifier, index, required, variadic, streaming, filter,
+ *               default value, description
+ * rules:        count (int), per rule: the rule
+ * descriptions: count (int), the offset of each description (int), the descriptions
+ * </pre>
+ * Strings are written as their length in UTF-8 bytes (int, -1 for null) followed by the bytes; descriptions are
+ * referenced by their index in the description table (-1 for none). Numbers are big-endian.
+ */
+final class SnapshotWriter
+{
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final List<String> descriptions = new ArrayList<>();
+
+    byte[] write(Validator validator)
+    {
+        try
+        {
+            out.writeInt(ValidatorSnapshot.MAGIC);
+            out.writeShort(ValidatorSnapshot.VERSION);
+            out.writeInt(0); // offset of the description table, patched below
+
+            List<Flag> flags = list(validator.flags());
+            out.writeInt(flags.size());
+            for (Flag flag : flags)
+            {
+                writeStrings(flag.names());
+                writeDescription(flag.getDescription());
+            }
+
+            List<Option> options = list(validator.options());
+            out.writeInt(options.size());
+            for (Option option : options)
+            {
+                writeStrings(option.names());
+                out.writeBoolean(option.isRequired());
+                out.writeBoolean(option.allowsMultipleValues());
+                writeFilter(option.getFilter());
+                writeValue(option.getDefaultValue());
+                writeDescription(option.getDescription());
+            }
+
+            List<Argument> arguments = list(validator.arguments());
+            out.writeInt(arguments.size());
+            for (Argument argument : arguments)
+            {
+                writeString(argument.getIdentifier());
+                out.writeInt(argument.getIndex());
+                out.writeBoolean(argument.isRequired());
+                out.writeBoolean(argument.isVariadic());
+                out.writeBoolean(argument.isStreaming());
+                writeFilter(argument.getFilter());
+                writeValue(argument.getDefaultValue());
+                writeDescription(argument.getDescription());
+            }
+
+            List<Rule> rules = list(validator.rules());
+            out.writeInt(rules.size());
+            for (Rule rule : rules)
+            {
+                writeRule(rule);
+            }
+
+            // the description table
+            final int tableOffset = out.size();
+            int offset = tableOffset + 4 + 4 * descriptions.size();
+            out.writeInt(descriptions.size());
+            List<byte[]> encoded = new ArrayList<>(descriptions.size());
+            for (String description : descriptions)
+            {
+                byte[] data = description.getBytes(StandardCharsets.UTF_8);
+                encoded.add(data);
+                out.writeInt(offset);
+                offset += 4 + data.length;
+            }
+            for (byte[] data : encoded)
+            {
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.flush();
+
+            byte[] snapshot = bytes.toByteArray();
+            snapshot[6] = (byte) (tableOffset >>> 24);
+            snapshot[7] = (byte) (tableOffset >>> 16);
+            snapshot[8] = (byte) (tableOffset >>> 8);
+            snapshot[9] = (byte) tableOffset;
+            return snapshot;
+        }
+        catch (IOException ex)
+        {
+            // cannot happen with a ByteArrayOutputStream
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static <T> List<T> list(Iterator<? extends T> it)
+    {
+        List<T> list = new ArrayList<>();
+        it.forEachRemaining(list::add);
+        return list;
+    }
+
+    private void writeString(String value)
+        throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private void writeStrings(String[] values)
+        throws IOException
+    {
+        out.writeInt(values.length);
+        for (String value : values)
+        {
+            writeString(value);
+        }
+    }
+
+    private void writeDescription(String description)
+        throws IOException
+    {
+        if (description == null)
+        {
+            out.writeInt(-1);
+        }
+        else
+        {
+            out.writeInt(descriptions.size());
+            descriptions.add(description);
+        }
+    }
+
+    private void writeValue(Object value)
+        throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(VALUE_NULL);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(VALUE_STRING);
+            writeString((String) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof BigInteger)
+        {
+            out.writeByte(VALUE_BIG_INTEGER);
+            writeString(value.toString());
+        }
+        else if (value instanceof BigDecimal)
+        {
+            out.writeByte(VALUE_BIG_DECIMAL);
+            writeString(value.toString());
+        }
+        else if (value instanceof Enum)
+        {
+            out.writeByte(VALUE_ENUM);
+            writeString(((Enum<?>) value).getDeclaringClass().getName());
+            writeString(((Enum<?>) value).name());
+        }
+        else if (value instanceof File)
+        {
+            out.writeByte(VALUE_FILE);
+            writeString(((File) value).getPath());
+        }
+        else if (value instanceof Path)
+        {
+            out.writeByte(VALUE_PATH);
+            writeString(value.toString());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot write a value of " + value.getClass() + " to a snapshot");
+        }
+    }
+
+    private void writeFilter(Filter filter)
+        throws IOException
+    {
+        if (filter == null)
+        {
+            out.writeByte(FILTER_NONE);
+            return;
+        }
+
+        // subclasses may behave differently, so only the exact classes are supported
+        Class<?> type = filter.getClass();
+        if (type == IntegerFilter.class)
+        {
+            IntegerFilter f = (IntegerFilter) filter;
+            out.writeByte(FILTER_INTEGER);
+            out.writeLong(f.getMinValue());
+            out.writeLong(f.getMaxValue());
+            out.writeInt(f.getRadix());
+        }
+        else if (type == DecimalFilter.class)
+        {
+            DecimalFilter f = (DecimalFilter) filter;
+            out.writeByte(FILTER_DECIMAL);
+            out.writeDouble(f.getMinValue());
+            out.writeDouble(f.getMaxValue());
+        }
+        else if (type == BigIntegerFilter.class)
+        {
+            BigIntegerFilter f = (BigIntegerFilter) filter;
+            out.writeByte(FILTER_BIG_INTEGER);
+            writeString(f.getMinValue() == null? null : f.getMinValue().toString());
+            writeString(f.getMaxValue() == null? null : f.getMaxValue().toString());
+            out.writeInt(f.getRadix());
+        }
+        else if (type == BigDecimalFilter.class)
+        {
+            BigDecimalFilter f = (BigDecimalFilter) filter;
+            out.writeByte(FILTER_BIG_DECIMAL);
+            writeString(f.getMinValue() == null? null : f.getMinValue().toString());
+            writeString(f.getMaxValue() == null? null : f.getMaxValue().toString());
+        }
+        else if (type == SetFilter.class)
+        {
+            SetFilter f = (SetFilter) filter;
+            out.writeByte(FILTER_SET);
+            out.writeBoolean(f.isCaseSensitive());
+            writeStrings(f.options().toArray(new String[0]));
+        }
+        else if (type == EnumFilter.class)
+        {
+            out.writeByte(FILTER_ENUM);
+            writeEnumFilter((EnumFilter<?>) filter);
+        }
+        else if (type == RegexFilter.class)
+        {
+            RegexFilter f = (RegexFilter) filter;
+            out.writeByte(FILTER_REGEX);
+            writeString(f.getPattern().pattern());
+            out.writeInt(f.getPattern().flags());
+            out.writeInt(f.getReturnGroup());
+            writeString(f.getEngine().name());
+            out.writeInt(f.getMaxLength());
+            out.writeLong(f.getMaxSteps());
+        }
+        else if (type == RegexSetFilter.class)
+        {
+            out.writeByte(FILTER_REGEX_SET);
+            writeStrings(((RegexSetFilter) filter).getRegexes().toArray(new String[0]));
+        }
+        else if (type == MetaRegexFilter.class)
+        {
+            MetaRegexFilter f = (MetaRegexFilter) filter;
+            out.writeByte(FILTER_META_REGEX);
+            writeString(f.getEngine().name());
+            out.writeInt(f.getMaxLength());
+        }
+        else if (type == FileFilter.class)
+        {
+            out.writeByte(FILTER_FILE);
+            writeFileFilter((FileFilter) filter);
+        }
+        else if (type == PathFilter.class)
+        {
+            out.writeByte(FILTER_PATH);
+            writeFileFilter(((PathFilter) filter).getDelegate());
+        }
+        else if (type == CachingFilter.class)
+        {
+            CachingFilter f = (CachingFilter) filter;
+            out.writeByte(FILTER_CACHING);
+            out.writeInt(f.getMaxSize());
+            writeFilter(f.getDelegate());
+        }
+        else if (type == FilterPipeline.class)
+        {
+            out.writeByte(FILTER_PIPELINE);
+            writeFilterPipeline((FilterPipeline) filter);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot write a filter of " + type + " to a snapshot");
+        }
+    }
+
+    private <E extends Enum<E>> void writeEnumFilter(EnumFilter<E> filter)
+        throws IOException
+    {
+        writeString(filter.getEnumType().getName());
+        out.writeBoolean(filter.isCaseSensitive());
+
+        List<E> aliased = new ArrayList<>();
+        for (E constant : filter.getEnumType().getEnumConstants())
+        {
+            if (!filter.getAliases(constant).isEmpty())
+            {
+                aliased.add(constant);
+            }
+        }
+        out.writeInt(aliased.size());
+        for (E constant : aliased)
+        {
+            writeString(constant.name());
+            writeStrings(filter.getAliases(constant).toArray(new String[0]));
+        }
+    }
+
+    private void writeFileFilter(FileFilter filter)
+        throws IOException
+    {
+        if (filter.getFileFilter() != null)
+        {
+            throw new IllegalArgumentException("Cannot write a file filter with a custom java.io.FileFilter to a snapshot");
+        }
+
+        writeString(filter.getExistenceState().name());
+        writeString(filter.getPermissions().name());
+        writeString(filter.getFileType().name());
+        writeString(filter.getExtension());
+    }
+
+    private void writeFilterPipeline(FilterPipeline pipeline)
+        throws IOException
+    {
+        List<FilterPipeline.TextTransform> transforms = pipeline.getTextTransforms();
+        out.writeInt(transforms.size());
+        for (FilterPipeline.TextTransform transform : transforms)
+        {
+            writeString(transform.name());
+        }
+
+        writeFilter(pipeline.getParser());
+
+        List<FilterFunction> stages = pipeline.getValueStages();
+        out.writeInt(stages.size());
+        for (FilterFunction stage : stages)
+        {
+            if (stage instanceof FilterPipeline.Lookup)
+            {
+                Map<?, ?> table = ((FilterPipeline.Lookup) stage).getTable();
+                out.writeByte(STAGE_LOOKUP);
+                out.writeInt(table.size());
+                for (Map.Entry<?, ?> entry : table.entrySet())
+                {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+            else if (stage instanceof FilterPipeline.FilterStage)
+            {
+                out.writeByte(STAGE_FILTER);
+                writeFilter(((FilterPipeline.FilterStage) stage).getFilter());
+            }
+            else
+            {
+                throw new IllegalArgumentException("Cannot write a pipeline stage of " + stage.getClass() + " to a snapshot");
+            }
+        }
+    }
+
+    private void writeRule(Rule rule)
+        throws IOException
+    {
+        if (rule == Rule.ONLY_KNOWN_FLAGS)
+        {
+            out.writeByte(RULE_ONLY_KNOWN_FLAGS);
+            return;
+        }
+        if (rule == Rule.ONLY_KNOWN_OPTIONS)
+        {
+            out.writeByte(RULE_ONLY_KNOWN_OPTIONS);
+            return;
+        }
+
+        Class<?> type = rule.getClass();
+        if (type == AndRule.class || type == OrRule.class || type == XorRule.class || type == NotRule.class)
+        {
+            CombinedRule combined = (CombinedRule) rule;
+            out.writeByte(type == AndRule.class? RULE_AND : type == OrRule.class? RULE_OR
+                : type == XorRule.class? RULE_XOR : RULE_NOT);
+            writeString(combined.getErrorMessage());
+            out.writeBoolean(combined.isAdaptive());
+            out.writeInt(combined.getRules().size());
+            for (Rule child : combined.getRules())
+            {
+                writeRule(child);
+            }
+        }
+        else if (type == OptionSetRule.class)
+        {
+            out.writeByte(RULE_OPTION_SET);
+            writeString(((OptionSetRule) rule).getErrorMessage());
+            writeStrings(((OptionSetRule) rule).getOptionNames());
+        }
+        else if (type == XorOptionsRule.class)
+        {
+            out.writeByte(RULE_XOR_OPTIONS);
+            writeString(((XorOptionsRule) rule).getErrorMessage());
+            writeStrings(((XorOptionsRule) rule).getOptionNames());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot write a rule of " + type + " to a snapshot");
+        }
+    }
+}
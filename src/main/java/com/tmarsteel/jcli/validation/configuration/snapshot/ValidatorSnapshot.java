@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.snapshot;
+
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.Validator;
+import com.tmarsteel.jcli.validation.configuration.ValidatorConfigurator;
+import com.tmarsteel.jcli.validation.configuration.xml.XMLValidatorConfigurator;
+import org.xml.sax.SAXException;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * A compact, versioned binary image of the flags, options, arguments and rules of a configured {@link Validator}.
+ * Snapshots are meant to be written at build time (see {@link #main(String[])}) and read at startup instead of an XML
+ * configuration: reading one only checks its header, and {@link #configure(Validator)} decodes the configuration
+ * without any XML processing. Descriptions are decoded when first requested.
+ * <br>
+ * Snapshots cover the filters and rules of this library, including their parameters, and default values of common
+ * types. Custom filters and rules, {@link com.tmarsteel.jcli.filter.FileFilter}s with a custom
+ * {@link java.io.FileFilter} and {@link com.tmarsteel.jcli.filter.FilterPipeline}s with arbitrary functions cannot be
+ * written to a snapshot. The environment and runtime settings of the validator are not part of snapshots.
+ * @author Tobias Marstaller
+ */
+public final class ValidatorSnapshot implements ValidatorConfigurator
+{
+    /**
+     * The version of the format written by this class. Snapshots of other versions cannot be read.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Marks the beginning of a snapshot: "JCLS".
+     */
+    static final int MAGIC = 0x4A434C53;
+
+    /**
+     * Size of the header: magic, version, offset of the description table.
+     */
+    static final int HEADER_SIZE = 4 + 2 + 4;
+
+    private final byte[] data;
+
+    private ValidatorSnapshot(byte[] data)
+    {
+        this.data = data;
+    }
+
+    /**
+     * Takes a snapshot of the current configuration of the given validator.
+     * @throws IllegalArgumentException If the validator uses filters, rules or default values that cannot be
+     *                                  written to a snapshot.
+     */
+    public static ValidatorSnapshot of(Validator validator)
+    {
+        return new ValidatorSnapshot(new SnapshotWriter().write(validator));
+    }
+
+    /**
+     * Reads a snapshot from the given bytes, as returned by {@link #toByteArray()}.
+     * @throws IOException If the data is not a snapshot of version {@link #VERSION}.
+     */
+    public static ValidatorSnapshot read(byte[] data)
+        throws IOException
+    {
+        if (data.length < HEADER_SIZE)
+        {
+            throw new IOException("Not a validator snapshot");
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (header.getInt() != MAGIC)
+        {
+            throw new IOException("Not a validator snapshot");
+        }
+
+        int version = header.getShort() & 0xFFFF;
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version + ", expected " + VERSION);
+        }
+
+        return new ValidatorSnapshot(data);
+    }
+
+    /**
+     * Reads a snapshot from the given stream until its end.
+     * @throws IOException If an I/O error occurs or the data is not a snapshot of version {@link #VERSION}.
+     */
+    public static ValidatorSnapshot read(InputStream in)
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, n);
+        }
+        return read(out.toByteArray());
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     * @throws IOException If an I/O error occurs or the file is not a snapshot of version {@link #VERSION}.
+     */
+    public static ValidatorSnapshot read(Path file)
+        throws IOException
+    {
+        return read(Files.readAllBytes(file));
+    }
+
+    /**
+     * Returns the encoded snapshot.
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(data, data.length);
+    }
+
+    /**
+     * Writes the encoded snapshot to the given stream.
+     */
+    public void writeTo(OutputStream out)
+        throws IOException
+    {
+        out.write(data);
+    }
+
+    /**
+     * Adds the flags, options, arguments and rules of this snapshot to the given validator. Every call creates
+     * new instances of them.
+     * @throws MisconfigurationException If the snapshot is corrupt or refers to enum types that cannot be loaded.
+     */
+    @Override
+    public void configure(Validator p)
+        throws MisconfigurationException
+    {
+        try
+        {
+            new SnapshotReader(data).configure(p);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException ex)
+        {
+            throw new MisconfigurationException("Corrupt validator snapshot", ex);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // e.g. malformed numbers or regular expressions and values the filters and rules reject
+            throw new MisconfigurationException("Corrupt validator snapshot", ex);
+        }
+    }
+
+    /**
+     * Writes the snapshot of an XML configuration (see {@link XMLValidatorConfigurator}) to a file. Arguments: the
+     * XML file and the snapshot file to write.
+     */
+    public static void main(String[] args)
+        throws IOException, SAXException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: " + ValidatorSnapshot.class.getName() + " <xml configuration> <snapshot file>");
+            System.exit(1);
+        }
+
+        Validator validator = new Validator();
+        XMLValidatorConfigurator.getInstance(new File(args[0])).configure(validator);
+
+        try (OutputStream out = Files.newOutputStream(Paths.get(args[1])))
+        {
+            of(validator).writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,616 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.source;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.filter.*;
+import com.tmarsteel.jcli.rule.*;
+import com.tmarsteel.jcli.validation.Validator;
+import com.tmarsteel.jcli.validation.configuration.ValidatorConfigurator;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Emits the source of a {@link ValidatorConfigurator} that recreates the configuration of a {@link Validator} with
+ * plain constructor and setter calls. The statements are split into methods of at most {@link #MAX_STATEMENTS}
+ * statements each to stay well below the size limit of a method: between flags, options, arguments and rules and,
+ * for lists of more than {@link #MAX_INLINE_ELEMENTS} elements (lookup tables, enum aliases, set and regex set
+ * options), within them.
+ */
+final class SourceWriter
+{
+    private static final int MAX_STATEMENTS = 400;
+
+    private static final int MAX_INLINE_ELEMENTS = 32;
+
+    private static final String INDENT = "        ";
+
+    private final Set<String> imports = new TreeSet<>();
+    private final StringBuilder methods = new StringBuilder();
+    private final StringBuilder body = new StringBuilder();
+    private final StringBuilder helpers = new StringBuilder();
+    private int statements;
+    private int methodCount;
+    private int helperCount;
+    private int variables;
+
+    String write(Validator validator, String packageName, String simpleName, String origin)
+    {
+        type(Validator.class);
+        type(ValidatorConfigurator.class);
+
+        for (Iterator<? extends Flag> it = validator.flags();it.hasNext();)
+        {
+            Flag flag = it.next();
+            beginEntry();
+            String var = variable("flag");
+            statement(type(Flag.class) + " " + var + " = new Flag(" + strings(flag.names()) + ")");
+            description(var, flag.getDescription());
+            statement("validator.add(" + var + ")");
+        }
+
+        for (Iterator<? extends Option> it = validator.options();it.hasNext();)
+        {
+            Option option = it.next();
+            beginEntry();
+            String filter = filter(option.getFilter());
+            String var = variable("option");
+            statement(type(Option.class) + " " + var + " = new Option(" + filter + ", "
+                + value(option.getDefaultValue()) + ", " + strings(option.names()) + ")");
+            statement(var + ".setRequired(" + option.isRequired() + ")");
+            statement(var + ".setAllowsMultipleValues(" + option.allowsMultipleValues() + ")");
+            description(var, option.getDescription());
+            statement("validator.add(" + var + ")");
+        }
+
+        for (Iterator<? extends Argument> it = validator.arguments();it.hasNext();)
+        {
+            Argument argument = it.next();
+            beginEntry();
+            String filter = filter(argument.getFilter());
+            String var = variable("argument");
+            statement(type(Argument.class) + " " + var + " = new Argument(" + string(argument.getIdentifier()) + ", "
+                + argument.getIndex() + ", " + value(argument.getDefaultValue()) + ", " + filter + ")");
+            statement(var + ".setRequired(" + argument.isRequired() + ")");
+            statement(var + ".setVariadic(" + argument.isVariadic() + ")");
+            statement(var + ".setStreaming(" + argument.isStreaming() + ")");
+            description(var, argument.getDescription());
+            statement("validator.add(" + var + ")");
+        }
+
+        for (Iterator<? extends Rule> it = validator.rules();it.hasNext();)
+        {
+            beginEntry();
+            statement("validator.add(" + rule(it.next()) + ")");
+        }
+        endMethod();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty())
+        {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        for (String name : imports)
+        {
+            source.append("import ").append(name).append(";\n");
+        }
+        source.append("\n/**\n * Generated by ").append(ValidatorSourceGenerator.class.getName());
+        if (origin != null)
+        {
+            source.append(" from ").append(origin.replace("*/", "*&#47;"));
+        }
+        source.append(". Do not edit.\n */\n");
+        source.append("public final class ").append(simpleName).append(" implements ValidatorConfigurator\n{\n");
+        source.append("    @Override\n    public void configure(Validator validator)\n    {\n");
+        for (int i = 0;i < methodCount;i++)
+        {
+            source.append(INDENT).append("configure").append(i).append("(validator);\n");
+        }
+        source.append("    }\n").append(methods).append(helpers).append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Starts a new method before the next flag, option, argument or rule if the current one is full.
+     */
+    private void beginEntry()
+    {
+        if (statements >= MAX_STATEMENTS)
+        {
+            endMethod();
+        }
+    }
+
+    private void endMethod()
+    {
+        if (statements == 0)
+        {
+            return;
+        }
+
+        methods.append("\n    private static void configure").append(methodCount++).append("(Validator validator)\n    {\n")
+            .append(body).append("    }\n");
+        body.setLength(0);
+        statements = 0;
+    }
+
+    private void statement(String statement)
+    {
+        body.append(INDENT).append(statement).append(";\n");
+        statements++;
+    }
+
+    /**
+     * Emits statements that set up the variable <code>target</code>: in place if they are few, otherwise in helper
+     * methods of at most {@link #MAX_STATEMENTS} statements that take the variable as their parameter.
+     */
+    private void statements(String targetType, String target, List<String> setup)
+    {
+        if (setup.size() <= MAX_INLINE_ELEMENTS)
+        {
+            for (String statement : setup)
+            {
+                statement(statement);
+            }
+            return;
+        }
+
+        for (int from = 0;from < setup.size();from += MAX_STATEMENTS)
+        {
+            String helper = "fill" + (helperCount++);
+            helpers.append("\n    private static void ").append(helper).append("(").append(targetType).append(' ')
+                .append(target).append(")\n    {\n");
+            for (String statement : setup.subList(from, Math.min(from + MAX_STATEMENTS, setup.size())))
+            {
+                helpers.append(INDENT).append(statement).append(";\n");
+            }
+            helpers.append("    }\n");
+            statement(helper + "(" + target + ")");
+        }
+    }
+
+    /**
+     * Returns the arguments for a <code>String...</code> parameter or, for many values, a variable holding a
+     * {@link List} of them, to be passed to a <code>Collection&lt;String&gt;</code> parameter.
+     */
+    private String stringList(Collection<String> values)
+    {
+        if (values.size() <= MAX_INLINE_ELEMENTS)
+        {
+            return strings(values);
+        }
+
+        String listType = type(List.class) + "<String>";
+        String var = variable("strings");
+        statement(listType + " " + var + " = new " + type(ArrayList.class) + "<>(" + values.size() + ")");
+        List<String> setup = new ArrayList<>(values.size());
+        for (String value : values)
+        {
+            setup.add(var + ".add(" + string(value) + ")");
+        }
+        statements(listType, var, setup);
+        return var;
+    }
+
+    private String variable(String prefix)
+    {
+        return prefix + (variables++);
+    }
+
+    /**
+     * Imports the given class and returns the name to refer to it by.
+     */
+    private String type(Class<?> type)
+    {
+        Class<?> outer = type;
+        while (outer.getEnclosingClass() != null)
+        {
+            outer = outer.getEnclosingClass();
+        }
+        imports.add(outer.getName());
+        return type.getCanonicalName().substring(outer.getPackage().getName().length() + 1);
+    }
+
+    private void description(String var, String description)
+    {
+        if (description != null)
+        {
+            statement(var + ".setDescription(" + string(description) + ")");
+        }
+    }
+
+    private static String strings(Collection<String> values)
+    {
+        StringBuilder out = new StringBuilder();
+        for (String value : values)
+        {
+            if (out.length() > 0)
+            {
+                out.append(", ");
+            }
+            out.append(string(value));
+        }
+        return out.toString();
+    }
+
+    private static String strings(String[] values)
+    {
+        return strings(Arrays.asList(values));
+    }
+
+    /**
+     * Returns a Java string literal for the given value.
+     */
+    static String string(String value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0;i < value.length();i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '"':  out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n");  break;
+                case '\r': out.append("\\r");  break;
+                case '\t': out.append("\\t");  break;
+                default:
+                    if (c < 0x20)
+                    {
+                        // unicode escapes of line terminators would end the literal, octal escapes do not
+                        out.append(String.format("\\%03o", (int) c));
+                    }
+                    else if (c > 0x7E)
+                    {
+                        out.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static String doubleValue(double value)
+    {
+        if (Double.isNaN(value))
+        {
+            return "Double.NaN";
+        }
+        if (Double.isInfinite(value))
+        {
+            return value > 0? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return value + "d";
+    }
+
+    private String value(Object value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+        else if (value instanceof String)
+        {
+            return string((String) value);
+        }
+        else if (value instanceof Long)
+        {
+            return value + "L";
+        }
+        else if (value instanceof Integer || value instanceof Boolean)
+        {
+            return value.toString();
+        }
+        else if (value instanceof Double)
+        {
+            return doubleValue((Double) value);
+        }
+        else if (value instanceof BigInteger)
+        {
+            return "new " + type(BigInteger.class) + "(" + string(value.toString()) + ")";
+        }
+        else if (value instanceof BigDecimal)
+        {
+            return "new " + type(BigDecimal.class) + "(" + string(value.toString()) + ")";
+        }
+        else if (value instanceof Enum)
+        {
+            return enumType(((Enum<?>) value).getDeclaringClass()) + "." + ((Enum<?>) value).name();
+        }
+        else if (value instanceof File)
+        {
+            return "new " + type(File.class) + "(" + string(((File) value).getPath()) + ")";
+        }
+        else if (value instanceof Path)
+        {
+            return type(Paths.class) + ".get(" + string(value.toString()) + ")";
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot generate source for a value of " + value.getClass());
+        }
+    }
+
+    /**
+     * Enum types of the application are referred to by their fully qualified name so they cannot clash with the
+     * imports.
+     */
+    private static String enumType(Class<?> type)
+    {
+        if (type.getCanonicalName() == null)
+        {
+            throw new IllegalArgumentException("Cannot generate source referring to " + type + ": it has no canonical name");
+        }
+        return type.getCanonicalName();
+    }
+
+    /**
+     * Returns an expression for the given filter, emitting the statements needed to set it up beforehand.
+     */
+    private String filter(Filter filter)
+    {
+        if (filter == null)
+        {
+            // casted so the Option constructor is not ambiguous
+            return "(" + type(Filter.class) + ") null";
+        }
+
+        // subclasses may behave differently, so only the exact classes are supported
+        Class<?> type = filter.getClass();
+        if (type == IntegerFilter.class)
+        {
+            IntegerFilter f = (IntegerFilter) filter;
+            return "new " + type(IntegerFilter.class) + "(" + f.getMinValue() + "L, " + f.getMaxValue() + "L, "
+                + f.getRadix() + ")";
+        }
+        else if (type == DecimalFilter.class)
+        {
+            DecimalFilter f = (DecimalFilter) filter;
+            return "new " + type(DecimalFilter.class) + "(" + doubleValue(f.getMinValue()) + ", "
+                + doubleValue(f.getMaxValue()) + ")";
+        }
+        else if (type == BigIntegerFilter.class)
+        {
+            BigIntegerFilter f = (BigIntegerFilter) filter;
+            return "new " + type(BigIntegerFilter.class) + "(" + value(f.getMinValue()) + ", " + value(f.getMaxValue())
+                + ", " + f.getRadix() + ")";
+        }
+        else if (type == BigDecimalFilter.class)
+        {
+            BigDecimalFilter f = (BigDecimalFilter) filter;
+            return "new " + type(BigDecimalFilter.class) + "(" + value(f.getMinValue()) + ", "
+                + value(f.getMaxValue()) + ")";
+        }
+        else if (type == SetFilter.class)
+        {
+            SetFilter f = (SetFilter) filter;
+            return "new " + type(SetFilter.class) + "(" + f.isCaseSensitive()
+                + (f.options().isEmpty()? "" : ", " + stringList(f.options())) + ")";
+        }
+        else if (type == EnumFilter.class)
+        {
+            return enumFilter((EnumFilter<?>) filter);
+        }
+        else if (type == RegexFilter.class)
+        {
+            RegexFilter f = (RegexFilter) filter;
+            String var = variable("filter");
+            statement(type(RegexFilter.class) + " " + var + " = new RegexFilter(" + type(Pattern.class) + ".compile("
+                + string(f.getPattern().pattern()) + ", " + f.getPattern().flags() + "))");
+            statement(var + ".setReturnGroup(" + f.getReturnGroup() + ")");
+            statement(var + ".setEngine(" + type(RegexEngine.class) + "." + f.getEngine().name() + ")");
+            statement(var + ".setMaxLength(" + f.getMaxLength() + ")");
+            statement(var + ".setMaxSteps(" + f.getMaxSteps() + "L)");
+            return var;
+        }
+        else if (type == RegexSetFilter.class)
+        {
+            return "new " + type(RegexSetFilter.class) + "(" + stringList(((RegexSetFilter) filter).getRegexes()) + ")";
+        }
+        else if (type == MetaRegexFilter.class)
+        {
+            MetaRegexFilter f = (MetaRegexFilter) filter;
+            String var = variable("filter");
+            statement(type(MetaRegexFilter.class) + " " + var + " = new MetaRegexFilter(" + type(RegexEngine.class)
+                + "." + f.getEngine().name() + ")");
+            statement(var + ".setMaxLength(" + f.getMaxLength() + ")");
+            return var;
+        }
+        else if (type == FileFilter.class)
+        {
+            return fileFilter((FileFilter) filter);
+        }
+        else if (type == PathFilter.class)
+        {
+            return "new " + type(PathFilter.class) + "(" + fileFilter(((PathFilter) filter).getDelegate()) + ")";
+        }
+        else if (type == CachingFilter.class)
+        {
+            CachingFilter f = (CachingFilter) filter;
+            return "new " + type(CachingFilter.class) + "(" + filter(f.getDelegate()) + ", " + f.getMaxSize() + ")";
+        }
+        else if (type == FilterPipeline.class)
+        {
+            return filterPipeline((FilterPipeline) filter);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot generate source for a filter of " + type);
+        }
+    }
+
+    private <E extends Enum<E>> String enumFilter(EnumFilter<E> filter)
+    {
+        String enumType = enumType(filter.getEnumType());
+        String var = variable("filter");
+        String filterType = type(EnumFilter.class) + "<" + enumType + ">";
+        statement(filterType + " " + var + " = new EnumFilter<>(" + enumType + ".class, " + filter.isCaseSensitive() + ")");
+        List<String> setup = new ArrayList<>();
+        for (E constant : filter.getEnumType().getEnumConstants())
+        {
+            for (String alias : filter.getAliases(constant))
+            {
+                setup.add(var + ".addAlias(" + enumType + "." + constant.name() + ", " + string(alias) + ")");
+            }
+        }
+        statements(filterType, var, setup);
+        return var;
+    }
+
+    private String fileFilter(FileFilter filter)
+    {
+        if (filter.getFileFilter() != null)
+        {
+            throw new IllegalArgumentException("Cannot generate source for a file filter with a custom java.io.FileFilter");
+        }
+
+        String type = type(FileFilter.class);
+        String var = variable("filter");
+        statement(type + " " + var + " = new FileFilter()");
+        statement(var + ".setExistenceState(" + type + ".EXISTENCE." + filter.getExistenceState().name() + ")");
+        statement(var + ".setPermissions(" + type + ".PERMISSION." + filter.getPermissions().name() + ")");
+        statement(var + ".setFileType(" + type + ".TYPE." + filter.getFileType().name() + ")");
+        if (filter.getExtension() != null)
+        {
+            statement(var + ".setExtension(" + string(filter.getExtension()) + ")");
+        }
+        return var;
+    }
+
+    private String filterPipeline(FilterPipeline pipeline)
+    {
+        String type = type(FilterPipeline.class);
+        StringBuilder expression = new StringBuilder("new ").append(type).append("()");
+        for (FilterPipeline.TextTransform transform : pipeline.getTextTransforms())
+        {
+            expression.append(".then(").append(type).append(".TextTransform.").append(transform.name()).append(")");
+        }
+
+        if (pipeline.getParser() != null)
+        {
+            expression.append(".andThen(").append(filter(pipeline.getParser())).append(")");
+        }
+
+        for (FilterFunction stage : pipeline.getValueStages())
+        {
+            if (stage instanceof FilterPipeline.Lookup)
+            {
+                String table = variable("table");
+                String tableType = type(Map.class) + "<Object, Object>";
+                statement(tableType + " " + table + " = new " + type(HashMap.class) + "<>()");
+                List<String> setup = new ArrayList<>();
+                for (Map.Entry<?, ?> entry : ((FilterPipeline.Lookup) stage).getTable().entrySet())
+                {
+                    setup.add(table + ".put(" + value(entry.getKey()) + ", " + value(entry.getValue()) + ")");
+                }
+                statements(tableType, table, setup);
+                expression.append(".map(").append(type).append(".lookup(").append(table).append("))");
+            }
+            else if (stage instanceof FilterPipeline.FilterStage)
+            {
+                expression.append(".andThen(").append(filter(((FilterPipeline.FilterStage) stage).getFilter()))
+                    .append(")");
+            }
+            else
+            {
+                throw new IllegalArgumentException("Cannot generate source for a pipeline stage of " + stage.getClass());
+            }
+        }
+        return expression.toString();
+    }
+
+    /**
+     * Returns an expression for the given rule, emitting the statements needed to set it up beforehand.
+     */
+    private String rule(Rule rule)
+    {
+        if (rule == Rule.ONLY_KNOWN_FLAGS)
+        {
+            return type(Rule.class) + ".ONLY_KNOWN_FLAGS";
+        }
+        if (rule == Rule.ONLY_KNOWN_OPTIONS)
+        {
+            return type(Rule.class) + ".ONLY_KNOWN_OPTIONS";
+        }
+
+        Class<?> type = rule.getClass();
+        if (type == AndRule.class || type == OrRule.class || type == XorRule.class || type == NotRule.class)
+        {
+            CombinedRule combined = (CombinedRule) rule;
+            StringBuilder children = new StringBuilder();
+            for (Rule child : combined.getRules())
+            {
+                if (children.length() > 0)
+                {
+                    children.append(", ");
+                }
+                children.append(rule(child));
+            }
+
+            String var = variable("rule");
+            statement(type(type) + " " + var + " = new " + type.getSimpleName() + "(" + children + ")");
+            errorMessage(var, combined.getErrorMessage());
+            statement(var + ".setAdaptive(" + combined.isAdaptive() + ")");
+            return var;
+        }
+        else if (type == OptionSetRule.class)
+        {
+            String var = variable("rule");
+            statement(type(OptionSetRule.class) + " " + var + " = new OptionSetRule("
+                + strings(((OptionSetRule) rule).getOptionNames()) + ")");
+            errorMessage(var, ((OptionSetRule) rule).getErrorMessage());
+            return var;
+        }
+        else if (type == XorOptionsRule.class)
+        {
+            String var = variable("rule");
+            statement(type(XorOptionsRule.class) + " " + var + " = new XorOptionsRule("
+                + strings(((XorOptionsRule) rule).getOptionNames()) + ")");
+            errorMessage(var, ((XorOptionsRule) rule).getErrorMessage());
+            return var;
+        }
+        else
+        {
+            throw new IllegalArgumentException("Cannot generate source for a rule of " + type);
+        }
+    }
+
+    private void errorMessage(String var, String errorMessage)
+    {
+        if (errorMessage != null)
+        {
+            statement(var + ".setErrorMessage(" + string(errorMessage) + ")");
+        }
+    }
+}
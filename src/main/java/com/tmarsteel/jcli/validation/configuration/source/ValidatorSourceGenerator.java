@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.source;
+
+import com.tmarsteel.jcli.validation.Validator;
+import com.tmarsteel.jcli.validation.configuration.ValidatorConfigurator;
+import com.tmarsteel.jcli.validation.configuration.xml.XMLValidatorConfigurator;
+import org.xml.sax.SAXException;
+
+import javax.lang.model.SourceVersion;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the source of a {@link ValidatorConfigurator} that recreates the configuration of a {@link Validator}
+ * with plain constructor and setter calls, e.g. {@code new IntegerFilter(0L, 100L, 10)}. Meant to be run at build
+ * time on an XML configuration (see {@link #main(String[])}) so that the application configures its validator
+ * without parsing XML or looking up parsers at runtime, while the XML can still serve as documentation.
+ * <br>
+ * Like {@link com.tmarsteel.jcli.validation.configuration.snapshot.ValidatorSnapshot}, this supports the filters and
+ * rules of this library and default values of common types. Values that the XML configuration took from the
+ * {@link com.tmarsteel.jcli.Environment} are written as they were at generation time.
+ * @author Tobias Marstaller
+ */
+public final class ValidatorSourceGenerator
+{
+    private final String packageName;
+    private final String simpleName;
+
+    /**
+     * @param className Fully qualified name of the class to generate.
+     * @throws IllegalArgumentException If the given name is not a valid class name.
+     */
+    public ValidatorSourceGenerator(String className)
+    {
+        if (!SourceVersion.isName(className))
+        {
+            throw new IllegalArgumentException("Invalid class name: " + className);
+        }
+
+        int lastDot = className.lastIndexOf('.');
+        this.packageName = lastDot == -1? "" : className.substring(0, lastDot);
+        this.simpleName = className.substring(lastDot + 1);
+    }
+
+    /**
+     * Returns the fully qualified name of the generated class.
+     */
+    public String getClassName()
+    {
+        return packageName.isEmpty()? simpleName : packageName + "." + simpleName;
+    }
+
+    /**
+     * Returns the source of a class that configures validators like the given one is configured.
+     * @throws IllegalArgumentException If the validator uses filters, rules or default values this generator does
+     *                                  not support.
+     */
+    public String generate(Validator validator)
+    {
+        return generate(validator, null);
+    }
+
+    /**
+     * Like {@link #generate(Validator)}; the generated javadoc names {@code origin} as the source of the
+     * configuration.
+     */
+    public String generate(Validator validator, String origin)
+    {
+        return new SourceWriter().write(validator, packageName, simpleName, origin);
+    }
+
+    /**
+     * Writes the source generated for the given validator to its place below the given source root, creating the
+     * package directories as needed.
+     * @return The written file.
+     */
+    public Path writeTo(Validator validator, String origin, Path sourceRoot)
+        throws IOException
+    {
+        Path file = sourceRoot.resolve(getClassName().replace('.', File.separatorChar) + ".java");
+        if (file.getParent() != null)
+        {
+            Files.createDirectories(file.getParent());
+        }
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            out.write(generate(validator, origin));
+        }
+        return file;
+    }
+
+    /**
+     * Generates the configurator for an XML configuration (see {@link XMLValidatorConfigurator}). Arguments: the XML
+     * file, the fully qualified name of the class to generate and the source root to write it to, e.g.
+     * {@code target/generated-sources/jcli}.
+     */
+    public static void main(String[] args)
+        throws IOException, SAXException
+    {
+        if (args.length != 3)
+        {
+            System.err.println("Usage: " + ValidatorSourceGenerator.class.getName()
+                + " <xml configuration> <class name> <source root>");
+            System.exit(1);
+        }
+
+        File xml = new File(args[0]);
+        Validator validator = new Validator();
+        XMLValidatorConfigurator.getInstance(xml).configure(validator);
+
+        new ValidatorSourceGenerator(args[1]).writeTo(validator, xml.getName(), Paths.get(args[2]));
+    }
+}
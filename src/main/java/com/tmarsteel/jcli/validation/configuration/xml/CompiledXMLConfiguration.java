@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.xml;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Environment;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.rule.CombinedRule;
+import com.tmarsteel.jcli.rule.Rule;
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.Validator;
+import com.tmarsteel.jcli.validation.configuration.ValidatorConfigurator;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The flags, options, arguments and rules of an XML configuration, parsed once by
+ * {@link XMLValidatorConfigurator#compile()}. {@link #configure(Validator)} adds these very instances, including their
+ * filters, to every validator it configures instead of parsing the document again; configuring many validators from
+ * the same document thus costs little more than adding the references.
+ * <br>
+ * The instances are shared by all validators configured from this object: they must not be modified, and validators
+ * used on different threads use the same filters concurrently (which the filters of this library support). The
+ * exception are rules containing {@link CombinedRule#setAdaptive(boolean) adaptive} combined rules: their evaluation
+ * statistics reflect the input of one validator, so every validator gets its own copy of these.
+ * @author Tobias Marstaller
+ */
+public final class CompiledXMLConfiguration implements ValidatorConfigurator
+{
+    private final List<Flag> flags;
+    private final List<Option> options;
+    private final List<Argument> arguments;
+    private final List<Rule> rules;
+    private final Environment environment;
+
+    /**
+     * Whether the rule at the same index in {@link #rules} needs to be copied for every validator.
+     */
+    private final boolean[] adaptiveRules;
+
+    private CompiledXMLConfiguration(Recorder recorder)
+    {
+        this.flags = Collections.unmodifiableList(recorder.flags);
+        this.options = Collections.unmodifiableList(recorder.options);
+        this.arguments = Collections.unmodifiableList(recorder.arguments);
+        this.rules = Collections.unmodifiableList(recorder.rules);
+        this.environment = recorder.getEnvironment();
+
+        this.adaptiveRules = new boolean[rules.size()];
+        for (int i = 0;i < adaptiveRules.length;i++)
+        {
+            adaptiveRules[i] = containsAdaptive(rules.get(i));
+        }
+    }
+
+    /**
+     * Parses the configuration of the given configurator.
+     * @throws MisconfigurationException If the configuration is invalid.
+     */
+    static CompiledXMLConfiguration compile(XMLValidatorConfigurator configurator)
+        throws MisconfigurationException
+    {
+        Recorder recorder = new Recorder(configurator.getEnvironment());
+        configurator.configure(recorder);
+        return new CompiledXMLConfiguration(recorder);
+    }
+
+    /**
+     * Returns the flags of the configuration in document order.
+     */
+    public List<Flag> getFlags()
+    {
+        return flags;
+    }
+
+    /**
+     * Returns the options of the configuration in document order.
+     */
+    public List<Option> getOptions()
+    {
+        return options;
+    }
+
+    /**
+     * Returns the arguments of the configuration in document order.
+     */
+    public List<Argument> getArguments()
+    {
+        return arguments;
+    }
+
+    /**
+     * Returns the rules of the configuration in document order.
+     */
+    public List<Rule> getRules()
+    {
+        return rules;
+    }
+
+    /**
+     * Returns the environment configuration passed on to the configured validators.
+     */
+    public Environment getEnvironment()
+    {
+        return environment;
+    }
+
+    /**
+     * Adds the shared flags, options, arguments and rules to the given validator and sets its environment, like
+     * {@link XMLValidatorConfigurator#configure(Validator)} does.
+     * @throws MisconfigurationException If the validator rejects them, e.g. because they are ambiguous with
+     *                                   definitions it already has.
+     */
+    @Override
+    public void configure(Validator p)
+        throws MisconfigurationException
+    {
+        for (int i = 0;i < flags.size();i++)
+        {
+            p.add(flags.get(i));
+        }
+        for (int i = 0;i < options.size();i++)
+        {
+            p.add(options.get(i));
+        }
+        for (int i = 0;i < arguments.size();i++)
+        {
+            p.add(arguments.get(i));
+        }
+        for (int i = 0;i < rules.size();i++)
+        {
+            p.add(adaptiveRules[i]? copyAdaptive(rules.get(i)) : rules.get(i));
+        }
+
+        p.setEnvironment(environment);
+    }
+
+    /**
+     * Returns the given rule if it contains no adaptive combined rule; otherwise a copy of it with fresh evaluation
+     * statistics that shares all other rules. Combined rules are copied through their {@code (Rule[])} constructor,
+     * the one required by {@link RuleParsingUtil#combinedRuleParser(Class)}.
+     * @throws MisconfigurationException If an adaptive combined rule cannot be copied.
+     */
+    private static Rule copyAdaptive(Rule rule)
+        throws MisconfigurationException
+    {
+        if (!(rule instanceof CombinedRule) || !containsAdaptive(rule))
+        {
+            return rule;
+        }
+
+        CombinedRule original = (CombinedRule) rule;
+        List<Rule> children = original.getRules();
+        Rule[] copiedChildren = new Rule[children.size()];
+        for (int i = 0;i < copiedChildren.length;i++)
+        {
+            copiedChildren[i] = copyAdaptive(children.get(i));
+        }
+
+        CombinedRule copy;
+        try
+        {
+            copy = original.getClass().getConstructor(Rule[].class).newInstance((Object) copiedChildren);
+        }
+        catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException ex)
+        {
+            throw new MisconfigurationException("Failed to copy adaptive rule " + original.getClass().getName(), ex);
+        }
+        copy.setErrorMessage(original.getErrorMessage());
+        copy.setAdaptive(original.isAdaptive());
+        return copy;
+    }
+
+    private static boolean containsAdaptive(Rule rule)
+    {
+        if (!(rule instanceof CombinedRule))
+        {
+            return false;
+        }
+
+        CombinedRule combined = (CombinedRule) rule;
+        if (combined.isAdaptive())
+        {
+            return true;
+        }
+        List<Rule> children = combined.getRules();
+        for (int i = 0;i < children.size();i++)
+        {
+            if (containsAdaptive(children.get(i)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects what a configurator adds in document order, without the checks of {@link Validator}; those are done
+     * by the validators eventually configured.
+     */
+    private static final class Recorder extends Validator
+    {
+        private final List<Flag> flags = new ArrayList<>();
+        private final List<Option> options = new ArrayList<>();
+        private final List<Argument> arguments = new ArrayList<>();
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Recorder(Environment env)
+        {
+            super(env);
+        }
+
+        @Override
+        public synchronized void add(Flag f)
+        {
+            flags.add(f);
+        }
+
+        @Override
+        public synchronized void add(Option o)
+        {
+            options.add(o);
+        }
+
+        @Override
+        public synchronized void add(Argument arg)
+        {
+            arguments.add(arg);
+        }
+
+        @Override
+        public synchronized void add(Rule r)
+        {
+            rules.add(r);
+        }
+    }
+}
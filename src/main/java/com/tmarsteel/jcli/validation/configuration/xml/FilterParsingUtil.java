@@ -11,6 +11,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Utility methods used to parse the XML configurations of filters provided by the library
@@ -96,6 +97,7 @@ abstract class FilterParsingUtil
             throws ParseException
     {
         FileFilter filter = new FileFilter();
+        filter.setAttributesCache(context.getFileAttributesCache());
 
         NodeList children = filterNode.getChildNodes();
         for (int i = 0;i < children.getLength();i++)
@@ -193,9 +195,136 @@ abstract class FilterParsingUtil
 
         RegexFilter filter = new RegexFilter(pattern);
         filter.setReturnGroup(returnGroup);
+
+        try
+        {
+            filter.setEngine(parseRegexEngine(attrs));
+        }
+        catch (PatternSyntaxException ex)
+        {
+            throw new MisconfigurationException(ex.getMessage(), ex);
+        }
+
+        node = attrs.getNamedItem("maxLength");
+        if (node != null)
+        {
+            filter.setMaxLength(parseNonNegativeInt(node));
+        }
+
+        node = attrs.getNamedItem("maxSteps");
+        if (node != null)
+        {
+            filter.setMaxSteps(parsePositiveLong(node));
+        }
+
         return filter;
     }
 
+    public static MetaRegexFilter parseMetaRegexFilter(XMLValidatorConfigurator context, Node filterNode)
+        throws MisconfigurationException
+    {
+        NamedNodeMap attrs = filterNode.getAttributes();
+        MetaRegexFilter filter = new MetaRegexFilter(parseRegexEngine(attrs));
+
+        Node node = attrs == null? null : attrs.getNamedItem("maxLength");
+        if (node != null)
+        {
+            filter.setMaxLength(parseNonNegativeInt(node));
+        }
+
+        return filter;
+    }
+
+    private static RegexEngine parseRegexEngine(NamedNodeMap attrs)
+        throws MisconfigurationException
+    {
+        Node node = attrs == null? null : attrs.getNamedItem("engine");
+        if (node == null)
+        {
+            return RegexEngine.BACKTRACKING;
+        }
+
+        switch (node.getTextContent())
+        {
+            case "backtracking":
+                return RegexEngine.BACKTRACKING;
+            case "linear":
+                return RegexEngine.LINEAR;
+            default:
+                throw new MisconfigurationException("Illegal value for attribute engine: " + node.getTextContent());
+        }
+    }
+
+    private static int parseNonNegativeInt(Node attribute)
+        throws MisconfigurationException
+    {
+        try
+        {
+            int value = Integer.parseInt(attribute.getTextContent());
+            if (value >= 0)
+            {
+                return value;
+            }
+        }
+        catch (NumberFormatException ex)
+        {
+            // handled below
+        }
+        throw new MisconfigurationException("Value of " + attribute.getNodeName() + " attribute needs to be a non-negative integer");
+    }
+
+    private static long parsePositiveLong(Node attribute)
+        throws MisconfigurationException
+    {
+        try
+        {
+            long value = Long.parseLong(attribute.getTextContent());
+            if (value > 0)
+            {
+                return value;
+            }
+        }
+        catch (NumberFormatException ex)
+        {
+            // handled below
+        }
+        throw new MisconfigurationException("Value of " + attribute.getNodeName() + " attribute needs to be a positive integer");
+    }
+
+    public static RegexSetFilter parseRegexSetFilter(XMLValidatorConfigurator context, Node filterNode)
+        throws ParseException, MisconfigurationException
+    {
+        List<String> regexes = new ArrayList<>();
+        NodeList children = filterNode.getChildNodes();
+        for (int i = 0;i < children.getLength();i++)
+        {
+            Node cNode = children.item(i);
+            if (cNode.getNodeName().equals("regex"))
+            {
+                regexes.add(cNode.getTextContent());
+            }
+            else if (!cNode.getNodeName().equals("#text"))
+            {
+                throw new ParseException("Unknown tag " + cNode.getNodeName() + " in regex-set filter.");
+            }
+        }
+
+        if (regexes.isEmpty())
+        {
+            throw new MisconfigurationException("No regex specified for regex-set filter");
+        }
+
+        try
+        {
+            return new RegexSetFilter(regexes);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // includes PatternSyntaxException
+            throw new MisconfigurationException(ex.getMessage(), ex);
+        }
+    }
+
     public static SetFilter parseSetFilter(XMLValidatorConfigurator context, Node filterNode)
         throws ParseException, MisconfigurationException
     {
@@ -241,4 +370,84 @@ abstract class FilterParsingUtil
 
         return filter;
     }
+
+    @SuppressWarnings("unchecked")
+    public static EnumFilter<?> parseEnumFilter(XMLValidatorConfigurator context, Node filterNode)
+        throws ParseException, MisconfigurationException
+    {
+        NamedNodeMap attrs = filterNode.getAttributes();
+        Node cNode = attrs == null? null : attrs.getNamedItem("class");
+
+        if (cNode == null)
+        {
+            throw new MisconfigurationException("No class specified for enum filter");
+        }
+
+        final Class<?> enumType;
+        try
+        {
+            enumType = Class.forName(cNode.getTextContent().trim());
+        }
+        catch (ClassNotFoundException ex)
+        {
+            throw new MisconfigurationException("Unknown enum class " + cNode.getTextContent(), ex);
+        }
+
+        if (!enumType.isEnum())
+        {
+            throw new MisconfigurationException(enumType.getName() + " is not an enum type");
+        }
+
+        cNode = attrs.getNamedItem("caseSensitive");
+        boolean caseSensitive = cNode != null && !cNode.getTextContent().equals("false");
+
+        try
+        {
+            return createEnumFilter((Class) enumType, caseSensitive, filterNode);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new MisconfigurationException(ex.getMessage(), ex);
+        }
+    }
+
+    private static <E extends Enum<E>> EnumFilter<E> createEnumFilter(Class<E> enumType, boolean caseSensitive,
+                                                                      Node filterNode)
+        throws ParseException, MisconfigurationException
+    {
+        EnumFilter<E> filter = new EnumFilter<>(enumType, caseSensitive);
+
+        NodeList children = filterNode.getChildNodes();
+        for (int i = 0;i < children.getLength();i++)
+        {
+            Node cNode = children.item(i);
+            if (cNode.getNodeName().equals("alias"))
+            {
+                Node constantNode = cNode.getAttributes().getNamedItem("constant");
+                if (constantNode == null)
+                {
+                    throw new MisconfigurationException("No constant specified for alias " + cNode.getTextContent());
+                }
+
+                final E constant;
+                try
+                {
+                    constant = Enum.valueOf(enumType, constantNode.getTextContent());
+                }
+                catch (IllegalArgumentException ex)
+                {
+                    throw new MisconfigurationException("Unknown constant " + constantNode.getTextContent()
+                        + " of enum " + enumType.getName());
+                }
+
+                filter.addAlias(constant, cNode.getTextContent());
+            }
+            else if (!cNode.getNodeName().equals("#text"))
+            {
+                throw new ParseException("Unknown tag " + cNode.getNodeName() + " in enum filter.");
+            }
+        }
+
+        return filter;
+    }
 }
@@ -119,6 +119,23 @@ public class RuleParsingUtil
                 }
 
                 rule.setErrorMessage(errorMessage);
+
+                Node adaptiveAttr = ruleNode.getAttributes().getNamedItem("adaptive");
+                if (adaptiveAttr != null)
+                {
+                    switch (adaptiveAttr.getTextContent())
+                    {
+                        case "true":
+                            rule.setAdaptive(true);
+                            break;
+                        case "false":
+                            rule.setAdaptive(false);
+                            break;
+                        default:
+                            throw new MisconfigurationException("Illegal value for attribute adaptive");
+                    }
+                }
+
                 return rule;
             };
         }
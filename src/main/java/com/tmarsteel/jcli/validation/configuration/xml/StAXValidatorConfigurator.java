@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.xml;
+
+import com.tmarsteel.jcli.Environment;
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.Validator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the same XML configuration as {@link XMLValidatorConfigurator} in a single forward pass with an
+ * {@link XMLStreamReader} instead of building a {@link Document} for all of it. Every flag, option, argument and rule
+ * is applied to the {@link Validator} as soon as its element has been read; only the element being read is held in
+ * memory, so the registered {@link FilterParser}s and {@link RuleParser}s work unchanged.
+ * <br>
+ * The configuration is read anew on every call to {@link #configure(Validator)}; a configurator reading from an
+ * {@link InputStream} can configure only once.
+ * @author Tobias Marstaller
+ */
+public class StAXValidatorConfigurator extends XMLValidatorConfigurator
+{
+    private final File configFile;
+    private InputStream configInputStream;
+
+    /**
+     * @param configFile The file to read xml from.
+     */
+    public StAXValidatorConfigurator(File configFile)
+    {
+        this(configFile, null);
+    }
+
+    /**
+     * @param configFile The file to read xml from.
+     * @param env The environment configuration to pass on to the created parsers.
+     */
+    public StAXValidatorConfigurator(File configFile, Environment env)
+    {
+        super(env);
+        this.configFile = configFile;
+    }
+
+    /**
+     * @param configInputStream A stream to read xml from on the first call to {@link #configure(Validator)}, which
+     *                          closes it.
+     * @param env The environment configuration to pass on to the created parsers.
+     */
+    public StAXValidatorConfigurator(InputStream configInputStream, Environment env)
+    {
+        super(env);
+        this.configFile = null;
+        this.configInputStream = configInputStream;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException If this configurator reads from an {@link InputStream} that has been read already.
+     */
+    @Override
+    public void configure(Validator p)
+        throws MisconfigurationException
+    {
+        InputStream in;
+        try
+        {
+            if (configFile != null)
+            {
+                in = new FileInputStream(configFile);
+            }
+            else
+            {
+                synchronized (this)
+                {
+                    in = configInputStream;
+                    configInputStream = null;
+                }
+                if (in == null)
+                {
+                    throw new IllegalStateException("The configuration has been read from the stream already");
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new MisconfigurationException("Failed to read configuration from " + configFile, ex);
+        }
+
+        try (InputStream _in = in)
+        {
+            configure(p, _in);
+        }
+        catch (IOException | XMLStreamException ex)
+        {
+            throw new MisconfigurationException("Failed to read configuration: " + ex.getMessage(), ex);
+        }
+
+        p.setEnvironment(getEnvironment());
+    }
+
+    private void configure(Validator p, InputStream in)
+        throws XMLStreamException, MisconfigurationException
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try
+        {
+            reader.nextTag();
+            if (!nodeName(reader).equals("cli"))
+            {
+                throw new MisconfigurationException("Root node must be named cli.");
+            }
+
+            // the elements are built in this document but never added to it
+            Document owner = newDocument();
+            int event;
+            while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT)
+            {
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    configureFrom(p, readElement(reader, owner));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the element the given reader is positioned at, including its children. Leaves the reader at its end.
+     */
+    private static Element readElement(XMLStreamReader reader, Document owner)
+        throws XMLStreamException
+    {
+        Element root = createElement(reader, owner);
+        Element current = root;
+        int depth = 1;
+        while (depth > 0)
+        {
+            switch (reader.next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    Element child = createElement(reader, owner);
+                    current.appendChild(child);
+                    current = child;
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    if (depth > 0)
+                    {
+                        current = (Element) current.getParentNode();
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    current.appendChild(owner.createTextNode(reader.getText()));
+                    break;
+            }
+        }
+        return root;
+    }
+
+    private static Element createElement(XMLStreamReader reader, Document owner)
+    {
+        Element element = owner.createElement(nodeName(reader));
+        for (int i = 0;i < reader.getAttributeCount();i++)
+        {
+            String prefix = reader.getAttributePrefix(i);
+            String name = reader.getAttributeLocalName(i);
+            element.setAttribute(prefix == null || prefix.isEmpty()? name : prefix + ":" + name, reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    /**
+     * Returns the name of the current element like {@link Node#getNodeName()} does.
+     */
+    private static String nodeName(XMLStreamReader reader)
+    {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty()? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
+
+    private static Document newDocument()
+    {
+        try
+        {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        }
+        catch (ParserConfigurationException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+}
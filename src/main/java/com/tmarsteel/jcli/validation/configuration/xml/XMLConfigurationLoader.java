@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.xml;
+
+import com.tmarsteel.jcli.Environment;
+import com.tmarsteel.jcli.validation.Validator;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Loads the XML configurations of many validators at once, e.g. those of all subcommands of a tool at startup. The
+ * files are parsed and applied in parallel on an executor; all of them share one {@link DocumentBuilderFactory}.
+ * Errors are collected per file: a broken configuration does not keep the others from being loaded.
+ * @author Tobias Marstaller
+ */
+public class XMLConfigurationLoader
+{
+    private final Environment environment;
+    private final Executor executor;
+    private final DocumentBuilderFactory documentBuilderFactory = XMLValidatorConfigurator.newDocumentBuilderFactory();
+
+    /**
+     * {@link DocumentBuilder}s are not thread-safe; every thread of the executor reuses its own.
+     */
+    private final ThreadLocal<DocumentBuilder> documentBuilder = ThreadLocal.withInitial(this::newDocumentBuilder);
+
+    private Consumer<? super XMLValidatorConfigurator> customizer = null;
+
+    /**
+     * Creates a loader for the systems default environment that loads on {@link ForkJoinPool#commonPool()}.
+     */
+    public XMLConfigurationLoader()
+    {
+        this(null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param env The environment configuration to pass on to the loaded validators; null for the systems default.
+     * @param executor The executor to load the files on. It should be bounded.
+     */
+    public XMLConfigurationLoader(Environment env, Executor executor)
+    {
+        this.environment = env == null? Environment.getEnvironment() : env;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Sets an action to apply to the configurator of every file before it configures its validator, e.g. to
+     * register custom filter or rule types (see {@link XMLValidatorConfigurator#setFilterType(String, FilterParser)}).
+     * It is called concurrently for different files. Set to null to use the configurators as they are.
+     */
+    public void setCustomizer(Consumer<? super XMLValidatorConfigurator> customizer)
+    {
+        this.customizer = customizer;
+    }
+
+    /**
+     * Loads the given files, keyed by their names without the extension, e.g. {@code commit} for
+     * {@code commit.xml}.
+     * @throws IllegalArgumentException If two of the files have the same name, e.g. {@code a/commit.xml} and
+     *                                  {@code b/commit.xml}.
+     * @see #load(Map)
+     */
+    public Result load(Collection<File> files)
+    {
+        Map<String, File> named = new LinkedHashMap<>();
+        for (File file : files)
+        {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            String key = dot > 0? name.substring(0, dot) : name;
+            File previous = named.put(key, file);
+            if (previous != null)
+            {
+                throw new IllegalArgumentException("Both " + previous + " and " + file + " would be loaded as " + key);
+            }
+        }
+        return load(named);
+    }
+
+    /**
+     * Loads the given files in parallel and waits until all of them are loaded.
+     * @param files The files to load, keyed by the names to report their validators or errors under.
+     */
+    public Result load(Map<String, File> files)
+    {
+        Map<String, CompletableFuture<Validator>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, File> entry : files.entrySet())
+        {
+            File file = entry.getValue();
+            futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> load(file), executor));
+        }
+
+        Result result = new Result();
+        for (Map.Entry<String, CompletableFuture<Validator>> entry : futures.entrySet())
+        {
+            try
+            {
+                result.validators.put(entry.getKey(), entry.getValue().join());
+            }
+            catch (RuntimeException ex)
+            {
+                Throwable cause = ex.getCause() != null? ex.getCause() : ex;
+                if (cause instanceof LoadingException)
+                {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error) cause;
+                }
+                result.errors.put(entry.getKey(), (Exception) cause);
+            }
+        }
+        return result;
+    }
+
+    private Validator load(File file)
+    {
+        DocumentBuilder builder = documentBuilder.get();
+        final Document document;
+        try
+        {
+            document = builder.parse(file);
+        }
+        catch (SAXException | IOException ex)
+        {
+            throw new LoadingException(ex);
+        }
+        finally
+        {
+            builder.reset();
+        }
+
+        XMLValidatorConfigurator configurator = new XMLValidatorConfigurator(document, environment);
+        if (customizer != null)
+        {
+            customizer.accept(configurator);
+        }
+
+        Validator validator = new Validator(environment);
+        configurator.configure(validator);
+        return validator;
+    }
+
+    private DocumentBuilder newDocumentBuilder()
+    {
+        // factories are not guaranteed to be thread-safe
+        synchronized (documentBuilderFactory)
+        {
+            try
+            {
+                return documentBuilderFactory.newDocumentBuilder();
+            }
+            catch (ParserConfigurationException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Carries checked exceptions out of the loading tasks.
+     */
+    private static final class LoadingException extends RuntimeException
+    {
+        LoadingException(Exception cause)
+        {
+            super(cause);
+        }
+    }
+
+    /**
+     * The outcome of {@link #load(Map)}: the validators of the files that were loaded and the errors of the others,
+     * both keyed by name in the order the files were given.
+     */
+    public static final class Result
+    {
+        private final Map<String, Validator> validators = new LinkedHashMap<>();
+        private final Map<String, Exception> errors = new LinkedHashMap<>();
+
+        private Result() {}
+
+        /**
+         * Returns the validators configured from the files that could be loaded.
+         */
+        public Map<String, Validator> getValidators()
+        {
+            return Collections.unmodifiableMap(validators);
+        }
+
+        /**
+         * Returns why the other files could not be loaded: an {@link IOException} if a file could not be read, a
+         * {@link SAXException} if it is not well-formed XML or a
+         * {@link com.tmarsteel.jcli.validation.MisconfigurationException} if its configuration is invalid.
+         */
+        public Map<String, Exception> getErrors()
+        {
+            return Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * Returns whether all files were loaded.
+         */
+        public boolean isSuccessful()
+        {
+            return errors.isEmpty();
+        }
+    }
+}
@@ -18,7 +18,11 @@
 package com.tmarsteel.jcli.validation.configuration.xml;
 
 import com.tmarsteel.jcli.*;
+import com.tmarsteel.jcli.filter.CachingFilter;
+import com.tmarsteel.jcli.filter.FileAttributesCache;
+import com.tmarsteel.jcli.filter.FileFilter;
 import com.tmarsteel.jcli.filter.Filter;
+import com.tmarsteel.jcli.filter.FilterPipeline;
 import com.tmarsteel.jcli.filter.MetaRegexFilter;
 import com.tmarsteel.jcli.filter.PathFilter;
 import com.tmarsteel.jcli.rule.*;
@@ -50,6 +54,8 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
     private Document baseDocument;
     private Environment environment;
     
+    private FileAttributesCache fileAttributesCache = null;
+    
     private final Map<String,FilterParser<? extends Filter>> filterParsers = new HashMap<>();
     private final Map<String,RuleParser<? extends Rule>>     ruleParsers   = new HashMap<>();
     
@@ -84,14 +90,9 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
         Environment env)
         throws SAXException, IOException
     {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setValidating(false);
-        dbf.setIgnoringComments(true);
-        dbf.setIgnoringElementContentWhitespace(true);
-        
         try
         {
-            DocumentBuilder builder = dbf.newDocumentBuilder();
+            DocumentBuilder builder = newDocumentBuilderFactory().newDocumentBuilder();
             return new XMLValidatorConfigurator(builder.parse(configInputStream), env);
         }
         catch (ParserConfigurationException ex)
@@ -100,6 +101,18 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
         }
     }
     
+    /**
+     * Returns a new factory for the document builders that read configuration documents.
+     */
+    static DocumentBuilderFactory newDocumentBuilderFactory()
+    {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setValidating(false);
+        dbf.setIgnoringComments(true);
+        dbf.setIgnoringElementContentWhitespace(true);
+        return dbf;
+    }
+    
     /**
      * Parses the file <code>configFile</code> as XML and creates a  new 
      * ParserBuilder based on the resulting {@link Document}. This method does
@@ -153,13 +166,23 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
      * @param env The environment configuration to pass on to the created parsers.
      */
     public XMLValidatorConfigurator(Document xmlDocument, Environment env)
+    {
+        this(env);
+        this.baseDocument = xmlDocument;
+    }
+
+    /**
+     * Creates a new ParserBuilder without a document, for subclasses that read the configuration directives
+     * themselves (see {@link #configureFrom(Validator, Node)}).
+     * @param env The environment configuration to pass on to the created parsers.
+     */
+    protected XMLValidatorConfigurator(Environment env)
     {
         if (env == null)
         {
             env = Environment.getEnvironment();
         }
-        
-        this.baseDocument = xmlDocument;
+
         this.environment = env;
         
         // default filter and rule types
@@ -168,10 +191,12 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
         filterParsers.put("decimal",     FilterParsingUtil::parseDecimalFilter);
         filterParsers.put("integer",     FilterParsingUtil::parseIntegerFilter);
         filterParsers.put("regex",       FilterParsingUtil::parseRegexFilter);
+        filterParsers.put("regex-set",   FilterParsingUtil::parseRegexSetFilter);
         filterParsers.put("set",         FilterParsingUtil::parseSetFilter);
+        filterParsers.put("enum",        FilterParsingUtil::parseEnumFilter);
         filterParsers.put("file",        FilterParsingUtil::parseFileFilter);
         filterParsers.put("path",        (context, node) -> new PathFilter(FilterParsingUtil.parseFileFilter(context, node)));
-        filterParsers.put("pattern",     (context, node) -> new MetaRegexFilter());
+        filterParsers.put("pattern",     FilterParsingUtil::parseMetaRegexFilter);
         
         ruleParsers.put("and",        RuleParsingUtil.combinedRuleParser(AndRule.class));
         ruleParsers.put("or",         RuleParsingUtil.combinedRuleParser(OrRule.class));
@@ -212,6 +237,25 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
         this.ruleParsers.put(type, parser);
     }
     
+    /**
+     * Returns the cache that file and path filters created by this configurator look up file attributes in; null if
+     * they always query the file system.
+     */
+    public FileAttributesCache getFileAttributesCache()
+    {
+        return fileAttributesCache;
+    }
+
+    /**
+     * Sets the cache that file and path filters created by subsequent calls to {@link #configure(Validator)} look up
+     * file attributes in (see {@link FileFilter#setAttributesCache(FileAttributesCache)}). Set to null to have them
+     * always query the file system.
+     */
+    public void setFileAttributesCache(FileAttributesCache fileAttributesCache)
+    {
+        this.fileAttributesCache = fileAttributesCache;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -229,26 +273,58 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
         NodeList topNodes = rootNode.getChildNodes();
         for (int i = 0;i < topNodes.getLength();i++)
         {
-            Node node = topNodes.item(i);
-            switch (node.getNodeName())
-            {
-                case "flag":
-                    p.add(parseFlag(node));
-                    break;
-                case "option":
-                    p.add(parseOption(node));
-                    break;
-                case "argument":
-                    p.add(parseArgument(node));
-                    break;
-                case "rule":
-                    p.add(parseRule(node));
-                    break;
-            }
+            configureFrom(p, topNodes.item(i));
         }
         
         p.setEnvironment(environment);
     }
+
+    /**
+     * Parses the configuration once into a {@link CompiledXMLConfiguration} that configures any number of validators
+     * with the same, shared flag, option, argument, filter and rule instances. Changes to this configurator made
+     * afterwards do not affect the returned object.
+     * @throws MisconfigurationException If the configuration is invalid.
+     */
+    public CompiledXMLConfiguration compile()
+        throws MisconfigurationException
+    {
+        return CompiledXMLConfiguration.compile(this);
+    }
+
+    /**
+     * Returns the environment configuration passed on to the configured parsers.
+     */
+    public Environment getEnvironment()
+    {
+        return environment;
+    }
+
+    /**
+     * Applies the directive in the given child node of the &lt;cli&gt; root node to the given {@link Validator}.
+     * Nodes that are no directives are ignored.
+     * @param p The parser to configure
+     * @param node A child node of the root node.
+     * @throws MisconfigurationException If the directive is invalid.
+     */
+    protected void configureFrom(Validator p, Node node)
+        throws MisconfigurationException
+    {
+        switch (node.getNodeName())
+        {
+            case "flag":
+                p.add(parseFlag(node));
+                break;
+            case "option":
+                p.add(parseOption(node));
+                break;
+            case "argument":
+                p.add(parseArgument(node));
+                break;
+            case "rule":
+                p.add(parseRule(node));
+                break;
+        }
+    }
     
     private Flag parseFlag(Node flagNode)
         throws MisconfigurationException
@@ -340,6 +416,9 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
                 case "filter":
                     filter = parseFilter(node);
                     break;
+                case "pipeline":
+                    filter = parsePipeline(node);
+                    break;
                 case "default":
                     defValue = node.getTextContent();
                     break;
@@ -436,6 +515,26 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
             }
         }
 
+        final boolean streaming;
+        node = attrs.getNamedItem("streaming");
+        if (node == null)
+        {
+            streaming = false;
+        }
+        else
+        {
+            switch (node.getTextContent()) {
+                case "true":
+                    streaming = true;
+                    break;
+                case "false":
+                    streaming = false;
+                    break;
+                default:
+                    throw new MisconfigurationException("Illegal value for attribute streaming");
+            }
+        }
+
         // filters, description
         Filter filter = null;
         String defValue = null;
@@ -451,6 +550,9 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
                     case "filter":
                         filter = parseFilter(node);
                         break;
+                    case "pipeline":
+                        filter = parsePipeline(node);
+                        break;
                     case "default":
                         defValue = node.getTextContent();
                         break;
@@ -467,6 +569,7 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
         arg.setRequired(required);
         arg.setDescription(description);
         arg.setVariadic(variadic);
+        arg.setStreaming(streaming);
         return arg;
     }
 
@@ -508,9 +611,10 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
             throw new MisconfigurationException("Unknown filter type " + filterType);
         }
 
+        Filter filter;
         try
         {
-            return Objects.requireNonNull(filterParser.parse(this, filterNode), "Filter parser returned null");
+            filter = Objects.requireNonNull(filterParser.parse(this, filterNode), "Filter parser returned null");
         }
         catch(ParseException ex) {
             throw new MisconfigurationException(
@@ -518,6 +622,105 @@ public class XMLValidatorConfigurator implements ValidatorConfigurator
                 ex
             );
         }
+
+        // optionally remember the results of the filter
+        node = attrs.getNamedItem("cache");
+        if (node != null)
+        {
+            final int cacheSize;
+            try
+            {
+                cacheSize = Integer.parseInt(node.getTextContent());
+            }
+            catch (NumberFormatException ex)
+            {
+                throw new MisconfigurationException("Invalid cache size for filter (" +
+                    node.getTextContent() + ")", ex);
+            }
+            if (cacheSize < 1)
+            {
+                throw new MisconfigurationException("Cache size for filter must be positive");
+            }
+            if (filter instanceof FileFilter || filter instanceof PathFilter)
+            {
+                // their outcome depends on the file system and the working directory of the invocation
+                throw new MisconfigurationException("Filters of type " + filterType + " cannot be cached");
+            }
+
+            filter = new CachingFilter(filter, cacheSize);
+        }
+
+        return filter;
+    }
+    
+    /**
+     * Parses a &lt;pipeline&gt; of &lt;trim/&gt;, &lt;lowercase/&gt; and &lt;uppercase/&gt; transformations
+     * followed by &lt;filter&gt;s and &lt;map&gt;s of &lt;entry key="..."&gt; elements.
+     */
+    private Filter parsePipeline(Node pipelineNode)
+        throws MisconfigurationException
+    {
+        FilterPipeline pipeline = new FilterPipeline();
+        NodeList children = pipelineNode.getChildNodes();
+        try
+        {
+            for (int i = 0;i < children.getLength();i++)
+            {
+                Node node = children.item(i);
+                switch (node.getNodeName())
+                {
+                    case "#text": break;
+                    case "trim":
+                        pipeline = pipeline.trim();
+                        break;
+                    case "lowercase":
+                        pipeline = pipeline.toLowerCase();
+                        break;
+                    case "uppercase":
+                        pipeline = pipeline.toUpperCase();
+                        break;
+                    case "filter":
+                        pipeline = pipeline.andThen(parseFilter(node));
+                        break;
+                    case "map":
+                        pipeline = pipeline.map(FilterPipeline.lookup(parseMapping(node)));
+                        break;
+                    default:
+                        throw new MisconfigurationException("Unknown tag " + node.getNodeName() + " in pipeline");
+                }
+            }
+        }
+        catch (IllegalStateException ex)
+        {
+            throw new MisconfigurationException(ex.getMessage(), ex);
+        }
+
+        return pipeline;
+    }
+
+    private static Map<String,String> parseMapping(Node mapNode)
+        throws MisconfigurationException
+    {
+        Map<String,String> mapping = new HashMap<>();
+        NodeList children = mapNode.getChildNodes();
+        for (int i = 0;i < children.getLength();i++)
+        {
+            Node node = children.item(i);
+            if (node.getNodeName().equals("entry"))
+            {
+                Node key = node.getAttributes().getNamedItem("key");
+                if (key == null)
+                {
+                    throw new MisconfigurationException("No key specified for map entry " + node.getTextContent());
+                }
+                mapping.put(key.getTextContent(), node.getTextContent());
+            }
+            else if (!node.getNodeName().equals("#text"))
+            {
+                throw new MisconfigurationException("Unknown tag " + node.getNodeName() + " in map");
+            }
+        }
+        return mapping;
     }
     
     private Rule parseRule(Node ruleNode)
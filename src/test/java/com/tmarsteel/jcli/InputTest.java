@@ -18,10 +18,17 @@
 package com.tmarsteel.jcli;
 
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import static org.junit.Assert.*;
 
 /**
@@ -30,6 +37,9 @@ import static org.junit.Assert.*;
 public class InputTest {
    
     private Environment env;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
     
     public InputTest()
     {
@@ -157,4 +167,57 @@ public class InputTest {
         assertEquals("-argument2", i.getArgument(1));
         assertEquals("argument3", i.getArgument(2));
     }
+
+    @Test
+    public void testResponseFileExpansion()
+        throws ParseException, IOException
+    {
+        File inner = tmp.newFile("inner.txt");
+        Files.write(inner.toPath(), "argument2\r\n\"argument 3\"".getBytes(StandardCharsets.UTF_8));
+        File outer = tmp.newFile("outer.txt");
+        Files.write(outer.toPath(), ("-flag1\n--option1 \"value 1\"\n--option2 \\\"ü\n"
+            + "argument1 @" + inner.getAbsolutePath()).getBytes(StandardCharsets.UTF_8));
+
+        env.setResponseFileMarker("@");
+        Input i = new Input();
+        i.add(env, new String[] {"@" + outer.getAbsolutePath(), "@@argument4"});
+
+        assertTrue(i.flags().contains("flag1"));
+        assertEquals("value 1", i.options().get("option1").get(0));
+        assertEquals("\"ü", i.options().get("option2").get(0));
+        assertEquals("argument1", i.getArgument(0));
+        assertEquals("argument2", i.getArgument(1));
+        assertEquals("argument 3", i.getArgument(2));
+        assertEquals("@argument4", i.getArgument(3));
+    }
+
+    @Test
+    public void testResponseFilesDisabledByDefault()
+        throws ParseException
+    {
+        Input i = new Input();
+        i.add(env, new String[] {"@doesnotexist"});
+
+        assertEquals("@doesnotexist", i.getArgument(0));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testResponseFileDepthLimit()
+        throws ParseException, IOException
+    {
+        File file = tmp.newFile("recursive.txt");
+        Files.write(file.toPath(), ("@" + file.getAbsolutePath()).getBytes(StandardCharsets.UTF_8));
+
+        env.setResponseFileMarker("@");
+        env.setMaxResponseFileDepth(3);
+        new Input().add(env, "@" + file.getAbsolutePath());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testMissingResponseFile()
+        throws ParseException
+    {
+        env.setResponseFileMarker("@");
+        new Input().add(env, new String[] {"@" + new File(tmp.getRoot(), "missing.txt").getAbsolutePath()});
+    }
 }
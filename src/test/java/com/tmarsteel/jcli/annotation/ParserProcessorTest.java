@@ -0,0 +1,164 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.annotation;
+
+import com.tmarsteel.jcli.ParseException;
+import com.tmarsteel.jcli.validation.ValidationException;
+import com.tmarsteel.jcli.validation.Validator;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parser generated by {@link com.tmarsteel.jcli.annotation.processing.ParserProcessor} for
+ * {@link Settings} when compiling the tests.
+ * @author Tobias Marstaller
+ */
+public class ParserProcessorTest
+{
+    static class Settings
+    {
+        @CLIFlag({ "verbose", "v" })
+        boolean verbose;
+
+        @CLIOption({ "level", "l" })
+        @Range(min = 0, max = 10)
+        int level = 3;
+
+        @CLIOption(value = "mode", required = true)
+        @OneOf({ "fast", "safe" })
+        String mode;
+
+        @CLIOption("unit")
+        TimeUnit unit;
+
+        @CLIOption("tag")
+        @Matches("[a-z]+")
+        List<String> tags;
+
+        @CLIOption("ratio")
+        @DecimalRange(min = 0, max = 1)
+        Double ratio;
+
+        @CLIOption("limit")
+        @Range(min = 0)
+        BigInteger limit;
+
+        @CLIOption("budget")
+        @DecimalRange(min = 0)
+        BigDecimal budget;
+
+        @CLIArgument(index = 0)
+        BigInteger count;
+
+        @CLIArgument(index = 1, name = "files", required = false)
+        List<String> files;
+    }
+
+    @Test
+    public void testParse()
+        throws ParseException, ValidationException
+    {
+        Settings settings = ParserProcessorTest_SettingsParser.parse(new String[]{
+            "-v", "--level", "7", "--mode", "SAFE", "--unit", "seconds", "--tag", "a", "--tag", "b",
+            "--ratio", "0.5", "123456789012345678901234567890", "x", "y"
+        });
+
+        assertTrue(settings.verbose);
+        assertEquals(7, settings.level);
+        assertEquals("safe", settings.mode);
+        assertEquals(TimeUnit.SECONDS, settings.unit);
+        assertEquals(Arrays.asList("a", "b"), settings.tags);
+        assertEquals(0.5, settings.ratio, 0);
+        assertEquals(new BigInteger("123456789012345678901234567890"), settings.count);
+        assertEquals(Arrays.asList("x", "y"), settings.files);
+    }
+
+    @Test
+    public void testFieldsKeepValuesOfMissingInput()
+        throws ParseException, ValidationException
+    {
+        Settings settings = ParserProcessorTest_SettingsParser.parse(new String[]{ "--mode", "fast", "1" });
+
+        assertFalse(settings.verbose);
+        assertEquals(3, settings.level);
+        assertNull(settings.unit);
+        assertNull(settings.tags);
+        assertNull(settings.files);
+    }
+
+    @Test
+    public void testBindToExistingInstance()
+        throws ParseException, ValidationException
+    {
+        Validator validator = ParserProcessorTest_SettingsParser.newValidator();
+        Settings settings = new Settings();
+        settings.ratio = 0.25;
+
+        ParserProcessorTest_SettingsParser.bind(validator.parse(new String[]{ "--mode", "fast", "1" }), settings);
+
+        assertEquals(0.25, settings.ratio, 0);
+        assertEquals(BigInteger.ONE, settings.count);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testRangeIsEnforced()
+        throws ParseException, ValidationException
+    {
+        ParserProcessorTest_SettingsParser.parse(new String[]{ "--mode", "fast", "--level", "11", "1" });
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testRequiredOption()
+        throws ParseException, ValidationException
+    {
+        ParserProcessorTest_SettingsParser.parse(new String[]{ "1" });
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testPatternIsEnforced()
+        throws ParseException, ValidationException
+    {
+        ParserProcessorTest_SettingsParser.parse(new String[]{ "--mode", "fast", "--tag", "A1", "1" });
+    }
+
+    @Test
+    public void testDefaultBoundsDoNotLimitArbitraryPrecisionValues()
+        throws ParseException, ValidationException
+    {
+        Settings settings = ParserProcessorTest_SettingsParser.parse(new String[]{
+            "--mode", "fast", "--limit", "123456789012345678901234567890", "--budget", "1e400", "1"
+        });
+
+        assertEquals(new BigInteger("123456789012345678901234567890"), settings.limit);
+        assertEquals(new BigDecimal("1e400"), settings.budget);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testExplicitBoundOfArbitraryPrecisionValueIsEnforced()
+        throws ParseException, ValidationException
+    {
+        ParserProcessorTest_SettingsParser.parse(new String[]{ "--mode", "fast", "--limit", "-1", "1" });
+    }
+}
@@ -0,0 +1,48 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandArgumentsTest
+{
+    private final CommandArguments subject = new CommandArguments(new String[]{"a", "b", "c"});
+
+    @Test
+    public void skipShouldCreateAView() {
+        CommandArguments view = subject.skip(1);
+
+        assertEquals(2, view.size());
+        assertEquals("b", view.get(0));
+        assertArrayEquals(new String[]{"c"}, view.skip(1).toArray());
+        assertTrue(view.skip(2).isEmpty());
+        assertSame(subject, subject.skip(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getShouldRejectIndicesOutsideTheView() {
+        subject.skip(2).get(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void skipShouldRejectTooManyArguments() {
+        subject.skip(4);
+    }
+}
@@ -18,10 +18,22 @@
 
 package com.tmarsteel.jcli.command;
 
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
 import com.tmarsteel.jcli.validation.ValidationException;
+import com.tmarsteel.jcli.validation.Validator;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -112,4 +124,263 @@ public class CommandDispatcherTest
             assertTrue("Invalid exception message, see issue #10", ex.getMessage().indexOf("topcommand subcommand") != -1);
         }
     }
+
+    @Test
+    public void lazyCommandShouldBeCreatedOnFirstDispatch() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        subject.add("lazy", () -> {
+            created.incrementAndGet();
+            return args -> args.length;
+        });
+        subject.alias("lazy", "l");
+
+        assertEquals(0, created.get());
+        assertEquals(2, subject.dispatch(new String[]{"lazy", "a", "b"}));
+        assertEquals(1, subject.dispatch(new String[]{"l", "a"}));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void lazyCommandShouldBeCreatedOnceWhenDispatchedConcurrently() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        subject.add("lazy", () -> {
+            created.incrementAndGet();
+            return args -> null;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Callable<Object> dispatch = () -> {
+                start.await();
+                return subject.dispatch(new String[]{"lazy"});
+            };
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0;i < futures.length;i++) {
+                futures[i] = executor.submit(dispatch);
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void lazyCommandShouldRetryFailedCreation() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<Command<Object>> supplier = () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("config not available");
+            }
+            return args -> "ok";
+        };
+        subject.add("lazy", supplier);
+
+        try {
+            subject.dispatch(new String[]{"lazy"});
+            fail("The failure of the supplier was not passed");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("config not available", ex.getMessage());
+        }
+        assertEquals("ok", subject.dispatch(new String[]{"lazy"}));
+    }
+
+    private void addGitLikeCommands() throws Exception {
+        subject.add("commit", args -> "commit");
+        subject.add("config", args -> "config");
+        subject.add("checkout", args -> "checkout");
+        subject.add("status", args -> "status");
+        subject.alias("checkout", "co");
+        subject.alias("status", "st");
+    }
+
+    @Test(expected = NoSuchCommandException.class)
+    public void dispatchShouldNotAcceptAbbreviationsByDefault() throws Exception {
+        addGitLikeCommands();
+
+        subject.dispatch(new String[]{"stat"});
+    }
+
+    @Test
+    public void dispatchShouldAcceptUniquePrefixes() throws Exception {
+        addGitLikeCommands();
+        subject.setAbbreviationsAllowed(true);
+
+        assertEquals("commit", subject.dispatch(new String[]{"comm"}));
+        assertEquals("config", subject.dispatch(new String[]{"conf"}));
+        assertEquals("status", subject.dispatch(new String[]{"s"}));
+        // exact names and aliases win over longer names they are a prefix of
+        assertEquals("checkout", subject.dispatch(new String[]{"co"}));
+    }
+
+    @Test
+    public void dispatchShouldRejectAmbiguousPrefixes() throws Exception {
+        addGitLikeCommands();
+        subject.setAbbreviationsAllowed(true);
+
+        try {
+            subject.dispatch(new String[]{"c"});
+            fail("AmbiguousCommandException was expected but not thrown");
+        }
+        catch (AmbiguousCommandException ex) {
+            assertEquals("c", ex.getName());
+            assertEquals(Arrays.asList("checkout", "co", "commit", "config"), ex.getCandidates());
+        }
+    }
+
+    @Test
+    public void emptyNameShouldNotBeTakenAsPrefix() throws Exception {
+        subject.add("status", args -> "status");
+        subject.setAbbreviationsAllowed(true);
+
+        try {
+            subject.dispatch(new String[]{""});
+            fail("NoSuchCommandException was expected but not thrown");
+        }
+        catch (NoSuchCommandException ex) {
+            assertFalse(ex instanceof AmbiguousCommandException);
+        }
+    }
+
+    @Test
+    public void prefixesOfAliasesOfTheSameCommandShouldNotBeAmbiguous() throws Exception {
+        subject.add("remove", args -> "remove");
+        subject.alias("remove", "rm");
+        subject.setAbbreviationsAllowed(true);
+
+        assertEquals("remove", subject.dispatch(new String[]{"r"}));
+    }
+
+    @Test
+    public void aliasShouldRequireExactName() throws Exception {
+        addGitLikeCommands();
+        subject.setAbbreviationsAllowed(true);
+
+        try {
+            subject.alias("stat", "s2");
+            fail("NoSuchCommandException was expected but not thrown");
+        }
+        catch (NoSuchCommandException ex) {
+            assertEquals(Collections.singletonList("status"), ex.getSuggestions());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addShouldRejectDuplicateNames() {
+        subject.add("test", args -> null);
+    }
+
+    @Test
+    public void shouldSuggestSimilarNames() throws Exception {
+        addGitLikeCommands();
+
+        assertEquals(Collections.singletonList("commit"), subject.getSuggestions("comit"));
+        assertEquals(Arrays.asList("checkout", "co", "commit", "config"), subject.getSuggestions("c"));
+        assertEquals(Collections.singletonList("status"), subject.getSuggestions("stauts"));
+        assertTrue(subject.getSuggestions("xyzzy").isEmpty());
+
+        try {
+            subject.dispatch(new String[]{"chekout"});
+            fail("NoSuchCommandException was expected but not thrown");
+        }
+        catch (NoSuchCommandException ex) {
+            assertEquals(Collections.singletonList("checkout"), ex.getSuggestions());
+            assertTrue(ex.getMessage().contains("did you mean checkout?"));
+            assertFalse(ex instanceof AmbiguousCommandException);
+        }
+    }
+
+    @Test
+    public void nestedDispatchShouldKeepSuggestions() throws Exception {
+        CommandDispatcher<Object> nested = new CommandDispatcher<>();
+        nested.add("list", args -> null);
+        subject.add("remote", nested);
+
+        try {
+            subject.dispatch(new String[]{"remote", "lst"});
+            fail("NoSuchCommandException was expected but not thrown");
+        }
+        catch (NoSuchCommandException ex) {
+            assertEquals("remote lst", ex.getName());
+            assertEquals(Collections.singletonList("list"), ex.getSuggestions());
+        }
+    }
+
+    @Test
+    public void nestedDispatchShouldPassArgumentViews() throws Exception {
+        CommandDispatcher<Object> remote = new CommandDispatcher<>();
+        CommandDispatcher<Object> branch = new CommandDispatcher<>();
+        ArgumentViewCommand<Object> leaf = args -> args;
+        branch.add("list", leaf);
+        remote.add("branch", branch);
+        subject.add("remote", remote);
+
+        CommandArguments received = (CommandArguments) subject.dispatch(new String[]{"remote", "branch", "list", "-a", "x"});
+
+        assertEquals(2, received.size());
+        assertEquals("-a", received.get(0));
+        assertEquals("x", received.get(1));
+        assertNull(received.getGlobalOptions());
+    }
+
+    @Test
+    public void nestedDispatchShouldPassCopiesToPlainCommands() throws Exception {
+        CommandDispatcher<Object> nested = new CommandDispatcher<>();
+        nested.add("sub", testCommand);
+        subject.add("top", nested);
+        doReturn(null).when(testCommand).execute(any());
+
+        subject.dispatch(new String[]{"top", "sub", "a", "b"});
+
+        verify(testCommand).execute(new String[]{"a", "b"});
+    }
+
+    @Test
+    public void globalOptionsShouldBeParsedOnceAndPassedToTheLeaf() throws Exception {
+        Validator globals = new Validator();
+        globals.add(new Flag("verbose"));
+        Option config = new Option("config");
+        config.setRequired(false);
+        globals.add(config);
+        subject.setGlobalOptions(globals);
+
+        CommandDispatcher<Object> nested = new CommandDispatcher<>();
+        nested.add("leaf", (ArgumentViewCommand<Object>) args -> args);
+        subject.add("top", nested);
+
+        CommandArguments received = (CommandArguments) subject.dispatch(
+            new String[]{"-verbose", "--config", "a.xml", "top", "leaf", "--other", "1"});
+
+        assertTrue(received.getGlobalOptions().isFlagSet("verbose"));
+        assertEquals("a.xml", received.getGlobalOptions().getOption("config"));
+        assertEquals(Arrays.asList("--other", "1"), Arrays.asList(received.toArray()));
+
+        Validator leafValidator = new Validator();
+        Option other = new Option("other");
+        leafValidator.add(other);
+        assertEquals("1", received.parse(leafValidator).getOption("other"));
+    }
+
+    @Test(expected = CommandDispatchException.class)
+    public void dispatchShouldErrorWhenOnlyGlobalOptionsAreGiven() throws Exception {
+        Validator globals = new Validator();
+        globals.add(new Flag("verbose"));
+        subject.setGlobalOptions(globals);
+
+        subject.dispatch(new String[]{"-verbose"});
+    }
+
+    @Test
+    public void lazyCommandShouldPassArgumentViews() throws Exception {
+        subject.add("lazy", () -> (ArgumentViewCommand<Object>) args -> args.size());
+
+        assertEquals(3, subject.dispatch(new String[]{"lazy", "a", "b", "c"}));
+    }
 }
@@ -0,0 +1,266 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.command.daemon;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Environment;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.command.CommandDispatcher;
+import com.tmarsteel.jcli.filter.FileFilter;
+import com.tmarsteel.jcli.validation.ValidationException;
+import com.tmarsteel.jcli.validation.Validator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class CommandDaemonTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private CommandDaemon<Object> daemon;
+    private CommandClient client;
+
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @Before
+    public void setUp() throws Exception {
+        CommandDispatcher<Object> dispatcher = new CommandDispatcher<>();
+        dispatcher.add("echo", args -> {
+            Invocation.current().getOut().print(String.join(" ", args));
+            return null;
+        });
+        dispatcher.add("cat", args -> {
+            InputStream in = Invocation.current().getIn();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                Invocation.current().getOut().write(buffer, 0, n);
+            }
+            return null;
+        });
+        dispatcher.add("where", args -> {
+            Invocation invocation = Invocation.current();
+            invocation.getOut().print(invocation.getWorkingDirectory() + " " + invocation.getEnvironment().get("NAME"));
+            invocation.getErr().print("to stderr");
+            return null;
+        });
+        Environment env = new Environment('\\', "-", "--");
+        env.setResponseFileMarker("@");
+        Validator sizeValidator = new Validator(env);
+        FileFilter existingFile = new FileFilter();
+        existingFile.setExistenceState(FileFilter.EXISTENCE.MUST_EXIST);
+        sizeValidator.add(new Option(existingFile, null, "file"));
+        Argument values = new Argument("values", 0);
+        values.setVariadic(true);
+        values.setStreaming(true);
+        values.setRequired(false);
+        sizeValidator.add(values);
+        dispatcher.add("size", args -> {
+            Validator.ValidatedInput input = sizeValidator.parse(args);
+            PrintStream stdout = Invocation.current().getOut();
+            stdout.print(((File) input.getOption("file")).length());
+            for (Object value : input.getArgumentStream("values")) {
+                stdout.print(" " + value);
+            }
+            return null;
+        });
+        dispatcher.add("exit", args -> Integer.parseInt(args[0]));
+        dispatcher.add("invalid", args -> {
+            throw new ValidationException("invalid input");
+        });
+        dispatcher.add("crash", args -> {
+            throw new IllegalStateException("crashed");
+        });
+
+        executor = Executors.newFixedThreadPool(4);
+        daemon = new CommandDaemon<>(dispatcher, executor);
+        daemon.start(0);
+        client = new CommandClient(daemon.getPort(), daemon.getToken());
+
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        daemon.close();
+        executor.shutdownNow();
+    }
+
+    private int invoke(String... args) throws IOException {
+        return invoke(new ByteArrayInputStream(new byte[0]), args);
+    }
+
+    private int invoke(InputStream in, String... args) throws IOException {
+        return client.invoke(args, Paths.get("/tmp"), Collections.singletonMap("NAME", "value"), in, out, err);
+    }
+
+    private static String string(ByteArrayOutputStream stream) {
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldRunCommandAndRelayOutput() throws Exception {
+        assertEquals(0, invoke("echo", "hello", "wörld"));
+
+        assertEquals("hello wörld", string(out));
+    }
+
+    @Test
+    public void shouldForwardInput() throws Exception {
+        byte[] input = new byte[100000];
+        new Random(1).nextBytes(input);
+
+        assertEquals(0, invoke(new ByteArrayInputStream(input), "cat"));
+
+        assertArrayEquals(input, out.toByteArray());
+    }
+
+    @Test
+    public void shouldPassWorkingDirectoryAndEnvironment() throws Exception {
+        invoke("where");
+
+        assertEquals(Paths.get("/tmp").toAbsolutePath() + " value", string(out));
+        assertEquals("to stderr", string(err));
+    }
+
+    @Test
+    public void shouldParseRelativeToClientAndReadClientInput() throws Exception {
+        Path workingDirectory = folder.newFolder("client").toPath();
+        Files.write(workingDirectory.resolve("data.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+        Files.write(workingDirectory.resolve("args.txt"), "a b".getBytes(StandardCharsets.UTF_8));
+
+        int exitCode = client.invoke(new String[]{"size", "--file", "data.txt", "@args.txt", "-"}, workingDirectory,
+            Collections.emptyMap(), new ByteArrayInputStream("c\nd\n".getBytes(StandardCharsets.UTF_8)), out, err);
+
+        assertEquals(string(err), 0, exitCode);
+        assertEquals("5 a b c d", string(out));
+    }
+
+    @Test
+    public void shouldResolveFilesPerClient() throws Exception {
+        Path first = folder.newFolder("first").toPath();
+        Path second = folder.newFolder("second").toPath();
+        Files.write(first.resolve("data.txt"), "one".getBytes(StandardCharsets.UTF_8));
+        Files.write(second.resolve("data.txt"), "second".getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0;i < 2;i++) {
+            for (Path workingDirectory : Arrays.asList(first, second)) {
+                ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                assertEquals(0, client.invoke(new String[]{"size", "--file", "data.txt"}, workingDirectory,
+                    Collections.emptyMap(), new ByteArrayInputStream(new byte[0]), stdout, err));
+                assertEquals(workingDirectory == first? "3" : "6", string(stdout));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReportExitCodes() throws Exception {
+        assertEquals(42, invoke("exit", "42"));
+        assertEquals(CommandDaemon.EXIT_USAGE, invoke("invalid"));
+        assertEquals(CommandDaemon.EXIT_USAGE, invoke("unknown"));
+        assertEquals(CommandDaemon.EXIT_FAILURE, invoke("crash"));
+        assertTrue(string(err).contains("invalid input"));
+        assertTrue(string(err).contains("crashed"));
+    }
+
+    @Test
+    public void shouldRunInvocationsConcurrently() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0;i < 32;i++) {
+                String word = "word" + i;
+                results.add(clients.submit(() -> {
+                    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                    client.invoke(new String[]{"echo", word}, Paths.get("."), Collections.emptyMap(),
+                        new ByteArrayInputStream(new byte[0]), stdout, new ByteArrayOutputStream());
+                    return string(stdout);
+                }));
+            }
+            for (int i = 0;i < results.size();i++) {
+                assertEquals("word" + i, results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectWrongToken() throws Exception {
+        new CommandClient(daemon.getPort(), "wrong").invoke(new String[]{"echo", "x"}, Paths.get("."),
+            Collections.emptyMap(), new ByteArrayInputStream(new byte[0]), out, err);
+    }
+
+    @Test
+    public void shouldConnectThroughPortFile() throws Exception {
+        Path portFile = folder.getRoot().toPath().resolve("daemon.port");
+        daemon.writePortFile(portFile);
+
+        CommandClient fromFile = CommandClient.fromPortFile(portFile);
+        assertEquals(7, fromFile.invoke(new String[]{"exit", "7"}, Paths.get("."), Collections.emptyMap(),
+            new ByteArrayInputStream(new byte[0]), out, err));
+    }
+
+    @Test
+    public void idleConnectionShouldNotBlockTheExecutor() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ExecutorService clients = Executors.newSingleThreadExecutor();
+        CommandDispatcher<Object> dispatcher = new CommandDispatcher<>();
+        dispatcher.add("exit", args -> Integer.parseInt(args[0]));
+        CommandDaemon<Object> singleThreaded = new CommandDaemon<>(dispatcher, single);
+        singleThreaded.setHeaderTimeout(200);
+        singleThreaded.start(0);
+        try (Socket idle = new Socket(InetAddress.getLoopbackAddress(), singleThreaded.getPort())) {
+            CommandClient singleClient = new CommandClient(singleThreaded.getPort(), singleThreaded.getToken());
+            Future<Integer> exitCode = clients.submit(() -> singleClient.invoke(new String[]{"exit", "3"},
+                Paths.get("."), Collections.emptyMap(), new ByteArrayInputStream(new byte[0]), out, err));
+
+            assertEquals(3, (int) exitCode.get(10, TimeUnit.SECONDS));
+            assertEquals(-1, idle.getInputStream().read());
+        }
+        finally {
+            singleThreaded.close();
+            single.shutdownNow();
+            clients.shutdownNow();
+        }
+    }
+}
@@ -110,4 +110,29 @@ public class BigDecimalFilterTest
         
         Object ret = bdf.parse(number);
     }
+
+    @Test
+    public void testPreValidationAgreesWithBigDecimal()
+        throws ValidationException
+    {
+        BigDecimalFilter filter = new BigDecimalFilter();
+
+        for (String number : new String[]{ "1", "-1.5", "+.5", "1.", "1e10", "1.5E-7", "\u0661\u0662" })
+        {
+            assertEquals(new BigDecimal(number), filter.parse(number));
+        }
+
+        for (String number : new String[]{ "", "-", ".", "1e", "1e+", "1..2", "e5", "1.5f", " 1", "NaN" })
+        {
+            try
+            {
+                filter.parse(number);
+                fail("Expected ValidationException for \"" + number + "\"");
+            }
+            catch (ValidationException ex)
+            {
+                assertEquals(null, ex.getCause());
+            }
+        }
+    }
 }
@@ -113,4 +113,33 @@ public class BigIntegerFilterTest
         
         Object ret = bdf.parse(number);
     }
+
+    @Test
+    public void testParseLongRangeValueAgainstHugeBounds()
+        throws ValidationException
+    {
+        BigIntegerFilter filter = new BigIntegerFilter(
+            new BigInteger("-100000000000000000000000"),
+            new BigInteger("100000000000000000000000")
+        );
+
+        assertEquals(BigInteger.valueOf(Long.MIN_VALUE), filter.parse(Long.toString(Long.MIN_VALUE)));
+        assertEquals(new BigInteger("9223372036854775808"), filter.parse("9223372036854775808"));
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testParseFailsWithLongValueBelowLimit()
+        throws ValidationException
+    {
+        BigIntegerFilter filter = new BigIntegerFilter(new BigInteger("-5"), null);
+
+        filter.parse("-6");
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testParseFailsWithNonNumericInputAfterOverflow()
+        throws ValidationException
+    {
+        new BigIntegerFilter().parse("99999999999999999999999x");
+    }
 }
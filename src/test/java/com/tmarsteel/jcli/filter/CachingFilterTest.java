@@ -0,0 +1,143 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CachingFilterTest
+{
+    @Test
+    public void parseShouldDelegateOncePerValue()
+        throws ValidationException
+    {
+        AtomicInteger calls = new AtomicInteger();
+        CachingFilter filter = new CachingFilter(value -> {
+            calls.incrementAndGet();
+            return value + "!";
+        }, 10);
+
+        assertEquals("a!", filter.parse("a"));
+        assertEquals("a!", filter.parse("a"));
+        assertEquals("b!", filter.parse("b"));
+
+        assertEquals(2, calls.get());
+        assertEquals(1, filter.getHitCount());
+        assertEquals(2, filter.getMissCount());
+    }
+
+    @Test
+    public void parseShouldCacheFailures()
+    {
+        AtomicInteger calls = new AtomicInteger();
+        CachingFilter filter = new CachingFilter(value -> {
+            calls.incrementAndGet();
+            throw new ValidationException("invalid");
+        }, 10);
+
+        for (int i = 0;i < 2;i++)
+        {
+            try
+            {
+                filter.parse("a");
+                fail("Expected ValidationException");
+            }
+            catch (ValidationException ex)
+            {
+                assertEquals("invalid", ex.getMessage());
+            }
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void shouldEvictInputsNotUsedRecently()
+        throws ValidationException
+    {
+        AtomicInteger calls = new AtomicInteger();
+        CachingFilter filter = new CachingFilter(value -> {
+            calls.incrementAndGet();
+            return value;
+        }, 2);
+
+        filter.parse("a");
+        filter.parse("b");
+        filter.parse("a");
+        filter.parse("c"); // evicts b
+
+        assertEquals(2, filter.size());
+        filter.parse("a");
+        assertEquals(3, calls.get());
+        filter.parse("b");
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void shouldStayBoundedUnderConcurrentUse()
+        throws Exception
+    {
+        CachingFilter filter = new CachingFilter(value -> value + "!", 16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0;t < 4;t++)
+            {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0;i < 10000;i++)
+                    {
+                        String value = Integer.toString(random.nextInt(64));
+                        assertEquals(value + "!", filter.parse(value));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertTrue(filter.size() <= 16);
+        assertEquals(40000, filter.getHitCount() + filter.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorShouldFailOnNonPositiveSize()
+    {
+        new CachingFilter(new MetaRegexFilter(), 0);
+    }
+}
@@ -20,7 +20,10 @@ package com.tmarsteel.jcli.filter;
 import com.tmarsteel.jcli.validation.ValidationException;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -111,4 +114,86 @@ public class DecimalFilterTest
         
         Object ret = bdf.parse(number);
     }
+
+    @Test
+    public void testParseIsBitIdenticalToParseDouble()
+        throws ValidationException
+    {
+        DecimalFilter filter = new DecimalFilter(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        Random random = new Random(0x5eed);
+
+        String[] fixed = {
+            "0", "-0", "0.0e999", "1", "-1.", ".5", "+.5e-3", "9007199254740993", "4.9e-324", "2.4703282292062328e-324",
+            "1.7976931348623157e308", "1.7976931348623159e308", "2.2250738585072011e-308", "123456789012345678901234567890",
+            "0.1000000000000000055511151231257827021181583404541015625", "1e-400", "1e400", "1e23", "8.41e21",
+            "NaN", "-Infinity", "0x1.8p3", " 1.5 ", "1.5f", "2d"
+        };
+
+        for (String number : fixed)
+        {
+            assertBitIdentical(filter, number);
+        }
+
+        for (int n = 0;n < 20000;n++)
+        {
+            StringBuilder number = new StringBuilder();
+            if (random.nextBoolean())
+            {
+                number.append('-');
+            }
+            int digits = 1 + random.nextInt(25);
+            int dot = random.nextInt(digits + 1);
+            for (int i = 0;i < digits;i++)
+            {
+                if (i == dot)
+                {
+                    number.append('.');
+                }
+                number.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean())
+            {
+                number.append('e').append(random.nextInt(700) - 350);
+            }
+            assertBitIdentical(filter, number.toString());
+
+            assertBitIdentical(filter, Double.toString(Double.longBitsToDouble(random.nextLong())));
+        }
+    }
+
+    @Test
+    public void testParseRejectsWhatParseDoubleRejects()
+    {
+        DecimalFilter filter = new DecimalFilter(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        for (String number : new String[]{ "", "-", ".", "e5", "1e", "1e+", "1..2", "1.2.3", "--1", "1-", "abc", "1 2" })
+        {
+            try
+            {
+                filter.parse(number);
+                fail("Expected ValidationException for \"" + number + "\"");
+            }
+            catch (ValidationException ex)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParseDoubleRange()
+        throws ValidationException
+    {
+        DecimalFilter filter = new DecimalFilter(0, 1);
+
+        assertEquals(0.25, filter.parseDouble("ratio=0.25;", 6, 10), 0);
+    }
+
+    private static void assertBitIdentical(DecimalFilter filter, String number)
+        throws ValidationException
+    {
+        double expected = Double.parseDouble(number);
+        double actual = (Double) filter.parse(number);
+        assertEquals(number, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+    }
 }
@@ -0,0 +1,87 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class EnumFilterTest
+{
+    @Test
+    public void testParseCI()
+        throws ValidationException
+    {
+        EnumFilter<TimeUnit> filter = new EnumFilter<>(TimeUnit.class);
+
+        assertEquals(TimeUnit.SECONDS, filter.parse("seconds"));
+        assertEquals(TimeUnit.SECONDS, filter.parse("SECONDS"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testParseCSFailsOnCaseError()
+        throws ValidationException
+    {
+        EnumFilter<TimeUnit> filter = new EnumFilter<>(TimeUnit.class, true);
+
+        filter.parse("seconds");
+    }
+
+    @Test
+    public void testAliases()
+        throws ValidationException
+    {
+        EnumFilter<TimeUnit> filter = new EnumFilter<>(TimeUnit.class);
+        filter.addAlias(TimeUnit.SECONDS, "s");
+        filter.addAlias(TimeUnit.SECONDS, "sec");
+        filter.addAlias(TimeUnit.MINUTES, "min");
+
+        assertEquals(TimeUnit.SECONDS, filter.parse("S"));
+        assertEquals(TimeUnit.SECONDS, filter.parse("sec"));
+        assertEquals(TimeUnit.MINUTES, filter.parse("Min"));
+        assertEquals(Arrays.asList("s", "sec"), filter.getAliases(TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAmbiguousAliasIsRejected()
+    {
+        EnumFilter<TimeUnit> filter = new EnumFilter<>(TimeUnit.class);
+        filter.addAlias(TimeUnit.MINUTES, "m");
+        filter.addAlias(TimeUnit.MILLISECONDS, "M");
+    }
+
+    @Test
+    public void testParseAll()
+        throws ValidationException
+    {
+        EnumFilter<TimeUnit> filter = new EnumFilter<>(TimeUnit.class);
+
+        assertEquals(
+            EnumSet.of(TimeUnit.DAYS, TimeUnit.HOURS),
+            filter.parseAll(Arrays.asList("hours", "days", "HOURS"))
+        );
+    }
+}
@@ -0,0 +1,100 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FileAttributesCacheTest
+{
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private FileAttributesCache cache = new FileAttributesCache(1, TimeUnit.HOURS, 10);
+
+    @Test
+    public void getShouldRememberAttributes()
+        throws Exception
+    {
+        File f = tmp.newFile("f");
+        assertTrue(cache.get(f).exists());
+
+        assertTrue(f.delete());
+
+        assertTrue(cache.get(f).exists());
+        assertTrue(cache.get(new File(f.getAbsolutePath())).exists());
+    }
+
+    @Test
+    public void invalidateShouldForgetAttributes()
+        throws Exception
+    {
+        File f = tmp.newFile("f");
+        assertTrue(cache.get(f).exists());
+        assertTrue(f.delete());
+
+        cache.invalidate(f);
+
+        assertFalse(cache.get(f).exists());
+    }
+
+    @Test
+    public void invalidateDirectoryShouldForgetContainedFiles()
+        throws Exception
+    {
+        File f = tmp.newFile("f");
+        assertTrue(cache.get(f).exists());
+        assertTrue(f.delete());
+
+        cache.invalidateDirectory(tmp.getRoot().toPath());
+
+        assertFalse(cache.get(f).exists());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed()
+        throws Exception
+    {
+        FileAttributesCache cache = new FileAttributesCache(1, TimeUnit.HOURS, 2);
+        cache.get(tmp.newFile("a"));
+        cache.get(tmp.newFile("b"));
+        cache.get(tmp.newFile("c"));
+
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void fileFilterShouldUseCache()
+        throws Exception
+    {
+        File f = tmp.newFile("f");
+        FileFilter filter = new FileFilter();
+        filter.setExistenceState(FileFilter.EXISTENCE.MUST_EXIST);
+        filter.setAttributesCache(cache);
+
+        filter.assertSuffices(f);
+        assertTrue(f.delete());
+        filter.assertSuffices(f);
+    }
+}
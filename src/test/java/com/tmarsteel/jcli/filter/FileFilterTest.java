@@ -20,7 +20,9 @@ package com.tmarsteel.jcli.filter;
 import com.tmarsteel.jcli.validation.ValidationException;
 import java.io.File;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.mockito.Mockito.*;
 
 /**
@@ -448,4 +450,39 @@ public class FileFilterTest
         
         verify(myFilter).accept(f);
     }
+    
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+    
+    @Test
+    public void assertSufficesShouldCheckExistingFileFromAttributes()
+        throws Exception
+    {
+        File f = tmp.newFile("f.ext");
+        filter.setExistenceState(FileFilter.EXISTENCE.MUST_EXIST);
+        filter.setFileType(FileFilter.TYPE.FILE);
+        filter.setPermissions(FileFilter.PERMISSION.READ_WRITE);
+        
+        filter.assertSuffices(f);
+    }
+    
+    @Test(expected=ValidationException.class)
+    public void assertSufficesShouldFailOnDirectoryWhenFileRequired()
+        throws Exception
+    {
+        File f = tmp.newFolder("d.ext");
+        filter.setFileType(FileFilter.TYPE.FILE);
+        
+        filter.assertSuffices(f);
+    }
+    
+    @Test(expected=ValidationException.class)
+    public void assertSufficesShouldFailOnMissingReadableFile()
+        throws Exception
+    {
+        File f = new File(tmp.getRoot(), "missing.ext");
+        filter.setPermissions(FileFilter.PERMISSION.READ);
+        
+        filter.assertSuffices(f);
+    }
 }
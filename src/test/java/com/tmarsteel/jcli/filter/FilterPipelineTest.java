@@ -0,0 +1,108 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class FilterPipelineTest
+{
+    @Test
+    public void testTextTransformsAndLookup()
+        throws ValidationException
+    {
+        Map<String, Integer> ids = new HashMap<>();
+        ids.put("eu-west-1", 1);
+        ids.put("us-east-1", 2);
+
+        Filter filter = new FilterPipeline().trim().toLowerCase()
+            .andThen(new SetFilter("eu-west-1", "us-east-1"))
+            .map(FilterPipeline.lookup(ids));
+
+        assertEquals(1, filter.parse("  EU-West-1 "));
+        assertEquals(2, filter.parse("us-east-1"));
+    }
+
+    @Test
+    public void testWithoutParser()
+        throws ValidationException
+    {
+        assertEquals("abc", new FilterPipeline().trim().toUpperCase().toLowerCase().parse("\t ABC \n"));
+        assertEquals("", new FilterPipeline().trim().parse("   "));
+    }
+
+    @Test
+    public void testRangeParsing()
+        throws ValidationException
+    {
+        Filter filter = new FilterPipeline().trim().andThen(new IntegerFilter(0, 100));
+
+        assertEquals(42L, filter.parse("  42  "));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testRangeParsingRejectsOutOfBounds()
+        throws ValidationException
+    {
+        new FilterPipeline().trim().andThen(new IntegerFilter(0, 100)).parse(" 101 ");
+    }
+
+    @Test
+    public void testCheck()
+        throws ValidationException
+    {
+        Filter filter = new IntegerFilter().check(v -> ((Long) v) % 2 == 0, "Must be even");
+
+        assertEquals(4L, filter.parse("4"));
+        try
+        {
+            filter.parse("5");
+            throw new AssertionError("Expected a ValidationException");
+        }
+        catch (ValidationException ex)
+        {
+            assertEquals("Must be even", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testLaterFilterParsesStringValue()
+        throws ValidationException
+    {
+        Filter filter = new FilterPipeline().toLowerCase()
+            .andThen(new SetFilter("0x10", "0x20"))
+            .map(v -> ((String) v).substring(2))
+            .andThen(new IntegerFilter(16));
+
+        assertEquals(16L, filter.parse("0X10"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTextTransformAfterParserThrows()
+    {
+        new FilterPipeline().andThen(new IntegerFilter()).trim();
+    }
+}
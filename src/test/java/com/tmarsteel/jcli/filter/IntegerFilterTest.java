@@ -21,6 +21,7 @@ import com.tmarsteel.jcli.validation.ValidationException;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -111,4 +112,38 @@ public class IntegerFilterTest
         
         Object ret = bdf.parse(number);
     }
+
+    @Test
+    public void testParseAcceptsWhatParseLongAccepts()
+        throws ValidationException
+    {
+        IntegerFilter filter = new IntegerFilter(16);
+
+        for (String number : new String[]{ "7fffffffffffffff", "-8000000000000000", "+Ff", "-0", "\uFF11\uFF12" })
+        {
+            assertEquals(Long.parseLong(number, 16), filter.parse(number));
+        }
+
+        for (String number : new String[]{ "8000000000000000", "-8000000000000001", "", "-", "+", "1g", "--1", " 1" })
+        {
+            try
+            {
+                filter.parse(number);
+                fail("Expected ValidationException for \"" + number + "\"");
+            }
+            catch (ValidationException ex)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParseLongRange()
+        throws ValidationException
+    {
+        IntegerFilter filter = new IntegerFilter(0, 100);
+
+        assertEquals(42L, filter.parseLong("--size=42;", 7, 9));
+    }
 }
@@ -0,0 +1,131 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class LinearPatternTest
+{
+    private static final String[] PATTERNS = {
+        "abc", "a.c", "a|ab|abc", "(a|ab)(c|bcd)", "(a*)(a*)", "(a*?)(a*)", "(a+)+b", "(?:ab)*c?",
+        "[a-c]+[^a-c]?", "[\\d\\s]*x", "\\w+@\\w+\\.(com|org)", "(\\d{2,3})-(\\d{1,}?)(\\d)", "a{3}", "a{0,2}?(a*)",
+        "^ab$", "\\Aab\\z", "ab\\Z", "\\bab\\b.*", ".*\\Bb.*", "(?<first>[a-z]+)_(?<second>\\d+)", "(a|b)*c",
+        "\\Q.*\\E\\d", "[-a]+", "[a-]+", "\\x41\\u0042", "(x)?(y)?z", "(a(b)?)+", "\\S+\\W"
+    };
+
+    private static final String[] INPUTS = {
+        "", "a", "ab", "abc", "abcd", "abbcd", "aaaa", "aaab", "aab", "abcx", "12 3x", "foo@bar.com", "foo@bar.net",
+        "12-345", "123-45", "aaa", "ab\n", "ab\r\n", "ab_", "abab", "xb", "foo_42", "ababbc", ".*7", "a-a-",
+        "AB", "xz", "z", "abaab", "ab!", "äab"
+    };
+
+    @Test
+    public void testMatchesLikeBacktrackingEngine()
+    {
+        for (String regex : PATTERNS)
+        {
+            LinearPattern linear = LinearPattern.compile(regex);
+            Pattern pattern = Pattern.compile(regex);
+            assertEquals(regex, pattern.matcher("").groupCount(), linear.groupCount());
+
+            for (String input : INPUTS)
+            {
+                Matcher m = pattern.matcher(input);
+                int[] groups = linear.match(input, Long.MAX_VALUE);
+                if (!m.matches())
+                {
+                    assertNull(regex + " on " + input, groups);
+                    continue;
+                }
+
+                int[] expected = new int[(m.groupCount() + 1) * 2];
+                for (int g = 0;g <= m.groupCount();g++)
+                {
+                    expected[g * 2] = m.start(g);
+                    expected[g * 2 + 1] = m.end(g);
+                }
+                assertArrayEquals(regex + " on " + input, expected, groups);
+            }
+        }
+    }
+
+    @Test
+    public void testNamedGroups()
+    {
+        LinearPattern pattern = LinearPattern.compile("(?<first>[a-z]+)_(?<second>\\d+)");
+
+        assertEquals(1, pattern.groupIndex("first"));
+        assertEquals(2, pattern.groupIndex("second"));
+        assertEquals(-1, pattern.groupIndex("third"));
+    }
+
+    @Test
+    public void testPathologicalPatternTakesLinearTime()
+    {
+        char[] input = new char[10000];
+        Arrays.fill(input, 'a');
+        input[input.length - 1] = '!';
+
+        // catastrophic backtracking for java.util.regex
+        assertTrue(!LinearPattern.compile("(a+)+b").matches(new String(input)));
+        assertTrue(!LinearPattern.compile("(a|aa)*c").matches(new String(input)));
+    }
+
+    @Test(expected = LinearPattern.StepBudgetExceededException.class)
+    public void testStepBudget()
+    {
+        LinearPattern.compile("(a|aa)*c").match("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa", 100);
+    }
+
+    @Test
+    public void testUnsupportedSyntaxIsRejected()
+    {
+        for (String regex : new String[]{ "(a)\\1", "(?=a)a", "(?i)a", "a*+", "\\p{Lu}", "[a[b]]", "[a&&b]", "a{1001}", "^*" })
+        {
+            try
+            {
+                LinearPattern.compile(regex);
+                fail("Expected PatternSyntaxException for " + regex);
+            }
+            catch (PatternSyntaxException ex)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void testFlagsAreRejected()
+    {
+        LinearPattern.compile(Pattern.compile("a", Pattern.CASE_INSENSITIVE));
+    }
+}
@@ -64,4 +64,36 @@ public class RegexFilterTest
         
         filter.parse("bc");
     }
+
+    @Test
+    public void testParseWithLinearEngine()
+        throws ValidationException
+    {
+        RegexFilter filter = new RegexFilter(Pattern.compile("^a(.+)$"));
+        filter.setEngine(RegexEngine.LINEAR);
+        filter.setReturnGroup(1);
+
+        assertEquals("bc", filter.parse("abc"));
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testLinearEngineStepBudget()
+        throws ValidationException
+    {
+        RegexFilter filter = new RegexFilter(Pattern.compile("(a|aa)*c"));
+        filter.setEngine(RegexEngine.LINEAR);
+        filter.setMaxSteps(1000);
+
+        filter.parse("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testMaxLength()
+        throws ValidationException
+    {
+        RegexFilter filter = new RegexFilter(Pattern.compile("a*"));
+        filter.setMaxLength(3);
+
+        filter.parse("aaaa");
+    }
 }
@@ -0,0 +1,118 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.filter;
+
+import com.tmarsteel.jcli.validation.ValidationException;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class RegexSetFilterTest
+{
+    @Test
+    public void testParseReportsMatchingRegex()
+        throws ValidationException
+    {
+        RegexSetFilter filter = new RegexSetFilter("(\\d+)-(\\d+)", "([a-z]+)(?:_(x))?", "[a-z]+\\d");
+
+        RegexSetFilter.Match match = filter.parse("12-34");
+        assertEquals(0, match.getRegexIndex());
+        assertEquals("34", match.group(2));
+
+        match = filter.parse("abc");
+        assertEquals(1, match.getRegexIndex());
+        assertEquals("([a-z]+)(?:_(x))?", match.getRegex());
+        assertEquals("abc", match.group(1));
+        assertNull(match.group(2));
+
+        match = filter.parse("abc1");
+        assertEquals(2, match.getRegexIndex());
+        assertEquals(0, match.groupCount());
+        assertEquals("abc1", match.group(0));
+    }
+
+    @Test
+    public void testFirstMatchingRegexWins()
+        throws ValidationException
+    {
+        RegexSetFilter filter = new RegexSetFilter("[a-z]+", "abc");
+
+        assertEquals(0, filter.parse("abc").getRegexIndex());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testParseFailsIfNoRegexMatches()
+        throws ValidationException
+    {
+        new RegexSetFilter("\\d+", "[a-z]+").parse("abc1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNumberedBackReferencesAreRejected()
+    {
+        new RegexSetFilter("\\d+", "(a)\\1");
+    }
+
+    @Test
+    public void testQuotedBackslashIsNoBackReference()
+        throws ValidationException
+    {
+        assertEquals(1, new RegexSetFilter("\\d+", "\\Q\\1\\E").parse("\\1").getRegexIndex());
+    }
+
+    @Test
+    public void testParseIsThreadSafe()
+        throws Exception
+    {
+        RegexSetFilter filter = new RegexSetFilter("(\\d+)", "([a-z]+)");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0;t < futures.length;t++)
+            {
+                final int offset = t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0;i < 1000;i++)
+                    {
+                        String value = (i + offset) % 2 == 0? Integer.toString(i) : "abc";
+                        RegexSetFilter.Match match = filter.parse(value);
+                        assertEquals(value, match.group(1));
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
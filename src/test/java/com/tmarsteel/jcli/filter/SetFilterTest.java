@@ -20,6 +20,11 @@ package com.tmarsteel.jcli.filter;
 import com.tmarsteel.jcli.validation.ValidationException;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -74,4 +79,66 @@ public class SetFilterTest
         
         filter.parse("C");
     }
+
+    @Test
+    public void testParseCIReturnsCanonicalSpellingOfNonASCII()
+        throws ValidationException
+    {
+        SetFilter filter = new SetFilter("Zürich", "ÅLESUND", "eu-west-1");
+
+        assertEquals("Zürich", filter.parse("ZÜRICH"));
+        assertEquals("ÅLESUND", filter.parse("ålesund"));
+        assertEquals("eu-west-1", filter.parse("EU-West-1"));
+    }
+
+    @Test
+    public void testOptionsChangesAreApplied()
+        throws ValidationException
+    {
+        SetFilter filter = new SetFilter(new ArrayList<>(Arrays.asList("c", "a", "b")));
+        Collection<String> options = filter.options();
+
+        options.add("D");
+        options.remove("a");
+
+        assertEquals("D", filter.parse("d"));
+        assertArrayEquals(new String[]{"c", "b", "D"}, options.toArray());
+        try
+        {
+            filter.parse("a");
+            throw new AssertionError("Expected ValidationException");
+        }
+        catch (ValidationException ex)
+        {
+            // expected
+        }
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testGivenCollectionIsCopied()
+        throws ValidationException
+    {
+        Collection<String> given = new ArrayList<>(Arrays.asList("a", "b"));
+        SetFilter filter = new SetFilter(given);
+
+        given.add("c");
+
+        filter.parse("c");
+    }
+
+    @Test
+    public void testSubclassChangesAreAppliedAfterOptionsChanged()
+        throws ValidationException
+    {
+        SetFilter filter = new SetFilter("a", "b")
+        {
+            {
+                parse("a");
+                options.add("c");
+                optionsChanged();
+            }
+        };
+
+        assertEquals("c", filter.parse("C"));
+    }
 }
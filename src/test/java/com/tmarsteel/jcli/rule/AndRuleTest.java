@@ -25,6 +25,9 @@ import com.tmarsteel.jcli.validation.Validator;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
 /**
  * @author Tobias Marstaller
  */
@@ -67,4 +70,29 @@ public class AndRuleTest
         
         rule.validate(intent, input);
     }
+    
+    @Test
+    public void adaptiveShouldReportFirstFailingRule()
+    {
+        RuleNotMetException firstEx = new RuleNotMetException("Testfail 1");
+        AndRule rule = new AndRule((intent, input) -> {
+            throw firstEx;
+        }, (intent, input) -> {
+            throw new RuleNotMetException("Testfail 2");
+        });
+        rule.setAdaptive(true);
+        
+        for (int i = 0;i < 1000;i++)
+        {
+            try
+            {
+                rule.validate(intent, input);
+                fail("validate did not throw");
+            }
+            catch (RuleNotMetException ex)
+            {
+                assertEquals(firstEx, ex);
+            }
+        }
+    }
 }
@@ -25,6 +25,12 @@ import com.tmarsteel.jcli.validation.Validator;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 /**
  * @author Tobias Marstaller
  */
@@ -80,4 +86,59 @@ public class OrRuleTest
         
         rule.validate(intent, input);
     }
+    
+    @Test
+    public void adaptiveShouldEvaluateDecisiveRulesFirst()
+        throws RuleNotMetException
+    {
+        AtomicInteger failingCalls = new AtomicInteger();
+        OrRule rule = new OrRule((intent, input) -> {
+            failingCalls.incrementAndGet();
+            throw new RuleNotMetException("Testfail");
+        }, (intent, input) -> {
+            return;
+        });
+        rule.setAdaptive(true);
+        
+        for (int i = 0;i < 1000;i++)
+        {
+            rule.validate(intent, input);
+        }
+        
+        // the first reordering happens after at most one interval of child evaluations
+        int warmupCalls = failingCalls.get();
+        assertTrue("failing rule was not moved back", warmupCalls <= AdaptiveEvaluationOrder.DEFAULT_REORDER_INTERVAL);
+
+        for (int i = 0;i < 1000;i++)
+        {
+            rule.validate(intent, input);
+        }
+
+        assertEquals("failing rule is still evaluated", warmupCalls, failingCalls.get());
+    }
+    
+    @Test
+    public void adaptiveShouldReportTheSameCause()
+    {
+        RuleNotMetException lastEx = new RuleNotMetException("Testfail 2");
+        OrRule rule = new OrRule((intent, input) -> {
+            throw new RuleNotMetException("Testfail 1");
+        }, (intent, input) -> {
+            throw lastEx;
+        });
+        rule.setAdaptive(true);
+        
+        for (int i = 0;i < 1000;i++)
+        {
+            try
+            {
+                rule.validate(intent, input);
+                fail("Expected RuleNotMetException");
+            }
+            catch (RuleNotMetException ex)
+            {
+                assertEquals(lastEx, ex.getCause());
+            }
+        }
+    }
 }
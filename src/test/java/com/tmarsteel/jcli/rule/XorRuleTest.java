@@ -25,6 +25,8 @@ import com.tmarsteel.jcli.validation.Validator;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+
 /**
  * @author Tobias Marstaller
  */
@@ -80,4 +82,25 @@ public class XorRuleTest
         
         rule.validate(intent, input);
     }
+
+    @Test
+    public void testNoRuleMetReportsDescriptionWithoutErrorMessage()
+    {
+        XorRule rule = new XorRule((intent, input) -> {
+            throw new RuleNotMetException("Testfail 1");
+        }, (intent, input) -> {
+            throw new RuleNotMetException("Testfail 2");
+        });
+
+        try
+        {
+            rule.validate(intent, input);
+            fail("Expected RuleNotMetException");
+        }
+        catch (RuleNotMetException ex)
+        {
+            assertNotNull(ex.getMessage());
+            assertEquals(rule.toString(), ex.getMessage());
+        }
+    }
 }
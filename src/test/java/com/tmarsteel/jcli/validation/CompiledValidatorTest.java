@@ -0,0 +1,124 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Environment;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.ParseException;
+import com.tmarsteel.jcli.filter.IntegerFilter;
+import com.tmarsteel.jcli.filter.SetFilter;
+import com.tmarsteel.jcli.rule.OptionSetRule;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class CompiledValidatorTest
+{
+    private Validator validator;
+
+    @Before
+    public void setUp()
+    {
+        validator = new Validator(new Environment('\\', "-", "--"));
+        validator.add(new Flag("verbose", "v"));
+        validator.add(new Option(new IntegerFilter(0, 10), 1L, "level", "l"));
+        validator.add(new Option(new SetFilter("a", "b"), null, "mode"));
+        validator.add(new Argument("input", 0, new IntegerFilter()));
+        Argument rest = new Argument("rest", 1);
+        rest.setVariadic(true);
+        rest.setRequired(false);
+        validator.add(rest);
+    }
+
+    @Test
+    public void shouldParseLikeValidator()
+        throws ParseException, ValidationException
+    {
+        String[] args = { "-v", "-x", "--level", "5", "--other", "foo", "42", "r1", "r2" };
+
+        Validator.ValidatedInput expected = validator.parse(args);
+        Validator.ValidatedInput actual = validator.compile().parse(args);
+
+        assertEquals(expected.flagValues(), actual.flagValues());
+        assertEquals(expected.optionValues(), actual.optionValues());
+        assertEquals(expected.argumentValues(), actual.argumentValues());
+        assertEquals(5L, actual.getOption("level"));
+        assertEquals(42L, actual.getArgument("input"));
+        assertEquals(Arrays.asList("r1", "r2"), actual.getArgumentValues("rest"));
+        assertTrue(actual.isFlagSet("x"));
+    }
+
+    @Test
+    public void shouldApplyDefaultsForMissingValues()
+        throws ParseException, ValidationException
+    {
+        Validator.ValidatedInput expected = validator.parse(new String[]{ "42" });
+        Validator.ValidatedInput input = validator.compile().parse(new String[]{ "42" });
+
+        assertFalse(input.isFlagSet("verbose"));
+        assertEquals(expected.optionValues(), input.optionValues());
+        assertEquals(Collections.emptyList(), input.getArgumentValues("rest"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void shouldRejectInvalidOptionValue()
+        throws ParseException, ValidationException
+    {
+        validator.compile().parse(new String[]{ "--mode", "c", "42" });
+    }
+
+    @Test(expected = ValidationException.class)
+    public void shouldRejectInvalidArgumentValue()
+        throws ParseException, ValidationException
+    {
+        validator.compile().parse(new String[]{ "foo" });
+    }
+
+    @Test(expected = RuleNotMetException.class)
+    public void shouldValidateRules()
+        throws ParseException, ValidationException
+    {
+        validator.add(new OptionSetRule("mode"));
+
+        validator.compile().parse(new String[]{ "42" });
+    }
+
+    @Test
+    public void shouldNotSeeLaterChanges()
+        throws ParseException, ValidationException
+    {
+        CompiledValidator compiled = validator.compile();
+        validator.add(new OptionSetRule("mode"));
+        Option required = new Option("required");
+        required.setRequired(true);
+        validator.add(required);
+
+        Validator.ValidatedInput input = compiled.parse(new String[]{ "42" });
+
+        assertEquals(42L, input.getArgument("input"));
+    }
+}
@@ -28,7 +28,13 @@ import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.mockito.Mockito.*;
 
@@ -330,4 +336,105 @@ public class ValidatorTest
         assertEquals("arg2value2", arg2Values.get(1));
         assertEquals("arg2value3", arg2Values.get(2));
     }
+
+    @Test
+    public void parallelVarargsShouldKeepOrderAndReportFirstFailure()
+        throws ParseException, ValidationException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            Validator v = new Validator();
+            v.setVariadicExecutor(executor);
+            v.setParallelVariadicThreshold(100);
+
+            Argument arg = new Argument("arg", 0, value -> {
+                if (value.startsWith("x"))
+                {
+                    throw new ValidationException(value);
+                }
+                return Integer.parseInt(value);
+            });
+            arg.setVariadic(true);
+            v.add(arg);
+
+            String[] input = new String[5000];
+            for (int i = 0;i < input.length;i++)
+            {
+                input[i] = Integer.toString(i);
+            }
+
+            List<Object> values = v.parse(input).getArgumentValues("arg");
+            assertEquals(input.length, values.size());
+            for (int i = 0;i < input.length;i++)
+            {
+                assertEquals(i, values.get(i));
+            }
+
+            input[4000] = "x4000";
+            input[1000] = "x1000";
+            try
+            {
+                v.parse(input);
+                fail("Expected ValidationException");
+            }
+            catch (ValidationException ex)
+            {
+                assertEquals("x1000", ex.getMessage());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void streamingVarargsShouldParseLazilyAndReadStdin()
+        throws ParseException, ValidationException
+    {
+        Validator v = new Validator();
+        v.setStandardInput(new ByteArrayInputStream("3\n\n4\nx5\n".getBytes(StandardCharsets.UTF_8)));
+
+        AtomicInteger parsed = new AtomicInteger();
+        Argument arg = new Argument("arg", 0, value -> {
+            parsed.incrementAndGet();
+            if (value.startsWith("x"))
+            {
+                throw new ValidationException(value);
+            }
+            return Integer.parseInt(value);
+        });
+        arg.setVariadic(true);
+        arg.setStreaming(true);
+        v.add(arg);
+
+        Validator.ValidatedInput vi = v.parse(new String[]{"1", "2", "-"});
+        assertEquals(0, parsed.get());
+
+        Iterator<Object> values = vi.getArgumentStream("arg").iterator();
+        assertEquals(1, values.next());
+        assertEquals(1, parsed.get());
+        assertEquals(2, values.next());
+        assertEquals(3, values.next());
+        assertEquals(4, values.next());
+        try
+        {
+            values.next();
+            fail("Expected UncheckedValidationException");
+        }
+        catch (UncheckedValidationException ex)
+        {
+            assertEquals("x5", ex.getCause().getMessage());
+        }
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void shouldNotAllowStreamingNonVariadicArgument()
+        throws MisconfigurationException
+    {
+        Argument arg = new Argument("arg", 0);
+        arg.setStreaming(true);
+        new Validator().add(arg);
+    }
 }
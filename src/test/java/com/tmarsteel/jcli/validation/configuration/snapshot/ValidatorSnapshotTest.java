@@ -0,0 +1,278 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.snapshot;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.filter.*;
+import com.tmarsteel.jcli.rule.AndRule;
+import com.tmarsteel.jcli.rule.OptionSetRule;
+import com.tmarsteel.jcli.rule.Rule;
+import com.tmarsteel.jcli.rule.XorOptionsRule;
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.RuleNotMetException;
+import com.tmarsteel.jcli.validation.ValidationException;
+import com.tmarsteel.jcli.validation.Validator;
+import com.tmarsteel.jcli.validation.configuration.xml.XMLValidatorConfigurator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class ValidatorSnapshotTest
+{
+    private static Validator roundTrip(Validator validator)
+        throws IOException
+    {
+        Validator restored = new Validator(validator.getEnvironment());
+        ValidatorSnapshot.read(ValidatorSnapshot.of(validator).toByteArray()).configure(restored);
+        return restored;
+    }
+
+    private static <T> T only(Iterator<? extends T> it)
+    {
+        T element = it.next();
+        assertFalse(it.hasNext());
+        return element;
+    }
+
+    @Test
+    public void testFlagsOptionsAndArguments()
+        throws Exception
+    {
+        Validator validator = new Validator();
+        Flag flag = new Flag("verbose", "v");
+        flag.setDescription("Talks a lot");
+        validator.add(flag);
+        Option option = new Option(new IntegerFilter(1, 20, 16), 5L, "level", "l");
+        option.setAllowsMultipleValues(true);
+        option.setDescription("Ümlauts and more");
+        validator.add(option);
+        Argument argument = new Argument("files", 0, null, new RegexFilter("(\\w+)\\.txt"));
+        argument.setVariadic(true);
+        argument.setRequired(false);
+        validator.add(argument);
+
+        Validator restored = roundTrip(validator);
+
+        Flag restoredFlag = only(restored.flags());
+        assertArrayEquals(flag.names(), restoredFlag.names());
+        assertEquals("Talks a lot", restoredFlag.getDescription());
+
+        Option restoredOption = only(restored.options());
+        assertArrayEquals(option.names(), restoredOption.names());
+        assertEquals(5L, restoredOption.getDefaultValue());
+        assertTrue(restoredOption.allowsMultipleValues());
+        assertFalse(restoredOption.isRequired());
+        assertEquals("Ümlauts and more", restoredOption.getDescription());
+        IntegerFilter integerFilter = (IntegerFilter) restoredOption.getFilter();
+        assertEquals(1, integerFilter.getMinValue());
+        assertEquals(20, integerFilter.getMaxValue());
+        assertEquals(16, integerFilter.getRadix());
+
+        Argument restoredArgument = only(restored.arguments());
+        assertEquals("files", restoredArgument.getIdentifier());
+        assertTrue(restoredArgument.isVariadic());
+        assertFalse(restoredArgument.isRequired());
+        assertEquals("(\\w+)\\.txt", ((RegexFilter) restoredArgument.getFilter()).getPattern().pattern());
+
+        assertEquals(Arrays.asList(10L, 11L), restored.parse(new String[]{ "--level", "a", "--level", "b" })
+            .getOptionValues("level"));
+    }
+
+    @Test
+    public void testFilters()
+        throws Exception
+    {
+        EnumFilter<TimeUnit> enumFilter = new EnumFilter<>(TimeUnit.class, true);
+        enumFilter.addAlias(TimeUnit.SECONDS, "s");
+        Map<String, Integer> table = new HashMap<>();
+        table.put("one", 1);
+        RegexFilter regexFilter = new RegexFilter("a+");
+        regexFilter.setEngine(RegexEngine.LINEAR);
+        regexFilter.setMaxLength(20);
+
+        Validator validator = new Validator();
+        validator.add(new Option(new BigIntegerFilter(BigInteger.ZERO, null), null, "big"));
+        validator.add(new Option(new SetFilter(true, "x", "y"), null, "set"));
+        validator.add(new Option(enumFilter, null, "unit"));
+        validator.add(new Option(new CachingFilter(new DecimalFilter(0, 1), 8), null, "ratio"));
+        validator.add(new Option(new FilterPipeline().trim().toLowerCase().andThen(new SetFilter("one"))
+            .map(FilterPipeline.lookup(table)), null, "number"));
+        validator.add(new Option(regexFilter, null, "regex"));
+        validator.add(new Option(new RegexSetFilter("a", "b+"), null, "regexes"));
+
+        Validator.ValidatedInput input = roundTrip(validator).parse(new String[]{
+            "--big", "123456789012345678901234567890", "--set", "y", "--unit", "s", "--ratio", "0.5",
+            "--number", " ONE ", "--regex", "aaa", "--regexes", "bb"
+        });
+
+        assertEquals(new BigInteger("123456789012345678901234567890"), input.getOption("big"));
+        assertEquals("y", input.getOption("set"));
+        assertEquals(TimeUnit.SECONDS, input.getOption("unit"));
+        assertEquals(0.5, (Double) input.getOption("ratio"), 0);
+        assertEquals(1, input.getOption("number"));
+        assertEquals("aaa", input.getOption("regex"));
+        assertEquals(1, ((RegexSetFilter.Match) input.getOption("regexes")).getRegexIndex());
+    }
+
+    @Test(expected = RuleNotMetException.class)
+    public void testRules()
+        throws Exception
+    {
+        Validator validator = new Validator();
+        validator.add(new Flag("a"));
+        validator.add(new Flag("b"));
+        Option c = new Option("c");
+        c.setRequired(false);
+        validator.add(c);
+        OptionSetRule rule = new OptionSetRule("c");
+        rule.setErrorMessage("c is missing");
+        validator.add(new AndRule(new XorOptionsRule("a", "b"), rule));
+        validator.add(Rule.ONLY_KNOWN_FLAGS);
+
+        Validator restored = roundTrip(validator);
+        Rule restoredRule = null;
+        for (Iterator<? extends Rule> it = restored.rules();it.hasNext();)
+        {
+            Rule next = it.next();
+            if (next != Rule.ONLY_KNOWN_FLAGS)
+            {
+                restoredRule = next;
+            }
+        }
+        assertEquals("c is missing", ((OptionSetRule) ((AndRule) restoredRule).getRules().get(1)).getErrorMessage());
+
+        restored.parse(new String[]{ "-a" });
+    }
+
+    @Test
+    public void testXMLConfiguration()
+        throws Exception
+    {
+        Validator validator = new Validator();
+        XMLValidatorConfigurator.getInstance(XMLValidatorConfigurator.class.getResourceAsStream("testconfig.xml"))
+            .configure(validator);
+
+        Validator restored = roundTrip(validator);
+
+        assertEquals(count(validator.flags()), count(restored.flags()));
+        assertEquals(count(validator.options()), count(restored.options()));
+        assertEquals(count(validator.arguments()), count(restored.arguments()));
+        assertEquals(count(validator.rules()), count(restored.rules()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFilter()
+    {
+        Validator validator = new Validator();
+        validator.add(new Option(value -> value, null, "custom"));
+
+        ValidatorSnapshot.of(validator);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherData()
+        throws IOException
+    {
+        ValidatorSnapshot.read(new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherVersion()
+        throws IOException
+    {
+        byte[] data = ValidatorSnapshot.of(new Validator()).toByteArray();
+        data[5]++;
+
+        ValidatorSnapshot.read(data);
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void testRejectsNegativeCount()
+        throws IOException
+    {
+        byte[] header = ValidatorSnapshot.of(new Validator()).toByteArray();
+        ByteBuffer data = ByteBuffer.allocate(ValidatorSnapshot.HEADER_SIZE + 8);
+        data.put(header, 0, ValidatorSnapshot.HEADER_SIZE);
+        data.putInt(1); // one flag
+        data.putInt(-1); // with a negative number of names
+
+        ValidatorSnapshot.read(data.array()).configure(new Validator());
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void testRejectsUnknownConstant()
+        throws IOException
+    {
+        RegexFilter filter = new RegexFilter("a+");
+        filter.setEngine(RegexEngine.LINEAR);
+        Validator validator = new Validator();
+        validator.add(new Option(filter, null, "regex"));
+
+        corrupt(validator, "LINEAR", "LINEAX").configure(new Validator());
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void testRejectsMalformedNumber()
+        throws IOException
+    {
+        Validator validator = new Validator();
+        validator.add(new Option(new BigIntegerFilter(BigInteger.valueOf(12345), null), null, "number"));
+
+        corrupt(validator, "12345", "12x45").configure(new Validator());
+    }
+
+    /**
+     * Returns the snapshot of the given validator with the first occurrence of <code>from</code> replaced by
+     * <code>to</code>, which has to be of the same length.
+     */
+    private static ValidatorSnapshot corrupt(Validator validator, String from, String to)
+        throws IOException
+    {
+        byte[] data = ValidatorSnapshot.of(validator).toByteArray();
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        int offset = text.indexOf(from);
+        assertTrue(offset >= 0);
+        System.arraycopy(to.getBytes(StandardCharsets.ISO_8859_1), 0, data, offset, to.length());
+        return ValidatorSnapshot.read(data);
+    }
+
+    private static int count(Iterator<?> it)
+    {
+        int n = 0;
+        for (;it.hasNext();n++)
+        {
+            it.next();
+        }
+        return n;
+    }
+}
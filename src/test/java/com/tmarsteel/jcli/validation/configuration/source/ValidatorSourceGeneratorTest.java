@@ -0,0 +1,279 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.source;
+
+import com.tmarsteel.jcli.Argument;
+import com.tmarsteel.jcli.Flag;
+import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.filter.*;
+import com.tmarsteel.jcli.rule.AndRule;
+import com.tmarsteel.jcli.rule.OptionSetRule;
+import com.tmarsteel.jcli.rule.Rule;
+import com.tmarsteel.jcli.rule.XorOptionsRule;
+import com.tmarsteel.jcli.validation.RuleNotMetException;
+import com.tmarsteel.jcli.validation.Validator;
+import com.tmarsteel.jcli.validation.configuration.ValidatorConfigurator;
+import com.tmarsteel.jcli.validation.configuration.xml.XMLValidatorConfigurator;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.math.BigInteger;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class ValidatorSourceGeneratorTest
+{
+    /**
+     * Generates, compiles and loads the configurator for the given validator and configures a new validator with it.
+     */
+    private static Validator regenerate(Validator validator)
+        throws Exception
+    {
+        Path sourceRoot = Files.createTempDirectory("jcli-source");
+        Path source = new ValidatorSourceGenerator("generated.TestConfigurator").writeTo(validator, "a test", sourceRoot);
+
+        String classpath = new File(Validator.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            + File.pathSeparator
+            + new File(ValidatorSourceGeneratorTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-proc:none", "-classpath", classpath, "-d",
+            sourceRoot.toString(), source.toString()));
+
+        try (URLClassLoader loader = new URLClassLoader(new java.net.URL[]{ sourceRoot.toUri().toURL() },
+            ValidatorSourceGeneratorTest.class.getClassLoader()))
+        {
+            ValidatorConfigurator configurator = (ValidatorConfigurator) loader.loadClass("generated.TestConfigurator")
+                .newInstance();
+            Validator generated = new Validator();
+            configurator.configure(generated);
+            return generated;
+        }
+    }
+
+    private static Option option(Validator validator, String name)
+    {
+        for (Iterator<? extends Option> it = validator.options();it.hasNext();)
+        {
+            Option option = it.next();
+            if (option.getPrimaryIdentifier().equals(name))
+            {
+                return option;
+            }
+        }
+        throw new AssertionError("No option " + name);
+    }
+
+    @Test
+    public void testFlagsOptionsAndArguments()
+        throws Exception
+    {
+        Validator validator = new Validator();
+        Flag flag = new Flag("verbose", "v");
+        flag.setDescription("Talks \"a lot\"\n\tand ümläuts \\u0041 */");
+        validator.add(flag);
+        Option option = new Option(new IntegerFilter(1, 20, 16), 5L, "level", "l");
+        option.setAllowsMultipleValues(true);
+        validator.add(option);
+        validator.add(new Option("plain"));
+        Argument argument = new Argument("files", 0, null, new RegexFilter("(\\w+)\\.txt"));
+        argument.setVariadic(true);
+        argument.setRequired(false);
+        validator.add(argument);
+
+        Validator generated = regenerate(validator);
+
+        Flag generatedFlag = generated.flags().next();
+        assertArrayEquals(flag.names(), generatedFlag.names());
+        assertEquals(flag.getDescription(), generatedFlag.getDescription());
+
+        Option generatedOption = option(generated, "level");
+        assertArrayEquals(option.names(), generatedOption.names());
+        assertEquals(5L, generatedOption.getDefaultValue());
+        assertTrue(generatedOption.allowsMultipleValues());
+        assertFalse(generatedOption.isRequired());
+        assertNull(option(generated, "plain").getFilter());
+
+        Argument generatedArgument = generated.arguments().next();
+        assertEquals("files", generatedArgument.getIdentifier());
+        assertTrue(generatedArgument.isVariadic());
+        assertFalse(generatedArgument.isRequired());
+
+        Validator.ValidatedInput input = generated.parse(new String[]{ "--level", "a", "--level", "b", "--plain", "x",
+            "notes.txt" });
+        assertEquals(Arrays.asList(10L, 11L), input.getOptionValues("level"));
+        assertEquals("notes.txt", input.getArgument("files"));
+    }
+
+    @Test
+    public void testFilters()
+        throws Exception
+    {
+        EnumFilter<TimeUnit> enumFilter = new EnumFilter<>(TimeUnit.class, true);
+        enumFilter.addAlias(TimeUnit.SECONDS, "s");
+        Map<String, Integer> table = new HashMap<>();
+        table.put("one", 1);
+        RegexFilter regexFilter = new RegexFilter("a+");
+        regexFilter.setEngine(RegexEngine.LINEAR);
+
+        Validator validator = new Validator();
+        validator.add(new Option(new BigIntegerFilter(BigInteger.ZERO, null), null, "big"));
+        validator.add(new Option(new SetFilter(true, "x", "y"), null, "set"));
+        validator.add(new Option(enumFilter, TimeUnit.DAYS, "unit"));
+        validator.add(new Option(new CachingFilter(new DecimalFilter(0, 1), 8), null, "ratio"));
+        validator.add(new Option(new FilterPipeline().trim().toLowerCase().andThen(new SetFilter("one"))
+            .map(FilterPipeline.lookup(table)), null, "number"));
+        validator.add(new Option(regexFilter, null, "regex"));
+        validator.add(new Option(new RegexSetFilter("a", "b+"), null, "regexes"));
+
+        Validator generated = regenerate(validator);
+        Validator.ValidatedInput input = generated.parse(new String[]{
+            "--big", "123456789012345678901234567890", "--set", "y", "--unit", "s", "--ratio", "0.5",
+            "--number", " ONE ", "--regex", "aaa", "--regexes", "bb"
+        });
+
+        assertEquals(new BigInteger("123456789012345678901234567890"), input.getOption("big"));
+        assertEquals("y", input.getOption("set"));
+        assertEquals(TimeUnit.SECONDS, input.getOption("unit"));
+        assertEquals(0.5, (Double) input.getOption("ratio"), 0);
+        assertEquals(1, input.getOption("number"));
+        assertEquals("aaa", input.getOption("regex"));
+        assertEquals(1, ((RegexSetFilter.Match) input.getOption("regexes")).getRegexIndex());
+
+        assertEquals(TimeUnit.DAYS, option(generated, "unit").getDefaultValue());
+    }
+
+    @Test(expected = RuleNotMetException.class)
+    public void testRules()
+        throws Exception
+    {
+        Validator validator = new Validator();
+        validator.add(new Flag("a"));
+        validator.add(new Flag("b"));
+        Option c = new Option("c");
+        c.setRequired(false);
+        validator.add(c);
+        OptionSetRule rule = new OptionSetRule("c");
+        rule.setErrorMessage("c is missing");
+        validator.add(new AndRule(new XorOptionsRule("a", "b"), rule));
+        validator.add(Rule.ONLY_KNOWN_FLAGS);
+
+        regenerate(validator).parse(new String[]{ "-a" });
+    }
+
+    @Test
+    public void testXMLConfiguration()
+        throws Exception
+    {
+        Validator validator = new Validator();
+        XMLValidatorConfigurator.getInstance(XMLValidatorConfigurator.class.getResourceAsStream("testconfig.xml"))
+            .configure(validator);
+
+        String[] args = { "--option1", "x", "--option2", " ON ", "--option4", "VALUE", "a", "b", "c" };
+        Validator.ValidatedInput expected = validator.parse(args);
+        Validator.ValidatedInput input = regenerate(validator).parse(args);
+
+        assertEquals(expected.flagValues(), input.flagValues());
+        assertEquals(expected.argumentValues(), input.argumentValues());
+        assertEquals(expected.getOption("option2"), input.getOption("option2"));
+        assertEquals("VALUE", input.getOption("option4"));
+        assertEquals("a", input.getArgument("arg1"));
+    }
+
+    @Test
+    public void testLargeEntriesAreSplitIntoMethods()
+        throws Exception
+    {
+        // each of these would exceed the size limit of a single method
+        final int n = 10000;
+        EnumFilter<TimeUnit> enumFilter = new EnumFilter<>(TimeUnit.class, true);
+        Map<String, Integer> table = new HashMap<>();
+        List<String> options = new ArrayList<>();
+        for (int i = 0;i < n;i++)
+        {
+            enumFilter.addAlias(TimeUnit.SECONDS, "s" + i);
+            table.put("key" + i, i);
+            options.add("option" + i);
+        }
+
+        Validator validator = new Validator();
+        validator.add(new Option(enumFilter, null, "unit"));
+        validator.add(new Option(new FilterPipeline().map(FilterPipeline.lookup(table)), null, "number"));
+        validator.add(new Option(new SetFilter(true, options), null, "set"));
+
+        Validator generated = regenerate(validator);
+        Validator.ValidatedInput input = generated.parse(new String[]{
+            "--unit", "s9999", "--number", "key1234", "--set", "option9999"
+        });
+
+        assertEquals(TimeUnit.SECONDS, input.getOption("unit"));
+        assertEquals(1234, input.getOption("number"));
+        assertEquals("option9999", input.getOption("set"));
+    }
+
+    @Test
+    public void testGeneratedSource()
+    {
+        Validator validator = new Validator();
+        validator.add(new Option(new IntegerFilter(0, 100, 10), null, "percent"));
+
+        String source = new ValidatorSourceGenerator("com.example.Config").generate(validator, "config.xml");
+
+        assertTrue(source.startsWith("package com.example;\n"));
+        assertTrue(source.contains("import com.tmarsteel.jcli.filter.IntegerFilter;\n"));
+        assertTrue(source.contains("public final class Config implements ValidatorConfigurator"));
+        assertTrue(source.contains("new IntegerFilter(0L, 100L, 10)"));
+        assertTrue(source.contains("from config.xml"));
+    }
+
+    @Test
+    public void testStringLiteral()
+    {
+        assertEquals("\"a\\\"b\\\\c\\n\\001\\u00e4\"", SourceWriter.string("a\"b\\c\n\u0001ä"));
+        assertEquals("null", SourceWriter.string(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFilter()
+    {
+        Validator validator = new Validator();
+        validator.add(new Option(value -> value, null, "custom"));
+
+        new ValidatorSourceGenerator("Config").generate(validator);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClassName()
+    {
+        new ValidatorSourceGenerator("com.example.1Config");
+    }
+}
@@ -3,6 +3,7 @@ package com.tmarsteel.jcli.validation.configuration.xml;
 import com.tmarsteel.jcli.ParseException;
 import com.tmarsteel.jcli.filter.*;
 import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.ValidationException;
 import org.junit.Before;
 import org.junit.Test;
 import org.w3c.dom.Document;
@@ -15,6 +16,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -179,4 +181,61 @@ public class FilterParsingUtilTest
     {
         SetFilter filter = FilterParsingUtil.parseSetFilter(dummyContext, testNodes.item(14));
     }
+
+    // -- enum --
+    @Test
+    public void enum_testNodeParser()
+        throws ParseException, ValidationException
+    {
+        EnumFilter<?> filter = FilterParsingUtil.parseEnumFilter(dummyContext, testNodes.item(15));
+
+        assertEquals(TimeUnit.class, filter.getEnumType());
+        assertFalse(filter.isCaseSensitive());
+        assertEquals(TimeUnit.SECONDS, filter.parse("S"));
+        assertEquals(TimeUnit.MINUTES, filter.parse("min"));
+        assertEquals(TimeUnit.HOURS, filter.parse("hours"));
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void enum_nodeParserShouldFailOnUnknownConstant()
+        throws ParseException
+    {
+        FilterParsingUtil.parseEnumFilter(dummyContext, testNodes.item(16));
+    }
+
+    // -- regex-set --
+    @Test
+    public void regexSet_testNodeParser()
+        throws ParseException, ValidationException
+    {
+        RegexSetFilter filter = FilterParsingUtil.parseRegexSetFilter(dummyContext, testNodes.item(17));
+
+        assertEquals(Arrays.asList("\\d+", "[a-z]+"), filter.getRegexes());
+        assertEquals(1, filter.parse("abc").getRegexIndex());
+    }
+
+    // -- regex with linear engine --
+    @Test
+    public void regex_testNodeParserWithLinearEngine()
+        throws ValidationException
+    {
+        RegexFilter filter = FilterParsingUtil.parseRegexFilter(dummyContext, testNodes.item(18));
+
+        assertEquals(RegexEngine.LINEAR, filter.getEngine());
+        assertEquals(10, filter.getMaxLength());
+        assertEquals(500, filter.getMaxSteps());
+        assertEquals("bcde", filter.parse("abcdef"));
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void regex_nodeParserShouldFailOnUnsupportedSyntaxForLinearEngine()
+    {
+        FilterParsingUtil.parseRegexFilter(dummyContext, testNodes.item(19));
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void regex_nodeParserShouldFailOnNonPositiveMaxSteps()
+    {
+        FilterParsingUtil.parseRegexFilter(dummyContext, testNodes.item(20));
+    }
 }
@@ -0,0 +1,60 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.xml;
+
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.Validator;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs the tests of {@link XMLValidatorConfiguratorTest} against {@link StAXValidatorConfigurator}.
+ * @author Tobias Marstaller
+ */
+public class StAXValidatorConfiguratorTest extends XMLValidatorConfiguratorTest
+{
+    @Override
+    protected XMLValidatorConfigurator createSubject(InputStream config) {
+        return new StAXValidatorConfigurator(config, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldReadStreamOnlyOnce() {
+        XMLValidatorConfigurator subject = createSubject(
+            new ByteArrayInputStream("<cli><flag identifier=\"f\" /></cli>".getBytes(StandardCharsets.UTF_8))
+        );
+
+        subject.configure(new Validator());
+        subject.configure(new Validator());
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void shouldRejectUnknownRootNode() {
+        createSubject(new ByteArrayInputStream("<config />".getBytes(StandardCharsets.UTF_8)))
+            .configure(new Validator());
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void shouldRejectMalformedXML() {
+        createSubject(new ByteArrayInputStream("<cli><flag identifier=\"f\"></cli>".getBytes(StandardCharsets.UTF_8)))
+            .configure(new Validator());
+    }
+}
@@ -0,0 +1,145 @@
+/* 
+ * Copyright (C) 2015 Tobias Marstaller
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package com.tmarsteel.jcli.validation.configuration.xml;
+
+import com.tmarsteel.jcli.filter.SetFilter;
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.Validator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tobias Marstaller
+ */
+public class XMLConfigurationLoaderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private XMLConfigurationLoader subject;
+
+    @Before
+    public void setUp()
+    {
+        executor = Executors.newFixedThreadPool(2);
+        subject = new XMLConfigurationLoader(null, executor);
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    private File copyTestConfig(String name) throws IOException
+    {
+        File file = folder.newFile(name);
+        try (InputStream in = XMLConfigurationLoaderTest.class.getResourceAsStream("testconfig.xml"))
+        {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    private File write(String name, String content) throws IOException
+    {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void shouldLoadAllFiles() throws Exception
+    {
+        List<File> files = new ArrayList<>();
+        for (int i = 0;i < 20;i++)
+        {
+            files.add(copyTestConfig("command" + i + ".xml"));
+        }
+
+        XMLConfigurationLoader.Result result = subject.load(files);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(20, result.getValidators().size());
+        assertEquals("command0", result.getValidators().keySet().iterator().next());
+        for (Validator validator : result.getValidators().values())
+        {
+            assertTrue(validator.knowsOption("option2"));
+            assertTrue(validator.knowsFlag("f2"));
+        }
+    }
+
+    @Test
+    public void shouldCollectErrorsPerFile() throws Exception
+    {
+        Map<String, File> files = new LinkedHashMap<>();
+        files.put("good", copyTestConfig("good.xml"));
+        files.put("malformed", write("malformed.xml", "<cli><flag identifier=\"a\"></cli>"));
+        files.put("invalid", write("invalid.xml", "<cli><flag /></cli>"));
+        files.put("missing", new File(folder.getRoot(), "missing.xml"));
+
+        XMLConfigurationLoader.Result result = subject.load(files);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(Collections.singleton("good"), result.getValidators().keySet());
+        assertTrue(result.getErrors().get("malformed") instanceof SAXException);
+        assertTrue(result.getErrors().get("invalid") instanceof MisconfigurationException);
+        assertTrue(result.getErrors().get("missing") instanceof FileNotFoundException);
+    }
+
+    @Test
+    public void shouldApplyCustomizer() throws Exception
+    {
+        subject.setCustomizer(configurator -> configurator.setFilterType("yes-no",
+            (context, node) -> new SetFilter("yes", "no")));
+        File file = write("custom.xml", "<cli><option identifier=\"confirm\"><filter type=\"yes-no\" /></option></cli>");
+
+        XMLConfigurationLoader.Result result = subject.load(Collections.singleton(file));
+
+        assertTrue(result.getErrors().toString(), result.isSuccessful());
+        assertEquals("yes", result.getValidators().get("custom").parse(new String[]{ "--confirm", "yes" })
+            .getOption("confirm"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectFilesWithTheSameName() throws Exception
+    {
+        subject.load(Arrays.asList(
+            new File(folder.newFolder("a"), "commit.xml"),
+            new File(folder.newFolder("b"), "commit.xml")
+        ));
+    }
+}
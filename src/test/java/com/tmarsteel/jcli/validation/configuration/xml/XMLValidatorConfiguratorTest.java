@@ -20,15 +20,25 @@ package com.tmarsteel.jcli.validation.configuration.xml;
 import com.tmarsteel.jcli.Argument;
 import com.tmarsteel.jcli.Flag;
 import com.tmarsteel.jcli.Option;
+import com.tmarsteel.jcli.filter.CachingFilter;
+import com.tmarsteel.jcli.rule.CombinedRule;
 import com.tmarsteel.jcli.rule.Rule;
+import com.tmarsteel.jcli.validation.MisconfigurationException;
+import com.tmarsteel.jcli.validation.ValidationException;
 import com.tmarsteel.jcli.validation.Validator;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.function.Predicate;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -43,9 +53,11 @@ public class XMLValidatorConfiguratorTest
     @Before
     public void setUp() throws Exception {
         spyValidator = spy(new Validator());
-        subject = XMLValidatorConfigurator.getInstance(
-            getClass().getResourceAsStream("testconfig.xml")
-        );
+        subject = createSubject(XMLValidatorConfiguratorTest.class.getResourceAsStream("testconfig.xml"));
+    }
+
+    protected XMLValidatorConfigurator createSubject(InputStream config) throws Exception {
+        return XMLValidatorConfigurator.getInstance(config);
     }
 
     @Test
@@ -98,6 +110,19 @@ public class XMLValidatorConfiguratorTest
             "option2 missing or incorrect",
             containsMatching(spyValidator.options(), o -> o.getPrimaryIdentifier().equals("option2") && o.isIdentifiedBy("o2"))
         );
+        assertTrue(
+            "option2 pipeline missing or incorrect",
+            containsMatching(spyValidator.options(), o -> {
+                try
+                {
+                    return o.getPrimaryIdentifier().equals("option2") && "1".equals(o.getFilter().parse(" ON "));
+                }
+                catch (ValidationException ex)
+                {
+                    return false;
+                }
+            })
+        );
         // option 3
         assertTrue(
             "option3 missing or incorrect",
@@ -158,6 +183,116 @@ public class XMLValidatorConfiguratorTest
         verify(spyValidator, times(2)).add(notNull(Rule.class));
     }
 
+    @Test
+    public void compiledShouldConfigureLikeSubject() {
+        // ACT
+        CompiledXMLConfiguration compiled = subject.compile();
+        compiled.configure(spyValidator);
+
+        // ASSERT
+        verify(spyValidator, times(2)).add(notNull(Flag.class));
+        verify(spyValidator, times(4)).add(notNull(Option.class));
+        verify(spyValidator, times(2)).add(notNull(Argument.class));
+        verify(spyValidator, times(2)).add(notNull(Rule.class));
+        assertEquals("flag1", compiled.getFlags().get(0).getPrimaryIdentifier());
+        assertEquals("option4", compiled.getOptions().get(3).getPrimaryIdentifier());
+        assertEquals(subject.getEnvironment(), spyValidator.getEnvironment());
+    }
+
+    @Test
+    public void compiledShouldShareInstances() throws Exception {
+        // SETUP
+        CompiledXMLConfiguration compiled = subject.compile();
+        Validator first = new Validator();
+        Validator second = new Validator();
+
+        // ACT
+        compiled.configure(first);
+        compiled.configure(second);
+
+        // ASSERT
+        Option option = compiled.getOptions().get(1);
+        assertTrue(containsMatching(first.options(), o -> o == option));
+        assertTrue(containsMatching(second.options(), o -> o == option));
+        assertEquals(
+            first.parse(new String[]{ "--option1", "x", "--option2", "on", "a" }).getOption("option2"),
+            second.parse(new String[]{ "--option1", "x", "--option2", "on", "a" }).getOption("option2")
+        );
+    }
+
+    @Test
+    public void compiledShouldCopyAdaptiveRulesPerValidator() throws Exception {
+        // SETUP
+        CompiledXMLConfiguration compiled = createSubject(new ByteArrayInputStream((
+            "<cli>" +
+            "<option identifier=\"a\" required=\"false\" /><option identifier=\"b\" required=\"false\" />" +
+            "<rule type=\"option-set\"><option>a</option></rule>" +
+            "<rule type=\"or\" adaptive=\"true\">" +
+            "<rule type=\"option-set\"><option>a</option></rule>" +
+            "<rule type=\"option-set\"><option>b</option></rule>" +
+            "<error>a or b</error>" +
+            "</rule>" +
+            "</cli>"
+        ).getBytes(StandardCharsets.UTF_8))).compile();
+        Validator first = new Validator();
+        Validator second = new Validator();
+
+        // ACT
+        compiled.configure(first);
+        compiled.configure(second);
+
+        // ASSERT
+        Rule optionSet = compiled.getRules().get(0);
+        assertTrue(containsMatching(first.rules(), r -> r == optionSet));
+        assertTrue(containsMatching(second.rules(), r -> r == optionSet));
+
+        CombinedRule firstOr = findCombinedRule(first.rules());
+        CombinedRule secondOr = findCombinedRule(second.rules());
+        assertNotSame(firstOr, secondOr);
+        assertNotSame(compiled.getRules().get(1), firstOr);
+        assertTrue(firstOr.isAdaptive());
+        assertEquals("a or b", firstOr.getErrorMessage());
+        assertSame(firstOr.getRules().get(0), secondOr.getRules().get(0));
+        first.parse(new String[]{ "--a", "x" });
+    }
+
+    @Test
+    public void shouldCacheFilterResults() throws Exception {
+        Validator validator = new Validator();
+        createSubject(xml("<cli><option identifier=\"n\"><filter type=\"integer\" cache=\"4\" /></option></cli>"))
+            .configure(validator);
+
+        Option option = validator.options().next();
+        assertTrue(option.getFilter() instanceof CachingFilter);
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void shouldRejectCachedFileFilters() throws Exception {
+        createSubject(xml("<cli><option identifier=\"f\"><filter type=\"file\" cache=\"4\" /></option></cli>"))
+            .configure(new Validator());
+    }
+
+    @Test(expected = MisconfigurationException.class)
+    public void shouldRejectCachedPathFilters() throws Exception {
+        createSubject(xml("<cli><option identifier=\"p\"><filter type=\"path\" cache=\"4\" /></option></cli>"))
+            .configure(new Validator());
+    }
+
+    private static InputStream xml(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CombinedRule findCombinedRule(Iterator<? extends Rule> it) {
+        while (it.hasNext()) {
+            Rule rule = it.next();
+            if (rule instanceof CombinedRule) {
+                return (CombinedRule) rule;
+            }
+        }
+
+        throw new AssertionError("no combined rule");
+    }
+
     private <E> boolean containsMatching(Iterator<E> it, Predicate<? super E> predicate) {
         while (it.hasNext()) {
             if (predicate.test(it.next())) {